@@ -0,0 +1,20 @@
+package http;
+
+import java.util.Arrays;
+
+// Point d'entrée de benchmarks.jar : lance JMH avec les options de la ligne de commande, en
+// ajoutant le profileur gc (octets alloués par opération, gc.alloc.rate.norm) si aucun profileur
+// n'est demandé.
+// Usage : java -jar benchmarks/target/benchmarks.jar [options JMH] [expression régulière]
+public class BenchmarkMain {
+    public static void main(String[] args) throws Exception {
+        if (!Arrays.asList(args).contains("-prof")) {
+            String[] withProfiler = new String[args.length + 2];
+            withProfiler[0] = "-prof";
+            withProfiler[1] = "gc";
+            System.arraycopy(args, 0, withProfiler, 2, args.length);
+            args = withProfiler;
+        }
+        org.openjdk.jmh.Main.main(args);
+    }
+}
@@ -0,0 +1,74 @@
+package http;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+// Traduction de la sortie d'un script CGI en réponse HTTP (CgiResponseWriter) : analyse du bloc
+// d'en-têtes puis transmission d'un corps de 2 Kio ou 64 Kio, avec Content-Length annoncé
+// (corps tel quel) ou sans (corps chunked). La sortie arrive par blocs de 8 Kio, comme depuis
+// le tube de php-cgi.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CgiResponseBenchmark {
+    private static final byte[] HEAD = "GET /index.php?page=1 HTTP/1.1\r\nHost: localhost\r\n\r\n"
+            .getBytes(StandardCharsets.ISO_8859_1);
+
+    @Param({"2048", "65536"})
+    public int bodySize;
+
+    @Param({"true", "false"})
+    public boolean contentLength;
+
+    private byte[] output;
+    private MemoryConnection connection;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        StringBuilder headers = new StringBuilder()
+                .append("X-Powered-By: PHP/8.2.12\r\n")
+                .append("Set-Cookie: PHPSESSID=8f2b1c7d9e0a; path=/\r\n")
+                .append("Set-Cookie: lang=fr; path=/\r\n")
+                .append("Cache-Control: no-store, no-cache, must-revalidate\r\n")
+                .append("Content-Type: text/html; charset=UTF-8\r\n");
+        if (contentLength) {
+            headers.append("Content-Length: ").append(bodySize).append("\r\n");
+        }
+        headers.append("\r\n");
+        byte[] headerBytes = headers.toString().getBytes(StandardCharsets.ISO_8859_1);
+        output = new byte[headerBytes.length + bodySize];
+        System.arraycopy(headerBytes, 0, output, 0, headerBytes.length);
+        for (int i = headerBytes.length; i < output.length; i++) {
+            output[i] = (byte) ('a' + i % 26);
+        }
+        connection = new MemoryConnection();
+    }
+
+    @Benchmark
+    public long cgiResponse() throws IOException {
+        HttpRequest request = connection.request(HEAD);
+        CgiResponseWriter writer = new CgiResponseWriter(request, connection.response());
+        for (int offset = 0; offset < output.length; offset += 8192) {
+            writer.write(output, offset, Math.min(8192, output.length - offset));
+        }
+        writer.finish();
+        return connection.flush();
+    }
+}
@@ -0,0 +1,93 @@
+package http;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+// Liste d'un répertoire de 10, 1 000 et 10 000 entrées, avec les paramètres par défaut du serveur
+// (pages de 1 000 entrées) : contenu lu sur le disque à chaque fois (cache désactivé) ou servi
+// depuis l'instantané en cache, puis page HTML produite dans un flux qui ignore les octets
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DirectoryListingBenchmark {
+    @Param({"10", "1000", "10000"})
+    public int entries;
+
+    private File directory;
+    private final DirectoryListing uncached = new DirectoryListing(0, 0, 1000, 500);
+    private final DirectoryListing cached = new DirectoryListing(64, Long.MAX_VALUE, 1000, 500);
+    private final DirectoryListing.Page firstPage = DirectoryListing.Page.parse("");
+    private final DirectoryListing.Page bySizeDescending = DirectoryListing.Page.parse("sort=size&order=desc");
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("http-bench-listing").toFile();
+        for (int i = 0; i < entries; i++) {
+            try (FileOutputStream out = new FileOutputStream(new File(directory, "fichier-" + i + ".txt"))) {
+                out.write(new byte[i % 4096]);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        for (File child : directory.listFiles()) {
+            child.delete();
+        }
+        directory.delete();
+    }
+
+    @Benchmark
+    public long readAndRender() throws IOException {
+        return render(uncached, firstPage);
+    }
+
+    @Benchmark
+    public long cachedRender() throws IOException {
+        return render(cached, firstPage);
+    }
+
+    @Benchmark
+    public long cachedRenderSorted() throws IOException {
+        return render(cached, bySizeDescending);
+    }
+
+    private long render(DirectoryListing listing, DirectoryListing.Page page) throws IOException {
+        DirectoryListing.Snapshot snapshot = listing.snapshot(directory);
+        CountingOutputStream out = new CountingOutputStream();
+        listing.render(snapshot, page, out);
+        return out.count;
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] data, int offset, int length) {
+            count += length;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package http;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+// Taille lisible d'un fichier dans les listes de répertoires (octets, Ko, Mo, Go)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FormatFileSizeBenchmark {
+    private static final long[] SIZES = {0, 512, 4_096, 150_000, 3_500_000, 800_000_000, 5_000_000_000L, 42};
+
+    // Une opération = une taille du tableau
+    @Benchmark
+    @OperationsPerInvocation(8)
+    public void formatFileSize(Blackhole blackhole) {
+        for (long size : SIZES) {
+            blackhole.consume(DirectoryListing.formatFileSize(size));
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package http;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+// Analyse de la ligne de requête et des en-têtes : HttpRequestParser (avec les accès faits pour
+// chaque requête par le serveur), construction de la HttpRequest, et l'ancienne lecture ligne à
+// ligne (BufferedReader, split, TreeMap) comme référence
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HttpRequestParserBenchmark {
+    private static final byte[] REQUEST = ("GET /docs/index.html?lang=fr HTTP/1.1\r\n"
+            + "Host: localhost:1111\r\n"
+            + "User-Agent: Mozilla/5.0 (X11; Linux x86_64; rv:128.0) Gecko/20100101 Firefox/128.0\r\n"
+            + "Accept: text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8\r\n"
+            + "Accept-Language: fr-FR,fr;q=0.8,en-US;q=0.5,en;q=0.3\r\n"
+            + "Accept-Encoding: gzip, deflate, br\r\n"
+            + "Connection: keep-alive\r\n"
+            + "Upgrade-Insecure-Requests: 1\r\n"
+            + "If-None-Match: \"1f4-18c2a7b3e10\"\r\n"
+            + "Cache-Control: max-age=0\r\n"
+            + "\r\n").getBytes(StandardCharsets.ISO_8859_1);
+
+    private final HttpRequestParser parser = new HttpRequestParser();
+
+    @Benchmark
+    public long parser() throws IOException {
+        int length = parser.parse(REQUEST, 0, REQUEST.length);
+        int host = parser.findHeader("Host", 0);
+        int connection = parser.findHeader("Connection", 0);
+        return length + host + (parser.headerContains(connection, "close") ? 1 : 0)
+                + parser.findHeader("Content-Length", 0) + parser.findHeader("Transfer-Encoding", 0);
+    }
+
+    // Analyse suivie de la construction de la requête (méthode, cible, version, chemin, query string)
+    @Benchmark
+    public HttpRequest request() throws IOException {
+        parser.parse(REQUEST, 0, REQUEST.length);
+        HttpRequest request = new HttpRequest(parser, null);
+        request.isKeepAlive();
+        return request;
+    }
+
+    @Benchmark
+    public long lineByLine() throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new ByteArrayInputStream(REQUEST), StandardCharsets.ISO_8859_1));
+        String[] requestLine = reader.readLine().split(" ");
+        Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        String line;
+        while ((line = reader.readLine()) != null && !line.isEmpty()) {
+            int colon = line.indexOf(':');
+            headers.put(line.substring(0, colon).trim(), line.substring(colon + 1).trim());
+        }
+        String connection = headers.getOrDefault("Connection", "").toLowerCase();
+        return requestLine.length + headers.size() + (connection.contains("close") ? 1 : 0)
+                + (headers.containsKey("Content-Length") ? 1 : 0) + (headers.containsKey("Transfer-Encoding") ? 1 : 0);
+    }
+}
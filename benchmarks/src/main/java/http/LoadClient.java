@@ -0,0 +1,192 @@
+package http;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+// Connexion cliente HTTP/1.1 minimale pour les tests de charge : envoie une requête déjà encodée
+// et lit la réponse complète (Content-Length, chunked ou jusqu'à la fermeture) sans en garder le
+// corps. Une connexion persistante fermée par le serveur entre deux requêtes (délai d'inactivité,
+// nombre maximal de requêtes) est rouverte et la requête renvoyée une fois, comme le font les
+// navigateurs.
+final class LoadClient implements Closeable {
+    private final InetSocketAddress address;
+    private final int timeoutMillis;
+    private final byte[] skipBuffer = new byte[16 * 1024];
+    private final StringBuilder line = new StringBuilder(256);
+
+    private Socket socket;
+    private InputStream in;
+    private OutputStream out;
+    // Au moins un octet de la réponse en cours a été reçu
+    private boolean responseStarted;
+
+    // Octets du corps de la dernière réponse, découpage chunked compris
+    private long bodyBytes;
+    private long retries;
+
+    LoadClient(InetSocketAddress address, int timeoutMillis) {
+        this.address = address;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    // Envoie la requête et lit la réponse ; retourne son statut
+    int exchange(byte[] request, boolean head) throws IOException {
+        boolean reused = socket != null;
+        if (!reused) {
+            connect();
+        }
+        try {
+            return send(request, head);
+        } catch (IOException e) {
+            close();
+            if (!reused || responseStarted) {
+                throw e;
+            }
+            retries++;
+            connect();
+            return send(request, head);
+        }
+    }
+
+    long getBodyBytes() {
+        return bodyBytes;
+    }
+
+    long getRetries() {
+        return retries;
+    }
+
+    @Override
+    public void close() {
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Connexion déjà fermée
+            }
+            socket = null;
+        }
+    }
+
+    private void connect() throws IOException {
+        socket = new Socket();
+        socket.setTcpNoDelay(true);
+        socket.setSoTimeout(timeoutMillis);
+        socket.connect(address, timeoutMillis);
+        in = new BufferedInputStream(socket.getInputStream(), 16 * 1024);
+        out = new BufferedOutputStream(socket.getOutputStream(), 16 * 1024);
+    }
+
+    private int send(byte[] request, boolean head) throws IOException {
+        responseStarted = false;
+        bodyBytes = 0;
+        out.write(request);
+        out.flush();
+
+        String statusLine = readLine();
+        if (statusLine == null) {
+            throw new EOFException("Connexion fermée avant la réponse");
+        }
+        int firstSpace = statusLine.indexOf(' ');
+        if (!statusLine.startsWith("HTTP/") || firstSpace < 0 || statusLine.length() < firstSpace + 4) {
+            throw new IOException("Ligne de statut invalide : " + statusLine);
+        }
+        int status = Integer.parseInt(statusLine.substring(firstSpace + 1, firstSpace + 4));
+        boolean keepAlive = statusLine.startsWith("HTTP/1.1");
+        long contentLength = -1;
+        boolean chunked = false;
+        String header;
+        while ((header = readLine()) != null && !header.isEmpty()) {
+            int colon = header.indexOf(':');
+            if (colon < 0) {
+                continue;
+            }
+            String name = header.substring(0, colon).trim();
+            String value = header.substring(colon + 1).trim();
+            if (name.equalsIgnoreCase("Content-Length")) {
+                contentLength = Long.parseLong(value);
+            } else if (name.equalsIgnoreCase("Transfer-Encoding")) {
+                chunked = value.toLowerCase().contains("chunked");
+            } else if (name.equalsIgnoreCase("Connection")) {
+                keepAlive = !value.equalsIgnoreCase("close");
+            }
+        }
+        if (header == null) {
+            throw new EOFException("Connexion fermée au milieu des en-têtes");
+        }
+
+        if (head || status == 204 || status == 304 || (status >= 100 && status < 200)) {
+            // Pas de corps
+        } else if (chunked) {
+            readChunked();
+        } else if (contentLength >= 0) {
+            skip(contentLength);
+        } else {
+            // Corps délimité par la fermeture de la connexion
+            int count;
+            while ((count = in.read(skipBuffer)) >= 0) {
+                bodyBytes += count;
+            }
+            keepAlive = false;
+        }
+        if (!keepAlive) {
+            close();
+        }
+        return status;
+    }
+
+    private void readChunked() throws IOException {
+        while (true) {
+            String size = readLine();
+            if (size == null) {
+                throw new EOFException("Corps chunked incomplet");
+            }
+            // Le découpage compte dans la taille, comme côté serveur (HttpResponse.getBytesSent)
+            bodyBytes += size.length() + 2;
+            int extension = size.indexOf(';');
+            long length = Long.parseLong((extension >= 0 ? size.substring(0, extension) : size).trim(), 16);
+            if (length == 0) {
+                // Trailers éventuels, puis ligne vide
+                String trailer;
+                while ((trailer = readLine()) != null && !trailer.isEmpty()) {
+                    bodyBytes += trailer.length() + 2;
+                }
+                bodyBytes += 2;
+                return;
+            }
+            skip(length);
+            readLine();
+            bodyBytes += 2;
+        }
+    }
+
+    private void skip(long count) throws IOException {
+        while (count > 0) {
+            int read = in.read(skipBuffer, 0, (int) Math.min(skipBuffer.length, count));
+            if (read < 0) {
+                throw new EOFException("Corps de réponse incomplet");
+            }
+            count -= read;
+            bodyBytes += read;
+        }
+    }
+
+    // Ligne terminée par LF (CR final retiré), ou null en fin de flux
+    private String readLine() throws IOException {
+        line.setLength(0);
+        int b;
+        while ((b = in.read()) >= 0) {
+            responseStarted = true;
+            if (b == '\n') {
+                int length = line.length();
+                if (length > 0 && line.charAt(length - 1) == '\r') {
+                    line.setLength(length - 1);
+                }
+                return line.toString();
+            }
+            line.append((char) b);
+        }
+        return line.length() > 0 ? line.toString() : null;
+    }
+}
@@ -0,0 +1,659 @@
+package http;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Test de charge de bout en bout : démarre le serveur (processus enfant ou même JVM) sur un htdocs
+// temporaire généré (fichiers statiques, arborescences sans index, scripts PHP), avec un php-cgi de
+// substitution, puis envoie un mélange de requêtes en boucle fermée à plusieurs niveaux de
+// concurrence. Résultat en JSON : débit, latences p50/p99/p999, erreurs, par niveau et par type.
+//
+//   java -cp benchmarks.jar http.LoadTest --concurrency=1,8,32 --duration=10 --output=run.json
+//
+// Options (--clé=valeur) : mode=child|inprocess, engine=blocking|nio, concurrency, duration, warmup
+// (secondes), mix=type=poids,..., keepalive (part des requêtes sur connexion persistante, 0 à 1),
+// timeout (ms), php (vrai php-cgi à la place du stub), jvm (options de la JVM enfant, séparées par
+// des espaces), label, output, keep (garde le répertoire temporaire), server.<clé>=valeur
+// (ajoutée au server.conf généré).
+public class LoadTest {
+
+    // Types de requêtes du mélange
+    enum Kind {
+        STATIC_SMALL, STATIC_LARGE, LISTING, PHP_GET, PHP_POST, PHP_SLOW, NOT_FOUND;
+
+        final String label = name().toLowerCase(Locale.ROOT);
+
+        static Kind parse(String label) {
+            for (Kind kind : values()) {
+                if (kind.label.equals(label)) {
+                    return kind;
+                }
+            }
+            throw new IllegalArgumentException("Type de requête inconnu : " + label);
+        }
+    }
+
+    private static final String DEFAULT_MIX = "static_small=50,static_large=10,listing=10,php_get=20,php_post=10";
+    private static final int SMALL_FILES = 100;
+    private static final int LARGE_FILES = 4;
+    private static final int LARGE_FILE_BYTES = 1024 * 1024;
+    private static final int TREE_DIRECTORIES = 10;
+    private static final int MANY_ENTRIES = 2000;
+    private static final int POST_BODY_BYTES = 512;
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        String mode = options.getOrDefault("mode", "child");
+        String engine = options.getOrDefault("engine", "blocking");
+        int[] levels = parseLevels(options.getOrDefault("concurrency", "1,8,32,128"));
+        int duration = Integer.parseInt(options.getOrDefault("duration", "10"));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "3"));
+        double keepAlive = Double.parseDouble(options.getOrDefault("keepalive", "1.0"));
+        int timeout = Integer.parseInt(options.getOrDefault("timeout", "10000"));
+        int[] weights = parseMix(options.getOrDefault("mix", DEFAULT_MIX));
+
+        Path work = Files.createTempDirectory("http-load");
+        Path htdocs = work.resolve("htdocs");
+        generateSite(htdocs);
+        String php = options.containsKey("php") ? options.get("php") : extractStub(work).toString();
+        int port = options.containsKey("port") ? Integer.parseInt(options.get("port")) : freePort();
+
+        Properties conf = new Properties();
+        conf.setProperty("port", String.valueOf(port));
+        conf.setProperty("directory", htdocs.toAbsolutePath().toString());
+        conf.setProperty("php_enabled", "true");
+        conf.setProperty("php_interpreter", php);
+        conf.setProperty("engine", engine);
+        conf.setProperty("access_log", work.resolve("logs").resolve("access.log").toString());
+        conf.setProperty("error_log", work.resolve("logs").resolve("error.log").toString());
+        for (Map.Entry<String, String> option : options.entrySet()) {
+            if (option.getKey().startsWith("server.")) {
+                conf.setProperty(option.getKey().substring("server.".length()), option.getValue());
+            }
+        }
+        Path confFile = work.resolve("server.conf");
+        try (Writer writer = Files.newBufferedWriter(confFile, StandardCharsets.ISO_8859_1)) {
+            conf.store(writer, "Généré par LoadTest");
+        }
+
+        Process child = null;
+        if (mode.equals("inprocess")) {
+            Thread server = new Thread(() -> {
+                try {
+                    HttpServer.main(new String[] {confFile.toString()});
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }, "http-server");
+            server.setDaemon(true);
+            server.start();
+        } else {
+            List<String> command = new ArrayList<>();
+            command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+            String jvm = options.getOrDefault("jvm", "").trim();
+            if (!jvm.isEmpty()) {
+                command.addAll(Arrays.asList(jvm.split("\\s+")));
+            }
+            command.add("-cp");
+            command.add(System.getProperty("java.class.path"));
+            command.add(HttpServer.class.getName());
+            command.add(confFile.toString());
+            child = new ProcessBuilder(command)
+                    .directory(work.toFile())
+                    .redirectErrorStream(true)
+                    .redirectOutput(work.resolve("server.out").toFile())
+                    .start();
+        }
+
+        InetSocketAddress address = new InetSocketAddress("127.0.0.1", port);
+        StringBuilder json = new StringBuilder();
+        try {
+            waitReady(address, child, 30_000);
+            byte[][][][] requests = buildRequests(port);
+
+            json.append("{\n");
+            field(json, 1, "label", options.getOrDefault("label", "")).append(",\n");
+            field(json, 1, "timestamp", Instant.now().toString()).append(",\n");
+            field(json, 1, "java", System.getProperty("java.version")).append(",\n");
+            field(json, 1, "os", System.getProperty("os.name") + " " + System.getProperty("os.arch")).append(",\n");
+            field(json, 1, "cpus", Runtime.getRuntime().availableProcessors()).append(",\n");
+            field(json, 1, "mode", mode).append(",\n");
+            field(json, 1, "engine", engine).append(",\n");
+            field(json, 1, "php", options.containsKey("php") ? php : "stub").append(",\n");
+            field(json, 1, "keepAlive", keepAlive).append(",\n");
+            field(json, 1, "durationSeconds", duration).append(",\n");
+            field(json, 1, "warmupSeconds", warmup).append(",\n");
+            indent(json, 1).append("\"mix\": {");
+            boolean first = true;
+            for (Kind kind : Kind.values()) {
+                if (weights[kind.ordinal()] > 0) {
+                    json.append(first ? "" : ", ").append('"').append(kind.label).append("\": ").append(weights[kind.ordinal()]);
+                    first = false;
+                }
+            }
+            json.append("},\n");
+            indent(json, 1).append("\"runs\": [\n");
+            for (int i = 0; i < levels.length; i++) {
+                int concurrency = levels[i];
+                if (warmup > 0) {
+                    run(address, concurrency, warmup, keepAlive, timeout, weights, requests);
+                }
+                Result result = run(address, concurrency, duration, keepAlive, timeout, weights, requests);
+                System.err.printf(Locale.ROOT, "concurrence %d : %d requêtes, %.1f req/s, p99 %.2f ms, %d erreurs%n",
+                        concurrency, result.requests(), result.requests() / (double) duration,
+                        millis(percentile(result.all(), 0.99)), result.errors());
+                result.appendJson(json, concurrency, duration);
+                json.append(i + 1 < levels.length ? ",\n" : "\n");
+            }
+            indent(json, 1).append("]\n}\n");
+        } finally {
+            if (child != null) {
+                child.destroy();
+                child.waitFor();
+            }
+            if (!options.containsKey("keep")) {
+                deleteTree(work);
+            } else {
+                System.err.println("Répertoire de travail conservé : " + work);
+            }
+        }
+
+        String output = options.get("output");
+        if (output != null) {
+            Files.write(Paths.get(output), json.toString().getBytes(StandardCharsets.UTF_8));
+        } else {
+            System.out.print(json);
+        }
+        // Le serveur lancé dans la même JVM garde des threads non démons
+        System.exit(0);
+    }
+
+    // Un niveau de concurrence : une connexion cliente par thread, en boucle fermée
+    private static Result run(InetSocketAddress address, int concurrency, int seconds, double keepAlive,
+                              int timeout, int[] weights, byte[][][][] requests) throws InterruptedException {
+        long end = System.nanoTime() + seconds * 1_000_000_000L;
+        Worker[] workers = new Worker[concurrency];
+        Thread[] threads = new Thread[concurrency];
+        for (int i = 0; i < concurrency; i++) {
+            workers[i] = new Worker(new LoadClient(address, timeout), end, keepAlive, weights, requests);
+            threads[i] = new Thread(workers[i], "load-" + i);
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return Result.merge(workers);
+    }
+
+    private static final class Worker implements Runnable {
+        private final LoadClient client;
+        private final long end;
+        private final double keepAlive;
+        private final int[] cumulative;
+        private final byte[][][][] requests;
+        // Latences en nanosecondes par type de requête
+        final long[][] latencies = new long[Kind.values().length][];
+        final int[] counts = new int[Kind.values().length];
+        final long[] statuses = new long[600];
+        long bytes;
+        long ioErrors;
+        long timeouts;
+
+        Worker(LoadClient client, long end, double keepAlive, int[] weights, byte[][][][] requests) {
+            this.client = client;
+            this.end = end;
+            this.keepAlive = keepAlive;
+            this.requests = requests;
+            cumulative = new int[weights.length];
+            int total = 0;
+            for (int i = 0; i < weights.length; i++) {
+                total += weights[i];
+                cumulative[i] = total;
+            }
+            for (int i = 0; i < latencies.length; i++) {
+                latencies[i] = new long[1024];
+            }
+        }
+
+        @Override
+        public void run() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int total = cumulative[cumulative.length - 1];
+            while (System.nanoTime() < end) {
+                int draw = random.nextInt(total);
+                int kind = 0;
+                while (cumulative[kind] <= draw) {
+                    kind++;
+                }
+                boolean persistent = random.nextDouble() < keepAlive;
+                byte[][] variants = requests[kind][persistent ? 1 : 0];
+                byte[] request = variants[random.nextInt(variants.length)];
+                long start = System.nanoTime();
+                try {
+                    int status = client.exchange(request, false);
+                    long elapsed = System.nanoTime() - start;
+                    if (start + elapsed > end) {
+                        break;
+                    }
+                    record(kind, elapsed);
+                    statuses[Math.min(status, statuses.length - 1)]++;
+                    bytes += client.getBodyBytes();
+                } catch (java.net.SocketTimeoutException e) {
+                    timeouts++;
+                    client.close();
+                } catch (IOException | RuntimeException e) {
+                    ioErrors++;
+                    client.close();
+                }
+                if (!persistent) {
+                    client.close();
+                }
+            }
+            client.close();
+        }
+
+        private void record(int kind, long nanos) {
+            if (counts[kind] == latencies[kind].length) {
+                latencies[kind] = Arrays.copyOf(latencies[kind], counts[kind] * 2);
+            }
+            latencies[kind][counts[kind]++] = nanos;
+        }
+    }
+
+    // Résultats fusionnés d'un niveau de concurrence
+    private static final class Result {
+        final long[][] latencies = new long[Kind.values().length][];
+        final long[] statuses = new long[600];
+        long bytes;
+        long ioErrors;
+        long timeouts;
+        long retries;
+
+        static Result merge(Worker[] workers) {
+            Result result = new Result();
+            for (Kind kind : Kind.values()) {
+                int k = kind.ordinal();
+                int total = 0;
+                for (Worker worker : workers) {
+                    total += worker.counts[k];
+                }
+                long[] values = new long[total];
+                int offset = 0;
+                for (Worker worker : workers) {
+                    System.arraycopy(worker.latencies[k], 0, values, offset, worker.counts[k]);
+                    offset += worker.counts[k];
+                }
+                Arrays.sort(values);
+                result.latencies[k] = values;
+            }
+            for (Worker worker : workers) {
+                for (int i = 0; i < worker.statuses.length; i++) {
+                    result.statuses[i] += worker.statuses[i];
+                }
+                result.bytes += worker.bytes;
+                result.ioErrors += worker.ioErrors;
+                result.timeouts += worker.timeouts;
+                result.retries += worker.client.getRetries();
+            }
+            return result;
+        }
+
+        long requests() {
+            long total = 0;
+            for (long[] values : latencies) {
+                total += values.length;
+            }
+            return total;
+        }
+
+        long serverErrors() {
+            long total = 0;
+            for (int status = 500; status < statuses.length; status++) {
+                total += statuses[status];
+            }
+            return total;
+        }
+
+        long errors() {
+            return ioErrors + timeouts + serverErrors();
+        }
+
+        long[] all() {
+            long[] values = new long[(int) requests()];
+            int offset = 0;
+            for (long[] kind : latencies) {
+                System.arraycopy(kind, 0, values, offset, kind.length);
+                offset += kind.length;
+            }
+            Arrays.sort(values);
+            return values;
+        }
+
+        void appendJson(StringBuilder json, int concurrency, int seconds) {
+            indent(json, 2).append("{\n");
+            field(json, 3, "concurrency", concurrency).append(",\n");
+            field(json, 3, "requests", requests()).append(",\n");
+            field(json, 3, "throughput", round(requests() / (double) seconds)).append(",\n");
+            field(json, 3, "bytesReceived", bytes).append(",\n");
+            indent(json, 3).append("\"latencyMs\": ");
+            latency(json, all());
+            json.append(",\n");
+            indent(json, 3).append("\"errors\": {\"io\": ").append(ioErrors)
+                    .append(", \"timeouts\": ").append(timeouts)
+                    .append(", \"server\": ").append(serverErrors())
+                    .append(", \"total\": ").append(errors()).append("},\n");
+            field(json, 3, "retries", retries).append(",\n");
+            indent(json, 3).append("\"statuses\": {");
+            boolean first = true;
+            for (int status = 0; status < statuses.length; status++) {
+                if (statuses[status] > 0) {
+                    json.append(first ? "" : ", ").append('"').append(status).append("\": ").append(statuses[status]);
+                    first = false;
+                }
+            }
+            json.append("},\n");
+            indent(json, 3).append("\"kinds\": {\n");
+            first = true;
+            for (Kind kind : Kind.values()) {
+                long[] values = latencies[kind.ordinal()];
+                if (values.length == 0) {
+                    continue;
+                }
+                if (!first) {
+                    json.append(",\n");
+                }
+                first = false;
+                indent(json, 4).append('"').append(kind.label).append("\": {\"requests\": ").append(values.length)
+                        .append(", \"latencyMs\": ");
+                latency(json, values);
+                json.append('}');
+            }
+            json.append('\n');
+            indent(json, 3).append("}\n");
+            indent(json, 2).append('}');
+        }
+
+        private static void latency(StringBuilder json, long[] sorted) {
+            long sum = 0;
+            for (long value : sorted) {
+                sum += value;
+            }
+            double mean = sorted.length == 0 ? 0 : sum / (double) sorted.length;
+            json.append("{\"mean\": ").append(round(mean / 1_000_000.0))
+                    .append(", \"p50\": ").append(round(millis(percentile(sorted, 0.50))))
+                    .append(", \"p99\": ").append(round(millis(percentile(sorted, 0.99))))
+                    .append(", \"p999\": ").append(round(millis(percentile(sorted, 0.999))))
+                    .append(", \"max\": ").append(round(millis(sorted.length == 0 ? 0 : sorted[sorted.length - 1])))
+                    .append('}');
+        }
+    }
+
+    // Requêtes encodées une fois pour toutes : [type][0 = Connection: close, 1 = persistante][variante]
+    private static byte[][][][] buildRequests(int port) {
+        byte[][][][] requests = new byte[Kind.values().length][2][][];
+        for (Kind kind : Kind.values()) {
+            List<String> targets = new ArrayList<>();
+            String method = "GET";
+            byte[] body = null;
+            switch (kind) {
+                case STATIC_SMALL:
+                    for (int i = 0; i < SMALL_FILES; i++) {
+                        targets.add("/static/small-" + i + ".html");
+                    }
+                    break;
+                case STATIC_LARGE:
+                    for (int i = 0; i < LARGE_FILES; i++) {
+                        targets.add("/static/large-" + i + ".bin");
+                    }
+                    break;
+                case LISTING:
+                    for (int i = 0; i < TREE_DIRECTORIES; i++) {
+                        targets.add("/tree/a" + i + "/");
+                    }
+                    targets.add("/tree/many/");
+                    break;
+                case PHP_GET:
+                    for (int i = 0; i < 16; i++) {
+                        targets.add("/app/index.php?id=" + i + "&q=load");
+                    }
+                    break;
+                case PHP_POST:
+                    method = "POST";
+                    targets.add("/app/form.php");
+                    StringBuilder form = new StringBuilder("name=load");
+                    while (form.length() < POST_BODY_BYTES) {
+                        form.append("&field").append(form.length()).append("=value");
+                    }
+                    body = form.substring(0, POST_BODY_BYTES).getBytes(StandardCharsets.US_ASCII);
+                    break;
+                case PHP_SLOW:
+                    targets.add("/app/slow.php");
+                    break;
+                case NOT_FOUND:
+                    for (int i = 0; i < 16; i++) {
+                        targets.add("/missing/page-" + i + ".html");
+                    }
+                    break;
+            }
+            for (int persistent = 0; persistent < 2; persistent++) {
+                byte[][] variants = new byte[targets.size()][];
+                for (int i = 0; i < variants.length; i++) {
+                    variants[i] = encode(method, targets.get(i), port, persistent == 1, body);
+                }
+                requests[kind.ordinal()][persistent] = variants;
+            }
+        }
+        return requests;
+    }
+
+    private static byte[] encode(String method, String target, int port, boolean keepAlive, byte[] body) {
+        StringBuilder head = new StringBuilder(256);
+        head.append(method).append(' ').append(target).append(" HTTP/1.1\r\n")
+                .append("Host: 127.0.0.1:").append(port).append("\r\n")
+                .append("User-Agent: http-load-test\r\n")
+                .append("Accept: */*\r\n");
+        if (!keepAlive) {
+            head.append("Connection: close\r\n");
+        }
+        if (body != null) {
+            head.append("Content-Type: application/x-www-form-urlencoded\r\n")
+                    .append("Content-Length: ").append(body.length).append("\r\n");
+        }
+        head.append("\r\n");
+        byte[] bytes = head.toString().getBytes(StandardCharsets.US_ASCII);
+        if (body == null) {
+            return bytes;
+        }
+        byte[] request = Arrays.copyOf(bytes, bytes.length + body.length);
+        System.arraycopy(body, 0, request, bytes.length, body.length);
+        return request;
+    }
+
+    // htdocs généré : petits et gros fichiers, arborescences sans index, scripts pour le stub
+    private static void generateSite(Path htdocs) throws IOException {
+        Path statics = Files.createDirectories(htdocs.resolve("static"));
+        StringBuilder page = new StringBuilder("<!DOCTYPE html>\n<html><head><title>Page</title></head><body>\n");
+        while (page.length() < 2000) {
+            page.append("<p>Lorem ipsum dolor sit amet, consectetur adipiscing elit.</p>\n");
+        }
+        page.append("</body></html>\n");
+        byte[] small = page.toString().getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < SMALL_FILES; i++) {
+            Files.write(statics.resolve("small-" + i + ".html"), small);
+        }
+        byte[] large = new byte[LARGE_FILE_BYTES];
+        new Random(42).nextBytes(large);
+        for (int i = 0; i < LARGE_FILES; i++) {
+            Files.write(statics.resolve("large-" + i + ".bin"), large);
+        }
+
+        Path tree = htdocs.resolve("tree");
+        byte[] entry = "entrée\n".getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < TREE_DIRECTORIES; i++) {
+            Path directory = Files.createDirectories(tree.resolve("a" + i));
+            for (int j = 0; j < 5; j++) {
+                Path sub = Files.createDirectories(directory.resolve("b" + j));
+                Files.write(sub.resolve("file.txt"), entry);
+            }
+            for (int j = 0; j < 40; j++) {
+                Files.write(directory.resolve("file-" + j + ".txt"), entry);
+            }
+        }
+        Path many = Files.createDirectories(tree.resolve("many"));
+        for (int i = 0; i < MANY_ENTRIES; i++) {
+            Files.write(many.resolve("entry-" + i + ".txt"), entry);
+        }
+
+        Path app = Files.createDirectories(htdocs.resolve("app"));
+        Files.write(app.resolve("index.php"), "<?php echo 'index'; ?>\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(app.resolve("form.php"), "<?php echo count($_POST); ?>\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(app.resolve("slow.php"),
+                "<?php /* stub-delay-ms=50 */ usleep(50000); echo 'slow'; ?>\n".getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Copie le php-cgi de substitution embarqué dans le jar et le rend exécutable
+    private static Path extractStub(Path work) throws IOException {
+        Path stub = work.resolve("stub-php-cgi.sh");
+        try (InputStream in = LoadTest.class.getResourceAsStream("/stub-php-cgi.sh")) {
+            if (in == null) {
+                throw new FileNotFoundException("stub-php-cgi.sh absent du classpath");
+            }
+            Files.copy(in, stub);
+        }
+        if (!stub.toFile().setExecutable(true)) {
+            throw new IOException("Impossible de rendre exécutable : " + stub);
+        }
+        return stub.toAbsolutePath();
+    }
+
+    private static void waitReady(InetSocketAddress address, Process child, long timeoutMillis) throws Exception {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (true) {
+            try (Socket socket = new Socket()) {
+                socket.connect(address, 1000);
+                return;
+            } catch (IOException e) {
+                if (child != null && !child.isAlive()) {
+                    throw new IOException("Le serveur s'est arrêté au démarrage (code " + child.exitValue() + ")");
+                }
+                if (System.currentTimeMillis() > deadline) {
+                    throw new IOException("Serveur injoignable sur " + address);
+                }
+                Thread.sleep(100);
+            }
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static void deleteTree(Path root) throws IOException {
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    // Options --clé=valeur ; aussi utilisé par TrafficReplay
+    static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Option attendue sous la forme --clé=valeur : " + arg);
+            }
+            int equals = arg.indexOf('=');
+            if (equals < 0) {
+                options.put(arg.substring(2), "true");
+            } else {
+                options.put(arg.substring(2, equals), arg.substring(equals + 1));
+            }
+        }
+        return options;
+    }
+
+    private static int[] parseLevels(String value) {
+        String[] parts = value.split(",");
+        int[] levels = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            levels[i] = Integer.parseInt(parts[i].trim());
+        }
+        return levels;
+    }
+
+    private static int[] parseMix(String value) {
+        int[] weights = new int[Kind.values().length];
+        int total = 0;
+        for (String part : value.split(",")) {
+            int equals = part.indexOf('=');
+            Kind kind = Kind.parse(part.substring(0, equals).trim());
+            weights[kind.ordinal()] = Integer.parseInt(part.substring(equals + 1).trim());
+            total += weights[kind.ordinal()];
+        }
+        if (total <= 0) {
+            throw new IllegalArgumentException("Mélange vide : " + value);
+        }
+        return weights;
+    }
+
+    // Utilitaires de calcul et de rapport JSON, partagés avec TrafficReplay
+    static long percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    static double round(double value) {
+        return Math.round(value * 1000) / 1000.0;
+    }
+
+    static StringBuilder indent(StringBuilder json, int depth) {
+        for (int i = 0; i < depth; i++) {
+            json.append("  ");
+        }
+        return json;
+    }
+
+    static StringBuilder field(StringBuilder json, int depth, String name, Object value) {
+        indent(json, depth).append('"').append(name).append("\": ");
+        if (value instanceof Number) {
+            return json.append(value);
+        }
+        json.append('"');
+        for (char c : String.valueOf(value).toCharArray()) {
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        return json.append('"');
+    }
+}
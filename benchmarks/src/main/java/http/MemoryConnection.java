@@ -0,0 +1,78 @@
+package http;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+
+// Connexion en mémoire pour les benchmarks : même assemblage que HttpServer.handleConnection
+// (ResponseBuffer sur le canal, fichiers envoyés par transferTo), vers un canal qui compte les
+// octets sans les garder
+final class MemoryConnection {
+    private final DiscardChannel channel = new DiscardChannel();
+    private final ResponseBuffer out = new ResponseBuffer(ResponseBuffer.POOL, channel);
+    private final HttpRequestParser parser = new HttpRequestParser();
+    private final HttpResponse.ChannelSender sender = new HttpResponse.ChannelSender() {
+        @Override
+        public void sendFile(File file, long position, long count) throws IOException {
+            out.flush();
+            HttpResponse.transferFile(file, position, count, channel);
+        }
+
+        @Override
+        public void sendBuffer(ByteBuffer buffer) throws IOException {
+            out.writeWith(buffer);
+        }
+    };
+
+    // Requête sans corps analysée à partir de son en-tête complet
+    HttpRequest request(byte[] head) throws IOException {
+        parser.parse(head, 0, head.length);
+        return new HttpRequest(parser, null);
+    }
+
+    HttpResponse response() {
+        return new HttpResponse(out, sender, true, 5, 100);
+    }
+
+    // Envoie ce qui reste dans les tampons ; retourne le total des octets écrits sur la connexion
+    long flush() throws IOException {
+        out.flush();
+        return channel.written;
+    }
+
+    private static final class DiscardChannel implements GatheringByteChannel {
+        private long written;
+
+        @Override
+        public int write(ByteBuffer source) {
+            int count = source.remaining();
+            source.position(source.limit());
+            written += count;
+            return count;
+        }
+
+        @Override
+        public long write(ByteBuffer[] sources, int offset, int length) {
+            long count = 0;
+            for (int i = offset; i < offset + length; i++) {
+                count += write(sources[i]);
+            }
+            return count;
+        }
+
+        @Override
+        public long write(ByteBuffer[] sources) {
+            return write(sources, 0, sources.length);
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
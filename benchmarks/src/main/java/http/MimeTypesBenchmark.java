@@ -0,0 +1,41 @@
+package http;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+// Type MIME d'un nom de fichier (HttpServer.getMimeType) : extensions courantes, en majuscules,
+// inconnues et absentes
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MimeTypesBenchmark {
+    private static final String[] NAMES = {
+            "index.html", "style.css", "app.js", "logo.png", "photo.jpg", "PHOTO.JPG",
+            "font.woff2", "data.json", "archive.tar.gz", "README", "notes.unknown", "video.mp4"
+    };
+
+    private final MimeTypes mimeTypes = new MimeTypes("UTF-8");
+
+    // Une opération = une recherche par nom du tableau
+    @Benchmark
+    @OperationsPerInvocation(12)
+    public void lookup(Blackhole blackhole) {
+        for (String name : NAMES) {
+            blackhole.consume(mimeTypes.lookup(name));
+        }
+    }
+}
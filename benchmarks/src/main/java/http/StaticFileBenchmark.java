@@ -0,0 +1,83 @@
+package http;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// GET d'un fichier statique de bout en bout (HttpServer.handleRequest puis serveFile : route,
+// type MIME, en-têtes, envoi par transferTo) vers une connexion en mémoire. Fichiers texte et
+// binaires de 1 Kio, 64 Kio et 4 Mio ; le cache mémoire et la compression ne sont pas activés.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StaticFileBenchmark {
+    @Param({"small.txt", "medium.txt", "large.txt", "small.bin", "medium.bin", "large.bin"})
+    public String file;
+
+    private File root;
+    private byte[] head;
+    private MemoryConnection connection;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("http-bench-files").toFile();
+        writeFiles(root);
+        HttpServer.setDocumentRoot(root);
+        head = ("GET /" + file + " HTTP/1.1\r\nHost: localhost\r\nAccept-Encoding: gzip\r\n\r\n")
+                .getBytes(StandardCharsets.ISO_8859_1);
+        connection = new MemoryConnection();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        for (File child : root.listFiles()) {
+            child.delete();
+        }
+        root.delete();
+    }
+
+    // Retourne le total des octets écrits, pour que rien ne soit éliminé
+    @Benchmark
+    public long serveFile() throws IOException {
+        HttpRequest request = connection.request(head);
+        HttpServer.handleRequest(request, connection.response(), "php-cgi", false);
+        return connection.flush();
+    }
+
+    static void writeFiles(File directory) throws IOException {
+        int[] sizes = {1024, 64 * 1024, 4 * 1024 * 1024};
+        String[] names = {"small", "medium", "large"};
+        Random random = new Random(42);
+        byte[] line = "Lorem ipsum dolor sit amet, consectetur adipiscing elit, sed do eiusmod tempor.\n"
+                .getBytes(StandardCharsets.US_ASCII);
+        for (int i = 0; i < sizes.length; i++) {
+            byte[] text = new byte[sizes[i]];
+            for (int position = 0; position < text.length; position++) {
+                text[position] = line[position % line.length];
+            }
+            Files.write(new File(directory, names[i] + ".txt").toPath(), text);
+            byte[] binary = new byte[sizes[i]];
+            random.nextBytes(binary);
+            Files.write(new File(directory, names[i] + ".bin").toPath(), binary);
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package http;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+// Rejoue un fichier de capture du serveur (capture_file) contre un serveur en marche, et compare
+// statuts et tailles de réponse à ceux d'origine :
+//
+//   java -cp benchmarks.jar http.TrafficReplay --capture=capture.bin --port=1111 --speed=1
+//
+// Options (--clé=valeur) : capture, host, port, speed (1 = rythme d'origine, N = N fois plus vite,
+// max = au plus vite), concurrency (connexions simultanées), timeout (ms), mismatches (écarts
+// détaillés sur la sortie d'erreur), output (rapport JSON, sortie standard par défaut).
+// Les requêtes dont le corps n'a pas été capturé sont ignorées (comptées).
+public class TrafficReplay {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = LoadTest.parseOptions(args);
+        String capture = options.get("capture");
+        if (capture == null) {
+            System.err.println("Usage : TrafficReplay --capture=<fichier> [--host=127.0.0.1] [--port=1111] [--speed=1|N|max]");
+            System.exit(2);
+        }
+        String host = options.getOrDefault("host", "127.0.0.1");
+        int port = Integer.parseInt(options.getOrDefault("port", "1111"));
+        String speedOption = options.getOrDefault("speed", "1");
+        // 0 : au plus vite
+        double speed = speedOption.equalsIgnoreCase("max") ? 0 : Double.parseDouble(speedOption);
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "16"));
+        int timeout = Integer.parseInt(options.getOrDefault("timeout", "10000"));
+        int maxReported = Integer.parseInt(options.getOrDefault("mismatches", "20"));
+
+        InetSocketAddress address = new InetSocketAddress(host, port);
+        Stats stats = new Stats(maxReported);
+        ThreadLocal<LoadClient> clients = ThreadLocal.withInitial(() -> new LoadClient(address, timeout));
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        // Requêtes lues d'avance, pour ne pas charger en mémoire une capture entière en mode max
+        Semaphore pending = new Semaphore(concurrency * 64);
+        long captureStartedAt;
+        long lastArrival = 0;
+        long start;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(capture), 64 * 1024))) {
+            if (in.readInt() != TrafficCapture.MAGIC) {
+                throw new IOException("Fichier de capture invalide : " + capture);
+            }
+            int version = in.readInt();
+            if (version != TrafficCapture.VERSION) {
+                throw new IOException("Version de capture non prise en charge : " + version);
+            }
+            captureStartedAt = in.readLong();
+            start = System.nanoTime();
+            TrafficCapture.Entry entry;
+            while ((entry = TrafficCapture.Entry.readFrom(in)) != null) {
+                stats.total++;
+                lastArrival = entry.arrivalMicros;
+                byte[] request = encode(entry);
+                if (request == null) {
+                    stats.skipped++;
+                    continue;
+                }
+                long due = speed > 0 ? start + (long) (entry.arrivalMicros * 1000 / speed) : 0;
+                if (speed > 0) {
+                    long wait = due - System.nanoTime();
+                    if (wait > 0) {
+                        TimeUnit.NANOSECONDS.sleep(wait);
+                    }
+                }
+                pending.acquire();
+                TrafficCapture.Entry original = entry;
+                executor.execute(() -> {
+                    try {
+                        replay(clients.get(), original, request, due, stats);
+                    } finally {
+                        pending.release();
+                    }
+                });
+            }
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.HOURS);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        StringBuilder json = new StringBuilder("{\n");
+        LoadTest.field(json, 1, "capture", capture).append(",\n");
+        LoadTest.field(json, 1, "captureStartedAt", Instant.ofEpochMilli(captureStartedAt).toString()).append(",\n");
+        LoadTest.field(json, 1, "speed", speed > 0 ? speedOption : "max").append(",\n");
+        LoadTest.field(json, 1, "concurrency", concurrency).append(",\n");
+        LoadTest.field(json, 1, "requests", stats.total).append(",\n");
+        LoadTest.field(json, 1, "replayed", stats.count).append(",\n");
+        LoadTest.field(json, 1, "skipped", stats.skipped).append(",\n");
+        LoadTest.field(json, 1, "originalDurationSeconds", LoadTest.round(lastArrival / 1e6)).append(",\n");
+        LoadTest.field(json, 1, "durationSeconds", LoadTest.round(seconds)).append(",\n");
+        LoadTest.field(json, 1, "throughput", LoadTest.round(stats.count / seconds)).append(",\n");
+        LoadTest.indent(json, 1).append("\"latencyMs\": ");
+        stats.latency(json, stats.latencies());
+        json.append(",\n");
+        if (speed > 0) {
+            // Retard des envois sur le rythme demandé : au-delà de quelques ms, le client est saturé
+            LoadTest.indent(json, 1).append("\"scheduleLagMs\": ");
+            stats.latency(json, stats.lags());
+            json.append(",\n");
+        }
+        LoadTest.indent(json, 1).append("\"errors\": {\"io\": ").append(stats.ioErrors)
+                .append(", \"timeouts\": ").append(stats.timeouts).append("},\n");
+        LoadTest.field(json, 1, "statusMismatches", stats.statusMismatches).append(",\n");
+        LoadTest.field(json, 1, "sizeMismatches", stats.sizeMismatches).append(",\n");
+        LoadTest.indent(json, 1).append("\"statusChanges\": {");
+        boolean first = true;
+        for (Map.Entry<String, Long> change : stats.statusChanges.entrySet()) {
+            json.append(first ? "" : ", ").append('"').append(change.getKey()).append("\": ").append(change.getValue());
+            first = false;
+        }
+        json.append("}\n}\n");
+
+        System.err.printf(Locale.ROOT, "%d requêtes rejouées en %.1f s (%d ignorées), %d statuts et %d tailles différents, %d erreurs%n",
+                stats.count, seconds, stats.skipped, stats.statusMismatches, stats.sizeMismatches,
+                stats.ioErrors + stats.timeouts);
+        String output = options.get("output");
+        if (output != null) {
+            Files.write(Paths.get(output), json.toString().getBytes(StandardCharsets.UTF_8));
+        } else {
+            System.out.print(json);
+        }
+    }
+
+    private static void replay(LoadClient client, TrafficCapture.Entry entry, byte[] request, long due, Stats stats) {
+        long start = System.nanoTime();
+        try {
+            int status = client.exchange(request, startsWith(entry.head, "HEAD "));
+            stats.record(entry, status, client.getBodyBytes(), System.nanoTime() - start, due > 0 ? start - due : -1);
+        } catch (SocketTimeoutException e) {
+            client.close();
+            stats.failed(true);
+        } catch (IOException | RuntimeException e) {
+            client.close();
+            stats.failed(false);
+        }
+    }
+
+    // En-tête d'origine suivi du corps ; un corps chunked (décodé à la capture) est renvoyé en un
+    // seul bloc. null si le corps annoncé n'a pas été capturé.
+    private static byte[] encode(TrafficCapture.Entry entry) {
+        String head = new String(entry.head, StandardCharsets.ISO_8859_1);
+        boolean chunked = false;
+        long contentLength = -1;
+        for (String line : head.split("\r?\n")) {
+            int colon = line.indexOf(':');
+            if (colon < 0) {
+                continue;
+            }
+            String name = line.substring(0, colon).trim();
+            String value = line.substring(colon + 1).trim();
+            if (name.equalsIgnoreCase("Transfer-Encoding")) {
+                chunked |= value.toLowerCase(Locale.ROOT).contains("chunked");
+            } else if (name.equalsIgnoreCase("Content-Length")) {
+                try {
+                    contentLength = Long.parseLong(value);
+                } catch (NumberFormatException e) {
+                    // Requête rejouée telle quelle
+                }
+            }
+        }
+        if (entry.body == null) {
+            return chunked || contentLength > 0 ? null : entry.head;
+        }
+        ByteArrayOutputStream request = new ByteArrayOutputStream(entry.head.length + entry.body.length + 16);
+        request.writeBytes(entry.head);
+        if (chunked) {
+            if (entry.body.length > 0) {
+                request.writeBytes((Integer.toHexString(entry.body.length) + "\r\n").getBytes(StandardCharsets.US_ASCII));
+                request.writeBytes(entry.body);
+                request.writeBytes("\r\n".getBytes(StandardCharsets.US_ASCII));
+            }
+            request.writeBytes("0\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+        } else {
+            request.writeBytes(entry.body);
+        }
+        return request.toByteArray();
+    }
+
+    private static boolean startsWith(byte[] data, String prefix) {
+        if (data.length < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (data[i] != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Ligne de requête de l'en-tête capturé, pour le détail des écarts
+    private static String requestLine(byte[] head) {
+        int end = 0;
+        while (end < head.length && head[end] != '\r' && head[end] != '\n') {
+            end++;
+        }
+        return new String(head, 0, end, StandardCharsets.ISO_8859_1);
+    }
+
+    // Résultats partagés par les threads du rejeu
+    private static final class Stats {
+        private final int maxReported;
+        // Compteurs du thread de lecture
+        long total;
+        long skipped;
+        // Compteurs des threads du rejeu, sous le verrou de l'objet
+        long count;
+        long ioErrors;
+        long timeouts;
+        long statusMismatches;
+        long sizeMismatches;
+        final Map<String, Long> statusChanges = new TreeMap<>();
+        private long[] latencies = new long[1024];
+        private long[] lags = new long[1024];
+        private int lagCount;
+        private int reported;
+
+        Stats(int maxReported) {
+            this.maxReported = maxReported;
+        }
+
+        synchronized void record(TrafficCapture.Entry entry, int status, long bodyBytes, long nanos, long lag) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, latencies.length * 2);
+            }
+            latencies[(int) count++] = nanos;
+            if (lag >= 0) {
+                if (lagCount == lags.length) {
+                    lags = Arrays.copyOf(lags, lags.length * 2);
+                }
+                lags[lagCount++] = lag;
+            }
+            // Statut 0 : la connexion d'origine a été fermée sans réponse
+            if (entry.status == 0) {
+                return;
+            }
+            if (status != entry.status) {
+                statusMismatches++;
+                statusChanges.merge(entry.status + "->" + status, 1L, Long::sum);
+                report("statut " + entry.status + " -> " + status, entry);
+            } else if (bodyBytes != entry.bytesSent) {
+                sizeMismatches++;
+                report("taille " + entry.bytesSent + " -> " + bodyBytes, entry);
+            }
+        }
+
+        synchronized void failed(boolean timeout) {
+            if (timeout) {
+                timeouts++;
+            } else {
+                ioErrors++;
+            }
+        }
+
+        private void report(String difference, TrafficCapture.Entry entry) {
+            if (reported++ < maxReported) {
+                System.err.println(difference + " : " + requestLine(entry.head));
+            }
+        }
+
+        synchronized long[] latencies() {
+            long[] sorted = Arrays.copyOf(latencies, (int) count);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+
+        synchronized long[] lags() {
+            long[] sorted = Arrays.copyOf(lags, lagCount);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+
+        void latency(StringBuilder json, long[] sorted) {
+            json.append("{\"p50\": ").append(LoadTest.round(LoadTest.millis(LoadTest.percentile(sorted, 0.50))))
+                    .append(", \"p99\": ").append(LoadTest.round(LoadTest.millis(LoadTest.percentile(sorted, 0.99))))
+                    .append(", \"p999\": ").append(LoadTest.round(LoadTest.millis(LoadTest.percentile(sorted, 0.999))))
+                    .append(", \"max\": ").append(LoadTest.round(LoadTest.millis(sorted.length == 0 ? 0 : sorted[sorted.length - 1])))
+                    .append('}');
+        }
+    }
+}
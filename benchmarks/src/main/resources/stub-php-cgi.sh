@@ -0,0 +1,16 @@
+#!/bin/sh
+# php-cgi de substitution pour les tests de charge : lit le corps POST, attend éventuellement le
+# délai indiqué dans le script ("stub-delay-ms=<n>"), puis répond une petite page HTML.
+# Appelé par le serveur comme php-cgi : script en argument, variables CGI dans l'environnement.
+script="${1:-$SCRIPT_FILENAME}"
+received=0
+if [ -n "$CONTENT_LENGTH" ] && [ "$CONTENT_LENGTH" -gt 0 ] 2>/dev/null; then
+    received=$(head -c "$CONTENT_LENGTH" | wc -c)
+fi
+delay=$(sed -n 's/.*stub-delay-ms=\([0-9][0-9]*\).*/\1/p' "$script" 2>/dev/null | head -n 1)
+if [ -n "$delay" ] && [ "$delay" -gt 0 ]; then
+    sleep "$(awk "BEGIN { print $delay / 1000 }")"
+fi
+printf 'Content-Type: text/html; charset=UTF-8\r\n\r\n'
+printf '<html><body><p>%s %s</p><p>query=%s received=%s</p></body></html>\n' \
+    "$REQUEST_METHOD" "$SCRIPT_NAME" "$QUERY_STRING" "$received"
@@ -0,0 +1,63 @@
+package http;
+
+// Limite de concurrence adaptative d'un pool de travail (AIMD). Chaque tâche admise occupe une place
+// jusqu'à sa fin ; au démarrage d'une tâche, son attente en file sert de mesure, comme le délai de
+// file d'attente pour TCP Vegas : au-delà de la cible, la limite est réduite d'un facteur fixe
+// (décroissance multiplicative), en deçà elle grandit de 1/limite (croissance additive, environ une
+// place par « tour » de limite requêtes). Une tâche expirée dans la file compte comme une surcharge.
+final class AdaptiveLimit {
+    // Facteur appliqué à la limite quand l'attente dépasse la cible
+    private static final double BACKOFF = 0.9;
+
+    private final int min;
+    private final int max;
+    private final long targetNanos;
+    private double limit;
+    private int inFlight;
+
+    AdaptiveLimit(int min, int max, long targetNanos) {
+        this.min = Math.max(1, min);
+        this.max = Math.max(this.min, max);
+        this.targetNanos = targetNanos;
+        this.limit = this.max;
+    }
+
+    // Réserve une place ; false si la limite courante est atteinte
+    synchronized boolean tryAcquire() {
+        if (inFlight >= (int) limit) {
+            return false;
+        }
+        inFlight++;
+        return true;
+    }
+
+    // Attente en file d'une tâche qui démarre
+    synchronized void onStart(long queueWaitNanos) {
+        if (queueWaitNanos > targetNanos) {
+            decrease();
+        } else if (limit < max) {
+            limit = Math.min(max, limit + 1.0 / limit);
+        }
+    }
+
+    // Tâche abandonnée après une attente trop longue
+    synchronized void onExpired() {
+        decrease();
+    }
+
+    synchronized void release() {
+        inFlight--;
+    }
+
+    synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    private void decrease() {
+        limit = Math.max(min, limit * BACKOFF);
+    }
+}
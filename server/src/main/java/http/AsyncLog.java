@@ -0,0 +1,186 @@
+package http;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Journal asynchrone. Les threads de requête déposent leurs enregistrements dans un anneau borné
+// sans verrou (plusieurs producteurs, un consommateur) ; un thread d'écriture les formate et les
+// écrit par lots, dans un fichier avec rotation par taille ou sur la console. Anneau plein : selon
+// la configuration, l'enregistrement est abandonné (compté) ou le producteur attend une place.
+public class AsyncLog {
+    // Enregistrement formaté par le thread d'écriture, hors du chemin des requêtes
+    public interface Record {
+        void format(StringBuilder line);
+    }
+
+    // Nombre maximal d'enregistrements écrits avant de vider le tampon de sortie
+    private static final int BATCH_SIZE = 512;
+    // Attente du thread d'écriture quand l'anneau est vide : les producteurs ne le réveillent pas
+    private static final long IDLE_PARK_NANOS = 10_000_000;
+
+    private final String name;
+    private final File file;
+    private final PrintStream console;
+    private final long maxBytes;
+    private final int maxFiles;
+    private final boolean blockWhenFull;
+
+    // Enregistrements en attente d'écriture
+    private final BoundedRing<Record> records;
+
+    private final Thread writer;
+    private volatile boolean running = true;
+    private Writer output;
+    private long fileBytes;
+
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    // path : fichier du journal, ou null pour écrire sur console (utilisée aussi si le fichier devient
+    // inaccessible) ; capacity est arrondie à une puissance de 2
+    public AsyncLog(String name, String path, PrintStream console, int capacity, long maxBytes, int maxFiles,
+                    boolean blockWhenFull) throws IOException {
+        this.name = name;
+        this.file = path == null ? null : new File(path);
+        this.console = console;
+        this.maxBytes = maxBytes;
+        this.maxFiles = maxFiles;
+        this.blockWhenFull = blockWhenFull;
+        this.records = new BoundedRing<>(capacity);
+        open();
+        this.writer = new Thread(this::writeLoop, "log-writer-" + name);
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    // Dépose un enregistrement ; retourne false s'il a été abandonné faute de place
+    public boolean log(Record record) {
+        while (!records.offer(record)) {
+            if (!blockWhenFull || !running) {
+                dropped.increment();
+                return false;
+            }
+            LockSupport.parkNanos(100_000);
+        }
+        return true;
+    }
+
+    private void writeLoop() {
+        StringBuilder line = new StringBuilder(256);
+        while (true) {
+            boolean stopping = !running;
+            int count = 0;
+            Record record;
+            try {
+                while (count < BATCH_SIZE && (record = records.poll()) != null) {
+                    line.setLength(0);
+                    record.format(line);
+                    line.append('\n');
+                    write(line);
+                    count++;
+                }
+                if (count > 0) {
+                    written.add(count);
+                    flush();
+                }
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Erreur d'écriture du journal " + name + " : " + e.getMessage());
+            }
+            if (count == 0) {
+                if (stopping) {
+                    return;
+                }
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    private void write(StringBuilder line) throws IOException {
+        if (output == null) {
+            console.print(line);
+            return;
+        }
+        if (maxBytes > 0 && fileBytes + line.length() > maxBytes && fileBytes > 0) {
+            rotate();
+        }
+        output.append(line);
+        // Approximation : les caractères non ASCII comptent pour un octet
+        fileBytes += line.length();
+    }
+
+    private void flush() throws IOException {
+        if (output != null) {
+            output.flush();
+        } else {
+            console.flush();
+        }
+    }
+
+    private void open() throws IOException {
+        if (file == null) {
+            return;
+        }
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Répertoire du journal impossible à créer : " + parent);
+        }
+        fileBytes = file.length();
+        output = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8), 64 * 1024);
+    }
+
+    // access.log devient access.log.1, access.log.1 devient access.log.2, ... jusqu'à maxFiles
+    private void rotate() throws IOException {
+        output.close();
+        for (int i = maxFiles - 1; i >= 1; i--) {
+            File older = new File(file.getPath() + "." + i);
+            if (older.exists()) {
+                File target = new File(file.getPath() + "." + (i + 1));
+                target.delete();
+                older.renameTo(target);
+            }
+        }
+        File first = new File(file.getPath() + ".1");
+        first.delete();
+        if (maxFiles < 1 || !file.renameTo(first)) {
+            file.delete();
+        }
+        try {
+            open();
+        } catch (IOException e) {
+            // Les enregistrements suivants vont sur la console plutôt que d'être perdus
+            output = null;
+            throw e;
+        }
+    }
+
+    // Écrit les enregistrements en attente puis arrête le thread d'écriture
+    public void close() {
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(5000);
+            if (output != null) {
+                output.close();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            System.err.println("Erreur de fermeture du journal " + name + " : " + e.getMessage());
+        }
+    }
+
+    public long getWritten() {
+        return written.sum();
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    @Override
+    public String toString() {
+        return name + ": written=" + getWritten() + " dropped=" + getDropped() + " pending=" + records.size();
+    }
+}
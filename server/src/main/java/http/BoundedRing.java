@@ -0,0 +1,69 @@
+package http;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Anneau borné sans verrou, plusieurs producteurs et un seul consommateur : les threads de requête
+// y déposent des enregistrements qu'un thread d'écriture dédié retire (journaux, capture du trafic)
+final class BoundedRing<T> {
+    // La case i est libre pour la position p quand sequences[i] == p, pleine quand p + 1
+    private final Object[] items;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    // Position de lecture, propre au consommateur
+    private long head;
+
+    // capacity est arrondie à une puissance de 2
+    BoundedRing(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.items = new Object[size];
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        this.mask = size - 1;
+    }
+
+    // Dépose un élément ; retourne false si l'anneau est plein
+    boolean offer(T item) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    items[index] = item;
+                    // Publication : l'écriture de la case précède celle de la séquence
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                // Case pas encore libérée par le consommateur : anneau plein
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    // Retire le plus ancien élément, ou null si l'anneau est vide ; réservé au consommateur
+    @SuppressWarnings("unchecked")
+    T poll() {
+        int index = (int) head & mask;
+        if (sequences.get(index) != head + 1) {
+            return null;
+        }
+        T item = (T) items[index];
+        items[index] = null;
+        sequences.set(index, head + items.length);
+        head++;
+        return item;
+    }
+
+    // Éléments en attente (approximatif hors du consommateur)
+    long size() {
+        return tail.get() - head;
+    }
+}
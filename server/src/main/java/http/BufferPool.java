@@ -0,0 +1,70 @@
+package http;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Réserve de ByteBuffers directs de taille fixe, partagée par les connexions : les réponses sont
+// assemblées hors tas et écrites sur le socket sans copie intermédiaire ni allocation par réponse
+public class BufferPool {
+    private final int bufferSize;
+    // Nombre maximal de tampons conservés au repos ; au-delà, ils sont laissés au ramasse-miettes
+    private final int maxPooled;
+    private final Queue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooled = new AtomicInteger();
+
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder allocations = new LongAdder();
+
+    public BufferPool(int bufferSize, int maxPooled) {
+        this.bufferSize = bufferSize;
+        this.maxPooled = maxPooled;
+    }
+
+    // Tampon vide, en mode écriture
+    public ByteBuffer acquire() {
+        acquisitions.increment();
+        ByteBuffer buffer = buffers.poll();
+        if (buffer == null) {
+            allocations.increment();
+            return ByteBuffer.allocateDirect(bufferSize);
+        }
+        pooled.decrementAndGet();
+        return buffer;
+    }
+
+    public void release(ByteBuffer buffer) {
+        if (buffer.capacity() != bufferSize || pooled.incrementAndGet() > maxPooled) {
+            if (buffer.capacity() == bufferSize) {
+                pooled.decrementAndGet();
+            }
+            return;
+        }
+        buffer.clear();
+        buffers.add(buffer);
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public long getAcquisitions() {
+        return acquisitions.sum();
+    }
+
+    public long getAllocations() {
+        return allocations.sum();
+    }
+
+    public int getPooled() {
+        return pooled.get();
+    }
+
+    @Override
+    public String toString() {
+        return "BufferPool[size=" + bufferSize + ", pooled=" + getPooled() + "/" + maxPooled
+                + ", acquisitions=" + getAcquisitions() + ", allocations=" + getAllocations() + "]";
+    }
+}
@@ -0,0 +1,90 @@
+package http;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+// Analyse de l'en-tête Range (RFC 7233) pour une ressource de taille connue
+public class ByteRanges {
+    // Au-delà, l'en-tête est ignoré et la ressource est servie en entier
+    private static final int MAX_RANGES = 16;
+
+    private ByteRanges() {
+    }
+
+    // Retourne les plages [début, fin] (bornes incluses) triées et fusionnées, une liste vide si
+    // aucune plage n'est satisfaisable (416), ou null si l'en-tête doit être ignoré (200)
+    public static List<long[]> parse(String header, long length) {
+        String value = header.trim();
+        if (!value.regionMatches(true, 0, "bytes=", 0, 6)) {
+            return null;
+        }
+        String[] specs = value.substring(6).split(",");
+        if (specs.length > MAX_RANGES) {
+            return null;
+        }
+
+        List<long[]> ranges = new ArrayList<>();
+        // Au moins une plage lue, satisfaisable ou non
+        boolean parsed = false;
+        try {
+            for (String spec : specs) {
+                spec = spec.trim();
+                if (spec.isEmpty()) {
+                    continue;
+                }
+                parsed = true;
+                int dash = spec.indexOf('-');
+                if (dash < 0) {
+                    return null;
+                }
+                String first = spec.substring(0, dash).trim();
+                String last = spec.substring(dash + 1).trim();
+                if (first.isEmpty()) {
+                    // Suffixe : les n derniers octets
+                    long suffix = Long.parseLong(last);
+                    if (suffix > 0 && length > 0) {
+                        ranges.add(new long[] {Math.max(0, length - suffix), length - 1});
+                    }
+                    continue;
+                }
+                long start = Long.parseLong(first);
+                long end = last.isEmpty() ? Long.MAX_VALUE : Long.parseLong(last);
+                if (start < 0 || end < start) {
+                    return null;
+                }
+                if (start < length) {
+                    ranges.add(new long[] {start, Math.min(end, length - 1)});
+                }
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        // Aucune plage dans l'en-tête (ex. "bytes=,") : il est ignoré (RFC 7233, section 3.1)
+        if (!parsed) {
+            return null;
+        }
+        return coalesce(ranges);
+    }
+
+    // Fusionne les plages qui se chevauchent ou se touchent pour ne jamais renvoyer deux fois un octet
+    private static List<long[]> coalesce(List<long[]> ranges) {
+        if (ranges.size() < 2) {
+            return ranges;
+        }
+        ranges.sort(Comparator.comparingLong(range -> range[0]));
+        List<long[]> merged = new ArrayList<>();
+        long[] current = ranges.get(0);
+        for (int i = 1; i < ranges.size(); i++) {
+            long[] next = ranges.get(i);
+            if (next[0] <= current[1] + 1) {
+                current[1] = Math.max(current[1], next[1]);
+            } else {
+                merged.add(current);
+                current = next;
+            }
+        }
+        merged.add(current);
+        return merged;
+    }
+}
@@ -0,0 +1,222 @@
+package http;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Set;
+
+// Traduit la sortie d'un script CGI en réponse HTTP, octet par octet : le bloc d'en-têtes CGI
+// (Status:, Location:, en-têtes multiples) est analysé, puis le corps est transmis au client
+// au fur et à mesure, en Transfer-Encoding: chunked si sa longueur n'est pas annoncée
+public class CgiResponseWriter extends OutputStream {
+    // Taille maximale du bloc d'en-têtes produit par le script
+    private static final int MAX_HEADER_SIZE = 64 * 1024;
+    // En-têtes de connexion gérés par le serveur, jamais repris de la sortie du script
+    private static final Set<String> HOP_BY_HOP_HEADERS = Set.of(
+            "connection", "keep-alive", "transfer-encoding", "te", "trailer", "upgrade");
+
+    private final HttpRequest request;
+    private final HttpResponse response;
+    // En-têtes reçus tant que la ligne vide n'a pas été vue
+    private final ByteArrayOutputStream headerBlock = new ByteArrayOutputStream(512);
+    // Flux du corps, ouvert une fois les en-têtes envoyés
+    private OutputStream body;
+    // Le statut interdit un corps (204, 304) : la sortie restante est ignorée
+    private boolean bodiless;
+    // Content-Length annoncé par le script (-1 si absent) et octets effectivement transmis
+    private long declaredLength = -1;
+    private long written;
+    // Octets de la ligne d'en-tête en cours, hors CR
+    private int lineLength;
+
+    public CgiResponseWriter(HttpRequest request, HttpResponse response) {
+        this.request = request;
+        this.response = response;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] data, int offset, int length) throws IOException {
+        if (body == null && !bodiless) {
+            int consumed = readHeaders(data, offset, length);
+            offset += consumed;
+            length -= consumed;
+        }
+        if (length <= 0 || bodiless) {
+            return;
+        }
+        if (declaredLength >= 0 && written + length > declaredLength) {
+            // Le script envoie plus que ce qu'il a annoncé : le surplus est ignoré
+            length = (int) (declaredLength - written);
+        }
+        body.write(data, offset, length);
+        written += length;
+    }
+
+    // Envoie au client ce qui a déjà été produit par le script
+    @Override
+    public void flush() throws IOException {
+        if (body != null) {
+            body.flush();
+        }
+    }
+
+    // Termine la réponse une fois la sortie du script épuisée
+    public void finish() throws IOException {
+        if (body == null && !bodiless) {
+            throw new IOException("Sortie CGI sans fin d'en-têtes");
+        }
+        if (bodiless) {
+            return;
+        }
+        if (declaredLength >= 0 && written < declaredLength) {
+            // Corps tronqué : la connexion ne peut pas être réutilisée
+            response.setKeepAlive(false);
+        }
+        // Pour un corps chunked, écrit le bloc final sans fermer la connexion
+        body.close();
+        response.body().flush();
+    }
+
+    // Accumule les octets d'en-têtes jusqu'à la ligne vide ; retourne le nombre d'octets consommés
+    private int readHeaders(byte[] data, int offset, int length) throws IOException {
+        for (int i = 0; i < length; i++) {
+            byte b = data[offset + i];
+            headerBlock.write(b);
+            if (b == '\n') {
+                if (lineLength == 0) {
+                    writeHead();
+                    return i + 1;
+                }
+                lineLength = 0;
+            } else if (b != '\r') {
+                lineLength++;
+            }
+            if (headerBlock.size() > MAX_HEADER_SIZE) {
+                throw new IOException("En-têtes CGI trop longs");
+            }
+        }
+        return length;
+    }
+
+    private void writeHead() throws IOException {
+        int statusCode = 200;
+        String reason = "OK";
+        boolean hasStatus = false;
+        boolean hasLocation = false;
+        boolean hasContentType = false;
+        StringBuilder headers = new StringBuilder(256);
+
+        String block = headerBlock.toString(StandardCharsets.ISO_8859_1);
+        for (String line : block.split("\n")) {
+            if (line.endsWith("\r")) {
+                line = line.substring(0, line.length() - 1);
+            }
+            int colon = line.indexOf(':');
+            if (colon <= 0) {
+                continue;
+            }
+            String name = line.substring(0, colon).trim();
+            String value = line.substring(colon + 1).trim();
+            String lowerName = name.toLowerCase(Locale.ROOT);
+
+            if (lowerName.equals("status")) {
+                // "Status: 404 Not Found" : code et raison de la ligne de statut
+                String[] parts = value.split(" ", 2);
+                try {
+                    statusCode = Integer.parseInt(parts[0]);
+                    reason = parts.length > 1 ? parts[1] : defaultReason(statusCode);
+                    hasStatus = true;
+                } catch (NumberFormatException e) {
+                    throw new IOException("En-tête Status CGI invalide : " + value);
+                }
+                continue;
+            }
+            if (HOP_BY_HOP_HEADERS.contains(lowerName)) {
+                continue;
+            }
+            if (lowerName.equals("content-length")) {
+                try {
+                    declaredLength = Long.parseLong(value);
+                } catch (NumberFormatException e) {
+                    // Longueur invalide : le corps sera découpé en blocs
+                }
+                continue;
+            }
+            if (lowerName.equals("location")) {
+                hasLocation = true;
+            } else if (lowerName.equals("content-type")) {
+                hasContentType = true;
+            }
+            headers.append(name).append(": ").append(value).append("\r\n");
+        }
+
+        // Redirection client (RFC 3875, section 6.2.3) lorsque le script ne fixe pas de statut
+        if (hasLocation && !hasStatus) {
+            statusCode = 302;
+            reason = "Found";
+        }
+        if (!hasContentType && !hasLocation) {
+            headers.append("Content-Type: text/html; charset=UTF-8\r\n");
+        }
+
+        if (statusCode == 204 || statusCode == 304 || statusCode < 200) {
+            bodiless = true;
+            response.writeHead(statusCode, reason, headers.toString().getBytes(StandardCharsets.ISO_8859_1));
+            return;
+        }
+        if (declaredLength >= 0) {
+            headers.append("Content-Length: ").append(declaredLength).append("\r\n");
+            body = new IdentityBody(response.body());
+        } else if (request.getVersion().equals("HTTP/1.1")) {
+            headers.append("Transfer-Encoding: chunked\r\n");
+            body = response.chunkedBody();
+        } else {
+            // Client HTTP/1.0 : la fin du corps est signalée par la fermeture de la connexion
+            response.setKeepAlive(false);
+            body = new IdentityBody(response.body());
+        }
+        response.writeHead(statusCode, reason, headers.toString().getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    // Corps transmis tel quel ; close() laisse la connexion ouverte
+    private static final class IdentityBody extends FilterOutputStream {
+        IdentityBody(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] data, int offset, int length) throws IOException {
+            out.write(data, offset, length);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static String defaultReason(int statusCode) {
+        switch (statusCode) {
+            case 200: return "OK";
+            case 201: return "Created";
+            case 204: return "No Content";
+            case 301: return "Moved Permanently";
+            case 302: return "Found";
+            case 303: return "See Other";
+            case 304: return "Not Modified";
+            case 307: return "Temporary Redirect";
+            case 400: return "Bad Request";
+            case 401: return "Unauthorized";
+            case 403: return "Forbidden";
+            case 404: return "Not Found";
+            case 405: return "Method Not Allowed";
+            case 500: return "Internal Server Error";
+            case 503: return "Service Unavailable";
+            default: return "Unknown";
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package http;
+
+import java.io.*;
+
+// Décodage incrémental d'un corps en Transfer-Encoding: chunked (RFC 7230, section 4.1).
+// Les octets sont fournis au fil de leur arrivée ; le décodeur s'arrête exactement à la fin
+// du corps, sans consommer le début d'une éventuelle requête suivante.
+public class ChunkedDecoder {
+    // Taille maximale d'une ligne de taille de bloc
+    private static final int MAX_LINE_LENGTH = 4096;
+    // Chiffres hexadécimaux d'une taille de bloc : au-delà, elle ne tiendrait plus dans un long
+    private static final int MAX_SIZE_DIGITS = 15;
+
+    private enum State { SIZE, DATA, DATA_END, TRAILER, DONE }
+
+    // Limites des trailers, comme pour l'en-tête : taille totale (CRLF compris) et nombre de lignes
+    private final int maxTrailerSize;
+    private final int maxTrailerCount;
+
+    private State state = State.SIZE;
+    // Octets restant à lire dans le bloc courant
+    private long chunkRemaining;
+    // Ligne en cours de lecture (taille de bloc ou trailer)
+    private final StringBuilder line = new StringBuilder(16);
+    // Retour chariot reçu, qui doit être suivi du saut de ligne
+    private boolean carriageReturn;
+    // Trailers déjà reçus : octets et lignes
+    private int trailerBytes;
+    private int trailerCount;
+
+    public ChunkedDecoder(int maxTrailerSize, int maxTrailerCount) {
+        this.maxTrailerSize = maxTrailerSize;
+        this.maxTrailerCount = maxTrailerCount;
+    }
+
+    public ChunkedDecoder() {
+        this(HttpRequestParser.DEFAULT_MAX_HEADER_SIZE, HttpRequestParser.DEFAULT_MAX_HEADER_COUNT);
+    }
+
+    // Décode autant d'octets que possible et écrit les données dans sink ;
+    // retourne le nombre d'octets consommés
+    public int decode(byte[] data, int offset, int length, OutputStream sink) throws IOException {
+        int position = offset;
+        int end = offset + length;
+        while (position < end && state != State.DONE) {
+            if (state == State.DATA) {
+                int count = (int) Math.min(chunkRemaining, end - position);
+                sink.write(data, position, count);
+                position += count;
+                chunkRemaining -= count;
+                if (chunkRemaining == 0) {
+                    state = State.DATA_END;
+                }
+                continue;
+            }
+            // Les lignes se terminent par CRLF : un CR ou un LF isolé pourrait être lu autrement par
+            // un intermédiaire, qui ne découperait pas le corps au même endroit
+            byte b = data[position++];
+            if (carriageReturn) {
+                if (b != '\n') {
+                    throw new HttpRequest.MalformedRequestException("Retour chariot isolé dans le corps en blocs");
+                }
+                carriageReturn = false;
+                endOfLine();
+            } else if (b == '\r') {
+                carriageReturn = true;
+            } else if (b == '\n') {
+                throw new HttpRequest.MalformedRequestException("Saut de ligne sans retour chariot dans le corps en blocs");
+            } else {
+                if (state == State.TRAILER) {
+                    if (trailerBytes + line.length() + 2 >= maxTrailerSize) {
+                        throw new HttpRequest.HeaderTooLargeException("Trailers supérieurs à " + maxTrailerSize + " octets");
+                    }
+                } else if (line.length() >= MAX_LINE_LENGTH) {
+                    throw new HttpRequest.MalformedRequestException("Ligne de bloc trop longue");
+                }
+                line.append((char) (b & 0xff));
+            }
+        }
+        return position - offset;
+    }
+
+    // Nombre maximal d'octets à fournir sans dépasser la fin du corps
+    public long wanted() {
+        return state == State.DATA ? chunkRemaining : 1;
+    }
+
+    public boolean isFinished() {
+        return state == State.DONE;
+    }
+
+    private void endOfLine() throws IOException {
+        String text = line.toString();
+        line.setLength(0);
+        switch (state) {
+            case SIZE:
+                // Les extensions de bloc (";nom=valeur") sont ignorées
+                int semicolon = text.indexOf(';');
+                chunkRemaining = parseSize(text, semicolon < 0 ? text.length() : semicolon);
+                state = chunkRemaining == 0 ? State.TRAILER : State.DATA;
+                break;
+            case DATA_END:
+                if (!text.isEmpty()) {
+                    throw new HttpRequest.MalformedRequestException("Fin de bloc invalide");
+                }
+                state = State.SIZE;
+                break;
+            case TRAILER:
+                // Les en-têtes de fin (trailers) sont ignorés jusqu'à la ligne vide
+                if (text.isEmpty()) {
+                    state = State.DONE;
+                } else if (trailerCount == maxTrailerCount) {
+                    throw new HttpRequest.HeaderTooLargeException("Plus de " + maxTrailerCount + " trailers");
+                } else {
+                    trailerCount++;
+                    trailerBytes += text.length() + 2;
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    // Taille de bloc : chiffres hexadécimaux seuls, sans signe ni espace (Long.parseLong admettrait
+    // un « + » initial)
+    private static long parseSize(String text, int end) throws HttpRequest.MalformedRequestException {
+        if (end == 0 || end > MAX_SIZE_DIGITS) {
+            throw new HttpRequest.MalformedRequestException("Taille de bloc invalide : " + text);
+        }
+        long size = 0;
+        for (int i = 0; i < end; i++) {
+            int digit = Character.digit(text.charAt(i), 16);
+            if (digit < 0) {
+                throw new HttpRequest.MalformedRequestException("Taille de bloc invalide : " + text);
+            }
+            size = size << 4 | digit;
+        }
+        return size;
+    }
+}
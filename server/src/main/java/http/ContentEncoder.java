@@ -0,0 +1,185 @@
+package http;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+// Négociation de Content-Encoding (gzip, deflate) et cache borné des variantes compressées,
+// pour qu'une ressource ne soit compressée qu'une fois et non à chaque requête
+public class ContentEncoder {
+    // Types applicatifs compressibles en plus de text/*
+    private static final Set<String> COMPRESSIBLE_TYPES = Set.of(
+            "application/javascript", "application/x-javascript", "application/json", "application/xml",
+            "application/xhtml+xml", "application/rss+xml", "application/atom+xml", "application/wasm",
+            "image/svg+xml", "image/x-icon", "font/ttf", "font/otf");
+
+    // Taille minimale en dessous de laquelle la compression ne vaut pas l'en-tête ajouté
+    private final long minBytes;
+    // Taille maximale d'une ressource compressée à la volée (en mémoire)
+    private final long maxBytes;
+    private final long cacheMaxBytes;
+    private final int level;
+
+    // Variantes compressées par clé (chemin, encodage, ETag), dans l'ordre d'accès (LRU)
+    private final LinkedHashMap<String, byte[]> cache = new LinkedHashMap<>(64, 0.75f, true);
+    private long cacheBytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public ContentEncoder(long minBytes, long maxBytes, long cacheMaxBytes, int level) {
+        this.minBytes = minBytes;
+        this.maxBytes = maxBytes;
+        this.cacheMaxBytes = cacheMaxBytes;
+        this.level = level;
+    }
+
+    public static boolean isCompressible(String mimeType) {
+        if (mimeType == null) {
+            return false;
+        }
+        int semicolon = mimeType.indexOf(';');
+        String type = (semicolon < 0 ? mimeType : mimeType.substring(0, semicolon)).trim().toLowerCase(Locale.ROOT);
+        return type.startsWith("text/") || COMPRESSIBLE_TYPES.contains(type);
+    }
+
+    // Choisit l'encodage d'une réponse d'après Accept-Encoding : "gzip", "deflate" ou null (identité).
+    // Les réponses partielles (Range) ne sont jamais compressées.
+    public String negotiate(HttpRequest request, String mimeType, long length) {
+        if (length < minBytes || !isCompressible(mimeType) || request.getHeader("Range") != null) {
+            return null;
+        }
+        String acceptEncoding = request.getHeader("Accept-Encoding");
+        if (acceptEncoding == null) {
+            return null;
+        }
+        double gzip = -1;
+        double deflate = -1;
+        double any = -1;
+        for (String token : acceptEncoding.split(",")) {
+            String[] parts = token.trim().split(";");
+            String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+            double quality = 1;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.startsWith("q=")) {
+                    try {
+                        quality = Double.parseDouble(parameter.substring(2));
+                    } catch (NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+            }
+            if (coding.equals("gzip") || coding.equals("x-gzip")) {
+                gzip = quality;
+            } else if (coding.equals("deflate")) {
+                deflate = quality;
+            } else if (coding.equals("*")) {
+                any = quality;
+            }
+        }
+        // "*" couvre les encodages non cités explicitement
+        if (gzip < 0) {
+            gzip = any;
+        }
+        if (deflate < 0) {
+            deflate = any;
+        }
+        if (gzip > 0 && gzip >= deflate) {
+            return "gzip";
+        }
+        return deflate > 0 ? "deflate" : null;
+    }
+
+    // Indique si une ressource de cette taille peut être compressée à la volée
+    public boolean canCompress(long length) {
+        return length <= maxBytes;
+    }
+
+    // ETag propre à la variante encodée : deux représentations différentes ne partagent pas d'ETag
+    public static String variantEtag(String etag, String encoding) {
+        return etag.substring(0, etag.length() - 1) + "-" + encoding + "\"";
+    }
+
+    // Indique si une variante est en cache, sans compter d'accès
+    public synchronized boolean isCached(String key) {
+        return cache.containsKey(key);
+    }
+
+    public synchronized byte[] getCached(String key) {
+        byte[] variant = cache.get(key);
+        if (variant != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return variant;
+    }
+
+    public synchronized void putCached(String key, byte[] variant) {
+        if (variant.length > cacheMaxBytes) {
+            return;
+        }
+        byte[] previous = cache.put(key, variant);
+        if (previous != null) {
+            cacheBytes -= previous.length;
+        }
+        cacheBytes += variant.length;
+        Iterator<byte[]> iterator = cache.values().iterator();
+        while (cacheBytes > cacheMaxBytes && iterator.hasNext()) {
+            cacheBytes -= iterator.next().length;
+            iterator.remove();
+        }
+    }
+
+    public byte[] compress(ByteBuffer data, String encoding) throws IOException {
+        ByteBuffer source = data.duplicate();
+        if (source.hasArray()) {
+            return compress(source.array(), source.arrayOffset() + source.position(), source.remaining(), encoding);
+        }
+        byte[] bytes = new byte[source.remaining()];
+        source.get(bytes);
+        return compress(bytes, 0, bytes.length, encoding);
+    }
+
+    public byte[] compress(byte[] data, int offset, int length, String encoding) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, length / 4));
+        if (encoding.equals("gzip")) {
+            try (GZIPOutputStream gzip = new GZIPOutputStream(compressed, 8192) {
+                {
+                    def.setLevel(level);
+                }
+            }) {
+                gzip.write(data, offset, length);
+            }
+        } else {
+            // "deflate" désigne le format zlib (RFC 1950)
+            Deflater deflater = new Deflater(level);
+            try (DeflaterOutputStream zlib = new DeflaterOutputStream(compressed, deflater, 8192)) {
+                zlib.write(data, offset, length);
+            } finally {
+                deflater.end();
+            }
+        }
+        return compressed.toByteArray();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public synchronized long getCacheSize() {
+        return cacheBytes;
+    }
+}
@@ -0,0 +1,318 @@
+package http;
+
+import java.io.*;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+
+// Listes de répertoires. Le contenu d'un répertoire est lu une fois (un seul accès aux attributs
+// par entrée) et gardé en cache avec ses lignes HTML déjà formatées, jusqu'à ce que la date de
+// modification du répertoire change ou que l'instantané dépasse sa durée de validité (fichier
+// modifié sans ajout ni suppression). Les pages sont triées et découpées à la demande
+// (?sort=name|size|date&order=asc|desc&page=N).
+public class DirectoryListing {
+    // DateTimeFormatter est immuable : une seule instance pour tous les threads
+    private static final DateTimeFormatter DATE_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneId.systemDefault());
+
+    private static final String STYLE = "<style>"
+            + "body { font-family: Arial, sans-serif; margin: 20px; }"
+            + "h1 { color: #333; }"
+            + "table { width: 100%; border-collapse: collapse; margin-top: 20px; }"
+            + "th, td { border: 1px solid #ddd; padding: 8px; text-align: left; }"
+            + "th { background-color: #f4f4f4; font-weight: bold; }"
+            + "tr:nth-child(even) { background-color: #f9f9f9; }"
+            + "tr:hover { background-color: #f1f1f1; }"
+            + "</style>";
+
+    // Ordres croissants ; les répertoires ont une taille de -1 et passent avant les fichiers
+    private static final Comparator<Item> BY_NAME =
+            Comparator.comparing((Item item) -> item.name, String.CASE_INSENSITIVE_ORDER).thenComparing(item -> item.name);
+    private static final Comparator<Item> BY_SIZE = Comparator.comparingLong((Item item) -> item.size).thenComparing(BY_NAME);
+    private static final Comparator<Item> BY_DATE = Comparator.comparingLong((Item item) -> item.lastModified).thenComparing(BY_NAME);
+
+    // Entrée d'un répertoire
+    private static final class Item {
+        final String name;
+        final long size;
+        final long lastModified;
+        // Ligne du tableau, déjà formatée
+        final String row;
+
+        Item(String name, boolean directory, long size, long lastModified) {
+            this.name = name;
+            this.size = directory ? -1 : size;
+            this.lastModified = lastModified;
+            String link = URLEncoder.encode(name, StandardCharsets.UTF_8).replace("+", "%20") + (directory ? "/" : "");
+            this.row = "<tr><td><a href=\"" + link + "\">" + escape(name) + (directory ? "/" : "") + "</a></td>"
+                    + "<td>" + (directory ? "-" : formatFileSize(size)) + "</td>"
+                    + "<td>" + DATE_FORMAT.format(Instant.ofEpochMilli(lastModified)) + "</td></tr>";
+        }
+    }
+
+    // Contenu d'un répertoire à un instant donné ; partagé entre les requêtes
+    public static final class Snapshot {
+        private final String title;
+        private final long directoryModified;
+        private final long loadedAt;
+        private final long newestModification;
+        private final long checksum;
+        private final Item[] byName;
+        // Autres ordres de tri, calculés à la première demande
+        private final Map<String, Item[]> sorted = new ConcurrentHashMap<>();
+
+        private Snapshot(String title, long directoryModified, long loadedAt, Item[] byName) {
+            this.title = title;
+            this.directoryModified = directoryModified;
+            this.loadedAt = loadedAt;
+            this.byName = byName;
+            long newest = directoryModified;
+            CRC32 crc = new CRC32();
+            for (Item item : byName) {
+                newest = Math.max(newest, item.lastModified);
+                crc.update(item.row.getBytes(StandardCharsets.UTF_8));
+            }
+            this.newestModification = newest;
+            this.checksum = crc.getValue();
+        }
+
+        // Date de modification la plus récente parmi le répertoire et ses entrées
+        public long getLastModified() {
+            return newestModification;
+        }
+
+        public int size() {
+            return byName.length;
+        }
+
+        private Item[] sortedBy(String sort) {
+            if (sort.equals("name")) {
+                return byName;
+            }
+            return sorted.computeIfAbsent(sort, key -> {
+                Item[] items = byName.clone();
+                Arrays.sort(items, key.equals("size") ? BY_SIZE : BY_DATE);
+                return items;
+            });
+        }
+    }
+
+    // Page demandée : tri, sens et numéro (à partir de 1)
+    public static final class Page {
+        private final String sort;
+        private final boolean descending;
+        private final int number;
+
+        private Page(String sort, boolean descending, int number) {
+            this.sort = sort;
+            this.descending = descending;
+            this.number = number;
+        }
+
+        // Lit sort, order et page dans la query string ; les valeurs invalides sont ignorées
+        public static Page parse(String queryString) {
+            String sort = "name";
+            boolean descending = false;
+            int number = 1;
+            for (String parameter : queryString.split("&")) {
+                int equals = parameter.indexOf('=');
+                if (equals < 0) {
+                    continue;
+                }
+                String name = parameter.substring(0, equals);
+                String value = parameter.substring(equals + 1);
+                if (name.equals("sort") && (value.equals("name") || value.equals("size") || value.equals("date"))) {
+                    sort = value;
+                } else if (name.equals("order")) {
+                    descending = value.equals("desc");
+                } else if (name.equals("page")) {
+                    try {
+                        number = Math.max(1, Integer.parseInt(value));
+                    } catch (NumberFormatException e) {
+                        // Première page
+                    }
+                }
+            }
+            return new Page(sort, descending, number);
+        }
+    }
+
+    private final int maxDirectories;
+    private final long ttlMillis;
+    // Entrées par page (0 = tout sur une page)
+    private final int pageSize;
+    // Au-delà de ce nombre de lignes, la page est envoyée au fur et à mesure
+    private final int streamRows;
+
+    // Instantanés par chemin canonique du répertoire, dans l'ordre d'accès (LRU)
+    private final LinkedHashMap<String, Snapshot> snapshots;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public DirectoryListing(int maxDirectories, long ttlMillis, int pageSize, int streamRows) {
+        this.maxDirectories = maxDirectories;
+        this.ttlMillis = ttlMillis;
+        this.pageSize = pageSize;
+        this.streamRows = streamRows;
+        this.snapshots = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Snapshot> eldest) {
+                return size() > DirectoryListing.this.maxDirectories;
+            }
+        };
+    }
+
+    // Contenu du répertoire, lu sur le disque seulement s'il a changé depuis le dernier instantané
+    public Snapshot snapshot(File directory) throws IOException {
+        String key = directory.getPath();
+        long modified = directory.lastModified();
+        long now = System.currentTimeMillis();
+        synchronized (snapshots) {
+            Snapshot cached = snapshots.get(key);
+            if (cached != null && cached.directoryModified == modified && now - cached.loadedAt < ttlMillis) {
+                hits.increment();
+                return cached;
+            }
+        }
+        misses.increment();
+        Snapshot snapshot = read(directory, modified, now);
+        if (maxDirectories > 0) {
+            synchronized (snapshots) {
+                snapshots.put(key, snapshot);
+            }
+        }
+        return snapshot;
+    }
+
+    private static Snapshot read(File directory, long modified, long now) throws IOException {
+        List<Item> items = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory.toPath())) {
+            for (Path path : stream) {
+                BasicFileAttributes attributes;
+                try {
+                    attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                } catch (IOException e) {
+                    // Entrée supprimée entre-temps ou lien cassé : ignorée
+                    continue;
+                }
+                items.add(new Item(path.getFileName().toString(), attributes.isDirectory(),
+                        attributes.size(), attributes.lastModifiedTime().toMillis()));
+            }
+        }
+        Item[] byName = items.toArray(new Item[0]);
+        Arrays.sort(byName, BY_NAME);
+        return new Snapshot(directory.getName(), modified, now, byName);
+    }
+
+    // ETag faible de la page : il change dès qu'une entrée du répertoire change
+    public String etag(Snapshot snapshot, Page page) {
+        return "W/\"" + Long.toHexString(snapshot.checksum) + "-" + Integer.toHexString(snapshot.size())
+                + "-" + page.sort + (page.descending ? "-d" : "-a") + "-" + page.number + "\"";
+    }
+
+    // Indique si la page dépasse le seuil d'envoi au fur et à mesure
+    public boolean isLarge(Snapshot snapshot, Page page) {
+        int rows = pageSize > 0 ? Math.min(pageSize, snapshot.size()) : snapshot.size();
+        return rows > streamRows;
+    }
+
+    // Écrit la page en HTML (UTF-8) ; le flux est vidé mais pas fermé
+    public void render(Snapshot snapshot, Page page, OutputStream out) throws IOException {
+        int total = snapshot.size();
+        int pages = pageSize > 0 ? Math.max(1, (total + pageSize - 1) / pageSize) : 1;
+        int number = Math.min(page.number, pages);
+        int first = pageSize > 0 ? (number - 1) * pageSize : 0;
+        int last = pageSize > 0 ? Math.min(total, first + pageSize) : total;
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 8192);
+        writer.write("<html><head><meta charset=\"UTF-8\">");
+        writer.write(STYLE);
+        writer.write("</head><body><h1>Index of ");
+        writer.write(escape(snapshot.title));
+        writer.write("</h1>");
+        if (pages > 1) {
+            writer.write("<p>" + total + " entrées, page " + number + " / " + pages);
+            if (number > 1) {
+                writer.write(" <a href=\"" + link(page.sort, page.descending, number - 1) + "\">Précédente</a>");
+            }
+            if (number < pages) {
+                writer.write(" <a href=\"" + link(page.sort, page.descending, number + 1) + "\">Suivante</a>");
+            }
+            writer.write("</p>");
+        }
+        writer.write("<table><tr>");
+        writeColumn(writer, "Nom", "name", page);
+        writeColumn(writer, "Taille", "size", page);
+        writeColumn(writer, "Dernière modification", "date", page);
+        writer.write("</tr>");
+
+        Item[] items = snapshot.sortedBy(page.sort);
+        for (int i = first; i < last; i++) {
+            writer.write(items[page.descending ? total - 1 - i : i].row);
+        }
+        writer.write("</table></body></html>");
+        writer.flush();
+    }
+
+    // En-tête de colonne : un clic trie par cette colonne, un second inverse l'ordre
+    private static void writeColumn(Writer writer, String label, String sort, Page page) throws IOException {
+        boolean descending = page.sort.equals(sort) && !page.descending;
+        writer.write("<th><a href=\"" + link(sort, descending, 1) + "\">" + label + "</a></th>");
+    }
+
+    private static String link(String sort, boolean descending, int number) {
+        return "?sort=" + sort + "&amp;order=" + (descending ? "desc" : "asc") + "&amp;page=" + number;
+    }
+
+    private static String escape(String text) {
+        StringBuilder escaped = new StringBuilder(text.length() + 16);
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '&': escaped.append("&amp;"); break;
+                case '<': escaped.append("&lt;"); break;
+                case '>': escaped.append("&gt;"); break;
+                case '"': escaped.append("&quot;"); break;
+                default: escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+
+    // Methode pour formater la taille du fichier (par exemple, en Ko, Mo, Go)
+    static String formatFileSize(long size) {
+        if (size < 1024) {
+            return size + " B";
+        } else if (size < 1024 * 1024) {
+            return String.format("%.2f KB", size / 1024.0);
+        } else if (size < 1024 * 1024 * 1024) {
+            return String.format("%.2f MB", size / (1024.0 * 1024));
+        } else {
+            return String.format("%.2f GB", size / (1024.0 * 1024 * 1024));
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+}
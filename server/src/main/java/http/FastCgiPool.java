@@ -0,0 +1,507 @@
+package http;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Pool de workers FastCGI persistants (php-cgi -b, ou un php-fpm existant) : chaque requête PHP
+// est envoyée à un worker libre au lieu de démarrer un nouveau processus php-cgi
+public class FastCgiPool {
+    // Types d'enregistrements FastCGI
+    private static final int FCGI_VERSION = 1;
+    private static final int FCGI_BEGIN_REQUEST = 1;
+    private static final int FCGI_END_REQUEST = 3;
+    private static final int FCGI_PARAMS = 4;
+    private static final int FCGI_STDIN = 5;
+    private static final int FCGI_STDOUT = 6;
+    private static final int FCGI_STDERR = 7;
+    private static final int FCGI_RESPONDER = 1;
+    // Le worker garde la connexion ouverte après la requête
+    private static final int FCGI_KEEP_CONN = 1;
+    private static final int MAX_RECORD_LENGTH = 65535;
+    // Délai maximal de démarrage d'un worker php-cgi (ms)
+    private static final int STARTUP_TIMEOUT = 10000;
+
+    private final String phpInterpreter;
+    // Adresse d'un serveur FastCGI externe (php-fpm), ou null pour lancer nos propres workers
+    private final InetSocketAddress externalAddress;
+    private final int basePort;
+    private final int maxRequestsPerWorker;
+    private final long acquireTimeout;
+    private final Worker[] workers;
+    private final BlockingQueue<Worker> idleWorkers;
+    // Redémarrage des workers arrêtés après un dépassement de délai, hors du thread de la requête
+    private final ExecutorService restarter = Executors.newCachedThreadPool(task -> {
+        Thread thread = new Thread(task, "fastcgi-restart");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Indicateurs de santé du pool
+    private final AtomicInteger busyWorkers = new AtomicInteger();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder spawns = new LongAdder();
+    private final LongAdder recycles = new LongAdder();
+    private final LongAdder crashes = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+
+    private final class Worker {
+        final int index;
+        final InetSocketAddress address;
+        Process process;
+        Socket socket;
+        DataInputStream in;
+        OutputStream out;
+        int servedRequests;
+
+        Worker(int index, InetSocketAddress address) {
+            this.index = index;
+            this.address = address;
+        }
+
+        boolean isHealthy() {
+            return socket != null && !socket.isClosed() && (process == null || process.isAlive());
+        }
+
+        // (Re)démarre le processus php-cgi si nécessaire puis ouvre la connexion
+        void start() throws IOException {
+            stop();
+            if (externalAddress == null) {
+                ProcessBuilder processBuilder = new ProcessBuilder(phpInterpreter, "-b",
+                        address.getHostString() + ":" + address.getPort());
+                // Un seul processus par worker ; le recyclage est géré par le pool
+                processBuilder.environment().put("PHP_FCGI_CHILDREN", "0");
+                processBuilder.environment().put("PHP_FCGI_MAX_REQUESTS", String.valueOf(maxRequestsPerWorker + 1));
+                processBuilder.redirectErrorStream(true);
+                processBuilder.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+                process = processBuilder.start();
+                spawns.increment();
+            }
+            long deadline = System.currentTimeMillis() + STARTUP_TIMEOUT;
+            while (true) {
+                try {
+                    socket = new Socket();
+                    socket.setTcpNoDelay(true);
+                    socket.connect(address, 1000);
+                    break;
+                } catch (IOException e) {
+                    socket.close();
+                    socket = null;
+                    if (System.currentTimeMillis() > deadline || (process != null && !process.isAlive())) {
+                        stop();
+                        throw new IOException("Worker FastCGI injoignable sur " + address + " : " + e.getMessage());
+                    }
+                    sleep(50);
+                }
+            }
+            in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            out = new BufferedOutputStream(socket.getOutputStream());
+            servedRequests = 0;
+        }
+
+        void stop() {
+            if (socket != null) {
+                try {
+                    socket.close();
+                } catch (IOException e) {
+                    // Connexion déjà fermée
+                }
+                socket = null;
+            }
+            if (process != null) {
+                process.destroy();
+                process = null;
+            }
+        }
+    }
+
+    public FastCgiPool(String phpInterpreter, String externalAddress, int poolSize, int basePort,
+                       int maxRequestsPerWorker, long acquireTimeout) {
+        this.phpInterpreter = phpInterpreter;
+        this.externalAddress = parseAddress(externalAddress);
+        this.basePort = basePort;
+        this.maxRequestsPerWorker = maxRequestsPerWorker;
+        this.acquireTimeout = acquireTimeout;
+        this.workers = new Worker[poolSize];
+        this.idleWorkers = new LinkedBlockingQueue<>();
+        for (int i = 0; i < poolSize; i++) {
+            InetSocketAddress address = this.externalAddress != null
+                    ? this.externalAddress : new InetSocketAddress("127.0.0.1", basePort + i);
+            workers[i] = new Worker(i, address);
+            idleWorkers.add(workers[i]);
+        }
+    }
+
+    // Démarre tous les workers ; ceux qui échouent seront relancés à leur première utilisation
+    public void start() {
+        for (Worker worker : workers) {
+            try {
+                worker.start();
+            } catch (IOException e) {
+                ServerLog.error("Démarrage du worker FastCGI " + worker.index + " impossible : " + e.getMessage());
+            }
+        }
+        ServerLog.info("Pool FastCGI démarré : " + workers.length + " workers"
+                + (externalAddress != null ? " vers " + externalAddress : " php-cgi à partir du port " + basePort));
+    }
+
+    public void shutdown() {
+        restarter.shutdownNow();
+        for (Worker worker : workers) {
+            worker.stop();
+        }
+    }
+
+    // Exécute une requête sur un worker libre ; la sortie CGI est écrite dans stdout au fil des
+    // enregistrements reçus. Retourne le code de sortie de l'application. Au-delà de timeoutMillis
+    // (0 = illimité), le worker est arrêté puis relancé en arrière-plan (ou la connexion au serveur
+    // externe fermée puis rouverte) et ScriptTimeoutException est levée sans attendre son redémarrage.
+    public int execute(Map<String, String> params, InputStream stdin, OutputStream stdout, int timeoutMillis) throws IOException {
+        Worker worker;
+        try {
+            worker = idleWorkers.poll(acquireTimeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Attente d'un worker FastCGI interrompue");
+        }
+        if (worker == null) {
+            failures.increment();
+            throw new IOException("Aucun worker FastCGI disponible après " + acquireTimeout + " ms");
+        }
+
+        busyWorkers.incrementAndGet();
+        requests.increment();
+        // Un worker en cours de redémarrage est rendu au pool par le redémarrage lui-même
+        boolean restarting = false;
+        try {
+            if (!worker.isHealthy()) {
+                if (worker.socket != null || worker.process != null) {
+                    // Le processus est mort ou la connexion a été coupée depuis la dernière requête
+                    crashes.increment();
+                }
+                worker.start();
+            }
+            int appStatus;
+            try {
+                appStatus = exchange(worker, params, stdin, stdout, timeoutMillis);
+            } catch (ScriptTimeoutException e) {
+                // Script bloqué ou trop long : le processus qui l'exécute est remplacé. Le démarrage
+                // d'un php-cgi peut prendre plusieurs secondes, que le client n'a pas à attendre
+                timeouts.increment();
+                failures.increment();
+                worker.stop();
+                restart(worker);
+                restarting = true;
+                throw e;
+            } catch (ClientOutputException e) {
+                // Le client est parti : le worker a été lu jusqu'au bout et reste utilisable
+                worker.servedRequests++;
+                throw e.getCause();
+            } catch (ClientInputException e) {
+                // Corps de requête interrompu côté client : ni panne ni arrêt du worker
+                worker.servedRequests++;
+                throw e.getCause();
+            } catch (IOException e) {
+                crashes.increment();
+                failures.increment();
+                worker.stop();
+                throw e;
+            }
+            worker.servedRequests++;
+            if (worker.servedRequests >= maxRequestsPerWorker) {
+                // Recyclage préventif (fuites mémoire des extensions PHP, etc.)
+                recycles.increment();
+                worker.stop();
+            }
+            return appStatus;
+        } finally {
+            busyWorkers.decrementAndGet();
+            if (!restarting) {
+                idleWorkers.add(worker);
+            }
+        }
+    }
+
+    // Relance un worker arrêté puis le rend au pool ; en cas d'échec, il sera relancé à sa
+    // prochaine utilisation
+    private void restart(Worker worker) {
+        restarter.execute(() -> {
+            try {
+                worker.start();
+            } catch (IOException e) {
+                ServerLog.error("Redémarrage du worker FastCGI " + worker.index + " impossible : " + e.getMessage());
+            } finally {
+                idleWorkers.add(worker);
+            }
+        });
+    }
+
+    // Échange FastCGI complet pour une requête (rôle RESPONDER, connexion conservée)
+    private int exchange(Worker worker, Map<String, String> params, InputStream stdin, OutputStream stdout,
+                         int timeoutMillis) throws IOException {
+        long deadline = timeoutMillis > 0 ? System.nanoTime() + timeoutMillis * 1_000_000L : 0;
+        int requestId = 1;
+        OutputStream out = worker.out;
+
+        byte[] begin = {0, FCGI_RESPONDER, FCGI_KEEP_CONN, 0, 0, 0, 0, 0};
+        writeRecord(out, FCGI_BEGIN_REQUEST, requestId, begin, 0, begin.length);
+
+        ByteArrayOutputStream encodedParams = new ByteArrayOutputStream();
+        for (Map.Entry<String, String> param : params.entrySet()) {
+            byte[] name = param.getKey().getBytes(StandardCharsets.UTF_8);
+            byte[] value = param.getValue().getBytes(StandardCharsets.UTF_8);
+            writeLength(encodedParams, name.length);
+            writeLength(encodedParams, value.length);
+            encodedParams.write(name);
+            encodedParams.write(value);
+        }
+        writeStream(out, FCGI_PARAMS, requestId, encodedParams.toByteArray());
+        // Le corps est transmis par enregistrements au fil de sa lecture, sans être chargé en mémoire
+        byte[] buffer = new byte[MAX_RECORD_LENGTH];
+        // Erreur de lecture du corps (client parti, délai dépassé) : le flux est terminé là, et la
+        // réponse du worker est lue sans être transmise, pour qu'il reste utilisable. Un
+        // FCGI_ABORT_REQUEST n'est pas envoyé : php-cgi fermerait la connexion du worker.
+        IOException inputError = null;
+        while (true) {
+            int count;
+            try {
+                count = stdin.readNBytes(buffer, 0, buffer.length);
+            } catch (IOException e) {
+                inputError = e;
+                break;
+            }
+            if (count <= 0) {
+                break;
+            }
+            writeRecord(out, FCGI_STDIN, requestId, buffer, 0, count);
+        }
+        writeRecord(out, FCGI_STDIN, requestId, buffer, 0, 0);
+        out.flush();
+
+        DataInputStream in = worker.in;
+        // Erreur d'écriture vers le client : la suite de la sortie est ignorée
+        IOException clientError = null;
+        if (deadline == 0) {
+            // Sans durée maximale, le délai laissé par une requête précédente ne s'applique plus
+            worker.socket.setSoTimeout(0);
+        }
+        while (true) {
+            if (deadline != 0) {
+                // Délai restant appliqué à chaque lecture : un script bloqué ne retient pas le worker
+                long remaining = (deadline - System.nanoTime()) / 1_000_000;
+                if (remaining <= 0) {
+                    throw new ScriptTimeoutException(timeoutMillis);
+                }
+                worker.socket.setSoTimeout((int) remaining);
+            }
+            int version;
+            try {
+                version = in.readUnsignedByte();
+            } catch (SocketTimeoutException e) {
+                throw new ScriptTimeoutException(timeoutMillis);
+            }
+            int type = in.readUnsignedByte();
+            in.readUnsignedShort(); // identifiant de requête
+            int contentLength = in.readUnsignedShort();
+            int paddingLength = in.readUnsignedByte();
+            in.readUnsignedByte(); // réservé
+            if (version != FCGI_VERSION) {
+                throw new IOException("Version FastCGI inattendue : " + version);
+            }
+            byte[] content = new byte[contentLength];
+            try {
+                in.readFully(content);
+                in.skipNBytes(paddingLength);
+            } catch (SocketTimeoutException e) {
+                throw new ScriptTimeoutException(timeoutMillis);
+            }
+
+            if (type == FCGI_STDOUT) {
+                if (clientError == null && inputError == null && contentLength > 0) {
+                    try {
+                        stdout.write(content);
+                        // Envoi dès que le worker marque une pause
+                        if (in.available() == 0) {
+                            stdout.flush();
+                        }
+                    } catch (IOException e) {
+                        clientError = e;
+                    }
+                }
+            } else if (type == FCGI_STDERR) {
+                ServerLog.warn("PHP (FastCGI) : " + new String(content, StandardCharsets.UTF_8).trim());
+            } else if (type == FCGI_END_REQUEST) {
+                if (contentLength < 4) {
+                    throw new IOException("Fin de requête FastCGI invalide (" + contentLength + " octets)");
+                }
+                if (inputError != null) {
+                    throw new ClientInputException(inputError);
+                }
+                int appStatus = ((content[0] & 0xff) << 24) | ((content[1] & 0xff) << 16)
+                        | ((content[2] & 0xff) << 8) | (content[3] & 0xff);
+                if (clientError != null) {
+                    throw new ClientOutputException(clientError);
+                }
+                return appStatus;
+            }
+        }
+    }
+
+    // Script interrompu après sa durée maximale
+    public static final class ScriptTimeoutException extends IOException {
+        ScriptTimeoutException(int timeoutMillis) {
+            super("Pas de fin de réponse FastCGI après " + timeoutMillis + " ms");
+        }
+    }
+
+    // Échec de lecture du corps de la requête, distinct d'une panne du worker
+    private static final class ClientInputException extends IOException {
+        ClientInputException(IOException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized IOException getCause() {
+            return (IOException) super.getCause();
+        }
+    }
+
+    // Échec d'écriture de la sortie vers le client, distinct d'une panne du worker
+    private static final class ClientOutputException extends IOException {
+        ClientOutputException(IOException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized IOException getCause() {
+            return (IOException) super.getCause();
+        }
+    }
+
+    // Flux FastCGI : enregistrements de 64 Ko au plus, terminés par un enregistrement vide
+    private static void writeStream(OutputStream out, int type, int requestId, byte[] data) throws IOException {
+        for (int offset = 0; offset < data.length; offset += MAX_RECORD_LENGTH) {
+            writeRecord(out, type, requestId, data, offset, Math.min(MAX_RECORD_LENGTH, data.length - offset));
+        }
+        writeRecord(out, type, requestId, data, 0, 0);
+    }
+
+    private static void writeRecord(OutputStream out, int type, int requestId, byte[] data, int offset, int length) throws IOException {
+        int padding = (8 - (length % 8)) % 8;
+        out.write(FCGI_VERSION);
+        out.write(type);
+        out.write(requestId >> 8);
+        out.write(requestId);
+        out.write(length >> 8);
+        out.write(length);
+        out.write(padding);
+        out.write(0);
+        out.write(data, offset, length);
+        out.write(new byte[padding]);
+    }
+
+    // Longueur d'un nom ou d'une valeur : 1 octet si < 128, sinon 4 octets avec le bit de poids fort
+    private static void writeLength(OutputStream out, int length) throws IOException {
+        if (length < 128) {
+            out.write(length);
+        } else {
+            out.write((length >> 24) | 0x80);
+            out.write(length >> 16);
+            out.write(length >> 8);
+            out.write(length);
+        }
+    }
+
+    // Adresse "hôte:port" d'un serveur FastCGI externe, null si elle est vide ;
+    // IllegalArgumentException si elle est invalide
+    static InetSocketAddress parseAddress(String address) {
+        if (address == null || address.isEmpty()) {
+            return null;
+        }
+        int colon = address.lastIndexOf(':');
+        if (colon <= 0) {
+            throw new IllegalArgumentException("Adresse FastCGI invalide (hôte:port attendu) : " + address);
+        }
+        int port;
+        try {
+            port = Integer.parseInt(address.substring(colon + 1));
+        } catch (NumberFormatException e) {
+            port = -1;
+        }
+        if (port <= 0 || port > 65535) {
+            throw new IllegalArgumentException("Port FastCGI invalide : " + address);
+        }
+        return new InetSocketAddress(address.substring(0, colon), port);
+    }
+
+    private static void sleep(long millis) throws InterruptedIOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Démarrage du worker FastCGI interrompu");
+        }
+    }
+
+    public int getPoolSize() {
+        return workers.length;
+    }
+
+    public int getBusyWorkers() {
+        return busyWorkers.get();
+    }
+
+    // Workers dont le processus tourne et dont la connexion est ouverte
+    public int getHealthyWorkers() {
+        int healthy = 0;
+        for (Worker worker : workers) {
+            if (worker.isHealthy()) {
+                healthy++;
+            }
+        }
+        return healthy;
+    }
+
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    public long getSpawns() {
+        return spawns.sum();
+    }
+
+    public long getRecycles() {
+        return recycles.sum();
+    }
+
+    public long getCrashes() {
+        return crashes.sum();
+    }
+
+    // Requêtes interrompues après leur durée maximale
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "FastCgiPool[size=" + getPoolSize() + ", busy=" + getBusyWorkers() + ", healthy=" + getHealthyWorkers()
+                + ", requests=" + getRequests() + ", failures=" + getFailures() + ", spawns=" + getSpawns()
+                + ", recycles=" + getRecycles() + ", crashes=" + getCrashes() + ", timeouts=" + getTimeouts() + "]";
+    }
+}
@@ -0,0 +1,301 @@
+package http;
+
+import java.io.*;
+import java.net.SocketTimeoutException;
+
+// Requête reçue : ligne de requête et en-têtes sont lus dans la table de l'analyseur de la
+// connexion, valable jusqu'à l'analyse de la requête suivante
+public class HttpRequest {
+    private final HttpRequestParser parser;
+    private final String method;
+    private final String resource;
+    private final String version;
+    // Taille de l'en-tête reçu, en octets
+    private final int headerLength;
+    // Début de la réception de l'en-tête (System.nanoTime)
+    private final long headerStartedAt;
+    // Chemin et query string, séparés une seule fois
+    private final String path;
+    private final String queryString;
+    private final InputStream in;
+    private boolean bodyConsumed;
+    // Octets du corps (Content-Length) pas encore lus sur le flux
+    private long bodyRemaining;
+    // Corps déjà reçu (moteur NIO) ou ouvert par getBody
+    private RequestBody body;
+    // Route résolue par le serveur, réutilisée par tous les traitements de la requête
+    private RequestRouter.Route route;
+    // Réponse du cache statique trouvée avant le traitement (moteur NIO), null sinon
+    private StaticFileCache.Entry cachedFile;
+    // Adresse du client et instant de réception (System.nanoTime), pour le journal d'accès
+    private String remoteAddress;
+    private final long receivedAt = System.nanoTime();
+
+    // Requête dont l'en-tête vient d'être analysé par parser ; le corps éventuel suit sur in
+    // (null si le corps est fourni par setBody)
+    HttpRequest(HttpRequestParser parser, InputStream in) {
+        this.parser = parser;
+        this.method = parser.method();
+        this.resource = parser.target();
+        this.version = parser.version();
+        this.headerLength = parser.length();
+        this.headerStartedAt = parser.startedAt();
+        int questionMarkIndex = resource.indexOf('?');
+        this.path = questionMarkIndex < 0 ? resource : resource.substring(0, questionMarkIndex);
+        this.queryString = questionMarkIndex < 0 ? "" : resource.substring(questionMarkIndex + 1);
+        this.in = in;
+        this.bodyConsumed = getContentLength() <= 0 && !isChunked();
+        this.bodyRemaining = isChunked() ? 0 : Math.max(0, getContentLength());
+    }
+
+    // Lit la prochaine requête sur le flux ; retourne null si le client a fermé la connexion
+    public static HttpRequest read(RequestInputStream in, HttpRequestParser parser) throws IOException {
+        if (!in.readHead(parser)) {
+            return null;
+        }
+        return new HttpRequest(parser, in);
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getResource() {
+        return resource;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    // Ressource sans la query string
+    public String getPath() {
+        return path;
+    }
+
+    // Partie de la ressource après '?', ou chaîne vide
+    public String getQueryString() {
+        return queryString;
+    }
+
+    public String getRemoteAddress() {
+        return remoteAddress;
+    }
+
+    void setRemoteAddress(String remoteAddress) {
+        this.remoteAddress = remoteAddress;
+    }
+
+    public long getReceivedAt() {
+        return receivedAt;
+    }
+
+    public long getHeaderStartedAt() {
+        return headerStartedAt;
+    }
+
+    public int getHeaderLength() {
+        return headerLength;
+    }
+
+    // En-tête tel que reçu : ligne de requête, en-têtes et ligne vide finale
+    byte[] copyHead() {
+        return parser.copyHead();
+    }
+
+    // Octets du corps reçus jusqu'ici (corps décodé s'il est envoyé par morceaux)
+    public long getReceivedBodyLength() {
+        return body != null ? body.getLength() : Math.max(0, getContentLength()) - bodyRemaining;
+    }
+
+    RequestRouter.Route getRoute() {
+        return route;
+    }
+
+    void setRoute(RequestRouter.Route route) {
+        this.route = route;
+    }
+
+    StaticFileCache.Entry getCachedFile() {
+        return cachedFile;
+    }
+
+    void setCachedFile(StaticFileCache.Entry cachedFile) {
+        this.cachedFile = cachedFile;
+    }
+
+    // Valeur d'un en-tête (casse du nom ignorée) ; les en-têtes répétés sont fusionnés (RFC 7230, section 3.2.2)
+    public String getHeader(String name) {
+        int index = parser.findHeader(name, 0);
+        if (index < 0) {
+            return null;
+        }
+        String value = parser.headerValue(index);
+        while ((index = parser.findHeader(name, index + 1)) >= 0) {
+            value = value + ", " + parser.headerValue(index);
+        }
+        return value;
+    }
+
+    public String getHeader(String name, String defaultValue) {
+        String value = getHeader(name);
+        return value != null ? value : defaultValue;
+    }
+
+    // Longueur annoncée du corps, ou -1 si absente (une valeur invalide est refusée à l'analyse)
+    public long getContentLength() {
+        return parser.contentLength();
+    }
+
+    // Corps en blocs ; un Transfer-Encoding qui ne se termine pas par chunked est refusé à l'analyse
+    public boolean isChunked() {
+        return parser.chunked();
+    }
+
+    // Indique si le client souhaite garder la connexion ouverte après cette requête
+    public boolean isKeepAlive() {
+        if (isChunked() && getContentLength() >= 0) {
+            // Transfer-Encoding et Content-Length à la fois : le corps est lu par morceaux, mais un
+            // intermédiaire a pu le délimiter autrement ; la connexion n'est pas réutilisée
+            return false;
+        }
+        if (version.equals("HTTP/1.1")) {
+            // HTTP/1.1 : connexion persistante par défaut
+            return !headerContains("Connection", "close");
+        }
+        // HTTP/1.0 : connexion persistante uniquement sur demande explicite
+        return headerContains("Connection", "keep-alive");
+    }
+
+    // Recherche un mot dans toutes les occurrences d'un en-tête, sans créer de chaîne
+    private boolean headerContains(String name, String token) {
+        for (int index = parser.findHeader(name, 0); index >= 0; index = parser.findHeader(name, index + 1)) {
+            if (parser.headerContains(index, token)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Corps de la requête, limité à maxBytes (RequestBody.TooLargeException au-delà).
+    // Avec Content-Length, le corps est lu au fil de l'eau sur la connexion ; un corps chunked
+    // est décodé et mis de côté en mémoire jusqu'à spoolThreshold, puis dans un fichier temporaire.
+    public RequestBody getBody(long maxBytes, int spoolThreshold) throws IOException {
+        if (body != null) {
+            return body;
+        }
+        if (isChunked()) {
+            bodyConsumed = true;
+            RequestBody.Spool spool = new RequestBody.Spool(spoolThreshold, maxBytes);
+            try {
+                // Trailers bornés comme l'en-tête
+                ChunkedDecoder decoder = new ChunkedDecoder(parser.getMaxHeaderSize(), parser.getMaxHeaderCount());
+                byte[] buffer = new byte[8192];
+                while (!decoder.isFinished()) {
+                    // Jamais au-delà de la fin du corps : la requête suivante reste dans le flux
+                    int count = in.read(buffer, 0, (int) Math.min(buffer.length, decoder.wanted()));
+                    if (count < 0) {
+                        throw new EOFException("Corps de requête incomplet");
+                    }
+                    decoder.decode(buffer, 0, count, spool);
+                }
+                body = spool.finish();
+            } catch (IOException e) {
+                spool.discard();
+                throw e;
+            }
+        } else if (bodyConsumed) {
+            body = RequestBody.empty();
+        } else {
+            long contentLength = getContentLength();
+            if (contentLength > maxBytes) {
+                throw new RequestBody.TooLargeException(maxBytes);
+            }
+            body = RequestBody.streaming(contentLength, new BodyInputStream());
+        }
+        return body;
+    }
+
+    // Corps déjà disponible : reçu par le moteur NIO, ou ouvert par getBody
+    boolean isBodyReceived() {
+        return body != null;
+    }
+
+    // Corps déjà reçu en entier (moteur NIO, capture du trafic)
+    void setBody(RequestBody body) {
+        this.body = body;
+        this.bodyConsumed = true;
+    }
+
+    // Ignore le corps non lu pour que la requête suivante (pipelining) commence au bon endroit.
+    // Retourne false si le corps ne peut pas être délimité et que la connexion doit être fermée.
+    public boolean discardBody() throws IOException {
+        if (bodyConsumed) {
+            return true;
+        }
+        if (isChunked()) {
+            return false;
+        }
+        bodyConsumed = true;
+        // Seule la partie que le script n'a pas lue reste sur le flux
+        while (bodyRemaining > 0) {
+            long skipped = in.skip(bodyRemaining);
+            if (skipped <= 0) {
+                if (in.read() == -1) {
+                    return false;
+                }
+                skipped = 1;
+            }
+            bodyRemaining -= skipped;
+        }
+        return true;
+    }
+
+    // Lecture du corps sur la connexion, bornée à Content-Length ; close() ne ferme pas le socket
+    private final class BodyInputStream extends InputStream {
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (bodyRemaining <= 0) {
+                return -1;
+            }
+            int count = in.read(buffer, offset, (int) Math.min(length, bodyRemaining));
+            if (count < 0) {
+                throw new EOFException("Corps de requête incomplet");
+            }
+            bodyRemaining -= count;
+            return count;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(in.available(), bodyRemaining);
+        }
+    }
+
+    // Exception levée lorsque la requête ne respecte pas le format HTTP
+    public static class MalformedRequestException extends IOException {
+        public MalformedRequestException(String message) {
+            super(message);
+        }
+    }
+
+    // En-têtes trop volumineux ou trop nombreux (431)
+    public static class HeaderTooLargeException extends MalformedRequestException {
+        public HeaderTooLargeException(String message) {
+            super(message);
+        }
+    }
+
+    // En-tête commencé mais pas terminé dans le délai imparti (408)
+    public static class RequestTimeoutException extends SocketTimeoutException {
+        public RequestTimeoutException(String message) {
+            super(message);
+        }
+    }
+}
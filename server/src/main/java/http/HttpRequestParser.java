@@ -0,0 +1,396 @@
+package http;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// Analyse incrémentale de l'en-tête d'une requête, directement sur les octets reçus, pour les
+// deux moteurs (flux bloquant ou tampon NIO). Aucune chaîne n'est créée par ligne : la ligne de
+// requête et les en-têtes sont repérés par leurs positions dans un tampon réutilisé d'une requête
+// à l'autre, et ne sont décodés que lorsqu'ils sont lus.
+// Un analyseur sert une seule connexion ; la requête analysée reste valable jusqu'à la suivante.
+public class HttpRequestParser {
+    public static final int DEFAULT_MAX_HEADER_SIZE = 64 * 1024;
+    public static final int DEFAULT_MAX_HEADER_COUNT = 100;
+    // Taille maximale de la ligne de requête
+    private static final int MAX_REQUEST_LINE_LENGTH = 8192;
+    // Séparateurs exclus des tokens
+    private static final String DELIMITERS = "\"(),/:;<=>?@[\\]{}";
+
+    private final int maxHeaderSize;
+    private final int maxHeaderCount;
+
+    // Copie de l'en-tête de la dernière requête (ligne de requête + en-têtes)
+    private byte[] block = new byte[1024];
+    private int blockLength;
+    private int methodEnd;
+    private int targetStart;
+    private int targetEnd;
+    // -1 si la ligne de requête ne précise pas de version
+    private int versionStart;
+    private int versionEnd;
+    // Pour chaque en-tête : début et fin du nom, début et fin de la valeur
+    private int[] headers = new int[4 * 16];
+    private int headerCount;
+    // Content-Length validé à l'analyse, -1 s'il est absent
+    private long contentLength;
+    // Corps en blocs : Transfer-Encoding validé à l'analyse, terminé par "chunked"
+    private boolean chunked;
+
+    // Recherche de la fin de l'en-tête, reprise là où l'appel précédent s'est arrêté
+    private int scanned;
+    private int lineLength;
+    // Instant (System.nanoTime) où l'analyse de l'en-tête en cours a commencé
+    private long startedAt;
+
+    public HttpRequestParser(int maxHeaderSize, int maxHeaderCount) {
+        this.maxHeaderSize = maxHeaderSize;
+        this.maxHeaderCount = maxHeaderCount;
+    }
+
+    public HttpRequestParser() {
+        this(DEFAULT_MAX_HEADER_SIZE, DEFAULT_MAX_HEADER_COUNT);
+    }
+
+    // Analyse l'en-tête qui commence à data[offset] (sans ligne vide initiale). Retourne sa taille,
+    // ligne vide finale comprise, ou -1 s'il n'est pas encore complet ; l'appel suivant doit alors
+    // fournir les mêmes octets à partir du même début, complétés par ceux reçus depuis.
+    public int parse(byte[] data, int offset, int length) throws HttpRequest.MalformedRequestException {
+        int limit = Math.min(length, maxHeaderSize);
+        int i = scanned;
+        if (i == 0) {
+            startedAt = System.nanoTime();
+        }
+        while (i < limit) {
+            byte b = data[offset + i++];
+            if (b == '\n') {
+                if (lineLength == 0) {
+                    scanned = 0;
+                    tokenize(data, offset, i);
+                    return i;
+                }
+                lineLength = 0;
+            } else if (b != '\r') {
+                lineLength++;
+            }
+        }
+        scanned = i;
+        if (length >= maxHeaderSize) {
+            reset();
+            throw new HttpRequest.HeaderTooLargeException("En-têtes de requête supérieurs à " + maxHeaderSize + " octets");
+        }
+        return -1;
+    }
+
+    // Abandonne une analyse en cours
+    public void reset() {
+        scanned = 0;
+        lineLength = 0;
+    }
+
+    public int getMaxHeaderSize() {
+        return maxHeaderSize;
+    }
+
+    public int getMaxHeaderCount() {
+        return maxHeaderCount;
+    }
+
+    // Découpe l'en-tête complet, recopié dans le tampon de l'analyseur
+    private void tokenize(byte[] data, int offset, int length) throws HttpRequest.MalformedRequestException {
+        if (block.length < length) {
+            block = new byte[Math.max(length, block.length * 2)];
+        }
+        System.arraycopy(data, offset, block, 0, length);
+        blockLength = length;
+        headerCount = 0;
+
+        int lineEnd = indexOf('\n', 0, length);
+        int nextLine = lineEnd + 1;
+        lineEnd = trimCr(0, lineEnd);
+        if (lineEnd > MAX_REQUEST_LINE_LENGTH) {
+            throw new HttpRequest.MalformedRequestException("Ligne de requête trop longue");
+        }
+        methodEnd = indexOf(' ', 0, lineEnd);
+        if (methodEnd <= 0 || !isToken(0, methodEnd)) {
+            throw new HttpRequest.MalformedRequestException("Requête invalide : " + text(0, lineEnd));
+        }
+        targetStart = methodEnd + 1;
+        targetEnd = indexOf(' ', targetStart, lineEnd);
+        if (targetEnd < 0) {
+            targetEnd = lineEnd;
+            versionStart = -1;
+        } else {
+            versionStart = targetEnd + 1;
+            int extra = indexOf(' ', versionStart, lineEnd);
+            versionEnd = extra < 0 ? lineEnd : extra;
+        }
+        if (targetEnd == targetStart) {
+            throw new HttpRequest.MalformedRequestException("Requête invalide : " + text(0, lineEnd));
+        }
+
+        int position = nextLine;
+        while (position < length) {
+            lineEnd = indexOf('\n', position, length);
+            nextLine = lineEnd + 1;
+            lineEnd = trimCr(position, lineEnd);
+            if (lineEnd == position) {
+                // Ligne vide : fin de l'en-tête
+                break;
+            }
+            // Ni ligne de continuation (obs-fold), ni espace entre le nom et les deux-points : un
+            // intermédiaire qui les lirait autrement ne verrait pas les mêmes en-têtes, par exemple
+            // un « Transfer-Encoding : chunked » (RFC 7230, section 3.2.4)
+            if (isWhitespace(block[position])) {
+                throw new HttpRequest.MalformedRequestException("Ligne de continuation refusée : " + text(position, lineEnd));
+            }
+            int colon = indexOf(':', position, lineEnd);
+            if (colon <= position || !isToken(position, colon)) {
+                throw new HttpRequest.MalformedRequestException("En-tête invalide : " + text(position, lineEnd));
+            }
+            if (headerCount == maxHeaderCount) {
+                throw new HttpRequest.HeaderTooLargeException("Plus de " + maxHeaderCount + " en-têtes");
+            }
+            int nameEnd = colon;
+            int valueStart = colon + 1;
+            int valueEnd = lineEnd;
+            while (valueStart < valueEnd && isWhitespace(block[valueStart])) {
+                valueStart++;
+            }
+            while (valueEnd > valueStart && isWhitespace(block[valueEnd - 1])) {
+                valueEnd--;
+            }
+            if (headers.length < (headerCount + 1) * 4) {
+                int[] larger = new int[headers.length * 2];
+                System.arraycopy(headers, 0, larger, 0, headers.length);
+                headers = larger;
+            }
+            int slot = headerCount * 4;
+            headers[slot] = position;
+            headers[slot + 1] = nameEnd;
+            headers[slot + 2] = valueStart;
+            headers[slot + 3] = valueEnd;
+            headerCount++;
+            position = nextLine;
+        }
+        contentLength = validateContentLength();
+        chunked = validateTransferEncoding();
+    }
+
+    // Un Content-Length illisible ou contradictoire laisserait le corps être lu comme la requête
+    // suivante (désynchronisation, « request smuggling ») : la requête est refusée (400, puis
+    // fermeture). Les répétitions d'une même valeur sont admises (RFC 7230, section 3.3.2).
+    private long validateContentLength() throws HttpRequest.MalformedRequestException {
+        long value = -1;
+        for (int index = findHeader("Content-Length", 0); index >= 0; index = findHeader("Content-Length", index + 1)) {
+            long length = headerLongValue(index);
+            if (length < 0) {
+                throw new HttpRequest.MalformedRequestException("Content-Length invalide : " + headerValue(index));
+            }
+            if (value >= 0 && length != value) {
+                throw new HttpRequest.MalformedRequestException("Content-Length contradictoires : " + value + " et " + length);
+            }
+            value = length;
+        }
+        return value;
+    }
+
+    // Un Transfer-Encoding présent doit se terminer par "chunked", appliqué une seule fois : sinon
+    // la fin du corps ne peut pas être déterminée (RFC 7230, section 3.3.3) et la requête est
+    // refusée (400, puis fermeture). Seul le dernier codage compte, pas une sous-chaîne de la
+    // valeur (« xchunked », « chunked, gzip »).
+    private boolean validateTransferEncoding() throws HttpRequest.MalformedRequestException {
+        int first = findHeader("Transfer-Encoding", 0);
+        if (first < 0) {
+            return false;
+        }
+        String last = null;
+        for (int index = first; index >= 0; index = findHeader("Transfer-Encoding", index + 1)) {
+            for (String element : headerValue(index).split(",")) {
+                int semicolon = element.indexOf(';');
+                String coding = (semicolon < 0 ? element : element.substring(0, semicolon)).trim();
+                if (coding.isEmpty()) {
+                    continue;
+                }
+                if ("chunked".equalsIgnoreCase(last)) {
+                    throw new HttpRequest.MalformedRequestException("Codage appliqué après chunked : " + coding);
+                }
+                last = coding;
+            }
+        }
+        if (!"chunked".equalsIgnoreCase(last)) {
+            throw new HttpRequest.MalformedRequestException("Transfer-Encoding non terminé par chunked : " + headerValue(first));
+        }
+        return true;
+    }
+
+    // Longueur du corps annoncée par Content-Length, -1 si l'en-tête est absent
+    long contentLength() {
+        return contentLength;
+    }
+
+    boolean chunked() {
+        return chunked;
+    }
+
+    // Méthode de la requête ; les méthodes courantes ne créent pas de chaîne
+    String method() {
+        if (matches(0, methodEnd, "GET")) {
+            return "GET";
+        }
+        if (matches(0, methodEnd, "POST")) {
+            return "POST";
+        }
+        if (matches(0, methodEnd, "HEAD")) {
+            return "HEAD";
+        }
+        return text(0, methodEnd);
+    }
+
+    // Taille de l'en-tête analysé, ligne vide finale comprise
+    int length() {
+        return blockLength;
+    }
+
+    long startedAt() {
+        return startedAt;
+    }
+
+    // Copie des octets bruts de l'en-tête analysé (capture du trafic)
+    byte[] copyHead() {
+        return Arrays.copyOf(block, blockLength);
+    }
+
+    String target() {
+        return text(targetStart, targetEnd);
+    }
+
+    String version() {
+        if (versionStart < 0) {
+            return "HTTP/1.0";
+        }
+        if (matches(versionStart, versionEnd, "HTTP/1.1")) {
+            return "HTTP/1.1";
+        }
+        if (matches(versionStart, versionEnd, "HTTP/1.0")) {
+            return "HTTP/1.0";
+        }
+        return text(versionStart, versionEnd);
+    }
+
+    int headerCount() {
+        return headerCount;
+    }
+
+    // Index du premier en-tête portant ce nom (casse ignorée) à partir de from, ou -1
+    int findHeader(String name, int from) {
+        for (int i = from; i < headerCount; i++) {
+            int slot = i * 4;
+            if (equalsIgnoreCase(headers[slot], headers[slot + 1], name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    String headerName(int index) {
+        return text(headers[index * 4], headers[index * 4 + 1]);
+    }
+
+    String headerValue(int index) {
+        return text(headers[index * 4 + 2], headers[index * 4 + 3]);
+    }
+
+    // Indique si la valeur contient le mot donné (en minuscules), casse ignorée
+    boolean headerContains(int index, String token) {
+        int start = headers[index * 4 + 2];
+        int end = headers[index * 4 + 3] - token.length();
+        for (int i = start; i <= end; i++) {
+            if (equalsIgnoreCase(i, i + token.length(), token)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Valeur numérique décimale de l'en-tête, ou -1 si elle est invalide
+    long headerLongValue(int index) {
+        int start = headers[index * 4 + 2];
+        int end = headers[index * 4 + 3];
+        if (start == end || end - start > 18) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = block[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private int indexOf(char c, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (block[i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int trimCr(int start, int end) {
+        return end > start && block[end - 1] == '\r' ? end - 1 : end;
+    }
+
+    private boolean matches(int start, int end, String expected) {
+        if (end - start != expected.length()) {
+            return false;
+        }
+        for (int i = 0; i < expected.length(); i++) {
+            if (block[start + i] != expected.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Comparaison ASCII sans tenir compte de la casse
+    private boolean equalsIgnoreCase(int start, int end, String expected) {
+        if (end - start != expected.length()) {
+            return false;
+        }
+        for (int i = 0; i < expected.length(); i++) {
+            int a = block[start + i];
+            int b = expected.charAt(i);
+            if (a == b) {
+                continue;
+            }
+            // Seules les lettres diffèrent d'un bit entre majuscule et minuscule
+            int lower = a | 0x20;
+            if (lower != (b | 0x20) || lower < 'a' || lower > 'z') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Caractères d'un token (méthode, nom d'en-tête) : ASCII visible hors séparateurs (RFC 7230, section 3.2.6)
+    private boolean isToken(int start, int end) {
+        for (int i = start; i < end; i++) {
+            byte b = block[i];
+            if (b <= ' ' || b >= 127 || DELIMITERS.indexOf(b) >= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t';
+    }
+
+    private String text(int start, int end) {
+        return new String(block, start, end - start, StandardCharsets.ISO_8859_1);
+    }
+}
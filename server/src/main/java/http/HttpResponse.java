@@ -0,0 +1,348 @@
+package http;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+
+public class HttpResponse {
+    // Lignes de statut pré-encodées, indexées par code, pour les raisons standard
+    private static final String[] REASONS = new String[600];
+    private static final byte[][] STATUS_LINES = new byte[600][];
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final byte[] COLON_SPACE = {':', ' '};
+    private static final byte[] CONTENT_LENGTH = ascii("Content-Length: ");
+    private static final byte[] KEEP_ALIVE = ascii("Connection: keep-alive\r\nKeep-Alive: timeout=");
+    private static final byte[] KEEP_ALIVE_MAX = ascii(", max=");
+    private static final byte[] CONNECTION_CLOSE = ascii("Connection: close\r\n");
+    // En-tête Date de la seconde courante, recalculé au plus une fois par seconde
+    private static volatile CachedDate cachedDate = new CachedDate(0, new byte[0]);
+
+    static {
+        reason(200, "OK");
+        reason(206, "Partial Content");
+        reason(301, "Moved Permanently");
+        reason(302, "Found");
+        reason(304, "Not Modified");
+        reason(400, "Bad Request");
+        reason(403, "Forbidden");
+        reason(404, "Not Found");
+        reason(408, "Request Timeout");
+        reason(411, "Length Required");
+        reason(413, "Payload Too Large");
+        reason(416, "Range Not Satisfiable");
+        reason(431, "Request Header Fields Too Large");
+        reason(500, "Internal Server Error");
+        reason(501, "Not Implemented");
+        reason(503, "Service Unavailable");
+        reason(504, "Gateway Timeout");
+    }
+
+    private static final class CachedDate {
+        final long second;
+        final byte[] header;
+
+        CachedDate(long second, byte[] header) {
+            this.second = second;
+            this.header = header;
+        }
+    }
+
+    private final OutputStream out;
+    // Envoi des corps directement sur le canal du socket ; null pour tout recopier dans le flux
+    private final ChannelSender channelSender;
+    // Indique si la connexion restera ouverte après cette réponse
+    private boolean keepAlive;
+    // Valeurs annoncées dans l'en-tête Keep-Alive
+    private final int keepAliveTimeoutSeconds;
+    private final int remainingRequests;
+    private boolean committed;
+    // Statut et octets du corps envoyés, pour le journal d'accès
+    private int statusCode;
+    private long bytesSent;
+    private OutputStream body;
+
+    public HttpResponse(OutputStream out, boolean keepAlive, int keepAliveTimeoutSeconds, int remainingRequests) {
+        this(out, null, keepAlive, keepAliveTimeoutSeconds, remainingRequests);
+    }
+
+    public HttpResponse(OutputStream out, ChannelSender channelSender, boolean keepAlive, int keepAliveTimeoutSeconds, int remainingRequests) {
+        this.out = out;
+        this.channelSender = channelSender;
+        this.keepAlive = keepAlive;
+        this.keepAliveTimeoutSeconds = keepAliveTimeoutSeconds;
+        this.remainingRequests = remainingRequests;
+    }
+
+    // Écrit la ligne de statut et les en-têtes avec un Content-Length exact en octets
+    public void writeHead(int statusCode, String reason, String contentType, long contentLength) throws IOException {
+        writeHead(statusCode, reason, contentType == null ? Map.of() : Map.of("Content-Type", contentType), contentLength);
+    }
+
+    // Écrit la ligne de statut et les en-têtes. Sans longueur connue (contentLength < 0),
+    // la fin du corps est signalée par la fermeture de la connexion.
+    public void writeHead(int statusCode, String reason, Map<String, String> headers, long contentLength) throws IOException {
+        if (contentLength < 0) {
+            keepAlive = false;
+        }
+        beginHead(statusCode, reason);
+        writeHeaders(headers);
+        if (contentLength >= 0) {
+            out.write(CONTENT_LENGTH);
+            writeDecimal(contentLength);
+            out.write(CRLF);
+        }
+        endHead();
+    }
+
+    // Écrit la ligne de statut suivie d'en-têtes déjà encodés (lignes terminées par CRLF,
+    // Content-Length compris), puis les en-têtes de connexion
+    public void writeHead(int statusCode, String reason, byte[] encodedHeaders) throws IOException {
+        beginHead(statusCode, reason);
+        out.write(encodedHeaders);
+        endHead();
+    }
+
+    // Écrit les en-têtes sans Content-Length ni fermeture de la connexion : réponse sans corps (304 Not
+    // Modified), ou corps chunked dont l'en-tête Transfer-Encoding est fourni par l'appelant
+    public void writeBodilessHead(int statusCode, String reason, Map<String, String> headers) throws IOException {
+        beginHead(statusCode, reason);
+        writeHeaders(headers);
+        endHead();
+    }
+
+    // Ligne de statut et en-tête Date
+    private void beginHead(int statusCode, String reason) throws IOException {
+        if (committed) {
+            throw new IllegalStateException("En-têtes déjà envoyés");
+        }
+        committed = true;
+        this.statusCode = statusCode;
+        out.write(statusLine(statusCode, reason));
+        out.write(dateHeader());
+    }
+
+    // En-têtes de connexion et ligne vide de fin d'en-tête
+    private void endHead() throws IOException {
+        if (keepAlive) {
+            out.write(KEEP_ALIVE);
+            writeDecimal(keepAliveTimeoutSeconds);
+            out.write(KEEP_ALIVE_MAX);
+            writeDecimal(remainingRequests);
+            out.write(CRLF);
+        } else {
+            out.write(CONNECTION_CLOSE);
+        }
+        out.write(CRLF);
+    }
+
+    private void writeHeaders(Map<String, String> headers) throws IOException {
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            writeAscii(header.getKey());
+            out.write(COLON_SPACE);
+            writeAscii(header.getValue());
+            out.write(CRLF);
+        }
+    }
+
+    private void writeAscii(String text) throws IOException {
+        if (out instanceof ResponseBuffer) {
+            ((ResponseBuffer) out).writeAscii(text);
+        } else {
+            out.write(text.getBytes(StandardCharsets.ISO_8859_1));
+        }
+    }
+
+    private void writeDecimal(long value) throws IOException {
+        if (out instanceof ResponseBuffer) {
+            ((ResponseBuffer) out).writeDecimal(value);
+        } else {
+            out.write(Long.toString(value).getBytes(StandardCharsets.ISO_8859_1));
+        }
+    }
+
+    private static byte[] statusLine(int statusCode, String reason) {
+        if (statusCode >= 0 && statusCode < STATUS_LINES.length && reason.equals(REASONS[statusCode])) {
+            return STATUS_LINES[statusCode];
+        }
+        return ("HTTP/1.1 " + statusCode + " " + reason + "\r\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    static byte[] dateHeader() {
+        long second = System.currentTimeMillis() / 1000;
+        CachedDate date = cachedDate;
+        if (date.second != second) {
+            date = new CachedDate(second, ascii("Date: " + HttpValidators.formatDate(second * 1000) + "\r\n"));
+            cachedDate = date;
+        }
+        return date.header;
+    }
+
+    private static void reason(int statusCode, String reason) {
+        REASONS[statusCode] = reason;
+        STATUS_LINES[statusCode] = ascii("HTTP/1.1 " + statusCode + " " + reason + "\r\n");
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    // Flux du corps de la réponse ; ne doit pas être fermé par l'appelant
+    public OutputStream body() {
+        if (body == null) {
+            body = new BodyOutputStream();
+        }
+        return body;
+    }
+
+    // Flux du corps en Transfer-Encoding: chunked (l'en-tête est à la charge de l'appelant) :
+    // chaque écriture forme un bloc, close() écrit le bloc final sans fermer la connexion
+    public OutputStream chunkedBody() {
+        return new ChunkedOutputStream(body());
+    }
+
+    // Envoie une portion de fichier comme corps de la réponse, après les en-têtes
+    public void sendFile(File file, long position, long count) throws IOException {
+        bytesSent += count;
+        if (channelSender != null) {
+            channelSender.sendFile(file, position, count);
+            return;
+        }
+        // Sans canal disponible, le fichier est recopié par blocs dans le flux
+        try (InputStream in = new FileInputStream(file)) {
+            in.skipNBytes(position);
+            byte[] buffer = new byte[8192];
+            long remaining = count;
+            while (remaining > 0) {
+                int bytesRead = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (bytesRead < 0) {
+                    throw new EOFException("Fichier tronqué pendant l'envoi : " + file.getPath());
+                }
+                out.write(buffer, 0, bytesRead);
+                remaining -= bytesRead;
+            }
+        }
+    }
+
+    // Envoie le contenu d'un tampon (sur le tas ou hors tas) comme corps de la réponse,
+    // sans modifier sa position
+    public void sendBuffer(ByteBuffer buffer) throws IOException {
+        bytesSent += buffer.remaining();
+        if (channelSender != null) {
+            channelSender.sendBuffer(buffer.duplicate());
+        } else if (buffer.hasArray()) {
+            out.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        } else {
+            ByteBuffer source = buffer.duplicate();
+            byte[] chunk = new byte[Math.min(8192, source.remaining())];
+            while (source.hasRemaining()) {
+                int length = Math.min(chunk.length, source.remaining());
+                source.get(chunk, 0, length);
+                out.write(chunk, 0, length);
+            }
+        }
+    }
+
+    // Copie une portion de fichier vers un canal avec FileChannel.transferTo : sur un socket,
+    // le noyau envoie les données directement (sendfile) sans passer par le tas Java
+    public static void transferFile(File file, long position, long count, WritableByteChannel target) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long end = position + count;
+            while (position < end) {
+                long transferred = channel.transferTo(position, end - position, target);
+                if (transferred <= 0 && position >= channel.size()) {
+                    throw new EOFException("Fichier tronqué pendant l'envoi : " + file.getPath());
+                }
+                position += transferred;
+            }
+        }
+    }
+
+    public boolean isCommitted() {
+        return committed;
+    }
+
+    public boolean isKeepAlive() {
+        return keepAlive;
+    }
+
+    // Code de statut envoyé, ou 0 si aucune réponse n'a été écrite
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    // Octets du corps écrits jusqu'ici, en-têtes exclus
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
+    // Flux du corps : écrit dans le flux de la connexion en comptant les octets
+    private final class BodyOutputStream extends OutputStream {
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            bytesSent++;
+        }
+
+        @Override
+        public void write(byte[] data, int offset, int length) throws IOException {
+            out.write(data, offset, length);
+            bytesSent += length;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+    }
+
+    // Écriture des corps directement sur le canal du socket, sans copie dans le flux
+    public interface ChannelSender {
+        // Portion de fichier, transférée par le noyau (sendfile)
+        void sendFile(File file, long position, long count) throws IOException;
+
+        // Tampon dont le contenu restant est écrit tel quel ; il n'est plus modifié ensuite
+        void sendBuffer(ByteBuffer buffer) throws IOException;
+    }
+
+    private static final class ChunkedOutputStream extends FilterOutputStream {
+        private boolean finished;
+
+        ChunkedOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] data, int offset, int length) throws IOException {
+            if (length == 0) {
+                // Un bloc vide marquerait la fin du corps
+                return;
+            }
+            out.write((Integer.toHexString(length) + "\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.write(data, offset, length);
+            out.write('\r');
+            out.write('\n');
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!finished) {
+                finished = true;
+                out.write(new byte[] {'0', '\r', '\n', '\r', '\n'});
+            }
+        }
+    }
+
+    // Force la fermeture de la connexion après cette réponse
+    public void setKeepAlive(boolean keepAlive) {
+        this.keepAlive = this.keepAlive && keepAlive;
+    }
+}
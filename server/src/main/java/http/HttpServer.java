@@ -0,0 +1,1683 @@
+package http;
+
+import java.io.*;
+import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class HttpServer {
+    // Port par défaut sur lequel le serveur écoutera
+    private static final int DEFAULT_PORT = 1111;
+    // Répertoire par défaut pour servir les fichiers
+    private static final String DEFAULT_DIRECTORY = "htdocs";
+    // Taille des tranches d'un envoi de fichier surveillé par le délai d'écriture
+    private static final long SENDFILE_SLICE = 1024 * 1024;
+    // Délai d'inactivité par défaut (ms) d'une connexion persistante
+    private static final int DEFAULT_KEEP_ALIVE_TIMEOUT = 5000;
+    // Nombre maximal par défaut de requêtes servies sur une même connexion
+    private static final int DEFAULT_MAX_KEEP_ALIVE_REQUESTS = 100;
+
+    // Paramètres des connexions persistantes, lus depuis la configuration au démarrage
+    private static int keepAliveTimeout = DEFAULT_KEEP_ALIVE_TIMEOUT;
+    private static int maxKeepAliveRequests = DEFAULT_MAX_KEEP_ALIVE_REQUESTS;
+    // Moteur réseau : "blocking" (ServerSocket + pool de threads) ou "nio" (sélecteurs non bloquants)
+    private static String engine = "blocking";
+    // Nombre de boucles d'événements du moteur NIO (une par cœur par défaut)
+    private static int nioEventLoops = Runtime.getRuntime().availableProcessors();
+    // Mode d'exécution des connexions : "platform" (pool fixe) ou "virtual" (un thread virtuel par connexion)
+    private static String threadMode = "platform";
+    // Pool de travail : threads, file d'attente bornée et attente maximale avant un 503
+    private static int workerThreads = 10;
+    private static int workerQueueSize = 100;
+    private static int workerQueueTimeout = 10000;
+    // Limite de concurrence adaptative du pool (désactivée par défaut) : bornes et attente cible (ms)
+    private static boolean workerAdaptiveLimit = false;
+    private static int workerAdaptiveMin = 10;
+    private static int workerAdaptiveMax = 110;
+    private static int workerAdaptiveTarget = 50;
+    // Pool distinct des exécutions PHP (cloisonnement) : threads, file d'attente et attente maximale,
+    // en threads plateforme seulement ; 0 thread = pas de pool distinct, PHP s'exécute dans le pool
+    // de travail
+    private static int phpPoolThreads = 4;
+    private static int phpPoolQueueSize = 50;
+    private static int phpPoolQueueTimeout = 10000;
+    // Pools créés au démarrage : connexions, fichiers statiques et listes de répertoires (moteur
+    // bloquant) ; exécutions PHP (null si elles partagent le pool des connexions)
+    private static WorkerPool connectionPool;
+    private static WorkerPool phpPool;
+    // Délai (s) annoncé par Retry-After dans les réponses 503 du contrôle d'admission
+    private static int retryAfterSeconds = 1;
+    // Limite du nombre de processus PHP simultanés (null = pas de limite)
+    private static Semaphore cgiPermits;
+    // Durée maximale (ms) d'exécution d'un script PHP (0 = illimitée), et valeurs propres à certains
+    // scripts, par chemin de requête
+    private static int cgiTimeout = 30000;
+    private static Map<String, Integer> cgiScriptTimeouts = Map.of();
+    // Exécutions simultanées d'un même script (0 = illimitées), permis par fichier de script
+    private static int cgiMaxPerScript = 0;
+    private static final ConcurrentHashMap<String, Semaphore> cgiScriptPermits = new ConcurrentHashMap<>();
+    // Arrêt des scripts PHP qui dépassent leur durée maximale
+    private static final ScheduledExecutorService cgiTimer = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "cgi-timeout");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Envoi du corps aux processus php-cgi, pendant que le thread de la requête lit leur sortie
+    private static final ExecutorService cgiStdinWriters = Executors.newCachedThreadPool(task -> {
+        Thread thread = new Thread(task, "cgi-stdin");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Délais (ms, 0 = aucun) : réception complète de l'en-tête, inactivité pendant la lecture du
+    // corps, écriture d'une réponse sans progression
+    private static int headerReadTimeout = 10000;
+    private static int bodyReadTimeout = 30000;
+    private static int responseWriteTimeout = 60000;
+    // Surveillance des écritures bloquantes (null si responseWriteTimeout = 0 ou moteur NIO)
+    private static WriteWatchdog writeWatchdog;
+    // Cache mémoire des fichiers statiques (null si désactivé)
+    private static StaticFileCache staticCache;
+    // Types MIME par extension, chargés au démarrage
+    private static MimeTypes mimeTypes = new MimeTypes("UTF-8");
+    // Compression gzip/deflate des réponses (null si désactivée)
+    private static ContentEncoder contentEncoder;
+    // Listes de répertoires en cache, triées et paginées
+    private static DirectoryListing directoryListing = new DirectoryListing(64, 5000, 1000, 500);
+    // Pool de workers FastCGI persistants (null en mode CGI : un processus php-cgi par requête)
+    private static FastCgiPool fastCgiPool;
+    // Résolution des chemins de requête, créée au démarrage pour le répertoire racine
+    private static RequestRouter router;
+    private static int routeCacheSize = 10000;
+    private static int routeCacheTtl = 1000;
+    // Limites de l'en-tête d'une requête (431 au-delà)
+    private static int maxRequestHeaderBytes = HttpRequestParser.DEFAULT_MAX_HEADER_SIZE;
+    private static int maxRequestHeaderCount = HttpRequestParser.DEFAULT_MAX_HEADER_COUNT;
+    // Taille maximale d'un corps de requête (413 au-delà) et seuil de mise sur disque
+    private static long maxRequestBodyBytes = 8 * 1024 * 1024;
+    private static int requestBodySpoolBytes = 256 * 1024;
+    // Compteurs et histogrammes du serveur, affichés sur la page d'état
+    private static final ServerMetrics metrics = new ServerMetrics();
+    // Chemin de la page d'état (null si désactivée) et accès depuis une autre machine que le serveur
+    private static String statusPath = "/server-status";
+    private static boolean statusAllowRemote = false;
+    // Capture du trafic pour le rejouer (null = désactivée)
+    private static TrafficCapture trafficCapture;
+
+    public static void main(String[] args) {
+        // Chargement de la configuration à partir du fichier "server.conf", ou de celui passé en argument
+        ServerConfig config = loadServerConfig(args.length > 0 ? args[0] : "server.conf");
+        // Journaux d'accès et de diagnostic, écrits par des threads dédiés
+        ServerLog.configure(config);
+        // Événements Flight Recorder par requête et par phase
+        ServerEvents.configure(config);
+        
+        // Lecture des paramètres de configuration : port, répertoire, interpréteur PHP, activation PHP
+        int port = config.getInt("port", DEFAULT_PORT); // Port spécifié dans le fichier ou valeur par défaut
+        String directoryPath = config.get("directory", DEFAULT_DIRECTORY); // Répertoire racine pour les fichiers
+        String phpInterpreter = config.getPath("php_interpreter", "php-cgi"); // Chemin de l'interpréteur PHP
+        boolean isPhpEnabled = config.getBoolean("php_enabled", false); // Activation ou désactivation de PHP
+        keepAliveTimeout = config.getInt("keep_alive_timeout", DEFAULT_KEEP_ALIVE_TIMEOUT); // Délai d'inactivité en ms
+        maxKeepAliveRequests = config.getInt("keep_alive_max_requests", DEFAULT_MAX_KEEP_ALIVE_REQUESTS); // Requêtes par connexion
+        engine = config.get("engine", "blocking"); // Moteur réseau : blocking ou nio
+        nioEventLoops = config.getInt("nio_event_loops", nioEventLoops); // Boucles d'événements du moteur NIO
+        threadMode = config.get("threads", "platform"); // Threads plateforme ou virtuels
+        workerThreads = config.getInt("worker_threads", workerThreads); // Threads du pool de travail
+        workerQueueSize = config.getInt("worker_queue_size", workerQueueSize); // Tâches en attente d'un thread (0 = aucune attente)
+        workerQueueTimeout = config.getInt("worker_queue_timeout_ms", workerQueueTimeout); // Attente maximale en file avant un 503 (0 = illimitée)
+        retryAfterSeconds = config.getInt("worker_retry_after", retryAfterSeconds); // Retry-After des réponses 503 (s)
+        workerAdaptiveLimit = config.getBoolean("worker_adaptive_limit", workerAdaptiveLimit); // Limite de concurrence adaptative (AIMD)
+        workerAdaptiveMin = config.getInt("worker_adaptive_min", workerThreads); // Limite minimale
+        workerAdaptiveMax = config.getInt("worker_adaptive_max", workerThreads + workerQueueSize); // Limite maximale
+        workerAdaptiveTarget = config.getInt("worker_adaptive_target_ms", workerAdaptiveTarget); // Attente en file au-delà de laquelle la limite baisse
+        phpPoolThreads = config.getInt("php_pool_threads", phpPoolThreads); // Threads réservés à PHP (0 = pool de travail partagé)
+        phpPoolQueueSize = config.getInt("php_pool_queue_size", phpPoolQueueSize); // Requêtes PHP en attente d'un thread
+        phpPoolQueueTimeout = config.getInt("php_pool_queue_timeout_ms", workerQueueTimeout); // Attente maximale d'une requête PHP avant un 503
+        int cgiMaxConcurrency = config.getInt("cgi_max_concurrency", 0); // Processus PHP simultanés (0 = illimité)
+        cgiPermits = cgiMaxConcurrency > 0 ? new Semaphore(cgiMaxConcurrency, true) : null;
+        cgiMaxPerScript = config.getInt("cgi_max_per_script", 0); // Exécutions simultanées d'un même script (0 = illimitées)
+        cgiTimeout = config.getInt("cgi_timeout_ms", cgiTimeout); // Durée maximale d'un script PHP avant un 504 (0 = illimitée)
+        cgiScriptTimeouts = loadCgiScriptTimeouts(config);
+        headerReadTimeout = config.getInt("header_read_timeout_ms", headerReadTimeout); // Réception de l'en-tête, depuis son premier octet
+        bodyReadTimeout = config.getInt("body_read_timeout_ms", bodyReadTimeout); // Inactivité maximale pendant la réception du corps
+        responseWriteTimeout = config.getInt("response_write_timeout_ms", responseWriteTimeout); // Écriture sans progression avant fermeture
+        maxRequestHeaderBytes = config.getInt("request_header_max_bytes", HttpRequestParser.DEFAULT_MAX_HEADER_SIZE); // Taille maximale des en-têtes
+        maxRequestHeaderCount = config.getInt("request_header_max_count", HttpRequestParser.DEFAULT_MAX_HEADER_COUNT); // Nombre maximal d'en-têtes
+        maxRequestBodyBytes = config.getInt("request_body_max_bytes", 8 * 1024 * 1024); // Taille maximale d'un corps
+        requestBodySpoolBytes = config.getInt("request_body_spool_bytes", 256 * 1024); // Au-delà, corps mis sur disque
+        routeCacheSize = config.getInt("route_cache_size", 10000); // Chemins résolus gardés en cache (0 = désactivé)
+        routeCacheTtl = config.getInt("route_cache_ttl", 1000); // Durée de validité d'une résolution (ms)
+        statusPath = config.get("status_path", "/server-status"); // Page d'état (vide = désactivée)
+        if (statusPath.isEmpty()) {
+            statusPath = null;
+        }
+        statusAllowRemote = config.getBoolean("status_allow_remote", false); // Page d'état visible hors de la machine locale
+        if (isPhpEnabled && config.get("php_mode", "cgi").equalsIgnoreCase("fastcgi")) {
+            try {
+                fastCgiPool = new FastCgiPool(phpInterpreter,
+                        config.get("fastcgi_address", ""), // Serveur FastCGI externe (ex. php-fpm "127.0.0.1:9000")
+                        config.getInt("fastcgi_pool_size", 4), // Nombre de workers php-cgi
+                        config.getInt("fastcgi_base_port", 9100), // Port du premier worker php-cgi
+                        config.getInt("fastcgi_max_requests", 500), // Requêtes avant recyclage d'un worker
+                        config.getInt("fastcgi_acquire_timeout", 30000)); // Attente maximale d'un worker libre (ms)
+            } catch (IllegalArgumentException e) {
+                // Adresse FastCGI invalide : refusée au démarrage plutôt qu'à la première requête PHP
+                System.err.println("Erreur de configuration : " + e.getMessage());
+                System.exit(1);
+            }
+        }
+        trafficCapture = createTrafficCapture(config);
+        mimeTypes = loadMimeTypes(config);
+        int cacheMaxBytes = config.getInt("static_cache_max_bytes", 64 * 1024 * 1024); // Budget du cache (0 = désactivé)
+        if (cacheMaxBytes > 0) {
+            staticCache = new StaticFileCache(cacheMaxBytes,
+                    config.getInt("static_cache_max_entry_bytes", 1024 * 1024), // Taille maximale d'un fichier en cache
+                    config.getBoolean("static_cache_direct", false), // Corps hors tas (ByteBuffer direct)
+                    config.get("static_cache_invalidation", "watch").equalsIgnoreCase("watch")); // watch ou mtime
+        }
+        if (config.getBoolean("compression_enabled", true)) {
+            contentEncoder = new ContentEncoder(
+                    config.getInt("compression_min_bytes", 1024), // Taille minimale compressée
+                    config.getInt("compression_max_bytes", 4 * 1024 * 1024), // Taille maximale compressée à la volée
+                    config.getInt("compression_cache_max_bytes", 16 * 1024 * 1024), // Budget des variantes compressées
+                    config.getInt("compression_level", 6)); // Niveau de compression (1 à 9)
+        }
+
+        directoryListing = new DirectoryListing(
+                config.getInt("listing_cache_size", 64), // Répertoires gardés en cache
+                config.getInt("listing_cache_ttl", 5000), // Durée de validité d'un contenu en cache (ms)
+                config.getInt("listing_page_size", 1000), // Entrées par page (0 = une seule page)
+                config.getInt("listing_stream_rows", 500)); // Au-delà, page envoyée au fur et à mesure
+
+        // Initialisation du répertoire racine du serveur
+        File baseDirectory = initializeBaseDirectory(directoryPath);
+        if (baseDirectory == null) {
+            // Si le répertoire spécifié est invalide, on tente de récupérer le chemin de l'application elle-même
+            baseDirectory = getClassLocation();
+            if (!baseDirectory.exists() || !baseDirectory.isDirectory()) {
+                // Si aucun répertoire valide n'est trouvé, afficher une erreur et quitter
+                System.err.println("Impossible de determiner le repertoire de base.");
+                return;
+            }
+        }
+
+        // Démarrage du serveur avec les paramètres configurés
+        startServer(port, baseDirectory, phpInterpreter, isPhpEnabled);
+    }
+
+    // Capture du trafic, activée par capture_file ; le fichier est fermé à l'arrêt du serveur
+    private static TrafficCapture createTrafficCapture(ServerConfig config) {
+        String file = config.get("capture_file", ""); // Fichier de capture des requêtes (vide = désactivée)
+        if (file.isEmpty()) {
+            return null;
+        }
+        double sampleRate = 1.0;
+        try {
+            sampleRate = Double.parseDouble(config.get("capture_sample_rate", "1.0")); // Part des requêtes capturées (0 à 1)
+        } catch (NumberFormatException e) {
+            ServerLog.warn("capture_sample_rate invalide, toutes les requêtes sont capturées");
+        }
+        try {
+            TrafficCapture capture = new TrafficCapture(file, sampleRate,
+                    config.getInt("capture_body_max_bytes", 64 * 1024), // Corps plus grands capturés sans leur contenu
+                    config.getInt("capture_max_bytes", 1024 * 1024 * 1024), // Taille maximale du fichier (0 = illimitée)
+                    config.getInt("capture_buffer_size", 4096)); // Requêtes en attente d'écriture
+            Runtime.getRuntime().addShutdownHook(new Thread(capture::close));
+            ServerLog.info("Capture du trafic dans " + file);
+            return capture;
+        } catch (IOException e) {
+            ServerLog.error("Capture du trafic impossible : " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Méthode pour charger la configuration à partir d'un fichier donné
+    private static ServerConfig loadServerConfig(String fileName) {
+        try {
+            // Retourne un objet `ServerConfig` initialisé avec les propriétés du fichier
+            return new ServerConfig(fileName);
+        } catch (IOException e) {
+            // Affiche un message d'erreur si le fichier ne peut pas être chargé
+            System.err.println("Erreur de chargement de la configuration : " + e.getMessage());
+            // Quitte le programme en cas d'erreur critique
+            System.exit(1);
+            return null;
+        }
+    }
+
+    // Durées maximales propres à certains scripts : cgi_timeout.<chemin de requête>=<ms>
+    private static Map<String, Integer> loadCgiScriptTimeouts(ServerConfig config) {
+        Map<String, Integer> timeouts = new LinkedHashMap<>();
+        for (Map.Entry<String, String> entry : config.getByPrefix("cgi_timeout.").entrySet()) {
+            try {
+                timeouts.put(entry.getKey(), Integer.parseInt(entry.getValue().trim()));
+            } catch (NumberFormatException e) {
+                ServerLog.warn("Durée invalide pour cgi_timeout." + entry.getKey() + " : " + entry.getValue());
+            }
+        }
+        return timeouts;
+    }
+
+    // Table des types MIME : valeurs intégrées, fichier mime.types éventuel, puis entrées "mime.<extension>"
+    private static MimeTypes loadMimeTypes(ServerConfig config) {
+        MimeTypes types = new MimeTypes(config.get("mime_charset", "UTF-8")); // Charset des types text/*
+        String file = config.get("mime_types_file", ""); // Fichier au format mime.types (ex. config/mime.types)
+        if (!file.isEmpty()) {
+            try {
+                types.load(new File(file));
+            } catch (IOException e) {
+                ServerLog.warn("Fichier de types MIME illisible : " + file + " (" + e.getMessage() + ")");
+            }
+        }
+        for (Map.Entry<String, String> entry : config.getByPrefix("mime.").entrySet()) {
+            types.put(entry.getKey(), entry.getValue());
+        }
+        return types;
+    }
+
+    // Méthode pour initialiser le répertoire racine à partir d'un chemin spécifié
+    private static File initializeBaseDirectory(String directoryPath) {
+        File directory = new File(directoryPath);
+        // Vérifie si le répertoire existe et est valide
+        if (!directory.exists() || !directory.isDirectory()) {
+            // Affiche un message d'erreur si le chemin est invalide
+            System.err.println("Le repertoire specifie est invalide : " + directoryPath);
+            return null;
+        }
+        return directory;
+    }
+
+    // Méthode principale pour démarrer le serveur
+    private static void startServer(int port, File baseDirectory, String phpInterpreter, boolean isPhpEnabled) {
+        if (isPhpEnabled) {
+            // Affiche un message si PHP est activé et vérifie la validité de l'interpréteur
+            ServerLog.info("PHP activé. Chemin de l'interpréteur : " + phpInterpreter);
+            File phpInterpreterFile = new File(phpInterpreter);
+            if (!phpInterpreterFile.exists()) {
+                // Si le fichier de l'interpréteur PHP n'existe pas, affiche une erreur et quitte
+                System.err.println("Erreur : Le fichier php-cgi n'existe pas au chemin : " + phpInterpreter);
+                System.err.println("Chemin absolu : " + phpInterpreterFile.getAbsolutePath());
+                System.exit(1);
+            }
+        } else {
+            // Affiche un message si PHP est désactivé
+            ServerLog.info("PHP désactivé. Les fichiers PHP ne seront pas interprétés.");
+        }
+        try {
+            setDocumentRoot(baseDirectory);
+        } catch (IOException e) {
+            System.err.println("Répertoire racine inaccessible : " + e.getMessage());
+            System.exit(1);
+        }
+        if (fastCgiPool != null) {
+            // Workers démarrés une fois pour toutes, arrêtés avec le serveur
+            fastCgiPool.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(fastCgiPool::shutdown));
+        }
+
+        // Création d'un pool de threads borné pour gérer les connexions des clients
+        // Pool PHP distinct : les scripts lents ne retardent pas les fichiers statiques
+        if (isPhpEnabled && phpPoolThreads > 0) {
+            phpPool = createPhpPool();
+            phpPool.registerMetrics(metrics);
+        }
+        if (engine.equalsIgnoreCase("nio")) {
+            // Moteur non bloquant : fichiers du cache servis par les boucles d'événements, le pool
+            // ne sert qu'aux accès au disque et, sans pool PHP distinct, aux exécutions PHP
+            WorkerPool threadPool = createWorkerPool();
+            threadPool.registerMetrics(metrics);
+            registerGauges();
+            try {
+                new NioServer(port, phpInterpreter, isPhpEnabled, threadPool, phpPool,
+                        nioEventLoops, keepAliveTimeout, maxKeepAliveRequests,
+                        maxRequestBodyBytes, requestBodySpoolBytes,
+                        headerReadTimeout, bodyReadTimeout, responseWriteTimeout).start();
+            } catch (IOException e) {
+                ServerLog.error("Erreur lors du démarrage du serveur : " + e.getMessage());
+            } finally {
+                threadPool.shutdown();
+                if (phpPool != null) {
+                    phpPool.shutdown();
+                }
+            }
+            return;
+        }
+        WorkerPool threadPool = createWorkerPool();
+        connectionPool = threadPool;
+        threadPool.registerMetrics(metrics);
+        registerGauges();
+        if (responseWriteTimeout > 0) {
+            writeWatchdog = new WriteWatchdog(responseWriteTimeout, metrics);
+        }
+        // Le socket d'écoute est ouvert comme canal (en mode bloquant) pour que chaque connexion
+        // dispose d'un SocketChannel utilisable par FileChannel.transferTo
+        try (ServerSocketChannel serverSocket = ServerSocketChannel.open()) {
+            serverSocket.bind(new InetSocketAddress(port));
+            // Affiche un message pour indiquer que le serveur est démarré
+            ServerLog.info("Serveur démarré sur le port " + port);
+
+            while (true) {
+                try {
+                    // Accepte une connexion client
+                    Socket clientSocket = serverSocket.accept().socket();
+                    // Traite la requête client dans un thread séparé ; pool saturé : 503 immédiat
+                    if (!threadPool.execute(() -> handleConnection(clientSocket, phpInterpreter, isPhpEnabled),
+                            () -> rejectConnection(clientSocket))) {
+                        rejectConnection(clientSocket);
+                    }
+                } catch (IOException e) {
+                    // Affiche un message en cas d'erreur lors de l'acceptation d'une connexion
+                    ServerLog.error("Erreur lors de l'acceptation d'une connexion : " + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            // Affiche un message si le serveur ne peut pas être démarré
+            ServerLog.error("Erreur lors du démarrage du serveur : " + e.getMessage());
+        } finally {
+            // Arrête les pools de threads lorsque le serveur est arrêté
+            threadPool.shutdown();
+            if (phpPool != null) {
+                phpPool.shutdown();
+            }
+        }
+    }
+    
+
+
+    // Crée le pool de travail des connexions : threads plateforme avec une file bornée, ou un thread
+    // virtuel par connexion (threads=virtual) pour que les attentes bloquantes (php-cgi) ne limitent
+    // plus la concurrence ; la limite adaptative éventuelle s'applique dans les deux cas
+    private static WorkerPool createWorkerPool() {
+        AdaptiveLimit limit = workerAdaptiveLimit
+                ? new AdaptiveLimit(workerAdaptiveMin, workerAdaptiveMax, workerAdaptiveTarget * 1_000_000L) : null;
+        // Avec un pool PHP distinct, ce pool ne traite plus que les connexions et le contenu statique
+        String name = phpPool != null ? "static" : "worker";
+        if (threadMode.equalsIgnoreCase("virtual")) {
+            ExecutorService executor = newVirtualThreadExecutor();
+            if (executor != null) {
+                ServerLog.info("Exécution des connexions sur des threads virtuels.");
+                return new WorkerPool(name, executor, limit);
+            }
+            ServerLog.warn("Threads virtuels indisponibles sur cette JVM (Java 21 requis), utilisation du pool de threads.");
+        }
+        return new WorkerPool(name, workerThreads, workerQueueSize, workerQueueTimeout, limit);
+    }
+
+    // Pool des exécutions PHP. En threads plateforme, son nombre de threads borne les processus
+    // php-cgi lancés par le serveur ; la limite adaptative, si activée, varie entre le nombre de
+    // threads et celui-ci augmenté de la file. Avec threads=virtual, un thread virtuel par exécution,
+    // comme pour les connexions : un pool fixe ramènerait la concurrence PHP à php_pool_threads.
+    // Les processus restent alors bornés par cgi_max_concurrency (ou la taille du pool FastCGI), et
+    // l'admission par la limite adaptative du pool de travail, si activée.
+    private static WorkerPool createPhpPool() {
+        if (threadMode.equalsIgnoreCase("virtual")) {
+            ExecutorService executor = newVirtualThreadExecutor();
+            if (executor != null) {
+                AdaptiveLimit limit = workerAdaptiveLimit
+                        ? new AdaptiveLimit(workerAdaptiveMin, workerAdaptiveMax, workerAdaptiveTarget * 1_000_000L) : null;
+                return new WorkerPool("php", executor, limit);
+            }
+        }
+        AdaptiveLimit limit = workerAdaptiveLimit
+                ? new AdaptiveLimit(phpPoolThreads, phpPoolThreads + phpPoolQueueSize, workerAdaptiveTarget * 1_000_000L) : null;
+        return new WorkerPool("php", phpPoolThreads, phpPoolQueueSize, phpPoolQueueTimeout, limit);
+    }
+
+    // Exécuteur créant un thread virtuel par tâche, ou null si la JVM n'en dispose pas
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            // Obtenu par réflexion : les threads virtuels nécessitent Java 21, le serveur doit
+            // continuer à compiler et à démarrer sur un JDK plus ancien
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    // Répertoire racine servi, avec les paramètres du cache des routes ; appelé au démarrage,
+    // et par les benchmarks pour servir des requêtes sans socket
+    static void setDocumentRoot(File baseDirectory) throws IOException {
+        router = new RequestRouter(baseDirectory, routeCacheSize, routeCacheTtl);
+    }
+
+    // Compression des réponses (null = désactivée) ; fixée au démarrage d'après la configuration,
+    // remplacée par les tests
+    static void setContentEncoder(ContentEncoder encoder) {
+        contentEncoder = encoder;
+    }
+
+    // Valeurs tenues par les autres composants, lues à chaque affichage de la page d'état
+    private static void registerGauges() {
+        if (cgiPermits != null) {
+            metrics.gauge("cgi_waiting_requests", "Requêtes en attente d'une place pour php-cgi", false, cgiPermits::getQueueLength);
+        }
+        if (fastCgiPool != null) {
+            metrics.gauge("fastcgi_busy_workers", "Workers FastCGI occupés", false, fastCgiPool::getBusyWorkers);
+            metrics.gauge("fastcgi_healthy_workers", "Workers FastCGI en état de servir", false, fastCgiPool::getHealthyWorkers);
+            metrics.gauge("fastcgi_spawns_total", "Workers FastCGI lancés", true, fastCgiPool::getSpawns);
+            metrics.gauge("fastcgi_crashes_total", "Workers FastCGI arrêtés sur erreur", true, fastCgiPool::getCrashes);
+            metrics.gauge("fastcgi_failures_total", "Requêtes FastCGI en échec", true, fastCgiPool::getFailures);
+            metrics.gauge("fastcgi_timeouts_total", "Requêtes FastCGI interrompues après leur durée maximale", true,
+                    fastCgiPool::getTimeouts);
+        }
+        if (staticCache != null) {
+            metrics.gauge("static_cache_hits_total", "Fichiers servis depuis le cache", true, staticCache::getHits);
+            metrics.gauge("static_cache_misses_total", "Fichiers absents du cache", true, staticCache::getMisses);
+            metrics.gauge("static_cache_evictions_total", "Fichiers retirés du cache", true, staticCache::getEvictions);
+            metrics.gauge("static_cache_bytes", "Taille du cache des fichiers statiques", false, staticCache::getSize);
+        }
+        if (contentEncoder != null) {
+            metrics.gauge("compression_cache_hits_total", "Variantes compressées servies depuis le cache", true, contentEncoder::getHits);
+            metrics.gauge("compression_cache_misses_total", "Variantes compressées calculées", true, contentEncoder::getMisses);
+        }
+        metrics.gauge("route_cache_hits_total", "Chemins résolus depuis le cache", true, router::getHits);
+        metrics.gauge("route_cache_misses_total", "Chemins résolus sur le disque", true, router::getMisses);
+        metrics.gauge("listing_cache_hits_total", "Listes de répertoires servies depuis le cache", true, directoryListing::getHits);
+        metrics.gauge("listing_cache_misses_total", "Listes de répertoires lues sur le disque", true, directoryListing::getMisses);
+        metrics.gauge("response_buffers_allocated_total", "Tampons de réponse alloués hors de la réserve", true,
+                ResponseBuffer.POOL::getAllocations);
+        metrics.gauge("log_dropped_total", "Enregistrements de journal abandonnés", true, ServerLog::getDropped);
+        if (trafficCapture != null) {
+            metrics.gauge("capture_requests_total", "Requêtes écrites dans le fichier de capture", true, trafficCapture::getCaptured);
+            metrics.gauge("capture_dropped_total", "Requêtes non capturées (anneau plein ou fichier complet)", true, trafficCapture::getDropped);
+        }
+    }
+
+    static ServerMetrics metrics() {
+        return metrics;
+    }
+
+    // Démarre php-cgi en respectant la limite de processus PHP simultanés (cgi_max_concurrency).
+    // Le permis est rendu à la fin du processus, quelle que soit la façon dont la requête se termine.
+    private static Process startPhpProcess(ProcessBuilder processBuilder) throws IOException {
+        if (cgiPermits == null) {
+            return processBuilder.start();
+        }
+        try {
+            cgiPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Attente d'un processus PHP interrompue");
+        }
+        try {
+            Process process = processBuilder.start();
+            process.onExit().thenRun(cgiPermits::release);
+            return process;
+        } catch (IOException | RuntimeException e) {
+            cgiPermits.release();
+            throw e;
+        }
+    }
+
+    // Refuse une connexion sans lire sa requête (pool saturé ou attente trop longue) : 503 avec
+    // Retry-After puis fermeture. Appelé sur le thread d'acceptation : la réponse tient dans le
+    // tampon d'envoi du socket, l'écriture ne bloque pas.
+    private static void rejectConnection(Socket clientSocket) {
+        try (Socket socket = clientSocket;
+             ResponseBuffer out = new ResponseBuffer(ResponseBuffer.POOL, clientSocket.getChannel())) {
+            sendUnavailable(new HttpResponse(out, false, 0, 0));
+            out.flush();
+            socket.shutdownOutput();
+        } catch (IOException e) {
+            ServerLog.debug("Refus de connexion non transmis : " + e.getMessage());
+        }
+        metrics.recordStatus(503);
+    }
+
+    // Refuse une requête déjà lue (pool saturé) : 503 avec Retry-After, journalisé comme les autres
+    static void rejectRequest(HttpRequest request, HttpResponse response) {
+        response.setKeepAlive(false);
+        sendUnavailable(response);
+        ServerLog.access(request, response);
+        metrics.record(request, response, routeType(request));
+    }
+
+    // État d'une connexion du moteur bloquant, conservé quand son traitement passe d'un pool à l'autre
+    private static final class BlockingConnection {
+        final Socket socket;
+        final String remoteAddress;
+        final ResponseBuffer out;
+        final WriteWatchdog.Guard writeGuard;
+        // Les en-têtes sont analysés directement dans le tampon de lecture, réutilisé d'une requête à l'autre
+        final RequestInputStream in;
+        final HttpRequestParser parser = createRequestParser();
+        final HttpResponse.ChannelSender channelSender;
+        int requestCount;
+
+        BlockingConnection(Socket socket) throws IOException {
+            this.socket = socket;
+            this.remoteAddress = socket.getInetAddress().getHostAddress();
+            // Les réponses sont assemblées dans des tampons directs de la réserve, rendus à la fermeture
+            this.out = new ResponseBuffer(ResponseBuffer.POOL, socket.getChannel());
+            this.writeGuard = writeWatchdog != null ? writeWatchdog.register(socket, remoteAddress) : null;
+            out.setWriteGuard(writeGuard);
+            // Délai d'inactivité entre deux requêtes sur la même connexion
+            socket.setSoTimeout(keepAliveTimeout);
+            this.in = new RequestInputStream(socket.getInputStream(), 16 * 1024);
+            in.setTimeouts(socket, keepAliveTimeout, headerReadTimeout, bodyReadTimeout);
+            SocketChannel channel = socket.getChannel();
+            this.channelSender = new HttpResponse.ChannelSender() {
+                // Les fichiers statiques sont envoyés par le noyau directement vers le socket (sendfile)
+                @Override
+                public void sendFile(File file, long position, long count) throws IOException {
+                    out.flush();
+                    ServerEvents.PhaseEvent event = ServerEvents.beginPhase();
+                    if (writeGuard == null) {
+                        HttpResponse.transferFile(file, position, count, channel);
+                    } else {
+                        // Envoi par tranches : le délai d'écriture s'applique à chacune, pas au fichier entier
+                        try {
+                            for (long sent = 0; sent < count; sent += SENDFILE_SLICE) {
+                                writeGuard.begin();
+                                HttpResponse.transferFile(file, position + sent, Math.min(SENDFILE_SLICE, count - sent), channel);
+                            }
+                        } finally {
+                            writeGuard.end();
+                        }
+                    }
+                    ServerEvents.endPhase(event, ServerEvents.Phase.SENDFILE, file.getPath(), count);
+                }
+
+                // En-têtes et corps en une seule écriture groupée
+                @Override
+                public void sendBuffer(ByteBuffer buffer) throws IOException {
+                    out.writeWith(buffer);
+                }
+            };
+        }
+
+        void close() {
+            if (writeGuard != null) {
+                writeGuard.close();
+            }
+            out.close();
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Connexion déjà fermée
+            }
+            metrics.connectionClosed();
+        }
+    }
+
+    // Prend en charge une connexion acceptée, sur un thread du pool des connexions
+    private static void handleConnection(Socket clientSocket, String phpInterpreter, boolean isPhpEnabled) {
+        metrics.connectionOpened();
+        BlockingConnection connection;
+        try {
+            connection = new BlockingConnection(clientSocket);
+        } catch (IOException e) {
+            ServerLog.error("Erreur lors du traitement de la requête : " + e.getMessage());
+            try {
+                clientSocket.close();
+            } catch (IOException ignored) {
+                // Connexion déjà fermée
+            }
+            metrics.connectionClosed();
+            return;
+        }
+        serveConnection(connection, null, phpInterpreter, isPhpEnabled);
+    }
+
+    // Lit et traite les requêtes d'une connexion les unes après les autres, tant que le client et la
+    // configuration autorisent le keep-alive. Avec un pool PHP distinct (cloisonnement), une requête
+    // PHP est confiée avec sa connexion à ce pool, qui rend la connexion au pool des connexions une
+    // fois la réponse envoyée : les scripts lents n'occupent jamais les threads des fichiers statiques.
+    // request : requête déjà lue par le pool précédent, ou null.
+    private static void serveConnection(BlockingConnection connection, HttpRequest request,
+                                        String phpInterpreter, boolean isPhpEnabled) {
+        boolean onPhpPool = request != null;
+        boolean handedOver = false;
+        try {
+            boolean keepAlive = true;
+            while (keepAlive) {
+                if (request == null) {
+                    request = readRequest(connection);
+                    if (request == null) {
+                        break;
+                    }
+                    connection.requestCount++;
+                    request.setRemoteAddress(connection.remoteAddress);
+                    if (phpPool != null && isPhpRequest(request, isPhpEnabled)) {
+                        // Exécution PHP : la connexion passe au pool PHP ; pool saturé ou attente trop
+                        // longue : 503 sans exécuter le script, puis fermeture
+                        HttpRequest phpRequest = request;
+                        handedOver = phpPool.execute(
+                                () -> serveConnection(connection, phpRequest, phpInterpreter, isPhpEnabled),
+                                () -> rejectOnConnection(connection, phpRequest));
+                        if (!handedOver) {
+                            rejectOnConnection(connection, phpRequest);
+                            handedOver = true;
+                        }
+                        return;
+                    }
+                }
+
+                keepAlive = request.isKeepAlive() && connection.requestCount < maxKeepAliveRequests;
+                HttpResponse response = new HttpResponse(connection.out, connection.channelSender, keepAlive,
+                        keepAliveTimeout / 1000, maxKeepAliveRequests - connection.requestCount);
+                handleRequest(request, response, phpInterpreter, isPhpEnabled);
+
+                // Le corps non lu doit être ignoré pour retrouver le début de la requête suivante
+                keepAlive = response.isKeepAlive() && request.discardBody();
+                request = null;
+
+                // Les réponses aux requêtes en pipeline déjà reçues sont envoyées ensemble
+                if (!keepAlive || connection.in.available() == 0) {
+                    connection.out.flush();
+                }
+                if (keepAlive && onPhpPool) {
+                    // Réponse PHP envoyée : l'attente de la requête suivante revient au pool des connexions
+                    connection.out.flush();
+                    handedOver = connectionPool.execute(
+                            () -> serveConnection(connection, null, phpInterpreter, isPhpEnabled),
+                            connection::close);
+                    return;
+                }
+            }
+            connection.out.flush();
+        } catch (SocketTimeoutException e) {
+            // Corps de requête interrompu pendant qu'il était ignoré
+            metrics.recordTimeout(ServerMetrics.Timeout.BODY);
+            ServerLog.warn("Corps de requête interrompu depuis " + bodyReadTimeout + " ms : " + connection.remoteAddress);
+        } catch (IOException e) {
+            // Gestion des erreurs lors du traitement de la requête
+            ServerLog.error("Erreur lors du traitement de la requête : " + e.getMessage());
+        } finally {
+            if (!handedOver) {
+                connection.close();
+            }
+        }
+    }
+
+    // Lit la requête suivante ; null si la connexion doit être fermée (client parti, délai
+    // d'inactivité dépassé, ou requête invalide à laquelle une erreur a été répondue)
+    private static HttpRequest readRequest(BlockingConnection connection) throws IOException {
+        try {
+            return HttpRequest.read(connection.in, connection.parser);
+        } catch (HttpRequest.RequestTimeoutException e) {
+            // Client trop lent à envoyer son en-tête (ou qui le laisse inachevé)
+            ServerLog.warn(e.getMessage() + " : " + connection.remoteAddress);
+            metrics.recordTimeout(ServerMetrics.Timeout.HEADER);
+            HttpResponse response = new HttpResponse(connection.out, false, 0, 0);
+            sendErrorResponse(response, 408, "Request Timeout");
+            metrics.recordStatus(408);
+        } catch (SocketTimeoutException e) {
+            // Délai d'inactivité dépassé : fermeture silencieuse de la connexion persistante
+            metrics.recordTimeout(ServerMetrics.Timeout.IDLE);
+        } catch (HttpRequest.HeaderTooLargeException e) {
+            ServerLog.debug("En-têtes de requête refusés : " + e.getMessage());
+            HttpResponse response = new HttpResponse(connection.out, false, 0, 0);
+            sendErrorResponse(response, 431, "Request Header Fields Too Large");
+            metrics.recordStatus(431);
+        } catch (HttpRequest.MalformedRequestException e) {
+            // Si le format de la requête est invalide, retourner une erreur 400
+            ServerLog.debug("Format de requête invalide : " + e.getMessage());
+            HttpResponse response = new HttpResponse(connection.out, false, 0, 0);
+            sendErrorResponse(response, 400, "Requête invalide");
+            metrics.recordStatus(400);
+        }
+        return null;
+    }
+
+    // Requête PHP refusée par le pool PHP : 503 avec Retry-After, puis fermeture de la connexion
+    private static void rejectOnConnection(BlockingConnection connection, HttpRequest request) {
+        try {
+            rejectRequest(request, new HttpResponse(connection.out, false, 0, 0));
+            connection.out.flush();
+        } catch (IOException e) {
+            ServerLog.debug("Réponse 503 non transmise : " + e.getMessage());
+        } finally {
+            connection.close();
+        }
+    }
+
+    // Analyseur d'en-têtes d'une connexion, aux limites configurées
+    static HttpRequestParser createRequestParser() {
+        return new HttpRequestParser(maxRequestHeaderBytes, maxRequestHeaderCount);
+    }
+
+    static void handleRequest(HttpRequest request, HttpResponse response, String phpInterpreter, boolean isPhpEnabled) {
+        ServerEvents.RequestEvent event = ServerEvents.beginRequest();
+        // Extraction de la méthode HTTP et de la ressource
+        String method = request.getMethod();
+        if (ServerLog.isDebugEnabled()) {
+            ServerLog.debug("Ligne de requête : " + method + " " + request.getResource() + " " + request.getVersion());
+        }
+
+        // Capture : en-tête et corps copiés avant le traitement, qui peut consommer le corps
+        TrafficCapture capture = trafficCapture;
+        byte[] capturedHead = null;
+        byte[] capturedBody = null;
+        boolean bodyFailed = false;
+        if (capture != null && capture.isSampled()) {
+            capturedHead = request.copyHead();
+            try {
+                capturedBody = capture.readBody(request, maxRequestBodyBytes, requestBodySpoolBytes);
+            } catch (IOException e) {
+                ServerLog.debug("Corps de requête illisible pendant la capture : " + e.getMessage());
+                bodyFailed = true;
+            }
+        }
+
+        // Gestion des requêtes GET et POST
+        if (bodyFailed) {
+            response.setKeepAlive(false);
+            sendErrorResponse(response, 400, "Bad Request");
+        } else if (method.equals("GET") && isStatusRequest(request)) {
+            serveStatus(request, response);
+        } else if (method.equals("GET")) {
+            handleGetRequest(request, response, phpInterpreter, isPhpEnabled);
+        } else if (method.equals("POST")) {
+            handlePostRequest(request, response, phpInterpreter, isPhpEnabled);
+        } else {
+            // Si la méthode n'est pas supportée, retourner une erreur 501
+            ServerLog.debug("Méthode non supportée : " + method);
+            response.setKeepAlive(false);
+            sendErrorResponse(response, 501, "Non implémenté");
+        }
+        ServerLog.access(request, response);
+        if (capturedHead != null) {
+            capture.capture(request, capturedHead, capturedBody, response);
+        }
+        ServerMetrics.RouteType routeType = routeType(request);
+        metrics.record(request, response, routeType);
+        ServerEvents.endRequest(event, request, response, routeType.label);
+    }
+
+    private static boolean isStatusRequest(HttpRequest request) {
+        return statusPath != null && request.getPath().equals(statusPath);
+    }
+
+    // Type de route pour les mesures ; une requête GET sans route a été servie par le cache des fichiers statiques
+    private static ServerMetrics.RouteType routeType(HttpRequest request) {
+        String method = request.getMethod();
+        if (!method.equals("GET") && !method.equals("POST")) {
+            return ServerMetrics.RouteType.OTHER;
+        }
+        if (method.equals("GET") && isStatusRequest(request)) {
+            return ServerMetrics.RouteType.STATUS;
+        }
+        RequestRouter.Route route = request.getRoute();
+        if (route == null) {
+            return method.equals("GET") ? ServerMetrics.RouteType.STATIC : ServerMetrics.RouteType.OTHER;
+        }
+        switch (route.getKind()) {
+            case STATIC:
+                return ServerMetrics.RouteType.STATIC;
+            case PHP:
+                return ServerMetrics.RouteType.PHP;
+            case LISTING:
+                return ServerMetrics.RouteType.LISTING;
+            default:
+                return ServerMetrics.RouteType.NOT_FOUND;
+        }
+    }
+
+    // Page d'état : texte lisible, ou format Prometheus avec ?format=prometheus.
+    // Réservée par défaut aux clients de la machine locale.
+    private static void serveStatus(HttpRequest request, HttpResponse out) {
+        if (!statusAllowRemote && !isLoopback(request.getRemoteAddress())) {
+            sendErrorResponse(out, 403, "Forbidden");
+            return;
+        }
+        boolean prometheus = request.getQueryString().contains("format=prometheus");
+        byte[] body = (prometheus ? metrics.toPrometheus() : metrics.toText()).getBytes(StandardCharsets.UTF_8);
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put("Content-Type", prometheus ? "text/plain; version=0.0.4; charset=utf-8" : "text/plain; charset=UTF-8");
+        headers.put("Cache-Control", "no-store");
+        try {
+            out.writeHead(200, "OK", headers, body.length);
+            out.body().write(body);
+        } catch (IOException e) {
+            ServerLog.debug("Envoi de la page d'état interrompu : " + e.getMessage());
+            out.setKeepAlive(false);
+        }
+    }
+
+    private static boolean isLoopback(String address) {
+        if (address == null) {
+            return false;
+        }
+        try {
+            // Adresse numérique : aucune résolution DNS
+            return InetAddress.getByName(address).isLoopbackAddress();
+        } catch (UnknownHostException e) {
+            return false;
+        }
+    }
+    
+    
+
+    // Indique si la requête exécutera un script PHP
+    static boolean isPhpRequest(HttpRequest request, boolean isPhpEnabled) {
+        if (!isPhpEnabled) {
+            return false;
+        }
+        try {
+            return route(request).getKind() == RequestRouter.Kind.PHP;
+        } catch (IOException e) {
+            // L'erreur sera renvoyée par le traitement de la requête
+            return false;
+        }
+    }
+
+    // Indique si la requête demande un travail bloquant que le moteur NIO doit confier à un thread
+    // de travail. Ne restent sur la boucle d'événements que les réponses sans accès au disque :
+    // fichier du cache statique (variante compressée comprise, si elle est déjà en cache), page
+    // d'état et méthodes non supportées. Le reste passe par la résolution de la route
+    // (getCanonicalFile, fichiers index) puis lit un fichier absent du cache, compresse à la
+    // volée, liste un répertoire ou exécute PHP. Les envois de fichiers (transferTo) restent faits
+    // par la boucle d'événements, quel que soit le thread qui prépare la réponse.
+    static boolean requiresWorker(HttpRequest request) {
+        String method = request.getMethod();
+        if (method.equals("POST")) {
+            return true;
+        }
+        if (!method.equals("GET") || isStatusRequest(request)) {
+            return false;
+        }
+        if (staticCache == null) {
+            return true;
+        }
+        StaticFileCache.Entry cached = staticCache.lookup(request.getPath());
+        if (cached == null) {
+            return true;
+        }
+        // Réutilisée par le traitement, qui ne cherche pas une seconde fois dans le cache
+        request.setCachedFile(cached);
+        return requiresCompression(request, cached);
+    }
+
+    // Indique si la variante compressée d'une réponse en cache doit encore être calculée
+    private static boolean requiresCompression(HttpRequest request, StaticFileCache.Entry entry) {
+        if (contentEncoder == null) {
+            return false;
+        }
+        long length = entry.getBody().remaining();
+        String encoding = contentEncoder.negotiate(request, entry.getContentType(), length);
+        return encoding != null && contentEncoder.canCompress(length)
+                && !contentEncoder.isCached(variantKey(entry.getPath(), encoding, entry.getEtag()));
+    }
+
+    // Route de la requête, résolue au premier appel puis conservée avec la requête
+    static RequestRouter.Route route(HttpRequest request) throws IOException {
+        RequestRouter.Route route = request.getRoute();
+        if (route == null) {
+            ServerEvents.PhaseEvent event = ServerEvents.beginPhase();
+            route = router.route(request.getPath());
+            ServerEvents.endPhase(event, ServerEvents.Phase.ROUTE, request.getPath(), 0);
+            request.setRoute(route);
+        }
+        return route;
+    }
+
+    private static void handlePostRequest(HttpRequest request, HttpResponse out, String phpInterpreter, boolean isPhpEnabled) {
+        RequestBody body = null;
+        try {
+            String contentType = request.getHeader("Content-Type", "");
+    
+            // Localiser le fichier demandé
+            RequestRouter.Route route = route(request);
+            File requestedFile = route.getFile();
+    
+            if (route.getKind() == RequestRouter.Kind.PHP) {
+                if (isPhpEnabled) {
+                    // Le corps n'est lu que s'il est destiné à un script, directement depuis la connexion
+                    body = request.getBody(maxRequestBodyBytes, requestBodySpoolBytes);
+                    // Exécuter le script PHP si l'exécution est activée
+                    executePhpScript(request, requestedFile, out, phpInterpreter, "POST", body, contentType);
+                } else {
+                    // Renvoyer une erreur si PHP est désactivé
+                    ServerLog.debug("PHP execution is disabled. Returning 403 Forbidden for POST.");
+                    sendErrorResponse(out, 403, "Forbidden");
+                }
+            } else {
+                // Fichier non trouvé ou non valide
+                if (ServerLog.isDebugEnabled()) {
+                    ServerLog.debug("Requested file not found or is not a PHP file: " + requestedFile.getPath());
+                }
+                sendErrorResponse(out, 404, "Not Found");
+            }
+        } catch (RequestBody.TooLargeException e) {
+            // Le reste du corps n'est pas lu : la connexion ne peut pas être réutilisée
+            ServerLog.debug(e.getMessage());
+            out.setKeepAlive(false);
+            sendErrorResponse(out, 413, "Payload Too Large");
+        } catch (HttpRequest.HeaderTooLargeException e) {
+            // Trailers du corps en blocs au-delà des limites de l'en-tête
+            ServerLog.debug("Trailers refusés : " + e.getMessage());
+            out.setKeepAlive(false);
+            sendErrorResponse(out, 431, "Request Header Fields Too Large");
+        } catch (HttpRequest.MalformedRequestException e) {
+            ServerLog.debug("Corps de requête invalide : " + e.getMessage());
+            out.setKeepAlive(false);
+            sendErrorResponse(out, 400, "Bad Request");
+        } catch (SocketTimeoutException e) {
+            // Le client a cessé d'envoyer le corps : la connexion ne peut pas être réutilisée
+            metrics.recordTimeout(ServerMetrics.Timeout.BODY);
+            ServerLog.warn("Corps de requête interrompu depuis " + bodyReadTimeout + " ms : " + request.getRemoteAddress());
+            out.setKeepAlive(false);
+            sendErrorResponse(out, 408, "Request Timeout");
+        } catch (CgiTimeoutException e) {
+            out.setKeepAlive(false);
+            sendErrorResponse(out, 504, "Gateway Timeout");
+        } catch (CgiBusyException e) {
+            sendUnavailable(out);
+        } catch (IOException e) {
+            ServerLog.error("Error handling POST request: " + e.getMessage());
+            sendErrorResponse(out, 500, "Internal Server Error");
+        } finally {
+            if (body != null) {
+                body.delete();
+            }
+        }
+    }
+    
+    
+    private static void executePhpScript(HttpRequest request, File phpFile, HttpResponse out, 
+                                       String phpInterpreter, String method, RequestBody data, String contentType) throws IOException {
+        // Configuration de l'environnement CGI
+        Map<String, String> env = new LinkedHashMap<>();
+        env.put("SCRIPT_FILENAME", phpFile.getAbsolutePath());
+        env.put("REQUEST_METHOD", method);
+        env.put("QUERY_STRING", request.getQueryString());
+        env.put("REDIRECT_STATUS", "200");
+        env.put("SCRIPT_NAME", phpFile.getName());
+        env.put("SERVER_NAME", "localhost");
+        env.put("SERVER_SOFTWARE", "JavaHTTPServer/1.0");
+        env.put("SERVER_PROTOCOL", "HTTP/1.1");
+        env.put("GATEWAY_INTERFACE", "CGI/1.1");
+        env.put("SERVER_PORT", "1111");
+        env.put("REQUEST_URI", phpFile.getName());
+    
+        // Gestion spécifique selon la méthode HTTP
+        env.put("CONTENT_LENGTH", String.valueOf(data.getLength()));
+        env.put("CONTENT_TYPE", contentType != null && !contentType.isEmpty() ? 
+                contentType : "application/x-www-form-urlencoded");
+        
+        try {
+            runPhpScript(request, phpFile, env, data, phpInterpreter, out);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("PHP execution interrupted", e);
+        }
+    }
+
+    // Exécute un script PHP, sur un worker FastCGI si le pool est actif, sinon dans un nouveau
+    // processus php-cgi ; sa sortie est transmise au client au fur et à mesure qu'elle est produite
+    private static void runPhpScript(HttpRequest request, File phpFile, Map<String, String> env, RequestBody stdin,
+                                     String phpInterpreter, HttpResponse out) throws IOException, InterruptedException {
+        Semaphore scriptPermits = null;
+        if (cgiMaxPerScript > 0) {
+            scriptPermits = cgiScriptPermits.computeIfAbsent(phpFile.getAbsolutePath(), path -> new Semaphore(cgiMaxPerScript));
+            if (!scriptPermits.tryAcquire()) {
+                metrics.recordCgiRejected();
+                ServerLog.warn("Exécutions simultanées de " + request.getPath() + " au maximum (" + cgiMaxPerScript + ") : 503");
+                throw new CgiBusyException();
+            }
+        }
+        try {
+            runPhpScript(request, phpFile, env, stdin, phpInterpreter, new CgiResponseWriter(request, out), out);
+        } finally {
+            if (scriptPermits != null) {
+                scriptPermits.release();
+            }
+        }
+    }
+
+    private static void runPhpScript(HttpRequest request, File phpFile, Map<String, String> env, RequestBody stdin,
+                                     String phpInterpreter, CgiResponseWriter cgiOutput, HttpResponse out)
+            throws IOException, InterruptedException {
+        int exitCode;
+        // Durée maximale du script : au-delà, le client reçoit un 504
+        int timeout = cgiScriptTimeouts.getOrDefault(request.getPath(), cgiTimeout);
+        if (fastCgiPool != null) {
+            ServerEvents.PhaseEvent event = ServerEvents.beginPhase();
+            try (InputStream body = stdin.open()) {
+                exitCode = fastCgiPool.execute(env, body, cgiOutput, timeout);
+            } catch (FastCgiPool.ScriptTimeoutException e) {
+                metrics.recordTimeout(ServerMetrics.Timeout.CGI);
+                ServerLog.warn("Script PHP (FastCGI) interrompu après " + timeout + " ms : " + request.getPath());
+                throw new CgiTimeoutException(request.getPath());
+            }
+            ServerEvents.endPhase(event, ServerEvents.Phase.FASTCGI, request.getPath(), out.getBytesSent());
+        } else {
+            ProcessBuilder processBuilder = new ProcessBuilder(phpInterpreter, phpFile.getAbsolutePath());
+            processBuilder.environment().putAll(env);
+            // Les erreurs PHP vont dans le journal du serveur, pas dans la réponse
+            processBuilder.redirectError(ProcessBuilder.Redirect.INHERIT);
+            long spawnStart = System.nanoTime();
+            ServerEvents.PhaseEvent event = ServerEvents.beginPhase();
+            Process process;
+            try {
+                process = startPhpProcess(processBuilder);
+            } catch (IOException e) {
+                metrics.recordCgiFailure();
+                throw e;
+            }
+            metrics.recordCgiSpawn(System.nanoTime() - spawnStart);
+            ServerEvents.endPhase(event, ServerEvents.Phase.CGI_SPAWN, request.getPath(), 0);
+            // Au-delà de sa durée maximale, le script et les processus qu'il a lancés sont tués :
+            // la lecture de sa sortie se termine et le client reçoit un 504
+            AtomicBoolean timedOut = new AtomicBoolean();
+            ScheduledFuture<?> killer = timeout > 0 ? cgiTimer.schedule(() -> {
+                timedOut.set(true);
+                // Le script est tué avant ses descendants, pour qu'il ne reprenne pas la main à leur fin
+                List<ProcessHandle> descendants = process.descendants().toList();
+                process.destroyForcibly();
+                descendants.forEach(ProcessHandle::destroyForcibly);
+            }, timeout, TimeUnit.MILLISECONDS) : null;
+            try {
+                exitCode = runCgiProcess(request, process, stdin, cgiOutput, out);
+            } catch (IOException e) {
+                if (!timedOut.get()) {
+                    throw e;
+                }
+                exitCode = -1;
+            } finally {
+                if (killer != null) {
+                    killer.cancel(false);
+                }
+            }
+            if (timedOut.get()) {
+                metrics.recordTimeout(ServerMetrics.Timeout.CGI);
+                ServerLog.warn("Script PHP arrêté après " + timeout + " ms : " + request.getPath());
+                throw new CgiTimeoutException(request.getPath());
+            }
+        }
+        if (exitCode != 0) {
+            metrics.recordCgiFailure();
+            ServerLog.warn("PHP script execution failed with exit code: " + exitCode);
+        }
+        cgiOutput.finish();
+    }
+
+    // Envoie le corps au processus php-cgi et transmet sa sortie ; retourne son code de sortie
+    private static int runCgiProcess(HttpRequest request, Process process, RequestBody stdin,
+                                     CgiResponseWriter cgiOutput, HttpResponse out) throws IOException, InterruptedException {
+        // Exécution du script : envoi du corps, lecture et transmission de sa sortie
+        ServerEvents.PhaseEvent event = ServerEvents.beginPhase();
+
+        // Les données POST sont recopiées telles quelles de la connexion (ou du fichier
+        // temporaire) vers l'entrée du processus, par blocs : le client n'envoie pas plus
+        // vite que le script ne lit. La copie se fait sur un autre thread pendant que la sortie
+        // est lue : un script qui écrit plus que le tube n'en contient avant d'avoir lu tout
+        // son corps ne bloque ni lui ni le serveur
+        Future<?> stdinWriter = null;
+        if (stdin.getLength() == 0) {
+            closeStdin(process.getOutputStream());
+        } else {
+            InputStream body;
+            try {
+                body = stdin.open();
+            } catch (IOException e) {
+                process.destroy();
+                throw e;
+            }
+            stdinWriter = cgiStdinWriters.submit(() -> {
+                try (body) {
+                    copyToStdin(body, process.getOutputStream());
+                } catch (IOException e) {
+                    // Corps de requête interrompu par le client : le script ne doit pas
+                    // traiter un corps tronqué
+                    process.destroy();
+                    throw e;
+                }
+                return null;
+            });
+        }
+        try (InputStream processOutput = process.getInputStream()) {
+            byte[] buffer = new byte[8192];
+            int bytesRead;
+            while ((bytesRead = processOutput.read(buffer)) != -1) {
+                cgiOutput.write(buffer, 0, bytesRead);
+                // Envoi dès que le script marque une pause, sans attendre la fin de son exécution
+                if (processOutput.available() == 0) {
+                    cgiOutput.flush();
+                }
+            }
+        } catch (IOException e) {
+            // Client parti ou sortie invalide : inutile de laisser le script tourner. La copie du
+            // corps s'arrête sur le tube fermé ; elle est attendue pour ne pas lire la connexion
+            // en même temps que la requête suivante
+            process.destroy();
+            awaitStdinWriter(stdinWriter);
+            throw e;
+        }
+        IOException bodyError = awaitStdinWriter(stdinWriter);
+        if (bodyError != null) {
+            throw bodyError;
+        }
+        int exitCode = process.waitFor();
+        ServerEvents.endPhase(event, ServerEvents.Phase.CGI_RUN, request.getPath(), out.getBytesSent());
+        return exitCode;
+    }
+
+    // Attend la fin de la copie du corps ; retourne l'erreur de lecture du corps, s'il y en a une
+    private static IOException awaitStdinWriter(Future<?> stdinWriter) throws InterruptedException {
+        if (stdinWriter == null) {
+            return null;
+        }
+        try {
+            stdinWriter.get();
+            return null;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                return (IOException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    // Copie le corps vers l'entrée du script ; si le script se termine sans tout lire,
+    // le reste est laissé sur la connexion (ignoré ensuite par discardBody)
+    private static void copyToStdin(InputStream body, OutputStream processStdin) throws IOException {
+        try {
+            byte[] buffer = new byte[8192];
+            int bytesRead;
+            while ((bytesRead = body.read(buffer)) != -1) {
+                try {
+                    processStdin.write(buffer, 0, bytesRead);
+                } catch (IOException e) {
+                    // Tube fermé par le script
+                    return;
+                }
+            }
+        } finally {
+            closeStdin(processStdin);
+        }
+    }
+
+    private static void closeStdin(OutputStream processStdin) {
+        try {
+            processStdin.close();
+        } catch (IOException e) {
+            // Script déjà terminé
+        }
+    }
+
+    private static void handleGetRequest(HttpRequest request, HttpResponse out, String phpInterpreter, boolean isPhpEnabled) {
+        String path = request.getPath();
+        String queryString = request.getQueryString();
+        try {
+            // Réponse statique déjà en cache : servie sans accès au système de fichiers
+            StaticFileCache.Entry cached = request.getCachedFile();
+            if (cached == null && staticCache != null) {
+                cached = staticCache.lookup(path);
+            }
+            if (cached != null) {
+                serveCachedFile(request, cached, out);
+                return;
+            }
+    
+            // Résoudre le chemin du fichier demandé (fichier index compris pour un répertoire)
+            RequestRouter.Route route = route(request);
+            File requestedFile = route.getFile();
+            if (ServerLog.isDebugEnabled()) {
+                ServerLog.debug("Route " + route.getKind() + " : " + requestedFile.getPath() + " (query string : " + queryString + ")");
+            }
+    
+            switch (route.getKind()) {
+                case PHP:
+                    // Si le fichier est un script PHP
+                    if (isPhpEnabled) {
+                        executePhpScript(request, requestedFile, out, phpInterpreter, "GET", queryString);
+                    } else {
+                        ServerLog.debug("PHP execution is disabled");
+                        sendErrorResponse(out, 403, "Forbidden");
+                    }
+                    break;
+                case STATIC:
+                    // Servir un fichier statique
+                    serveFile(request, requestedFile, path, out);
+                    break;
+                case LISTING:
+                    serveDirectoryListing(request, requestedFile, out);
+                    break;
+                default:
+                    sendErrorResponse(out, 404, "Not Found");
+                    break;
+            }
+        } catch (IOException e) {
+            ServerLog.error("Error handling GET request: " + e.getMessage());
+            sendErrorResponse(out, 500, "Internal Server Error");
+        }
+    }
+    
+    
+
+    private static void executePhpScript(HttpRequest request, File phpFile, HttpResponse out, String phpInterpreter, String method, String queryString) throws IOException {
+        // Configuration de l'environnement CGI
+        Map<String, String> env = new LinkedHashMap<>();
+        env.put("SCRIPT_FILENAME", phpFile.getAbsolutePath());
+        env.put("REQUEST_METHOD", method);
+        env.put("QUERY_STRING", queryString);
+        env.put("REDIRECT_STATUS", "200");
+        
+        // Informations supplémentaires recommandées pour CGI
+        env.put("SERVER_SOFTWARE", "JavaHTTPServer/1.0");
+        env.put("SERVER_PROTOCOL", "HTTP/1.1");
+        env.put("GATEWAY_INTERFACE", "CGI/1.1");
+        
+        // Ajouter SERVER_NAME et SERVER_PORT
+        env.put("SERVER_NAME", "localhost");
+        env.put("SERVER_PORT", "1111");
+        
+        // Pour les requêtes GET, ajouter les variables d'environnement spécifiques
+        if (method.equals("GET") && !queryString.isEmpty()) {
+            // Construire REQUEST_URI avec query string
+            env.put("REQUEST_URI", phpFile.getName() + "?" + queryString);
+        } else {
+            env.put("REQUEST_URI", phpFile.getName());
+        }
+        
+        try {
+            runPhpScript(request, phpFile, env, RequestBody.empty(), phpInterpreter, out);
+        } catch (InterruptedException e) {
+            ServerLog.warn("PHP script execution was interrupted");
+            Thread.currentThread().interrupt();
+            sendErrorResponse(out, 500, "Internal Server Error");
+        } catch (CgiTimeoutException e) {
+            out.setKeepAlive(false);
+            sendErrorResponse(out, 504, "Gateway Timeout");
+        } catch (CgiBusyException e) {
+            sendUnavailable(out);
+        } catch (IOException e) {
+            ServerLog.error("Error executing PHP script: " + e.getMessage());
+            sendErrorResponse(out, 500, "Internal Server Error");
+        }
+    }
+    
+    
+
+    private static File getClassLocation() {
+        try {
+            // Obtenir l'emplacement du fichier .class
+            String path = HttpServer.class.getProtectionDomain()
+                .getCodeSource()
+                .getLocation()
+                .getPath();
+            path = URLDecoder.decode(path, "UTF-8");
+            File classLocation = new File(path);
+    
+            // Si c'est un fichier (par ex., un JAR), aller au repertoire parent
+            if (classLocation.isFile()) {
+                classLocation = classLocation.getParentFile();
+            }
+    
+            // Ajouter le sous-repertoire "htdocs"
+            File htdocsDir = new File(classLocation, "htdocs");
+    
+            // Si "htdocs" n'existe pas, le creer
+            if (!htdocsDir.exists()) {
+                System.out.println("Le dossier 'htdocs' est introuvable. Creation du dossier...");
+                htdocsDir.mkdir();
+            }
+    
+            return htdocsDir;
+        } catch (UnsupportedEncodingException e) {
+            e.printStackTrace();
+            // Retour par defaut si une erreur se produit
+            return new File("htdocs");
+        }
+    }
+    
+
+    private static void serveDirectoryListing(HttpRequest request, File directory, HttpResponse out) throws IOException {
+        // Contenu du répertoire en cache tant qu'il ne change pas ; tri et page d'après la query string
+        ServerEvents.PhaseEvent event = ServerEvents.beginPhase();
+        DirectoryListing.Snapshot snapshot = directoryListing.snapshot(directory);
+        ServerEvents.endPhase(event, ServerEvents.Phase.LISTING, directory.getPath(), 0);
+        DirectoryListing.Page page = DirectoryListing.Page.parse(request.getQueryString());
+        String etag = directoryListing.etag(snapshot, page);
+        long lastModified = snapshot.getLastModified();
+        String mimeType = "text/html; charset=UTF-8";
+
+        // Très grande page : envoyée au fur et à mesure de sa production, sans Content-Length ni compression
+        if (directoryListing.isLarge(snapshot, page)) {
+            if (sendNotModifiedIfFresh(request, out, etag, lastModified, mimeType)) {
+                return;
+            }
+            Map<String, String> headers = new LinkedHashMap<>();
+            headers.put("Content-Type", mimeType);
+            headers.put("ETag", etag);
+            headers.put("Last-Modified", HttpValidators.formatDate(lastModified));
+            if (request.getVersion().equals("HTTP/1.1")) {
+                headers.put("Transfer-Encoding", "chunked");
+                out.writeBodilessHead(200, "OK", headers);
+                try (OutputStream body = new BufferedOutputStream(out.chunkedBody(), 16 * 1024)) {
+                    directoryListing.render(snapshot, page, body);
+                }
+            } else {
+                out.writeHead(200, "OK", headers, -1);
+                directoryListing.render(snapshot, page, out.body());
+            }
+            return;
+        }
+
+        // La longueur annoncée est celle du corps encodé en UTF-8, en octets
+        ByteArrayOutputStream rendered = new ByteArrayOutputStream(8192);
+        directoryListing.render(snapshot, page, rendered);
+        byte[] body = rendered.toByteArray();
+
+        String encoding = contentEncoder == null ? null : contentEncoder.negotiate(request, mimeType, body.length);
+        if (encoding != null) {
+            etag = ContentEncoder.variantEtag(etag, encoding);
+        }
+        if (sendNotModifiedIfFresh(request, out, etag, lastModified, mimeType)) {
+            return;
+        }
+        if (encoding != null) {
+            // Variante compressée gardée avec celles des fichiers, sous l'ETag de la page
+            String key = directory.getPath() + "|" + etag;
+            byte[] compressed = contentEncoder.getCached(key);
+            if (compressed == null) {
+                compressed = contentEncoder.compress(body, 0, body.length, encoding);
+                contentEncoder.putCached(key, compressed);
+            }
+            body = compressed;
+        }
+
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put("Content-Type", mimeType);
+        if (encoding != null) {
+            headers.put("Content-Encoding", encoding);
+        }
+        if (varyOnEncoding(mimeType)) {
+            headers.put("Vary", "Accept-Encoding");
+        }
+        headers.put("ETag", etag);
+        headers.put("Last-Modified", HttpValidators.formatDate(lastModified));
+        out.writeHead(200, "OK", headers, body.length);
+        out.body().write(body);
+    }
+
+    private static void serveFile(HttpRequest request, File file, String requestPath, HttpResponse out) throws IOException {
+        // Déterminer le type MIME du fichier à servir
+        String mimeType = getMimeType(file.getName());
+
+        // Les petits fichiers passent par le cache mémoire
+        if (staticCache != null) {
+            ServerEvents.PhaseEvent event = ServerEvents.beginPhase();
+            StaticFileCache.Entry entry = staticCache.load(requestPath, file, mimeType, varyOnEncoding(mimeType));
+            ServerEvents.endPhase(event, ServerEvents.Phase.FILE_READ, file.getPath(), entry != null ? entry.getBody().remaining() : 0);
+            if (entry != null) {
+                serveCachedFile(request, entry, out);
+                return;
+            }
+        }
+    
+        long length = file.length();
+        long lastModified = file.lastModified();
+        String etag = HttpValidators.etag(length, lastModified);
+        if (sendCompressedIfAccepted(request, out, mimeType, file.getPath(), length, lastModified, etag, null)) {
+            return;
+        }
+        if (sendNotModifiedIfFresh(request, out, etag, lastModified, mimeType)) {
+            return;
+        }
+        // Plages demandées : seules les portions utiles sont lues, à partir de leur position
+        if (sendRangesIfRequested(request, out, mimeType, etag, lastModified, length,
+                (position, count) -> out.sendFile(file, position, count))) {
+            return;
+        }
+
+        // Le fichier est envoyé tel quel, quel que soit son type : le Content-Length est la taille
+        // exacte en octets et le contenu ne transite ni par des chaînes Java ni par le tas
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put("Content-Type", mimeType);
+        headers.put("Accept-Ranges", "bytes");
+        if (varyOnEncoding(mimeType)) {
+            headers.put("Vary", "Accept-Encoding");
+        }
+        headers.put("ETag", etag);
+        headers.put("Last-Modified", HttpValidators.formatDate(lastModified));
+        out.writeHead(200, "OK", headers, length);
+        out.sendFile(file, 0, length);
+    }
+
+    private static void serveCachedFile(HttpRequest request, StaticFileCache.Entry entry, HttpResponse out) throws IOException {
+        ByteBuffer body = entry.getBody();
+        if (sendCompressedIfAccepted(request, out, entry.getContentType(), entry.getPath(), body.remaining(),
+                entry.getLastModified(), entry.getEtag(), body)) {
+            return;
+        }
+        if (sendNotModifiedIfFresh(request, out, entry.getEtag(), entry.getLastModified(), entry.getContentType())) {
+            return;
+        }
+        if (sendRangesIfRequested(request, out, entry.getContentType(), entry.getEtag(), entry.getLastModified(),
+                body.remaining(), (position, count) -> {
+                    ByteBuffer slice = body.duplicate();
+                    slice.position((int) position).limit((int) (position + count));
+                    out.sendBuffer(slice);
+                })) {
+            return;
+        }
+        out.writeHead(200, "OK", entry.getHeaders());
+        out.sendBuffer(entry.getBody());
+    }
+    
+    // Source des octets d'une ressource statique (fichier ou tampon du cache)
+    private interface RangeSource {
+        void send(long position, long count) throws IOException;
+    }
+
+    // Traite l'en-tête Range : 206 Partial Content (une plage, ou multipart/byteranges pour
+    // plusieurs), 416 si aucune plage n'est satisfaisable. Retourne false si la ressource doit
+    // être servie en entier (pas de Range, Range ignoré ou If-Range non satisfait).
+    private static boolean sendRangesIfRequested(HttpRequest request, HttpResponse out, String mimeType, String etag,
+                                                 long lastModified, long length, RangeSource source) throws IOException {
+        String rangeHeader = request.getHeader("Range");
+        if (rangeHeader == null) {
+            return false;
+        }
+        String ifRange = request.getHeader("If-Range");
+        if (ifRange != null && !HttpValidators.ifRangeMatches(ifRange, etag, lastModified)) {
+            return false;
+        }
+        List<long[]> ranges = ByteRanges.parse(rangeHeader, length);
+        if (ranges == null) {
+            return false;
+        }
+
+        Map<String, String> headers = new LinkedHashMap<>();
+        if (ranges.isEmpty()) {
+            byte[] errorBody = "<html><body><h1>416 Range Not Satisfiable</h1></body></html>".getBytes(StandardCharsets.UTF_8);
+            headers.put("Content-Type", "text/html; charset=UTF-8");
+            headers.put("Content-Range", "bytes */" + length);
+            out.writeHead(416, "Range Not Satisfiable", headers, errorBody.length);
+            out.body().write(errorBody);
+            return true;
+        }
+
+        headers.put("Accept-Ranges", "bytes");
+        if (varyOnEncoding(mimeType)) {
+            headers.put("Vary", "Accept-Encoding");
+        }
+        headers.put("ETag", etag);
+        headers.put("Last-Modified", HttpValidators.formatDate(lastModified));
+        if (ranges.size() == 1) {
+            long[] range = ranges.get(0);
+            headers.put("Content-Type", mimeType);
+            headers.put("Content-Range", "bytes " + range[0] + "-" + range[1] + "/" + length);
+            out.writeHead(206, "Partial Content", headers, range[1] - range[0] + 1);
+            source.send(range[0], range[1] - range[0] + 1);
+            return true;
+        }
+
+        // Plusieurs plages : corps multipart/byteranges dont la longueur totale est calculée d'avance
+        String boundary = "BYTERANGES" + Long.toHexString(ThreadLocalRandom.current().nextLong());
+        byte[][] partHeaders = new byte[ranges.size()][];
+        long contentLength = 0;
+        for (int i = 0; i < ranges.size(); i++) {
+            long[] range = ranges.get(i);
+            partHeaders[i] = ("\r\n--" + boundary + "\r\n"
+                    + "Content-Type: " + mimeType + "\r\n"
+                    + "Content-Range: bytes " + range[0] + "-" + range[1] + "/" + length + "\r\n\r\n")
+                    .getBytes(StandardCharsets.UTF_8);
+            contentLength += partHeaders[i].length + range[1] - range[0] + 1;
+        }
+        byte[] closing = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8);
+        contentLength += closing.length;
+
+        headers.put("Content-Type", "multipart/byteranges; boundary=" + boundary);
+        out.writeHead(206, "Partial Content", headers, contentLength);
+        for (int i = 0; i < ranges.size(); i++) {
+            long[] range = ranges.get(i);
+            out.body().write(partHeaders[i]);
+            source.send(range[0], range[1] - range[0] + 1);
+        }
+        out.body().write(closing);
+        return true;
+    }
+
+    // Clé d'une variante compressée dans le cache de l'encodeur
+    private static String variantKey(String path, String encoding, String etag) {
+        return path + "|" + encoding + "|" + etag;
+    }
+
+    // Envoie la variante compressée d'une ressource statique : depuis le cache des variantes,
+    // depuis un fichier voisin précompressé (.gz), ou en compressant une seule fois le contenu.
+    // Retourne false si le client n'accepte pas de compression ou qu'aucune variante n'est possible.
+    private static boolean sendCompressedIfAccepted(HttpRequest request, HttpResponse out, String mimeType, String path,
+                                                    long length, long lastModified, String etag, ByteBuffer cachedBody) throws IOException {
+        if (contentEncoder == null) {
+            return false;
+        }
+        String encoding = contentEncoder.negotiate(request, mimeType, length);
+        if (encoding == null) {
+            return false;
+        }
+        String key = variantKey(path, encoding, etag);
+        byte[] compressed = contentEncoder.getCached(key);
+        File precompressed = null;
+        // Le voisin .gz n'est cherché que pour les fichiers hors cache : un succès du cache
+        // statique ne doit pas accéder au disque
+        if (compressed == null && cachedBody == null && encoding.equals("gzip")) {
+            File sibling = new File(path + ".gz");
+            if (sibling.isFile() && sibling.lastModified() >= lastModified) {
+                precompressed = sibling;
+            }
+        }
+        if (compressed == null && precompressed == null && !contentEncoder.canCompress(length)) {
+            return false;
+        }
+
+        // Le fichier .gz n'a pas les mêmes octets que la compression à la volée : son ETag et sa
+        // date viennent de ce fichier (taille et date), pour que caches et reprises par plages ne
+        // mélangent pas les deux représentations
+        String variantEtag;
+        if (precompressed != null) {
+            lastModified = precompressed.lastModified();
+            variantEtag = ContentEncoder.variantEtag(HttpValidators.etag(precompressed.length(), lastModified), encoding);
+        } else {
+            variantEtag = ContentEncoder.variantEtag(etag, encoding);
+        }
+        if (sendNotModifiedIfFresh(request, out, variantEtag, lastModified, mimeType)) {
+            return true;
+        }
+        if (compressed == null && precompressed == null) {
+            if (cachedBody != null) {
+                compressed = contentEncoder.compress(cachedBody, encoding);
+            } else {
+                byte[] data = Files.readAllBytes(Paths.get(path));
+                compressed = contentEncoder.compress(data, 0, data.length, encoding);
+            }
+            contentEncoder.putCached(key, compressed);
+        }
+
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put("Content-Type", mimeType);
+        headers.put("Content-Encoding", encoding);
+        headers.put("Vary", "Accept-Encoding");
+        headers.put("ETag", variantEtag);
+        headers.put("Last-Modified", HttpValidators.formatDate(lastModified));
+        if (precompressed != null) {
+            long compressedLength = precompressed.length();
+            out.writeHead(200, "OK", headers, compressedLength);
+            out.sendFile(precompressed, 0, compressedLength);
+        } else {
+            out.writeHead(200, "OK", headers, compressed.length);
+            out.sendBuffer(ByteBuffer.wrap(compressed));
+        }
+        return true;
+    }
+
+    // Les réponses d'un type compressible dépendent d'Accept-Encoding (pour les caches partagés)
+    private static boolean varyOnEncoding(String mimeType) {
+        return contentEncoder != null && ContentEncoder.isCompressible(mimeType);
+    }
+
+    // Répond 304 Not Modified, sans corps, si la copie du client est encore valide
+    private static boolean sendNotModifiedIfFresh(HttpRequest request, HttpResponse out, String etag, long lastModified,
+                                                  String mimeType) throws IOException {
+        if (!HttpValidators.isNotModified(request, etag, lastModified)) {
+            return false;
+        }
+        Map<String, String> headers = new LinkedHashMap<>();
+        if (varyOnEncoding(mimeType)) {
+            headers.put("Vary", "Accept-Encoding");
+        }
+        headers.put("ETag", etag);
+        headers.put("Last-Modified", HttpValidators.formatDate(lastModified));
+        out.writeBodilessHead(304, "Not Modified", headers);
+        return true;
+    }
+
+    private static String getMimeType(String fileName) {
+        return mimeTypes.lookup(fileName);
+    }
+    
+
+    // Script PHP arrêté après sa durée maximale (504)
+    private static class CgiTimeoutException extends IOException {
+        CgiTimeoutException(String path) {
+            super("Script PHP arrêté après sa durée maximale : " + path);
+        }
+    }
+
+    // Script PHP déjà exécuté par cgi_max_per_script requêtes (503)
+    private static class CgiBusyException extends IOException {
+        CgiBusyException() {
+            super("Exécutions simultanées du script au maximum");
+        }
+    }
+
+    // 503 du contrôle d'admission, avec le délai après lequel le client peut réessayer
+    private static void sendUnavailable(HttpResponse out) {
+        try {
+            byte[] errorBody = "<html><body><h1>503 Service Unavailable</h1></body></html>".getBytes(StandardCharsets.UTF_8);
+            out.writeHead(503, "Service Unavailable", Map.of("Content-Type", "text/html; charset=UTF-8",
+                    "Retry-After", String.valueOf(retryAfterSeconds)), errorBody.length);
+            out.body().write(errorBody);
+        } catch (IOException e) {
+            ServerLog.debug("Réponse 503 non transmise : " + e.getMessage());
+            out.setKeepAlive(false);
+        }
+    }
+
+    private static void sendErrorResponse(HttpResponse out, int statusCode, String message) {
+        if (out.isCommitted()) {
+            // La réponse est déjà partiellement envoyée : seule la fermeture de la connexion reste possible
+            out.setKeepAlive(false);
+            return;
+        }
+        try {
+            byte[] errorBody = String.format("<html><body><h1>%d %s</h1></body></html>", statusCode, message)
+                    .getBytes(StandardCharsets.UTF_8);
+            out.writeHead(statusCode, message, "text/html; charset=UTF-8", errorBody.length);
+            out.body().write(errorBody);
+        } catch (IOException e) {
+            ServerLog.error("Erreur lors de l'envoi de la réponse d'erreur : " + e.getMessage());
+            out.setKeepAlive(false);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package http;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+// Validateurs des requêtes conditionnelles (RFC 7232) : ETag, Last-Modified et comparaison
+// avec If-None-Match / If-Modified-Since
+public class HttpValidators {
+    // Format des dates HTTP (IMF-fixdate), par ex. "Sun, 06 Nov 1994 08:49:37 GMT"
+    private static final DateTimeFormatter HTTP_DATE = DateTimeFormatter.RFC_1123_DATE_TIME.withZone(ZoneOffset.UTC);
+
+    private HttpValidators() {
+    }
+
+    // ETag fort construit à partir de la taille et de la date de modification d'un fichier
+    public static String etag(long length, long lastModified) {
+        return "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+    }
+
+    public static String formatDate(long millis) {
+        return HTTP_DATE.format(Instant.ofEpochMilli(millis));
+    }
+
+    // Retourne la date en millisecondes, ou -1 si elle n'est pas au format HTTP
+    public static long parseDate(String value) {
+        try {
+            return ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return -1;
+        }
+    }
+
+    // Indique si la copie du client est à jour et qu'une 304 Not Modified suffit.
+    // If-None-Match est prioritaire sur If-Modified-Since (RFC 7232, section 6).
+    public static boolean isNotModified(HttpRequest request, String etag, long lastModified) {
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch != null) {
+            return matches(ifNoneMatch, etag);
+        }
+        String ifModifiedSince = request.getHeader("If-Modified-Since");
+        if (ifModifiedSince != null) {
+            long since = parseDate(ifModifiedSince);
+            // Les dates HTTP ont une précision d'une seconde
+            return since >= 0 && lastModified / 1000 <= since / 1000;
+        }
+        return false;
+    }
+
+    // If-Range (RFC 7233, section 3.2) : la plage n'est servie que si la ressource est exactement
+    // celle désignée, par ETag fort ou par date de modification identique
+    public static boolean ifRangeMatches(String ifRange, String etag, long lastModified) {
+        String value = ifRange.trim();
+        if (value.startsWith("\"") || value.startsWith("W/")) {
+            return !value.startsWith("W/") && !etag.startsWith("W/") && value.equals(etag);
+        }
+        long date = parseDate(value);
+        return date >= 0 && date / 1000 == lastModified / 1000;
+    }
+
+    // Comparaison faible d'une liste d'ETags (ou "*") avec l'ETag courant
+    public static boolean matches(String etagList, String etag) {
+        if (etagList.trim().equals("*")) {
+            return true;
+        }
+        String opaque = stripWeak(etag);
+        for (String candidate : etagList.split(",")) {
+            if (stripWeak(candidate.trim()).equals(opaque)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String stripWeak(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+}
@@ -0,0 +1,97 @@
+package http;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+// Table des types MIME par extension, construite une fois au démarrage : valeurs intégrées,
+// complétées par un fichier au format mime.types puis par les entrées "mime.<extension>" de la
+// configuration. Les valeurs sont stockées prêtes à l'envoi (charset ajouté aux types texte) :
+// une recherche se résume à une lecture dans une HashMap, avec le même résultat sur toutes les machines.
+public class MimeTypes {
+    public static final String DEFAULT_TYPE = "application/octet-stream";
+
+    private static final String[][] BUILT_IN = {
+            // Texte et web
+            {"html", "text/html"}, {"htm", "text/html"}, {"css", "text/css"},
+            {"js", "text/javascript"}, {"mjs", "text/javascript"}, {"txt", "text/plain"},
+            {"csv", "text/csv"}, {"md", "text/markdown"}, {"xml", "text/xml"},
+            {"json", "application/json"}, {"map", "application/json"},
+            {"webmanifest", "application/manifest+json"}, {"wasm", "application/wasm"},
+            // Images
+            {"png", "image/png"}, {"jpg", "image/jpeg"}, {"jpeg", "image/jpeg"}, {"gif", "image/gif"},
+            {"webp", "image/webp"}, {"avif", "image/avif"}, {"svg", "image/svg+xml"},
+            {"ico", "image/x-icon"}, {"bmp", "image/bmp"},
+            // Polices
+            {"woff", "font/woff"}, {"woff2", "font/woff2"}, {"ttf", "font/ttf"}, {"otf", "font/otf"},
+            // Audio et vidéo
+            {"mp3", "audio/mpeg"}, {"ogg", "audio/ogg"}, {"wav", "audio/wav"}, {"mp4", "video/mp4"},
+            {"webm", "video/webm"}, {"avi", "video/x-msvideo"},
+            // Documents et archives
+            {"pdf", "application/pdf"}, {"zip", "application/zip"}, {"gz", "application/gzip"},
+            {"tar", "application/x-tar"}, {"7z", "application/x-7z-compressed"},
+            {"doc", "application/msword"},
+            {"docx", "application/vnd.openxmlformats-officedocument.wordprocessingml.document"},
+            {"xls", "application/vnd.ms-excel"},
+            {"xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"},
+            {"exe", "application/octet-stream"}, {"bin", "application/octet-stream"},
+    };
+
+    private final String charset;
+    // Content-Type complet par extension (en minuscules)
+    private final Map<String, String> types = new HashMap<>();
+
+    // charset ajouté aux types text/* (null ou vide pour ne rien ajouter)
+    public MimeTypes(String charset) {
+        this.charset = charset == null || charset.isEmpty() ? null : charset;
+        for (String[] entry : BUILT_IN) {
+            put(entry[0], entry[1]);
+        }
+    }
+
+    // Associe une extension (sans le point) à un type
+    public void put(String extension, String type) {
+        type = type.trim();
+        if (charset != null && type.regionMatches(true, 0, "text/", 0, 5) && !type.contains(";")) {
+            type = type + "; charset=" + charset;
+        }
+        types.put(extension.toLowerCase(Locale.ROOT), type);
+    }
+
+    // Charge un fichier au format mime.types : "type ext1 ext2 ...", commentaires après '#'
+    public void load(File file) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int comment = line.indexOf('#');
+                if (comment >= 0) {
+                    line = line.substring(0, comment);
+                }
+                String[] fields = line.trim().split("\\s+");
+                for (int i = 1; i < fields.length; i++) {
+                    put(fields[i], fields[0]);
+                }
+            }
+        }
+    }
+
+    // Type d'un nom de fichier d'après son extension, ou DEFAULT_TYPE
+    public String lookup(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        if (dot < 0 || dot == fileName.length() - 1) {
+            return DEFAULT_TYPE;
+        }
+        String type = types.get(fileName.substring(dot + 1));
+        if (type == null) {
+            // Extension en majuscules (ex. "PHOTO.JPG") : cas rare, seule la seconde recherche alloue
+            type = types.get(fileName.substring(dot + 1).toLowerCase(Locale.ROOT));
+        }
+        return type != null ? type : DEFAULT_TYPE;
+    }
+
+    public int size() {
+        return types.size();
+    }
+}
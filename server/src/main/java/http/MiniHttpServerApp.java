@@ -1,3 +1,5 @@
+package http;
+
 import javax.swing.*;
 import java.awt.*;
 import java.io.*;
@@ -67,8 +69,9 @@ public class MiniHttpServerApp {
     private static Process startServer() throws IOException {
         // Chemin du fichier compile ou JAR
         String javaPath = System.getProperty("java.home") + "/bin/java";
-        String serverClass = "HttpServer"; // Nom de votre classe
-        String command = javaPath + " -cp . " + serverClass; // Adapter si necessaire
-        return Runtime.getRuntime().exec(command);
+        String serverClass = HttpServer.class.getName(); // Nom de votre classe
+        // Meme classpath que cette application (repertoire de classes ou JAR du module server)
+        String classPath = System.getProperty("java.class.path");
+        return new ProcessBuilder(javaPath, "-cp", classPath, serverClass).start();
     }
 }
@@ -0,0 +1,905 @@
+package http;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Moteur non bloquant (engine=nio) : une boucle d'événements par cœur, chaque connexion
+// conserve son état de lecture/écriture ; seules les réponses du cache statique sont préparées
+// sur la boucle, tout traitement qui accède au disque ou exécute PHP est confié aux threads de
+// travail
+public class NioServer {
+    // Taille initiale du tampon de lecture d'une connexion
+    private static final int READ_BUFFER_SIZE = 16 * 1024;
+    // Taille maximale du tampon de lecture (en-têtes et requêtes en pipeline) ; les corps
+    // sont mis de côté à part, en mémoire puis sur disque
+    private static final int MAX_REQUEST_SIZE = 8 * 1024 * 1024;
+    // Sortie d'un thread de travail en attente d'écriture sur une connexion : au-delà du seuil haut,
+    // le thread attend que la boucle l'ait ramenée sous le seuil bas (client lent, gros téléchargement)
+    private static final long OUTPUT_HIGH_WATER = 1024 * 1024;
+    private static final long OUTPUT_LOW_WATER = 256 * 1024;
+    // Intervalle (ms) de vérification des connexions inactives
+    private static final int IDLE_CHECK_INTERVAL = 1000;
+    // Corps au-delà du seuil de mise en mémoire : confié au fichier temporaire par blocs de cette taille
+    private static final int SPOOL_CHUNK_SIZE = 64 * 1024;
+    // Écriture des corps de requête dans leur fichier temporaire, hors des boucles d'événements
+    private static final ExecutorService spoolWriters = Executors.newFixedThreadPool(
+            Math.max(2, Runtime.getRuntime().availableProcessors()), task -> {
+                Thread thread = new Thread(task, "body-spool");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private final int port;
+    private final String phpInterpreter;
+    private final boolean isPhpEnabled;
+    private final WorkerPool workers;
+    // Pool distinct des exécutions PHP, null si elles partagent le pool des accès au disque
+    private final WorkerPool phpWorkers;
+    private final int keepAliveTimeout;
+    // Délais (ms, 0 = aucun) : réception de l'en-tête, inactivité pendant le corps, écriture sans progression
+    private final int headerTimeout;
+    private final int bodyTimeout;
+    private final int writeTimeout;
+    private final int maxKeepAliveRequests;
+    private final long maxRequestBodyBytes;
+    private final int requestBodySpoolBytes;
+    private final EventLoop[] eventLoops;
+
+    public NioServer(int port, String phpInterpreter, boolean isPhpEnabled,
+                     WorkerPool workers, WorkerPool phpWorkers, int eventLoopCount, int keepAliveTimeout, int maxKeepAliveRequests,
+                     long maxRequestBodyBytes, int requestBodySpoolBytes,
+                     int headerTimeout, int bodyTimeout, int writeTimeout) throws IOException {
+        this.port = port;
+        this.phpInterpreter = phpInterpreter;
+        this.isPhpEnabled = isPhpEnabled;
+        this.workers = workers;
+        this.phpWorkers = phpWorkers;
+        this.keepAliveTimeout = keepAliveTimeout;
+        this.headerTimeout = headerTimeout;
+        this.bodyTimeout = bodyTimeout;
+        this.writeTimeout = writeTimeout;
+        this.maxKeepAliveRequests = maxKeepAliveRequests;
+        this.maxRequestBodyBytes = maxRequestBodyBytes;
+        this.requestBodySpoolBytes = requestBodySpoolBytes;
+        this.eventLoops = new EventLoop[eventLoopCount];
+        for (int i = 0; i < eventLoopCount; i++) {
+            eventLoops[i] = new EventLoop();
+        }
+    }
+
+    // Démarre les boucles d'événements puis accepte les connexions dans le thread appelant
+    public void start() throws IOException {
+        for (int i = 0; i < eventLoops.length; i++) {
+            Thread thread = new Thread(eventLoops[i], "nio-event-loop-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        try (ServerSocketChannel serverChannel = ServerSocketChannel.open()) {
+            serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+            serverChannel.bind(new InetSocketAddress(port), 1024);
+            ServerLog.info("Serveur NIO démarré sur le port " + port + " (" + eventLoops.length + " boucles d'événements)");
+
+            int next = 0;
+            while (true) {
+                try {
+                    SocketChannel channel = serverChannel.accept();
+                    channel.configureBlocking(false);
+                    channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                    // Répartition des connexions entre les boucles d'événements
+                    EventLoop eventLoop = eventLoops[next];
+                    next = (next + 1) % eventLoops.length;
+                    eventLoop.execute(() -> eventLoop.register(channel));
+                } catch (IOException e) {
+                    ServerLog.error("Erreur lors de l'acceptation d'une connexion : " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    // État d'une connexion cliente
+    private static final class Connection {
+        final SocketChannel channel;
+        // Adresse du client, pour le journal d'accès
+        final String remoteAddress;
+        SelectionKey key;
+        // Octets reçus et pas encore traités (tampon en mode écriture)
+        ByteBuffer input = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        // Les en-têtes sont analysés directement dans le tampon de lecture
+        final HttpRequestParser parser = HttpServer.createRequestParser();
+        // Réponses en attente d'écriture, dans l'ordre des requêtes
+        final Deque<PendingWrite> output = new ArrayDeque<>();
+        int requestCount;
+        // Une requête est en cours de traitement : les suivantes attendent leur tour
+        boolean busy;
+        boolean closeAfterWrite;
+        boolean inputClosed;
+        // Requête dont le corps est en cours de réception
+        HttpRequest pendingRequest;
+        RequestBody.Spool bodySpool;
+        // Corps reçu par la boucle et pas encore confié au spool
+        ByteArrayOutputStream bodyPending;
+        // Écriture du corps sur disque en cours : la lecture est suspendue jusqu'à sa fin
+        boolean spooling;
+        // Octets du corps restant à recevoir (Content-Length), ou décodeur d'un corps chunked
+        long bodyRemaining;
+        ChunkedDecoder chunkedDecoder;
+        long lastActivity = System.currentTimeMillis();
+        // Contre-pression de la réponse produite par un thread de travail, ou null
+        OutputGate outputGate;
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+            this.remoteAddress = channel.socket().getInetAddress().getHostAddress();
+        }
+    }
+
+    // Octets confiés à la boucle par un thread de travail et pas encore écrits sur le socket. Le
+    // thread de travail est mis en attente au-delà de OUTPUT_HIGH_WATER, et cesse ainsi de lire la
+    // sortie du script ; la boucle le réveille quand l'écriture repasse sous OUTPUT_LOW_WATER, ou
+    // quand la connexion est fermée.
+    private static final class OutputGate {
+        private long pending;
+        private boolean closed;
+
+        // Thread de travail : octets confiés à la boucle
+        synchronized void add(long bytes) throws IOException {
+            pending += bytes;
+            if (pending > OUTPUT_HIGH_WATER) {
+                while (pending > OUTPUT_LOW_WATER && !closed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("Attente de l'écriture de la réponse interrompue");
+                    }
+                }
+            }
+            if (closed) {
+                throw new IOException("Connexion fermée avant la fin de la réponse");
+            }
+        }
+
+        // Boucle d'événements : octets écrits sur le socket
+        synchronized void written(long bytes) {
+            pending -= bytes;
+            if (pending <= OUTPUT_LOW_WATER) {
+                notifyAll();
+            }
+        }
+
+        synchronized void close() {
+            closed = true;
+            notifyAll();
+        }
+    }
+
+    // Données en attente d'écriture sur une connexion
+    private interface PendingWrite {
+        // Écrit sans bloquer ; retourne true lorsque tout a été envoyé
+        boolean writeTo(SocketChannel channel) throws IOException;
+
+        void release();
+    }
+
+    // Tampons envoyés par une seule écriture groupée (en-têtes et corps, réponses en pipeline)
+    private static final class BufferWrite implements PendingWrite {
+        private ByteBuffer[] buffers = new ByteBuffer[4];
+        private int first;
+        private int count;
+        // Tampons empruntés à la réserve, rendus une fois écrits
+        private final List<ByteBuffer> pooled = new ArrayList<>(2);
+        private BufferPool pool;
+        // Contre-pression à informer des octets écrits (sortie d'un thread de travail), ou null
+        private OutputGate gate;
+
+        // Octets en attente d'un ResponseBuffer, dont les tampons reviennent à sa réserve
+        static BufferWrite drain(ResponseBuffer buffer) {
+            BufferWrite write = new BufferWrite();
+            write.pool = buffer.getPool();
+            for (ByteBuffer drained : buffer.drain()) {
+                write.add(drained);
+                write.pooled.add(drained);
+            }
+            return write;
+        }
+
+        void add(ByteBuffer buffer) {
+            if (count == buffers.length) {
+                ByteBuffer[] larger = new ByteBuffer[buffers.length * 2];
+                System.arraycopy(buffers, 0, larger, 0, count);
+                buffers = larger;
+            }
+            buffers[count++] = buffer;
+        }
+
+        // Ajoute les tampons d'une écriture suivante, qui partira avec celle-ci
+        void append(BufferWrite next) {
+            for (int i = next.first; i < next.count; i++) {
+                add(next.buffers[i]);
+            }
+            if (!next.pooled.isEmpty()) {
+                pool = next.pool;
+                pooled.addAll(next.pooled);
+            }
+        }
+
+        boolean isEmpty() {
+            return first == count;
+        }
+
+        long remaining() {
+            long remaining = 0;
+            for (int i = first; i < count; i++) {
+                remaining += buffers[i].remaining();
+            }
+            return remaining;
+        }
+
+        @Override
+        public boolean writeTo(SocketChannel channel) throws IOException {
+            while (first < count) {
+                long written = channel.write(buffers, first, count - first);
+                if (gate != null) {
+                    gate.written(written);
+                }
+                while (first < count && !buffers[first].hasRemaining()) {
+                    buffers[first++] = null;
+                }
+                if (first < count) {
+                    // Tampon d'émission du socket plein : attendre OP_WRITE
+                    return false;
+                }
+            }
+            release();
+            return true;
+        }
+
+        @Override
+        public void release() {
+            for (ByteBuffer buffer : pooled) {
+                pool.release(buffer);
+            }
+            pooled.clear();
+        }
+    }
+
+    // Portion de fichier envoyée par FileChannel.transferTo (sendfile), sans copie dans le tas
+    private static final class FileWrite implements PendingWrite {
+        private final FileChannel file;
+        private long position;
+        private final long end;
+
+        FileWrite(FileChannel file, long position, long count) {
+            this.file = file;
+            this.position = position;
+            this.end = position + count;
+        }
+
+        @Override
+        public boolean writeTo(SocketChannel channel) throws IOException {
+            while (position < end) {
+                long transferred = file.transferTo(position, end - position, channel);
+                if (transferred <= 0) {
+                    if (position >= file.size()) {
+                        throw new EOFException("Fichier tronqué pendant l'envoi");
+                    }
+                    // Tampon d'émission du socket plein : attendre OP_WRITE
+                    return false;
+                }
+                position += transferred;
+            }
+            release();
+            return true;
+        }
+
+        @Override
+        public void release() {
+            try {
+                file.close();
+            } catch (IOException e) {
+                // Rien à faire : le fichier n'est plus utilisé
+            }
+        }
+    }
+
+    private final class EventLoop implements Runnable {
+        private final Selector selector;
+        // Tâches soumises par d'autres threads (nouvelles connexions, réponses terminées)
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        // Thread de la boucle, seul à manipuler l'état des connexions
+        private volatile Thread thread;
+
+        EventLoop() throws IOException {
+            this.selector = Selector.open();
+        }
+
+        void execute(Runnable task) {
+            tasks.add(task);
+            selector.wakeup();
+        }
+
+        void register(SocketChannel channel) {
+            Connection connection = new Connection(channel);
+            HttpServer.metrics().connectionOpened();
+            try {
+                connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+            } catch (IOException e) {
+                close(connection);
+            }
+        }
+
+        @Override
+        public void run() {
+            thread = Thread.currentThread();
+            long lastIdleCheck = System.currentTimeMillis();
+            while (true) {
+                try {
+                    selector.select(IDLE_CHECK_INTERVAL);
+                    Runnable task;
+                    while ((task = tasks.poll()) != null) {
+                        try {
+                            task.run();
+                        } catch (RuntimeException e) {
+                            ServerLog.error("Erreur dans la boucle d'événements : " + e);
+                        }
+                    }
+
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        Connection connection = (Connection) key.attachment();
+                        try {
+                            if (key.isValid() && key.isWritable()) {
+                                flush(connection);
+                            }
+                            if (key.isValid() && key.isReadable()) {
+                                read(connection);
+                            }
+                        } catch (IOException | CancelledKeyException e) {
+                            close(connection);
+                        } catch (RuntimeException e) {
+                            ServerLog.error("Erreur lors du traitement de la requête : " + e);
+                            close(connection);
+                        }
+                    }
+
+                    long now = System.currentTimeMillis();
+                    if (now - lastIdleCheck >= IDLE_CHECK_INTERVAL) {
+                        lastIdleCheck = now;
+                        closeIdleConnections(now);
+                    }
+                } catch (IOException e) {
+                    ServerLog.error("Erreur dans la boucle d'événements : " + e.getMessage());
+                }
+            }
+        }
+
+        private void read(Connection connection) throws IOException {
+            if (!connection.input.hasRemaining()) {
+                if (connection.input.capacity() >= MAX_REQUEST_SIZE) {
+                    reject(connection, 413, "Payload Too Large");
+                    return;
+                }
+                connection.input = grow(connection.input, Math.min(connection.input.capacity() * 2, MAX_REQUEST_SIZE));
+            }
+            int n = connection.channel.read(connection.input);
+            if (n < 0) {
+                // Le client a fermé son côté : on termine la requête en cours éventuelle puis on ferme
+                connection.inputClosed = true;
+                connection.key.interestOps(connection.key.interestOps() & ~SelectionKey.OP_READ);
+                if (!connection.busy && connection.output.isEmpty()) {
+                    processInput(connection);
+                    if (!connection.busy && !connection.spooling && connection.output.isEmpty()) {
+                        close(connection);
+                    }
+                }
+                return;
+            }
+            connection.lastActivity = System.currentTimeMillis();
+            processInput(connection);
+        }
+
+        // Traite la prochaine requête complète présente dans le tampon, une seule à la fois
+        private void processInput(Connection connection) throws IOException {
+            if (connection.busy || !connection.output.isEmpty() || connection.closeAfterWrite) {
+                return;
+            }
+            if (connection.pendingRequest != null) {
+                receiveBody(connection);
+                return;
+            }
+            // Les lignes vides précédant une requête sont ignorées (RFC 7230, section 3.5)
+            ByteBuffer input = connection.input;
+            byte[] data = input.array();
+            int blank = 0;
+            while (blank < input.position() && (data[blank] == '\r' || data[blank] == '\n')) {
+                blank++;
+            }
+            if (blank > 0) {
+                consume(connection, blank);
+                input = connection.input;
+            }
+            int available = input.position();
+            if (available == 0) {
+                return;
+            }
+
+            // L'analyse reprend là où elle s'était arrêtée à la lecture précédente
+            int headerEnd;
+            try {
+                headerEnd = connection.parser.parse(data, 0, available);
+            } catch (HttpRequest.HeaderTooLargeException e) {
+                ServerLog.debug("En-têtes de requête refusés : " + e.getMessage());
+                reject(connection, 431, "Request Header Fields Too Large");
+                return;
+            } catch (HttpRequest.MalformedRequestException e) {
+                ServerLog.debug("Format de requête invalide : " + e.getMessage());
+                reject(connection, 400, "Requête invalide");
+                return;
+            }
+            if (headerEnd < 0) {
+                return;
+            }
+            HttpRequest request = new HttpRequest(connection.parser, null);
+            request.setRemoteAddress(connection.remoteAddress);
+            long contentLength = Math.max(0, request.getContentLength());
+            consume(connection, headerEnd);
+            if (!request.isChunked() && contentLength == 0) {
+                dispatch(connection, request, null);
+                return;
+            }
+            if (!request.isChunked() && contentLength > maxRequestBodyBytes) {
+                reject(connection, 413, "Payload Too Large");
+                return;
+            }
+            // Le corps est reçu au fil des lectures, sans agrandir le tampon de la connexion
+            connection.pendingRequest = request;
+            connection.bodySpool = new RequestBody.Spool(requestBodySpoolBytes, maxRequestBodyBytes);
+            connection.bodyPending = new ByteArrayOutputStream();
+            connection.bodyRemaining = contentLength;
+            connection.chunkedDecoder = request.isChunked()
+                    ? new ChunkedDecoder(connection.parser.getMaxHeaderSize(), connection.parser.getMaxHeaderCount()) : null;
+            receiveBody(connection);
+        }
+
+        // Transfère les octets reçus dans le corps en attente ; la requête est traitée dès qu'il est complet.
+        // Sous le seuil de mise en mémoire, le corps est gardé par la boucle ; au-delà, il est écrit
+        // dans son fichier temporaire par un thread de spool, pendant que la lecture est suspendue
+        private void receiveBody(Connection connection) throws IOException {
+            if (connection.spooling) {
+                // La suite du corps attend dans le tampon de lecture
+                return;
+            }
+            ByteBuffer input = connection.input;
+            int available = input.position();
+            ByteArrayOutputStream pending = connection.bodyPending;
+            RequestBody.Spool spool = connection.bodySpool;
+            int consumed;
+            try {
+                if (connection.chunkedDecoder != null) {
+                    consumed = connection.chunkedDecoder.decode(input.array(), 0, available, pending);
+                } else {
+                    consumed = (int) Math.min(available, connection.bodyRemaining);
+                    pending.write(input.array(), 0, consumed);
+                    connection.bodyRemaining -= consumed;
+                }
+                if (spool.getLength() + pending.size() > maxRequestBodyBytes) {
+                    throw new RequestBody.TooLargeException(maxRequestBodyBytes);
+                }
+            } catch (RequestBody.TooLargeException e) {
+                discardBody(connection);
+                reject(connection, 413, "Payload Too Large");
+                return;
+            } catch (HttpRequest.HeaderTooLargeException e) {
+                discardBody(connection);
+                reject(connection, 431, "Request Header Fields Too Large");
+                return;
+            } catch (HttpRequest.MalformedRequestException e) {
+                discardBody(connection);
+                reject(connection, 400, "Requête invalide");
+                return;
+            }
+            consume(connection, consumed);
+
+            boolean complete = connection.chunkedDecoder != null
+                    ? connection.chunkedDecoder.isFinished() : connection.bodyRemaining == 0;
+            if (spool.getLength() + pending.size() <= requestBodySpoolBytes) {
+                // Le spool reste en mémoire : aucune écriture sur disque
+                pending.writeTo(spool);
+                pending.reset();
+                if (complete) {
+                    dispatchBody(connection, spool.finish());
+                }
+                return;
+            }
+            if (complete || pending.size() >= SPOOL_CHUNK_SIZE) {
+                spool(connection, complete);
+            }
+        }
+
+        // Confie le corps reçu au thread de spool ; la lecture reprend (ou la requête est traitée)
+        // quand il a été écrit
+        private void spool(Connection connection, boolean complete) {
+            RequestBody.Spool spool = connection.bodySpool;
+            byte[] bytes = connection.bodyPending.toByteArray();
+            connection.bodyPending.reset();
+            connection.spooling = true;
+            connection.key.interestOps(connection.key.interestOps() & ~SelectionKey.OP_READ);
+            spoolWriters.execute(() -> {
+                RequestBody body = null;
+                IOException error = null;
+                try {
+                    spool.write(bytes);
+                    if (complete) {
+                        body = spool.finish();
+                    }
+                } catch (IOException e) {
+                    error = e;
+                }
+                RequestBody finished = body;
+                IOException failure = error;
+                execute(() -> spooled(connection, spool, finished, failure));
+            });
+        }
+
+        // Fin d'une écriture du thread de spool, sur la boucle
+        private void spooled(Connection connection, RequestBody.Spool spool, RequestBody body, IOException error) {
+            connection.spooling = false;
+            if (connection.bodySpool != spool) {
+                // Corps abandonné pendant l'écriture (connexion fermée, délai dépassé)
+                spoolWriters.execute(spool::discard);
+                return;
+            }
+            try {
+                if (error != null) {
+                    discardBody(connection);
+                    if (error instanceof RequestBody.TooLargeException) {
+                        reject(connection, 413, "Payload Too Large");
+                    } else {
+                        ServerLog.error("Corps de requête impossible à écrire sur disque : " + error.getMessage());
+                        reject(connection, 500, "Internal Server Error");
+                    }
+                    return;
+                }
+                connection.lastActivity = System.currentTimeMillis();
+                if (body != null) {
+                    dispatchBody(connection, body);
+                    return;
+                }
+                if (!connection.inputClosed) {
+                    connection.key.interestOps(connection.key.interestOps() | SelectionKey.OP_READ);
+                }
+                // Une partie du corps a pu arriver avant la suspension de la lecture
+                receiveBody(connection);
+                if (connection.inputClosed && !connection.busy && !connection.spooling && connection.output.isEmpty()) {
+                    close(connection);
+                }
+            } catch (IOException | CancelledKeyException e) {
+                close(connection);
+            }
+        }
+
+        private void dispatchBody(Connection connection, RequestBody body) {
+            HttpRequest request = connection.pendingRequest;
+            request.setBody(body);
+            connection.pendingRequest = null;
+            connection.bodySpool = null;
+            connection.bodyPending = null;
+            connection.chunkedDecoder = null;
+            dispatch(connection, request, body);
+        }
+
+        private void discardBody(Connection connection) {
+            RequestBody.Spool spool = connection.bodySpool;
+            // Pendant une écriture, le thread de spool abandonne lui-même le corps à sa fin
+            if (spool != null && !connection.spooling) {
+                if (spool.isInMemory()) {
+                    spool.discard();
+                } else {
+                    spoolWriters.execute(spool::discard);
+                }
+            }
+            connection.pendingRequest = null;
+            connection.bodySpool = null;
+            connection.bodyPending = null;
+            connection.chunkedDecoder = null;
+        }
+
+        private void dispatch(Connection connection, HttpRequest request, RequestBody body) {
+            connection.requestCount++;
+            boolean keepAlive = !connection.inputClosed && request.isKeepAlive()
+                    && connection.requestCount < maxKeepAliveRequests;
+            // Les fichiers ne sont pas lus en mémoire : ils sont ajoutés à la file d'écriture
+            // et transférés par la boucle d'événements quand le socket est prêt
+            List<PendingWrite> parts = new ArrayList<>();
+            OutputGate gate = new OutputGate();
+            connection.outputGate = gate;
+            ResponseBuffer buffer = new ResponseBuffer(ResponseBuffer.POOL, null) {
+                // Réponse produite par un thread de travail (sortie CGI) : ce qui est déjà prêt
+                // est confié à la boucle d'événements sans attendre la fin du script ; le thread
+                // attend si la boucle a déjà trop d'octets à écrire pour cette connexion
+                @Override
+                public void flush() throws IOException {
+                    if (Thread.currentThread() == thread || size() == 0 && parts.isEmpty()) {
+                        return;
+                    }
+                    List<PendingWrite> ready = new ArrayList<>(parts);
+                    parts.clear();
+                    BufferWrite drained = BufferWrite.drain(this);
+                    drained.gate = gate;
+                    ready.add(drained);
+                    long bytes = drained.remaining();
+                    execute(() -> {
+                        enqueue(connection, ready);
+                        try {
+                            EventLoop.this.flush(connection);
+                        } catch (IOException | CancelledKeyException e) {
+                            EventLoop.this.close(connection);
+                        }
+                    });
+                    gate.add(bytes);
+                }
+
+                // Sortie continue d'un script sans pause : confiée à la boucle par paliers, pour
+                // que la contre-pression s'applique aussi sans flush explicite
+                @Override
+                public void write(byte[] data, int offset, int length) throws IOException {
+                    super.write(data, offset, length);
+                    if (size() >= OUTPUT_LOW_WATER && Thread.currentThread() != thread) {
+                        flush();
+                    }
+                }
+            };
+            HttpResponse.ChannelSender channelSender = new HttpResponse.ChannelSender() {
+                @Override
+                public void sendFile(File file, long position, long count) throws IOException {
+                    parts.add(BufferWrite.drain(buffer));
+                    parts.add(new FileWrite(FileChannel.open(file.toPath(), StandardOpenOption.READ), position, count));
+                }
+
+                // En-têtes et corps partent dans la même écriture groupée
+                @Override
+                public void sendBuffer(ByteBuffer body) {
+                    BufferWrite write = BufferWrite.drain(buffer);
+                    write.add(body);
+                    parts.add(write);
+                }
+            };
+            HttpResponse response = new HttpResponse(buffer, channelSender, keepAlive,
+                    keepAliveTimeout / 1000, maxKeepAliveRequests - connection.requestCount);
+            connection.busy = true;
+            // Pas de lecture pendant le traitement : la connexion ne peut pas accumuler de données
+            connection.key.interestOps(0);
+
+            if (HttpServer.requiresWorker(request)) {
+                // Accès au disque ou exécution PHP : confiés aux threads de travail ; pool saturé
+                // ou attente trop longue : 503 sans traiter la requête
+                Runnable handle = () -> {
+                    HttpServer.handleRequest(request, response, phpInterpreter, isPhpEnabled);
+                    if (body != null) {
+                        body.delete();
+                    }
+                    execute(() -> complete(connection, response, parts, buffer));
+                };
+                Runnable reject = () -> {
+                    HttpServer.rejectRequest(request, response);
+                    if (body != null) {
+                        body.delete();
+                    }
+                    execute(() -> complete(connection, response, parts, buffer));
+                };
+                boolean admitted = workers.execute(() -> {
+                    // La route est résolue ici, hors de la boucle : un script PHP passe ensuite au
+                    // pool PHP, dont la saturation donne aussi un 503
+                    if (phpWorkers != null && HttpServer.isPhpRequest(request, isPhpEnabled)) {
+                        if (!phpWorkers.execute(handle, reject)) {
+                            reject.run();
+                        }
+                    } else {
+                        handle.run();
+                    }
+                }, reject);
+                if (!admitted) {
+                    HttpServer.rejectRequest(request, response);
+                    if (body != null) {
+                        body.delete();
+                    }
+                    complete(connection, response, parts, buffer);
+                }
+            } else {
+                HttpServer.handleRequest(request, response, phpInterpreter, isPhpEnabled);
+                if (body != null) {
+                    body.delete();
+                }
+                complete(connection, response, parts, buffer);
+            }
+        }
+
+        private void complete(Connection connection, HttpResponse response, List<PendingWrite> parts, ResponseBuffer buffer) {
+            connection.busy = false;
+            connection.outputGate = null;
+            parts.add(BufferWrite.drain(buffer));
+            enqueue(connection, parts);
+            if (!response.isKeepAlive()) {
+                connection.closeAfterWrite = true;
+            }
+            try {
+                flush(connection);
+            } catch (IOException | CancelledKeyException e) {
+                close(connection);
+            }
+        }
+
+        // Ajoute des écritures à la file de la connexion ; les tampons consécutifs sont regroupés pour
+        // que les réponses en pipeline partent dans une même écriture groupée
+        private void enqueue(Connection connection, List<PendingWrite> parts) {
+            for (PendingWrite part : parts) {
+                if (part instanceof BufferWrite) {
+                    BufferWrite write = (BufferWrite) part;
+                    if (write.isEmpty()) {
+                        continue;
+                    }
+                    // Pas de regroupement entre octets soumis ou non à la contre-pression
+                    if (connection.output.peekLast() instanceof BufferWrite
+                            && ((BufferWrite) connection.output.peekLast()).gate == write.gate) {
+                        ((BufferWrite) connection.output.peekLast()).append(write);
+                        continue;
+                    }
+                }
+                connection.output.add(part);
+            }
+        }
+
+        // Écrit autant que possible sans bloquer ; le reste sera écrit quand le socket sera prêt
+        private void flush(Connection connection) throws IOException {
+            // Socket prêt ou nouvelle réponse : le délai d'écriture repart de maintenant
+            connection.lastActivity = System.currentTimeMillis();
+            while (!connection.output.isEmpty()) {
+                if (!connection.output.peek().writeTo(connection.channel)) {
+                    connection.key.interestOps(SelectionKey.OP_WRITE);
+                    return;
+                }
+                connection.output.poll();
+            }
+            connection.lastActivity = System.currentTimeMillis();
+
+            if (connection.closeAfterWrite) {
+                close(connection);
+                return;
+            }
+            if (connection.busy) {
+                // Réponse partielle envoyée : rien à écrire ni à lire jusqu'à la suite
+                connection.key.interestOps(0);
+                return;
+            }
+            connection.key.interestOps(connection.inputClosed ? 0 : SelectionKey.OP_READ);
+            // Des requêtes en pipeline peuvent déjà être dans le tampon : elles sont traitées
+            // au prochain tour de boucle plutôt que par récursion
+            execute(() -> {
+                try {
+                    processInput(connection);
+                    if (connection.inputClosed && !connection.busy && connection.output.isEmpty()) {
+                        close(connection);
+                    }
+                } catch (IOException | CancelledKeyException e) {
+                    close(connection);
+                }
+            });
+        }
+
+        private void reject(Connection connection, int statusCode, String message) throws IOException {
+            String body = "<html><body><h1>" + statusCode + " " + message + "</h1></body></html>";
+            ResponseBuffer buffer = new ResponseBuffer(ResponseBuffer.POOL, null);
+            HttpResponse response = new HttpResponse(buffer, false, 0, 0);
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            response.writeHead(statusCode, message, "text/html; charset=UTF-8", bytes.length);
+            buffer.write(bytes);
+            enqueue(connection, List.of(BufferWrite.drain(buffer)));
+            HttpServer.metrics().recordStatus(statusCode);
+            connection.closeAfterWrite = true;
+            flush(connection);
+        }
+
+        // Ferme les connexions inactives et répond 408 aux requêtes reçues trop lentement
+        private void closeIdleConnections(long now) {
+            ServerMetrics metrics = HttpServer.metrics();
+            for (SelectionKey key : selector.keys()) {
+                Connection connection = (Connection) key.attachment();
+                if (connection == null || connection.closeAfterWrite && connection.output.isEmpty()) {
+                    continue;
+                }
+                long inactive = now - connection.lastActivity;
+                try {
+                    if (!connection.output.isEmpty()) {
+                        // Client qui ne lit plus sa réponse
+                        if (writeTimeout > 0 && inactive > writeTimeout) {
+                            metrics.recordTimeout(ServerMetrics.Timeout.WRITE);
+                            ServerLog.warn("Écriture bloquée depuis " + inactive + " ms, connexion fermée : "
+                                    + connection.remoteAddress);
+                            close(connection);
+                        }
+                    } else if (connection.busy || connection.spooling) {
+                        continue;
+                    } else if (connection.pendingRequest != null) {
+                        if (bodyTimeout > 0 && inactive > bodyTimeout) {
+                            metrics.recordTimeout(ServerMetrics.Timeout.BODY);
+                            ServerLog.warn("Corps de requête interrompu depuis " + inactive + " ms : "
+                                    + connection.remoteAddress);
+                            discardBody(connection);
+                            reject(connection, 408, "Request Timeout");
+                        }
+                    } else if (connection.input.position() > 0) {
+                        // En-tête commencé : délai total depuis son premier octet
+                        long elapsed = (System.nanoTime() - connection.parser.startedAt()) / 1_000_000;
+                        if (headerTimeout > 0 && elapsed > headerTimeout) {
+                            metrics.recordTimeout(ServerMetrics.Timeout.HEADER);
+                            ServerLog.warn("En-tête incomplet après " + elapsed + " ms : " + connection.remoteAddress);
+                            connection.parser.reset();
+                            reject(connection, 408, "Request Timeout");
+                        }
+                    } else if (inactive > keepAliveTimeout) {
+                        metrics.recordTimeout(ServerMetrics.Timeout.IDLE);
+                        close(connection);
+                    }
+                } catch (IOException | CancelledKeyException e) {
+                    close(connection);
+                }
+            }
+        }
+
+        private void close(Connection connection) {
+            if (connection.key != null) {
+                connection.key.cancel();
+            }
+            discardBody(connection);
+            if (connection.outputGate != null) {
+                // Thread de travail en attente d'écriture : réveillé, il abandonne la réponse
+                connection.outputGate.close();
+            }
+            PendingWrite pending;
+            while ((pending = connection.output.poll()) != null) {
+                pending.release();
+            }
+            // close peut être appelée une seconde fois pour une connexion déjà fermée
+            if (connection.channel.isOpen()) {
+                HttpServer.metrics().connectionClosed();
+            }
+            try {
+                connection.channel.close();
+            } catch (IOException e) {
+                // Connexion déjà fermée
+            }
+        }
+    }
+
+    // Retire les octets consommés du début du tampon
+    private static void consume(Connection connection, int count) {
+        ByteBuffer input = connection.input;
+        input.flip();
+        input.position(count);
+        input.compact();
+    }
+
+    private static ByteBuffer grow(ByteBuffer buffer, int capacity) {
+        ByteBuffer larger = ByteBuffer.allocate(capacity);
+        buffer.flip();
+        larger.put(buffer);
+        return larger;
+    }
+}
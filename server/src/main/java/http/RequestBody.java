@@ -0,0 +1,140 @@
+package http;
+
+import java.io.*;
+import java.nio.file.Files;
+
+// Corps d'une requête transmis au script CGI : lu directement sur le socket (Content-Length),
+// ou mis de côté en mémoire puis dans un fichier temporaire au-delà d'un seuil
+public class RequestBody {
+    private static final RequestBody EMPTY = new RequestBody(0, new byte[0], null, null);
+
+    private final long length;
+    private final byte[] data;
+    private final File file;
+    private InputStream stream;
+
+    private RequestBody(long length, byte[] data, File file, InputStream stream) {
+        this.length = length;
+        this.data = data;
+        this.file = file;
+        this.stream = stream;
+    }
+
+    public static RequestBody empty() {
+        return EMPTY;
+    }
+
+    // Corps déjà lu en mémoire
+    static RequestBody of(byte[] data) {
+        return new RequestBody(data.length, data, null, null);
+    }
+
+    // Corps lu au fil de l'eau sur la connexion : le client n'envoie pas plus vite que le script ne lit
+    static RequestBody streaming(long length, InputStream stream) {
+        return new RequestBody(length, null, null, stream);
+    }
+
+    public long getLength() {
+        return length;
+    }
+
+    // Flux du corps ; un corps lu sur la connexion ne peut être ouvert qu'une fois
+    public InputStream open() throws IOException {
+        if (stream != null) {
+            InputStream opened = stream;
+            stream = null;
+            return opened;
+        }
+        if (file != null) {
+            return new BufferedInputStream(new FileInputStream(file));
+        }
+        if (data != null) {
+            return new ByteArrayInputStream(data);
+        }
+        throw new IllegalStateException("Corps de requête déjà lu");
+    }
+
+    // Supprime le fichier temporaire éventuel
+    public void delete() {
+        if (file != null && !file.delete() && file.exists()) {
+            file.deleteOnExit();
+        }
+    }
+
+    // Corps de taille inconnue à l'avance (chunked) ou reçu par le moteur NIO : gardé en mémoire
+    // jusqu'au seuil, puis écrit dans un fichier temporaire, dans la limite de maxBytes
+    public static final class Spool extends OutputStream {
+        private final int memoryThreshold;
+        private final long maxBytes;
+        private ByteArrayOutputStream memory = new ByteArrayOutputStream();
+        private File file;
+        private OutputStream fileOut;
+        private long length;
+
+        public Spool(int memoryThreshold, long maxBytes) {
+            this.memoryThreshold = memoryThreshold;
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int count) throws IOException {
+            if (length + count > maxBytes) {
+                throw new TooLargeException(maxBytes);
+            }
+            length += count;
+            if (fileOut == null && memory.size() + count > memoryThreshold) {
+                file = Files.createTempFile("http-body-", ".tmp").toFile();
+                fileOut = new BufferedOutputStream(new FileOutputStream(file), 64 * 1024);
+                memory.writeTo(fileOut);
+                memory = null;
+            }
+            if (fileOut != null) {
+                fileOut.write(bytes, offset, count);
+            } else {
+                memory.write(bytes, offset, count);
+            }
+        }
+
+        public long getLength() {
+            return length;
+        }
+
+        // Corps encore en mémoire : ni écriture ni suppression de fichier
+        public boolean isInMemory() {
+            return fileOut == null;
+        }
+
+        // Termine l'écriture ; le corps obtenu doit être supprimé par delete() après usage
+        public RequestBody finish() throws IOException {
+            if (fileOut != null) {
+                fileOut.close();
+                return new RequestBody(length, null, file, null);
+            }
+            return new RequestBody(length, memory.toByteArray(), null, null);
+        }
+
+        // Abandonne le corps (connexion fermée, corps trop grand)
+        public void discard() {
+            if (fileOut != null) {
+                try {
+                    fileOut.close();
+                } catch (IOException e) {
+                    // Fichier supprimé ci-dessous
+                }
+                file.delete();
+            }
+        }
+    }
+
+    // Corps plus grand que la taille maximale configurée (413)
+    public static class TooLargeException extends IOException {
+        public TooLargeException(long maxBytes) {
+            super("Corps de requête supérieur à " + maxBytes + " octets");
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package http;
+
+import java.io.*;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+
+// Flux d'entrée tamponné d'une connexion bloquante : les en-têtes sont analysés directement dans
+// son tampon par HttpRequestParser, et les octets suivants (corps, requêtes en pipeline) restent
+// disponibles en lecture normale
+public class RequestInputStream extends InputStream {
+    private final InputStream in;
+    private byte[] buffer;
+    private int position;
+    private int limit;
+
+    // Délais de lecture (ms, 0 = aucun) appliqués par setSoTimeout ; sans socket, aucun délai
+    private Socket socket;
+    private int idleTimeout;
+    private int headerTimeout;
+    private int bodyTimeout;
+
+    public RequestInputStream(InputStream in, int size) {
+        this.in = in;
+        this.buffer = new byte[size];
+    }
+
+    // idle : attente du premier octet d'une requête ; header : durée totale de réception de
+    // l'en-tête à partir de son premier octet ; body : inactivité maximale pendant la lecture du corps
+    void setTimeouts(Socket socket, int idle, int header, int body) {
+        this.socket = socket;
+        this.idleTimeout = idle;
+        this.headerTimeout = header;
+        this.bodyTimeout = body;
+    }
+
+    // Lit l'en-tête de la prochaine requête ; retourne false si la connexion est fermée avant
+    boolean readHead(HttpRequestParser parser) throws IOException {
+        long deadline = 0;
+        while (true) {
+            // Les lignes vides précédant une requête sont ignorées (RFC 7230, section 3.5)
+            while (position < limit && (buffer[position] == '\r' || buffer[position] == '\n')) {
+                position++;
+            }
+            if (position < limit) {
+                int headerLength = parser.parse(buffer, position, limit - position);
+                if (headerLength >= 0) {
+                    position += headerLength;
+                    if (socket != null) {
+                        socket.setSoTimeout(bodyTimeout);
+                    }
+                    return true;
+                }
+            }
+            if (position > 0) {
+                // L'en-tête partiel est ramené au début du tampon
+                System.arraycopy(buffer, position, buffer, 0, limit - position);
+                limit -= position;
+                position = 0;
+            }
+            if (limit == buffer.length) {
+                byte[] larger = new byte[Math.min(buffer.length * 2, parser.getMaxHeaderSize())];
+                System.arraycopy(buffer, 0, larger, 0, limit);
+                buffer = larger;
+            }
+            if (socket != null) {
+                if (limit == 0) {
+                    socket.setSoTimeout(idleTimeout);
+                } else if (headerTimeout > 0) {
+                    // Un client qui envoie son en-tête octet par octet ne garde pas la connexion indéfiniment
+                    if (deadline == 0) {
+                        deadline = System.nanoTime() + headerTimeout * 1_000_000L;
+                    }
+                    long remaining = (deadline - System.nanoTime()) / 1_000_000;
+                    if (remaining <= 0) {
+                        parser.reset();
+                        throw new HttpRequest.RequestTimeoutException("En-tête incomplet après " + headerTimeout + " ms");
+                    }
+                    socket.setSoTimeout((int) remaining);
+                } else {
+                    socket.setSoTimeout(0);
+                }
+            }
+            int count;
+            try {
+                count = in.read(buffer, limit, buffer.length - limit);
+            } catch (SocketTimeoutException e) {
+                if (limit == 0) {
+                    throw e;
+                }
+                parser.reset();
+                throw new HttpRequest.RequestTimeoutException("En-tête incomplet après " + headerTimeout + " ms");
+            }
+            if (count < 0) {
+                if (limit == 0) {
+                    return false;
+                }
+                parser.reset();
+                throw new EOFException("Connexion fermée au milieu des en-têtes");
+            }
+            limit += count;
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (position == limit && fill() < 0) {
+            return -1;
+        }
+        return buffer[position++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] data, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (position == limit) {
+            // Les grandes lectures contournent le tampon
+            if (length >= buffer.length) {
+                return in.read(data, offset, length);
+            }
+            if (fill() < 0) {
+                return -1;
+            }
+        }
+        int count = Math.min(length, limit - position);
+        System.arraycopy(buffer, position, data, offset, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public long skip(long count) throws IOException {
+        if (count <= 0) {
+            return 0;
+        }
+        if (position < limit) {
+            int skipped = (int) Math.min(count, limit - position);
+            position += skipped;
+            return skipped;
+        }
+        return in.skip(count);
+    }
+
+    @Override
+    public int available() throws IOException {
+        return limit - position + in.available();
+    }
+
+    private int fill() throws IOException {
+        position = 0;
+        limit = 0;
+        int count = in.read(buffer, 0, buffer.length);
+        if (count > 0) {
+            limit = count;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,128 @@
+package http;
+
+import java.io.*;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Résolution d'un chemin de requête en route (fichier statique, script PHP, liste de répertoire ou
+// introuvable), faite une seule fois par requête. Les résultats sont gardés dans un cache borné
+// (LRU) pendant une courte durée, ce qui évite getCanonicalFile et les recherches de fichiers
+// index à chaque requête tout en suivant les modifications du répertoire.
+public class RequestRouter {
+    public enum Kind {
+        STATIC,
+        PHP,
+        LISTING,
+        NOT_FOUND
+    }
+
+    // Résultat de la résolution d'un chemin ; partagé entre les requêtes, donc immuable
+    public static final class Route {
+        private final Kind kind;
+        private final File file;
+        private final long resolvedAt;
+
+        private Route(Kind kind, File file, long resolvedAt) {
+            this.kind = kind;
+            this.file = file;
+            this.resolvedAt = resolvedAt;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        // Fichier à servir ou à exécuter (index compris), répertoire listé, ou fichier introuvable
+        public File getFile() {
+            return file;
+        }
+    }
+
+    private final File baseDirectory;
+    private final String basePath;
+    private final int maxEntries;
+    private final long ttlMillis;
+
+    // Routes par chemin de requête, dans l'ordre d'accès (LRU)
+    private final LinkedHashMap<String, Route> routes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public RequestRouter(File baseDirectory, int maxEntries, long ttlMillis) throws IOException {
+        this.baseDirectory = baseDirectory.getCanonicalFile();
+        this.basePath = this.baseDirectory.getPath();
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        this.routes = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Route> eldest) {
+                return size() > RequestRouter.this.maxEntries;
+            }
+        };
+    }
+
+    // Route d'un chemin de requête (sans la query string)
+    public Route route(String path) throws IOException {
+        long now = System.currentTimeMillis();
+        if (maxEntries > 0) {
+            synchronized (routes) {
+                Route cached = routes.get(path);
+                if (cached != null && now - cached.resolvedAt < ttlMillis) {
+                    hits.increment();
+                    return cached;
+                }
+            }
+        }
+        misses.increment();
+        Route route = resolve(path, now);
+        if (maxEntries > 0) {
+            synchronized (routes) {
+                routes.put(path, route);
+            }
+        }
+        return route;
+    }
+
+    private Route resolve(String path, long now) throws IOException {
+        File file = new File(baseDirectory, path.startsWith("/") ? path.substring(1) : path).getCanonicalFile();
+        // Un chemin qui sort du répertoire racine (ex. "/../") est traité comme introuvable
+        String filePath = file.getPath();
+        if (!filePath.equals(basePath) && !filePath.startsWith(basePath + File.separator)) {
+            return new Route(Kind.NOT_FOUND, file, now);
+        }
+        if (file.isDirectory()) {
+            File indexPhp = new File(file, "index.php");
+            if (indexPhp.isFile()) {
+                return new Route(Kind.PHP, indexPhp, now);
+            }
+            File indexHtml = new File(file, "index.html");
+            if (indexHtml.isFile()) {
+                return new Route(Kind.STATIC, indexHtml, now);
+            }
+            return new Route(Kind.LISTING, file, now);
+        }
+        if (!file.exists()) {
+            return new Route(Kind.NOT_FOUND, file, now);
+        }
+        return new Route(file.getName().endsWith(".php") ? Kind.PHP : Kind.STATIC, file, now);
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    @Override
+    public String toString() {
+        int size;
+        synchronized (routes) {
+            size = routes.size();
+        }
+        return "routes=" + size + "/" + maxEntries + " hits=" + getHits() + " misses=" + getMisses();
+    }
+}
@@ -0,0 +1,184 @@
+package http;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+// Flux de sortie d'une connexion sur des ByteBuffers directs empruntés à un BufferPool.
+// Avec un canal (moteur bloquant), les octets sont écrits à chaque flush, avec le corps éventuel
+// dans la même écriture groupée (gathering write) ; sans canal (moteur NIO), ils sont retirés par
+// drain() et confiés à la boucle d'événements.
+public class ResponseBuffer extends OutputStream {
+    // Tampons partagés par toutes les connexions
+    public static final BufferPool POOL = new BufferPool(16 * 1024, 1024);
+
+    private final BufferPool pool;
+    private final GatheringByteChannel channel;
+    // Tampons pleins, en mode lecture
+    private final List<ByteBuffer> filled = new ArrayList<>(4);
+    // Tampon en cours de remplissage (mode écriture), ou null
+    private ByteBuffer current;
+    // Tableau réutilisé pour les écritures groupées
+    private ByteBuffer[] gather = new ByteBuffer[4];
+    // Surveillance du délai d'écriture (moteur bloquant), ou null
+    private WriteWatchdog.Guard writeGuard;
+
+    public ResponseBuffer(BufferPool pool, GatheringByteChannel channel) {
+        this.pool = pool;
+        this.channel = channel;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureRemaining();
+        current.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] data, int offset, int length) throws IOException {
+        while (length > 0) {
+            ensureRemaining();
+            int count = Math.min(length, current.remaining());
+            current.put(data, offset, count);
+            offset += count;
+            length -= count;
+        }
+    }
+
+    // Écrit une chaîne ASCII / ISO-8859-1 sans la convertir en tableau d'octets
+    public void writeAscii(CharSequence text) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            ensureRemaining();
+            current.put((byte) text.charAt(i));
+        }
+    }
+
+    // Écrit un entier positif en décimal, sans passer par une chaîne
+    public void writeDecimal(long value) throws IOException {
+        if (value < 10) {
+            write((int) ('0' + value));
+            return;
+        }
+        writeDecimal(value / 10);
+        write((int) ('0' + value % 10));
+    }
+
+    // Nombre d'octets en attente
+    public int size() {
+        int size = current == null ? 0 : current.position();
+        for (ByteBuffer buffer : filled) {
+            size += buffer.remaining();
+        }
+        return size;
+    }
+
+    // Moteur bloquant : envoie les octets en attente puis rend les tampons à la réserve
+    @Override
+    public void flush() throws IOException {
+        if (channel != null) {
+            writeTo(channel, null);
+        }
+    }
+
+    // Moteur bloquant : envoie les octets en attente suivis de body en une seule écriture groupée
+    public void writeWith(ByteBuffer body) throws IOException {
+        writeTo(channel, body);
+    }
+
+    // Moteur NIO : retire les octets en attente, en mode lecture ; les tampons doivent être rendus
+    // à la réserve par l'appelant une fois écrits
+    public List<ByteBuffer> drain() {
+        finishCurrent();
+        List<ByteBuffer> drained = new ArrayList<>(filled);
+        filled.clear();
+        return drained;
+    }
+
+    void setWriteGuard(WriteWatchdog.Guard writeGuard) {
+        this.writeGuard = writeGuard;
+    }
+
+    public BufferPool getPool() {
+        return pool;
+    }
+
+    // Rend les tampons non envoyés à la réserve
+    @Override
+    public void close() {
+        finishCurrent();
+        for (ByteBuffer buffer : filled) {
+            pool.release(buffer);
+        }
+        filled.clear();
+    }
+
+    private void writeTo(GatheringByteChannel target, ByteBuffer body) throws IOException {
+        finishCurrent();
+        int count = filled.size() + (body != null ? 1 : 0);
+        if (count == 0) {
+            return;
+        }
+        if (gather.length < count) {
+            gather = new ByteBuffer[Math.max(count, gather.length * 2)];
+        }
+        for (int i = 0; i < filled.size(); i++) {
+            gather[i] = filled.get(i);
+        }
+        if (body != null) {
+            gather[count - 1] = body;
+        }
+        // Écriture bloquante : la durée mesure aussi la lenteur du client
+        ServerEvents.PhaseEvent event = ServerEvents.beginPhase();
+        long written = 0;
+        try {
+            int first = 0;
+            while (first < count) {
+                if (writeGuard != null) {
+                    writeGuard.begin();
+                }
+                written += target.write(gather, first, count - first);
+                while (first < count && !gather[first].hasRemaining()) {
+                    first++;
+                }
+            }
+        } finally {
+            if (writeGuard != null) {
+                writeGuard.end();
+            }
+            ServerEvents.endPhase(event, ServerEvents.Phase.WRITE, null, written);
+            for (int i = 0; i < count; i++) {
+                gather[i] = null;
+            }
+            close();
+        }
+    }
+
+    private void ensureRemaining() throws IOException {
+        if (current != null && current.hasRemaining()) {
+            return;
+        }
+        if (current != null) {
+            finishCurrent();
+            if (channel != null) {
+                // Tampon plein : envoyé aussitôt pour ne pas accumuler la réponse en mémoire
+                writeTo(channel, null);
+            }
+        }
+        current = pool.acquire();
+    }
+
+    private void finishCurrent() {
+        if (current == null) {
+            return;
+        }
+        if (current.position() > 0) {
+            current.flip();
+            filled.add(current);
+        } else {
+            pool.release(current);
+        }
+        current = null;
+    }
+}
@@ -1,6 +1,10 @@
+package http;
+
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Properties;
 
 public class ServerConfig {
@@ -27,12 +31,8 @@ public class ServerConfig {
         // Récupère la valeur associée à la clé
         String value = properties.getProperty(key);
         if (value != null) {
-            // Normalise le chemin pour Windows (convertit les "/" en "\\")
-            value = value.replace("/", "\\\\");
-            // Ajoute un backslash final si nécessaire
-            if (!value.endsWith("\\\\")) {
-                value += "\\\\";
-            }
+            // Chemin utilisé tel quel : "/" est un séparateur valide sous Windows comme sous Linux
+            value = value.trim();
             File file = new File(value); // Crée un objet File pour vérifier l'existence du chemin
             if (file.exists() && file.isFile()) {
                 // Retourne le chemin absolu si le fichier existe
@@ -68,4 +68,15 @@ public class ServerConfig {
         // Retourne la valeur par défaut si la clé est absente
         return defaultValue;
     }
+
+    // Méthode pour récupérer toutes les clés commençant par un préfixe (ex. "mime."), préfixe retiré
+    public Map<String, String> getByPrefix(String prefix) {
+        Map<String, String> values = new LinkedHashMap<>();
+        for (String key : properties.stringPropertyNames()) {
+            if (key.startsWith(prefix) && key.length() > prefix.length()) {
+                values.put(key.substring(prefix.length()), properties.getProperty(key));
+            }
+        }
+        return values;
+    }
 }
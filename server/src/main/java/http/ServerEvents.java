@@ -0,0 +1,160 @@
+package http;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+import java.util.Locale;
+
+// Événements JDK Flight Recorder : un événement par requête (méthode, chemin, route, statut,
+// octets, durée de lecture des en-têtes) et un par phase de son traitement (résolution du chemin,
+// lecture d'un fichier, liste de répertoire, lancement et exécution de PHP, écriture vers le
+// client). Ils ne coûtent presque rien tant qu'aucun enregistrement n'est actif : aucun objet
+// n'est créé. Pour les activer : jcmd <pid> JFR.start name=http filename=http.jfr
+// Seuls les événements plus longs que les seuils de la configuration sont enregistrés.
+public final class ServerEvents {
+    // Phases du traitement d'une requête
+    public enum Phase {
+        ROUTE,
+        FILE_READ,
+        SENDFILE,
+        LISTING,
+        CGI_SPAWN,
+        CGI_RUN,
+        FASTCGI,
+        WRITE;
+
+        final String label = name().toLowerCase(Locale.ROOT);
+    }
+
+    @Name("http.Request")
+    @Label("Requête HTTP")
+    @Category("HTTP Server")
+    @Description("Traitement d'une requête, de la fin de la lecture des en-têtes à la fin de la réponse")
+    @StackTrace(false)
+    static final class RequestEvent extends Event {
+        @Label("Méthode")
+        String method;
+
+        @Label("Chemin")
+        String path;
+
+        @Label("Route")
+        String route;
+
+        @Label("Statut")
+        int status;
+
+        @Label("Octets reçus")
+        @DataAmount
+        long bytesReceived;
+
+        @Label("Octets envoyés")
+        @DataAmount
+        long bytesSent;
+
+        @Label("Lecture des en-têtes")
+        @Description("Du premier octet de l'en-tête reçu à la fin de son analyse")
+        @Timespan(Timespan.NANOSECONDS)
+        long headerDuration;
+
+        // Non enregistré : sert à la comparaison avec le seuil
+        transient long startedAt;
+    }
+
+    @Name("http.Phase")
+    @Label("Phase d'une requête HTTP")
+    @Category("HTTP Server")
+    @StackTrace(false)
+    static final class PhaseEvent extends Event {
+        @Label("Phase")
+        String phase;
+
+        @Label("Chemin")
+        @Description("Chemin de la requête ou du fichier concerné, vide s'il n'est pas connu")
+        String path;
+
+        @Label("Octets")
+        @DataAmount
+        long bytes;
+
+        transient long startedAt;
+    }
+
+    private static final EventType REQUEST_TYPE = EventType.getEventType(RequestEvent.class);
+    private static final EventType PHASE_TYPE = EventType.getEventType(PhaseEvent.class);
+
+    private static volatile boolean enabled = true;
+    private static long requestThresholdNanos = 10_000_000;
+    private static long phaseThresholdNanos = 1_000_000;
+
+    private ServerEvents() {
+    }
+
+    public static void configure(ServerConfig config) {
+        enabled = config.getBoolean("jfr_events", true); // Événements Flight Recorder (false = aucun)
+        requestThresholdNanos = config.getInt("jfr_request_threshold_ms", 10) * 1_000_000L; // Durée minimale d'une requête enregistrée
+        phaseThresholdNanos = config.getInt("jfr_phase_threshold_ms", 1) * 1_000_000L; // Durée minimale d'une phase enregistrée
+    }
+
+    // Début du traitement d'une requête ; null si aucun enregistrement ne demande ces événements
+    public static RequestEvent beginRequest() {
+        if (!enabled || !REQUEST_TYPE.isEnabled()) {
+            return null;
+        }
+        RequestEvent event = new RequestEvent();
+        event.startedAt = System.nanoTime();
+        event.begin();
+        return event;
+    }
+
+    public static void endRequest(RequestEvent event, HttpRequest request, HttpResponse response, String route) {
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (System.nanoTime() - event.startedAt < requestThresholdNanos || !event.shouldCommit()) {
+            return;
+        }
+        event.method = request.getMethod();
+        event.path = request.getPath();
+        event.route = route;
+        event.status = response.getStatusCode();
+        event.bytesReceived = request.getHeaderLength() + request.getReceivedBodyLength();
+        event.bytesSent = response.getBytesSent();
+        event.headerDuration = request.getReceivedAt() - request.getHeaderStartedAt();
+        event.commit();
+    }
+
+    // Début d'une phase ; null si aucun enregistrement ne demande ces événements
+    public static PhaseEvent beginPhase() {
+        if (!enabled || !PHASE_TYPE.isEnabled()) {
+            return null;
+        }
+        PhaseEvent event = new PhaseEvent();
+        event.startedAt = System.nanoTime();
+        event.begin();
+        return event;
+    }
+
+    // path peut être null ; bytes vaut 0 si la phase ne transfère pas de données
+    public static void endPhase(PhaseEvent event, Phase phase, String path, long bytes) {
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (System.nanoTime() - event.startedAt < phaseThresholdNanos || !event.shouldCommit()) {
+            return;
+        }
+        event.phase = phase.label;
+        event.path = path;
+        event.bytes = bytes;
+        event.commit();
+    }
+}
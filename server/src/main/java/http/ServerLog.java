@@ -0,0 +1,211 @@
+package http;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+// Journaux du serveur : journal d'accès (une ligne par requête, format Common ou Combined suivi de
+// la durée en microsecondes) et journal de diagnostic à niveaux. Les deux passent par un AsyncLog :
+// un thread de requête ne prend aucun verrou et ne fait aucune entrée-sortie pour journaliser.
+// Les messages de niveau DEBUG (détail du traitement de chaque requête) sont désactivés par défaut.
+public final class ServerLog {
+    public enum Level {
+        ERROR,
+        WARN,
+        INFO,
+        DEBUG
+    }
+
+    private static final DateTimeFormatter ACCESS_DATE =
+            DateTimeFormatter.ofPattern("dd/MMM/yyyy:HH:mm:ss Z", Locale.ENGLISH).withZone(ZoneId.systemDefault());
+    private static final DateTimeFormatter DIAGNOSTIC_DATE =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+
+    private static volatile Level level = Level.INFO;
+    // null tant que la configuration n'est pas lue : messages écrits directement sur la console
+    private static AsyncLog diagnostics;
+    // null si le journal d'accès est désactivé
+    private static AsyncLog access;
+    private static boolean combined = true;
+
+    private ServerLog() {
+    }
+
+    // Lit la configuration des journaux et démarre leurs threads d'écriture
+    public static void configure(ServerConfig config) {
+        try {
+            level = Level.valueOf(config.get("log_level", "info").trim().toUpperCase(Locale.ROOT)); // error, warn, info ou debug
+        } catch (IllegalArgumentException e) {
+            System.err.println("Niveau de journal inconnu : " + config.get("log_level", "") + ", niveau info utilisé");
+        }
+        combined = !config.get("access_log_format", "combined").equalsIgnoreCase("common"); // common ou combined
+        int capacity = config.getInt("log_buffer_size", 8192); // Enregistrements en attente d'écriture
+        boolean block = config.get("log_overflow", "drop").equalsIgnoreCase("block"); // Anneau plein : drop ou block
+        long maxBytes = config.getInt("log_max_bytes", 10 * 1024 * 1024); // Taille avant rotation (0 = pas de rotation)
+        int maxFiles = config.getInt("log_max_files", 5); // Anciens fichiers conservés
+        try {
+            String errorLog = config.get("error_log", ""); // Fichier du journal de diagnostic (vide = console)
+            diagnostics = new AsyncLog("error", errorLog.isEmpty() ? null : errorLog, System.err,
+                    capacity, maxBytes, maxFiles, block);
+            String accessLog = config.get("access_log", "logs/access.log"); // Fichier du journal d'accès ("stdout" = console, vide = désactivé)
+            if (!accessLog.isEmpty()) {
+                access = new AsyncLog("access", accessLog.equalsIgnoreCase("stdout") ? null : accessLog, System.out,
+                        capacity, maxBytes, maxFiles, block);
+            }
+        } catch (IOException e) {
+            System.err.println("Ouverture des journaux impossible : " + e.getMessage());
+        }
+        // Les enregistrements en attente sont écrits à l'arrêt du serveur
+        Runtime.getRuntime().addShutdownHook(new Thread(ServerLog::close));
+    }
+
+    public static boolean isDebugEnabled() {
+        return level == Level.DEBUG;
+    }
+
+    public static boolean isEnabled(Level messageLevel) {
+        return messageLevel.compareTo(level) <= 0;
+    }
+
+    public static void debug(String message) {
+        log(Level.DEBUG, message);
+    }
+
+    public static void info(String message) {
+        log(Level.INFO, message);
+    }
+
+    public static void warn(String message) {
+        log(Level.WARN, message);
+    }
+
+    public static void error(String message) {
+        log(Level.ERROR, message);
+    }
+
+    public static void log(Level messageLevel, String message) {
+        if (!isEnabled(messageLevel)) {
+            return;
+        }
+        AsyncLog log = diagnostics;
+        if (log == null) {
+            System.err.println(messageLevel + " " + message);
+            return;
+        }
+        long time = System.currentTimeMillis();
+        String thread = Thread.currentThread().getName();
+        log.log(line -> {
+            DIAGNOSTIC_DATE.formatTo(Instant.ofEpochMilli(time), line);
+            line.append(' ').append(messageLevel).append(" [").append(thread).append("] ").append(message);
+        });
+    }
+
+    // Enregistre une requête terminée
+    public static void access(HttpRequest request, HttpResponse response) {
+        AsyncLog log = access;
+        if (log == null) {
+            return;
+        }
+        long micros = (System.nanoTime() - request.getReceivedAt()) / 1000;
+        log.log(new AccessRecord(request.getRemoteAddress(), System.currentTimeMillis(), request.getMethod(), request.getResource(),
+                request.getVersion(), response.getStatusCode(), response.getBytesSent(),
+                combined ? request.getHeader("Referer") : null, combined ? request.getHeader("User-Agent") : null,
+                combined, micros));
+    }
+
+    public static String describe() {
+        AsyncLog accessLog = access;
+        AsyncLog diagnosticLog = diagnostics;
+        return (accessLog != null ? accessLog.toString() : "access: disabled")
+                + ", " + (diagnosticLog != null ? diagnosticLog.toString() : "error: console");
+    }
+
+    // Enregistrements abandonnés faute de place, tous journaux confondus
+    public static long getDropped() {
+        AsyncLog accessLog = access;
+        AsyncLog diagnosticLog = diagnostics;
+        return (accessLog != null ? accessLog.getDropped() : 0) + (diagnosticLog != null ? diagnosticLog.getDropped() : 0);
+    }
+
+    private static void close() {
+        if (access != null) {
+            access.close();
+        }
+        if (diagnostics != null) {
+            diagnostics.close();
+        }
+    }
+
+    // Ligne du journal d'accès, formatée par le thread d'écriture
+    private static final class AccessRecord implements AsyncLog.Record {
+        private final String remoteAddress;
+        private final long time;
+        private final String method;
+        private final String target;
+        private final String version;
+        private final int status;
+        private final long bytes;
+        private final String referer;
+        private final String userAgent;
+        private final boolean combined;
+        private final long micros;
+
+        AccessRecord(String remoteAddress, long time, String method, String target, String version, int status,
+                     long bytes, String referer, String userAgent, boolean combined, long micros) {
+            this.remoteAddress = remoteAddress;
+            this.time = time;
+            this.method = method;
+            this.target = target;
+            this.version = version;
+            this.status = status;
+            this.bytes = bytes;
+            this.referer = referer;
+            this.userAgent = userAgent;
+            this.combined = combined;
+            this.micros = micros;
+        }
+
+        // %h %l %u %t "%r" %>s %b ["%{Referer}i" "%{User-Agent}i"] %D
+        @Override
+        public void format(StringBuilder line) {
+            line.append(remoteAddress != null ? remoteAddress : "-").append(" - - [");
+            ACCESS_DATE.formatTo(Instant.ofEpochMilli(time), line);
+            line.append("] \"");
+            appendEscaped(line, method);
+            line.append(' ');
+            appendEscaped(line, target);
+            line.append(' ');
+            appendEscaped(line, version);
+            line.append("\" ").append(status).append(' ');
+            if (bytes > 0) {
+                line.append(bytes);
+            } else {
+                line.append('-');
+            }
+            if (combined) {
+                line.append(" \"");
+                appendEscaped(line, referer != null ? referer : "-");
+                line.append("\" \"");
+                appendEscaped(line, userAgent != null ? userAgent : "-");
+                line.append('"');
+            }
+            line.append(' ').append(micros);
+        }
+
+        // Guillemets, barres obliques inverses et caractères de contrôle échappés comme le fait Apache
+        private static void appendEscaped(StringBuilder line, String value) {
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"' || c == '\\') {
+                    line.append('\\').append(c);
+                } else if (c < 0x20 || c == 0x7f) {
+                    line.append(String.format("\\x%02x", (int) c));
+                } else {
+                    line.append(c);
+                }
+            }
+        }
+    }
+}
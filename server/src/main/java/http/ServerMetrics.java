@@ -0,0 +1,357 @@
+package http;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+// Mesures du serveur : requêtes par méthode, statut et type de route, histogrammes de latence par
+// type de route, octets reçus et envoyés, connexions actives et exécutions CGI. Les compteurs sont
+// des LongAdder (cellules réparties entre les threads) : un enregistrement ne prend aucun verrou et
+// les threads ne se disputent pas une même ligne de cache. Les valeurs tenues par d'autres
+// composants (caches, pools) sont lues au moment de l'affichage par des jauges.
+public class ServerMetrics {
+    // Type de route d'une requête, pour les compteurs et les latences
+    public enum RouteType {
+        STATIC,
+        PHP,
+        LISTING,
+        NOT_FOUND,
+        STATUS,
+        OTHER;
+
+        final String label = name().toLowerCase(Locale.ROOT);
+    }
+
+    // Délai dépassé : réception de l'en-tête ou du corps, inactivité entre deux requêtes,
+    // écriture de la réponse, exécution d'un script CGI
+    public enum Timeout {
+        HEADER,
+        BODY,
+        IDLE,
+        WRITE,
+        CGI;
+
+        final String label = name().toLowerCase(Locale.ROOT);
+    }
+
+    private static final String[] METHODS = {"GET", "POST", "HEAD", "OTHER"};
+
+    // Bornes supérieures des classes de latence, en microsecondes (100 µs à 10 s, puis +Inf)
+    private static final long[] LATENCY_BOUNDS = {
+            100, 250, 500, 1_000, 2_500, 5_000, 10_000, 25_000, 50_000,
+            100_000, 250_000, 500_000, 1_000_000, 2_500_000, 5_000_000, 10_000_000
+    };
+    // Mêmes bornes en secondes, écrites telles que les attend Prometheus ("0.0001" et non "1.0E-4")
+    private static final String[] LATENCY_LABELS = new String[LATENCY_BOUNDS.length];
+
+    static {
+        for (int i = 0; i < LATENCY_BOUNDS.length; i++) {
+            LATENCY_LABELS[i] = BigDecimal.valueOf(LATENCY_BOUNDS[i], 6).stripTrailingZeros().toPlainString();
+        }
+    }
+
+    // Histogramme à classes fixes ; la dernière classe reçoit les valeurs au-delà de la dernière borne
+    static final class Histogram {
+        private final LongAdder[] buckets = new LongAdder[LATENCY_BOUNDS.length + 1];
+        private final LongAdder sum = new LongAdder();
+
+        Histogram() {
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        void record(long micros) {
+            int i = 0;
+            while (i < LATENCY_BOUNDS.length && micros > LATENCY_BOUNDS[i]) {
+                i++;
+            }
+            buckets[i].increment();
+            sum.add(micros);
+        }
+
+        long[] snapshot() {
+            long[] counts = new long[buckets.length];
+            for (int i = 0; i < buckets.length; i++) {
+                counts[i] = buckets[i].sum();
+            }
+            return counts;
+        }
+
+        // Borne supérieure (µs) de la classe contenant le quantile q, ou -1 au-delà de la dernière borne
+        static long percentile(long[] counts, long total, double q) {
+            long rank = (long) Math.ceil(q * total);
+            long cumulative = 0;
+            for (int i = 0; i < LATENCY_BOUNDS.length; i++) {
+                cumulative += counts[i];
+                if (cumulative >= rank) {
+                    return LATENCY_BOUNDS[i];
+                }
+            }
+            return -1;
+        }
+    }
+
+    // Valeur lue à l'affichage
+    private static final class Gauge {
+        final String name;
+        final String help;
+        final boolean counter;
+        final LongSupplier value;
+
+        Gauge(String name, String help, boolean counter, LongSupplier value) {
+            this.name = name;
+            this.help = help;
+            this.counter = counter;
+            this.value = value;
+        }
+    }
+
+    // Histogramme tenu par un autre composant (attente dans un pool de threads)
+    private static final class NamedHistogram {
+        final String name;
+        final String help;
+        final Histogram histogram;
+
+        NamedHistogram(String name, String help, Histogram histogram) {
+            this.name = name;
+            this.help = help;
+            this.histogram = histogram;
+        }
+    }
+
+    private final long startedAt = System.currentTimeMillis();
+    private final LongAdder[] methods = new LongAdder[METHODS.length];
+    private final LongAdder[] statuses = new LongAdder[600];
+    private final Histogram[] latencies = new Histogram[RouteType.values().length];
+    private final LongAdder bytesIn = new LongAdder();
+    private final LongAdder bytesOut = new LongAdder();
+    private final LongAdder activeConnections = new LongAdder();
+    private final LongAdder connections = new LongAdder();
+    private final Histogram cgiSpawns = new Histogram();
+    private final LongAdder cgiFailures = new LongAdder();
+    private final LongAdder cgiRejections = new LongAdder();
+    private final LongAdder[] timeouts = new LongAdder[Timeout.values().length];
+    private final List<Gauge> gauges = new ArrayList<>();
+    private final List<NamedHistogram> histograms = new ArrayList<>();
+
+    public ServerMetrics() {
+        for (int i = 0; i < methods.length; i++) {
+            methods[i] = new LongAdder();
+        }
+        for (int i = 0; i < statuses.length; i++) {
+            statuses[i] = new LongAdder();
+        }
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new Histogram();
+        }
+        for (int i = 0; i < timeouts.length; i++) {
+            timeouts[i] = new LongAdder();
+        }
+    }
+
+    // Requête terminée : méthode, statut, latence depuis sa réception et octets échangés
+    public void record(HttpRequest request, HttpResponse response, RouteType route) {
+        String method = request.getMethod();
+        int methodIndex = method.equals("GET") ? 0 : method.equals("POST") ? 1 : method.equals("HEAD") ? 2 : 3;
+        methods[methodIndex].increment();
+        recordStatus(response.getStatusCode());
+        latencies[route.ordinal()].record((System.nanoTime() - request.getReceivedAt()) / 1000);
+        bytesIn.add(request.getHeaderLength() + request.getReceivedBodyLength());
+        bytesOut.add(response.getBytesSent());
+    }
+
+    // Réponse envoyée sans requête valide (en-tête invalide ou trop grand, corps refusé)
+    public void recordStatus(int statusCode) {
+        if (statusCode > 0 && statusCode < statuses.length) {
+            statuses[statusCode].increment();
+        }
+    }
+
+    public void connectionOpened() {
+        connections.increment();
+        activeConnections.increment();
+    }
+
+    public void connectionClosed() {
+        activeConnections.decrement();
+    }
+
+    // Lancement d'un processus php-cgi (attente d'une place comprise)
+    public void recordCgiSpawn(long nanos) {
+        cgiSpawns.record(nanos / 1000);
+    }
+
+    public void recordCgiFailure() {
+        cgiFailures.increment();
+    }
+
+    // Script refusé : limite de processus simultanés pour ce script atteinte
+    public void recordCgiRejected() {
+        cgiRejections.increment();
+    }
+
+    public void recordTimeout(Timeout timeout) {
+        timeouts[timeout.ordinal()].increment();
+    }
+
+    // Jauge lue à chaque affichage ; counter indique une valeur qui ne fait que croître
+    public synchronized void gauge(String name, String help, boolean counter, LongSupplier value) {
+        gauges.add(new Gauge(name, help, counter, value));
+    }
+
+    // Histogramme de durées (µs) enregistrées par un autre composant, affiché avec les latences
+    synchronized void histogram(String name, String help, Histogram histogram) {
+        histograms.add(new NamedHistogram(name, help, histogram));
+    }
+
+    // Format lisible, pour la page d'état
+    public String toText() {
+        StringBuilder text = new StringBuilder(2048);
+        long uptime = (System.currentTimeMillis() - startedAt) / 1000;
+        text.append("Uptime : ").append(uptime).append(" s\n");
+        text.append("Connexions : ").append(activeConnections.sum()).append(" actives, ")
+                .append(connections.sum()).append(" depuis le démarrage\n");
+        text.append("Requêtes :");
+        for (int i = 0; i < METHODS.length; i++) {
+            text.append(' ').append(METHODS[i]).append('=').append(methods[i].sum());
+        }
+        text.append("\nStatuts :");
+        for (int code = 0; code < statuses.length; code++) {
+            long count = statuses[code].sum();
+            if (count > 0) {
+                text.append(' ').append(code).append('=').append(count);
+            }
+        }
+        text.append("\nOctets : reçus ").append(bytesIn.sum()).append(", envoyés ").append(bytesOut.sum()).append('\n');
+        text.append("\nLatence par route (ms, borne supérieure de la classe) :\n");
+        for (RouteType route : RouteType.values()) {
+            appendPercentiles(text, "  " + route.label, latencies[route.ordinal()]);
+        }
+        text.append("Délais dépassés :");
+        for (Timeout timeout : Timeout.values()) {
+            text.append(' ').append(timeout.label).append('=').append(timeouts[timeout.ordinal()].sum());
+        }
+        text.append('\n');
+        text.append("\nCGI : échecs ").append(cgiFailures.sum())
+                .append(", refus (limite par script) ").append(cgiRejections.sum()).append('\n');
+        appendPercentiles(text, "  lancement", cgiSpawns);
+        List<Gauge> current;
+        List<NamedHistogram> currentHistograms;
+        synchronized (this) {
+            current = new ArrayList<>(gauges);
+            currentHistograms = new ArrayList<>(histograms);
+        }
+        if (!currentHistograms.isEmpty()) {
+            text.append("\nAutres durées (ms, borne supérieure de la classe) :\n");
+            for (NamedHistogram histogram : currentHistograms) {
+                appendPercentiles(text, "  " + histogram.name, histogram.histogram);
+            }
+        }
+        if (!current.isEmpty()) {
+            text.append('\n');
+            for (Gauge gauge : current) {
+                text.append(gauge.name).append(' ').append(gauge.value.getAsLong()).append('\n');
+            }
+        }
+        return text.toString();
+    }
+
+    private static void appendPercentiles(StringBuilder text, String label, Histogram histogram) {
+        long[] counts = histogram.snapshot();
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        text.append(String.format(Locale.ROOT, "%-12s n=%d", label, total));
+        if (total > 0) {
+            text.append(String.format(Locale.ROOT, " moyenne=%.3f", histogram.sum.sum() / 1000.0 / total));
+            text.append(" p50=").append(formatBound(Histogram.percentile(counts, total, 0.50)));
+            text.append(" p90=").append(formatBound(Histogram.percentile(counts, total, 0.90)));
+            text.append(" p99=").append(formatBound(Histogram.percentile(counts, total, 0.99)));
+        }
+        text.append('\n');
+    }
+
+    private static String formatBound(long micros) {
+        return micros < 0 ? ">10000" : BigDecimal.valueOf(micros, 3).stripTrailingZeros().toPlainString();
+    }
+
+    // Format d'exposition texte de Prometheus (version 0.0.4)
+    public String toPrometheus() {
+        StringBuilder text = new StringBuilder(8192);
+        header(text, "http_requests_total", "Requêtes traitées, par méthode", "counter");
+        for (int i = 0; i < METHODS.length; i++) {
+            text.append("http_requests_total{method=\"").append(METHODS[i]).append("\"} ").append(methods[i].sum()).append('\n');
+        }
+        header(text, "http_responses_total", "Réponses envoyées, par statut", "counter");
+        for (int code = 0; code < statuses.length; code++) {
+            long count = statuses[code].sum();
+            if (count > 0) {
+                text.append("http_responses_total{code=\"").append(code).append("\"} ").append(count).append('\n');
+            }
+        }
+        header(text, "http_request_duration_seconds", "Durée de traitement des requêtes, par type de route", "histogram");
+        for (RouteType route : RouteType.values()) {
+            appendHistogram(text, "http_request_duration_seconds", "route=\"" + route.label + "\",", latencies[route.ordinal()]);
+        }
+        header(text, "http_received_bytes_total", "Octets reçus (en-têtes et corps des requêtes)", "counter");
+        text.append("http_received_bytes_total ").append(bytesIn.sum()).append('\n');
+        header(text, "http_sent_bytes_total", "Octets envoyés (corps des réponses)", "counter");
+        text.append("http_sent_bytes_total ").append(bytesOut.sum()).append('\n');
+        header(text, "http_connections_active", "Connexions ouvertes", "gauge");
+        text.append("http_connections_active ").append(activeConnections.sum()).append('\n');
+        header(text, "http_connections_total", "Connexions acceptées", "counter");
+        text.append("http_connections_total ").append(connections.sum()).append('\n');
+        header(text, "cgi_spawn_seconds", "Lancement d'un processus php-cgi", "histogram");
+        appendHistogram(text, "cgi_spawn_seconds", "", cgiSpawns);
+        header(text, "cgi_failures_total", "Exécutions PHP en échec", "counter");
+        text.append("cgi_failures_total ").append(cgiFailures.sum()).append('\n');
+        header(text, "cgi_rejected_total", "Exécutions PHP refusées (limite de processus par script)", "counter");
+        text.append("cgi_rejected_total ").append(cgiRejections.sum()).append('\n');
+        header(text, "http_timeouts_total", "Délais dépassés, par étape", "counter");
+        for (Timeout timeout : Timeout.values()) {
+            text.append("http_timeouts_total{phase=\"").append(timeout.label).append("\"} ")
+                    .append(timeouts[timeout.ordinal()].sum()).append('\n');
+        }
+        List<Gauge> current;
+        List<NamedHistogram> currentHistograms;
+        synchronized (this) {
+            current = new ArrayList<>(gauges);
+            currentHistograms = new ArrayList<>(histograms);
+        }
+        for (NamedHistogram histogram : currentHistograms) {
+            header(text, histogram.name, histogram.help, "histogram");
+            appendHistogram(text, histogram.name, "", histogram.histogram);
+        }
+        for (Gauge gauge : current) {
+            header(text, gauge.name, gauge.help, gauge.counter ? "counter" : "gauge");
+            text.append(gauge.name).append(' ').append(gauge.value.getAsLong()).append('\n');
+        }
+        return text.toString();
+    }
+
+    private static void header(StringBuilder text, String name, String help, String type) {
+        text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        text.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    // Classes cumulées, comme l'attend Prometheus ; labels se termine par une virgule s'il n'est pas vide
+    private static void appendHistogram(StringBuilder text, String name, String labels, Histogram histogram) {
+        long[] counts = histogram.snapshot();
+        long cumulative = 0;
+        for (int i = 0; i < counts.length; i++) {
+            cumulative += counts[i];
+            String bound = i < LATENCY_BOUNDS.length ? LATENCY_LABELS[i] : "+Inf";
+            text.append(name).append("_bucket{").append(labels).append("le=\"").append(bound).append("\"} ")
+                    .append(cumulative).append('\n');
+        }
+        String plain = labels.isEmpty() ? "" : "{" + labels.substring(0, labels.length() - 1) + "}";
+        text.append(name).append("_sum").append(plain).append(' ')
+                .append(String.format(Locale.ROOT, "%.6f", histogram.sum.sum() / 1_000_000.0)).append('\n');
+        text.append(name).append("_count").append(plain).append(' ').append(cumulative).append('\n');
+    }
+}
@@ -0,0 +1,316 @@
+package http;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+// Cache mémoire des réponses statiques, indexé par chemin canonique et borné en octets (LRU).
+// Une entrée contient les en-têtes déjà encodés et le corps ; l'invalidation se fait par
+// WatchService (aucun accès disque sur un succès) ou par comparaison de la date de modification.
+public class StaticFileCache {
+    // Réponse prête à l'envoi
+    public static final class Entry {
+        private final String canonicalPath;
+        private final Path directory;
+        private final byte[] headers;
+        private final ByteBuffer body;
+        private final long lastModified;
+        private final String etag;
+        private final String contentType;
+        // Chemins de requête menant à ce fichier (ex. "/docs/" et "/docs/index.html")
+        private final Set<String> aliases = new HashSet<>(2);
+
+        private Entry(String canonicalPath, Path directory, byte[] headers, ByteBuffer body, long lastModified, String etag, String contentType) {
+            this.canonicalPath = canonicalPath;
+            this.directory = directory;
+            this.headers = headers;
+            this.body = body;
+            this.lastModified = lastModified;
+            this.etag = etag;
+            this.contentType = contentType;
+        }
+
+        // En-têtes Content-Type, Accept-Ranges, ETag, Last-Modified et Content-Length encodés, lignes terminées par CRLF
+        public byte[] getHeaders() {
+            return headers;
+        }
+
+        // Corps de la réponse ; le tampon partagé ne doit pas être modifié
+        public ByteBuffer getBody() {
+            return body;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getPath() {
+            return canonicalPath;
+        }
+
+        int size() {
+            return headers.length + body.capacity();
+        }
+    }
+
+    private final long maxBytes;
+    private final long maxEntryBytes;
+    // Corps stockés hors tas (ByteBuffer direct) plutôt que dans des tableaux
+    private final boolean direct;
+    // Sans WatchService, chaque succès vérifie la date de modification du fichier
+    private final boolean checkModified;
+
+    // Entrées par chemin canonique, dans l'ordre d'accès (LRU)
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    // Entrées par chemin de requête
+    private final Map<String, Entry> aliases = new HashMap<>();
+    private long totalBytes;
+    // Incrémenté à chaque invalidation : un chargement commencé avant n'est pas conservé
+    private long generation;
+
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> watchedDirectories = new HashMap<>();
+    private final Set<Path> registeredDirectories = new HashSet<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public StaticFileCache(long maxBytes, long maxEntryBytes, boolean direct, boolean useWatchService) {
+        this.maxBytes = maxBytes;
+        this.maxEntryBytes = maxEntryBytes;
+        this.direct = direct;
+
+        WatchService service = null;
+        if (useWatchService) {
+            try {
+                service = FileSystems.getDefault().newWatchService();
+            } catch (IOException | UnsupportedOperationException e) {
+                ServerLog.warn("WatchService indisponible, vérification par date de modification : " + e.getMessage());
+            }
+        }
+        this.watchService = service;
+        this.checkModified = service == null;
+        if (service != null) {
+            Thread watcher = new Thread(this::watchLoop, "static-cache-watcher");
+            watcher.setDaemon(true);
+            watcher.start();
+        }
+    }
+
+    // Recherche une réponse par chemin de requête (sans la query string)
+    public Entry lookup(String requestPath) {
+        Entry entry;
+        synchronized (this) {
+            entry = aliases.get(requestPath);
+            if (entry != null) {
+                // Met à jour l'ordre LRU
+                entries.get(entry.canonicalPath);
+            }
+        }
+        if (entry != null && checkModified && new File(entry.canonicalPath).lastModified() != entry.lastModified) {
+            invalidate(entry.canonicalPath);
+            entry = null;
+        }
+        if (entry != null) {
+            hits.increment();
+        }
+        return entry;
+    }
+
+    // Lit un fichier et prépare sa réponse, conservée dans le cache si la place le permet.
+    // Retourne null si le fichier dépasse la taille maximale d'une entrée.
+    public Entry load(String requestPath, File file, String contentType, boolean varyOnEncoding) throws IOException {
+        misses.increment();
+        long length = file.length();
+        if (length > maxEntryBytes || length > maxBytes) {
+            return null;
+        }
+
+        long startGeneration;
+        synchronized (this) {
+            startGeneration = generation;
+        }
+        Path directory = file.toPath().getParent();
+        // Le répertoire est surveillé avant la lecture pour ne manquer aucune modification
+        watch(directory);
+        long lastModified = file.lastModified();
+        synchronized (this) {
+            // Fichier déjà en cache sous un autre chemin de requête : seul l'alias est ajouté
+            Entry existing = entries.get(file.getPath());
+            if (existing != null && existing.lastModified == lastModified && existing.body.capacity() == length) {
+                existing.aliases.add(requestPath);
+                aliases.put(requestPath, existing);
+                return existing;
+            }
+        }
+        byte[] data = Files.readAllBytes(file.toPath());
+
+        String etag = HttpValidators.etag(data.length, lastModified);
+        byte[] headers = ("Content-Type: " + contentType + "\r\n"
+                + "Accept-Ranges: bytes\r\n"
+                + (varyOnEncoding ? "Vary: Accept-Encoding\r\n" : "")
+                + "ETag: " + etag + "\r\n"
+                + "Last-Modified: " + HttpValidators.formatDate(lastModified) + "\r\n"
+                + "Content-Length: " + data.length + "\r\n").getBytes(StandardCharsets.UTF_8);
+        ByteBuffer body;
+        if (direct) {
+            body = ByteBuffer.allocateDirect(data.length).put(data);
+            body.flip();
+        } else {
+            body = ByteBuffer.wrap(data);
+        }
+        Entry entry = new Entry(file.getPath(), directory, headers, body.asReadOnlyBuffer(), lastModified, etag, contentType);
+
+        synchronized (this) {
+            if (generation != startGeneration) {
+                // Une invalidation a eu lieu pendant la lecture : réponse servie mais pas conservée
+                return entry;
+            }
+            Entry existing = entries.remove(entry.canonicalPath);
+            if (existing != null) {
+                remove(existing);
+            }
+            entries.put(entry.canonicalPath, entry);
+            entry.aliases.add(requestPath);
+            aliases.put(requestPath, entry);
+            totalBytes += entry.size();
+            evict();
+        }
+        return entry;
+    }
+
+    public synchronized void invalidate(String canonicalPath) {
+        generation++;
+        Entry entry = entries.remove(canonicalPath);
+        if (entry != null) {
+            remove(entry);
+        }
+    }
+
+    // Invalide toutes les entrées d'un répertoire : la création d'un index.php ou un renommage
+    // peut changer la réponse associée à un chemin de requête
+    private synchronized void invalidateDirectory(Path directory) {
+        generation++;
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.directory.equals(directory)) {
+                iterator.remove();
+                remove(entry);
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        generation++;
+        entries.clear();
+        aliases.clear();
+        totalBytes = 0;
+    }
+
+    // Retire les alias et la taille d'une entrée déjà sortie de la table principale
+    private void remove(Entry entry) {
+        for (String alias : entry.aliases) {
+            aliases.remove(alias, entry);
+        }
+        totalBytes -= entry.size();
+    }
+
+    private void evict() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            Entry eldest = iterator.next();
+            iterator.remove();
+            remove(eldest);
+            evictions.increment();
+        }
+    }
+
+    private void watch(Path directory) {
+        if (watchService == null || directory == null) {
+            return;
+        }
+        synchronized (this) {
+            if (registeredDirectories.contains(directory)) {
+                return;
+            }
+            try {
+                WatchKey key = directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+                watchedDirectories.put(key, directory);
+                registeredDirectories.add(directory);
+            } catch (IOException e) {
+                ServerLog.warn("Impossible de surveiller le répertoire " + directory + " : " + e.getMessage());
+            }
+        }
+    }
+
+    private void watchLoop() {
+        while (true) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            Path directory;
+            synchronized (this) {
+                directory = watchedDirectories.get(key);
+            }
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    // Des événements ont été perdus : plus aucune entrée n'est fiable
+                    clear();
+                }
+            }
+            if (directory != null) {
+                invalidateDirectory(directory);
+            }
+            if (!key.reset()) {
+                // Répertoire supprimé ou déplacé
+                synchronized (this) {
+                    watchedDirectories.remove(key);
+                    registeredDirectories.remove(directory);
+                }
+            }
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    public synchronized long getSize() {
+        return totalBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "StaticFileCache[hits=" + getHits() + ", misses=" + getMisses() + ", evictions=" + getEvictions()
+                + ", entries=" + getEntryCount() + ", bytes=" + getSize() + "/" + maxBytes + "]";
+    }
+}
@@ -0,0 +1,212 @@
+package http;
+
+import java.io.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Capture du trafic pour le rejouer hors production (TrafficReplay, module benchmarks). Chaque
+// requête capturée est déposée dans un anneau borné comme les journaux ; un thread dédié l'écrit
+// dans un fichier binaire :
+//
+//   en-tête : magic "HCAP", version, instant de début (ms depuis l'époque)
+//   requête : arrivée (µs depuis le début), en-tête brut (taille + octets), corps (taille + octets,
+//             -1 si non capturé), statut et taille du corps de la réponse d'origine
+//
+// Anneau plein ou taille maximale du fichier atteinte : la requête n'est pas capturée (comptée).
+final class TrafficCapture {
+    static final int MAGIC = 0x48434150;
+    static final int VERSION = 1;
+
+    // Requête capturée, écrite une fois la réponse envoyée
+    static final class Entry {
+        final long arrivalMicros;
+        final byte[] head;
+        // null si le corps n'a pas été capturé (trop grand, ou chunked sur le moteur bloquant)
+        final byte[] body;
+        final int status;
+        final long bytesSent;
+
+        Entry(long arrivalMicros, byte[] head, byte[] body, int status, long bytesSent) {
+            this.arrivalMicros = arrivalMicros;
+            this.head = head;
+            this.body = body;
+            this.status = status;
+            this.bytesSent = bytesSent;
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            out.writeLong(arrivalMicros);
+            out.writeInt(head.length);
+            out.write(head);
+            out.writeInt(body == null ? -1 : body.length);
+            if (body != null) {
+                out.write(body);
+            }
+            out.writeShort(status);
+            out.writeLong(bytesSent);
+        }
+
+        int size() {
+            return 26 + head.length + (body == null ? 0 : body.length);
+        }
+
+        // Requête suivante du fichier, ou null à la fin
+        static Entry readFrom(DataInputStream in) throws IOException {
+            long arrivalMicros;
+            try {
+                arrivalMicros = in.readLong();
+            } catch (EOFException e) {
+                return null;
+            }
+            byte[] head = new byte[in.readInt()];
+            in.readFully(head);
+            int bodyLength = in.readInt();
+            byte[] body = null;
+            if (bodyLength >= 0) {
+                body = new byte[bodyLength];
+                in.readFully(body);
+            }
+            int status = in.readUnsignedShort();
+            long bytesSent = in.readLong();
+            return new Entry(arrivalMicros, head, body, status, bytesSent);
+        }
+    }
+
+    // Attente du thread d'écriture quand l'anneau est vide
+    private static final long IDLE_PARK_NANOS = 10_000_000;
+
+    private final String path;
+    private final double sampleRate;
+    private final int maxBodyBytes;
+    private final long maxFileBytes;
+    private final long startedAtNanos = System.nanoTime();
+
+    private final BoundedRing<Entry> entries;
+    private final DataOutputStream output;
+    private final Thread writer;
+    private volatile boolean running = true;
+    // Octets réservés dans le fichier, écrits ou en attente
+    private final AtomicLong fileBytes = new AtomicLong();
+
+    private final LongAdder captured = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    TrafficCapture(String path, double sampleRate, int maxBodyBytes, long maxFileBytes, int capacity) throws IOException {
+        this.path = path;
+        this.sampleRate = sampleRate;
+        this.maxBodyBytes = maxBodyBytes;
+        this.maxFileBytes = maxFileBytes;
+        this.entries = new BoundedRing<>(capacity);
+        File file = new File(path);
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Répertoire de capture impossible à créer : " + parent);
+        }
+        output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 64 * 1024));
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        output.writeLong(System.currentTimeMillis());
+        fileBytes.set(16);
+        writer = new Thread(this::writeLoop, "capture-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    // Tirage de la requête à capturer, avant son traitement
+    boolean isSampled() {
+        return sampleRate >= 1.0 || ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+
+    // Corps à capturer, lu avant le traitement de la requête : un corps lu au fil de l'eau sur la
+    // connexion est remplacé par sa copie en mémoire pour rester lisible par le script. null si le
+    // corps n'est pas capturé (trop grand ou chunked pas encore décodé).
+    byte[] readBody(HttpRequest request, long maxRequestBodyBytes, int spoolThreshold) throws IOException {
+        boolean received = request.isBodyReceived();
+        if (!received) {
+            long contentLength = request.getContentLength();
+            if (request.isChunked() || contentLength > Math.min(maxBodyBytes, maxRequestBodyBytes)) {
+                return null;
+            }
+        }
+        RequestBody body = request.getBody(maxRequestBodyBytes, spoolThreshold);
+        if (body.getLength() > maxBodyBytes) {
+            return null;
+        }
+        byte[] data;
+        try (InputStream in = body.open()) {
+            data = in.readNBytes((int) body.getLength());
+        }
+        if (data.length < body.getLength()) {
+            throw new EOFException("Corps de requête incomplet");
+        }
+        if (!received) {
+            request.setBody(RequestBody.of(data));
+        }
+        return data;
+    }
+
+    // Dépose la requête traitée ; head et body ont été copiés avant le traitement
+    void capture(HttpRequest request, byte[] head, byte[] body, HttpResponse response) {
+        long arrivalMicros = Math.max(0, (request.getHeaderStartedAt() - startedAtNanos) / 1000);
+        Entry entry = new Entry(arrivalMicros, head, body, response.getStatusCode(), response.getBytesSent());
+        if (maxFileBytes > 0 && fileBytes.addAndGet(entry.size()) > maxFileBytes) {
+            fileBytes.addAndGet(-entry.size());
+            dropped.increment();
+            return;
+        }
+        if (!entries.offer(entry)) {
+            fileBytes.addAndGet(-entry.size());
+            dropped.increment();
+        }
+    }
+
+    private void writeLoop() {
+        while (true) {
+            boolean stopping = !running;
+            int count = 0;
+            Entry entry;
+            try {
+                while ((entry = entries.poll()) != null) {
+                    entry.writeTo(output);
+                    count++;
+                }
+                if (count > 0) {
+                    captured.add(count);
+                    output.flush();
+                }
+            } catch (IOException e) {
+                ServerLog.error("Erreur d'écriture de la capture " + path + " : " + e.getMessage());
+            }
+            if (count == 0) {
+                if (stopping) {
+                    return;
+                }
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    // Écrit les requêtes en attente puis ferme le fichier
+    void close() {
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(5000);
+            output.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            System.err.println("Erreur de fermeture de la capture " + path + " : " + e.getMessage());
+        }
+    }
+
+    long getCaptured() {
+        return captured.sum();
+    }
+
+    long getDropped() {
+        return dropped.sum();
+    }
+}
@@ -0,0 +1,127 @@
+package http;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Pool de threads de travail borné et observable, avec contrôle d'admission. Une tâche est refusée
+// tout de suite (l'appelant répond 503) si la file est pleine ou si la limite de concurrence
+// adaptative est atteinte ; une tâche restée trop longtemps en file n'est pas exécutée : son
+// traitement d'expiration (503) la remplace, le client ayant probablement déjà abandonné.
+// L'attente en file de chaque tâche est mesurée.
+final class WorkerPool {
+    private final String name;
+    // Pool de threads plateforme ; null pour un thread virtuel par tâche (sans file ni délai d'attente)
+    private final ThreadPoolExecutor pool;
+    private final ExecutorService executor;
+    private final long queueTimeoutNanos;
+    // null si la limite adaptative est désactivée
+    private final AdaptiveLimit limit;
+
+    private final ServerMetrics.Histogram queueWaits = new ServerMetrics.Histogram();
+    private final AtomicInteger running = new AtomicInteger();
+    private final LongAdder rejectedQueueFull = new LongAdder();
+    private final LongAdder rejectedLimit = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+
+    // queueSize = 0 : aucune attente, une tâche n'est admise que si un thread est libre
+    WorkerPool(String name, int threads, int queueSize, long queueTimeoutMillis, AdaptiveLimit limit) {
+        this.name = name;
+        BlockingQueue<Runnable> queue = queueSize > 0 ? new ArrayBlockingQueue<>(queueSize) : new SynchronousQueue<>();
+        AtomicInteger count = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, queue,
+                task -> new Thread(task, name + "-worker-" + count.incrementAndGet()),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.executor = pool;
+        this.queueTimeoutNanos = queueTimeoutMillis * 1_000_000L;
+        this.limit = limit;
+    }
+
+    // Un thread virtuel par tâche : seule la limite adaptative éventuelle borne la concurrence
+    WorkerPool(String name, ExecutorService virtualThreads, AdaptiveLimit limit) {
+        this.name = name;
+        this.pool = null;
+        this.executor = virtualThreads;
+        this.queueTimeoutNanos = 0;
+        this.limit = limit;
+    }
+
+    // Soumet une tâche ; retourne false si elle est refusée. onExpired est exécuté à la place de
+    // task, sur le thread de travail, si la tâche a attendu plus que le délai configuré.
+    boolean execute(Runnable task, Runnable onExpired) {
+        if (limit != null && !limit.tryAcquire()) {
+            rejectedLimit.increment();
+            return false;
+        }
+        long queuedAt = System.nanoTime();
+        try {
+            executor.execute(() -> run(task, onExpired, queuedAt));
+            return true;
+        } catch (RejectedExecutionException e) {
+            if (limit != null) {
+                limit.release();
+            }
+            rejectedQueueFull.increment();
+            return false;
+        }
+    }
+
+    private void run(Runnable task, Runnable onExpired, long queuedAt) {
+        long waited = System.nanoTime() - queuedAt;
+        queueWaits.record(waited / 1000);
+        running.incrementAndGet();
+        try {
+            if (queueTimeoutNanos > 0 && waited > queueTimeoutNanos) {
+                expired.increment();
+                if (limit != null) {
+                    limit.onExpired();
+                }
+                onExpired.run();
+                return;
+            }
+            if (limit != null) {
+                limit.onStart(waited);
+            }
+            task.run();
+        } finally {
+            running.decrementAndGet();
+            if (limit != null) {
+                limit.release();
+            }
+        }
+    }
+
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    // Jauges et histogramme d'attente du pool, préfixés par son nom (ex. php_pool_queue_depth)
+    void registerMetrics(ServerMetrics metrics) {
+        String prefix = name + "_pool_";
+        metrics.gauge(prefix + "active_threads", "Threads du pool " + name + " occupés", false, running::get);
+        if (pool != null) {
+            metrics.gauge(prefix + "threads", "Threads du pool " + name, false, pool::getMaximumPoolSize);
+            metrics.gauge(prefix + "queue_depth", "Tâches en attente d'un thread du pool " + name, false, () -> pool.getQueue().size());
+            metrics.gauge(prefix + "utilization_percent", "Part des threads du pool " + name + " occupés", false,
+                    () -> running.get() * 100L / pool.getMaximumPoolSize());
+        }
+        metrics.gauge(prefix + "rejected_queue_full_total", "Tâches refusées, file du pool " + name + " pleine", true,
+                rejectedQueueFull::sum);
+        metrics.gauge(prefix + "expired_total", "Tâches abandonnées après une attente trop longue dans le pool " + name, true,
+                expired::sum);
+        if (limit != null) {
+            metrics.gauge(prefix + "rejected_limit_total", "Tâches refusées par la limite adaptative du pool " + name, true,
+                    rejectedLimit::sum);
+            metrics.gauge(prefix + "concurrency_limit", "Limite de concurrence adaptative du pool " + name, false, limit::getLimit);
+            metrics.gauge(prefix + "in_flight", "Tâches admises (en file ou en cours) dans le pool " + name, false, limit::getInFlight);
+        }
+        metrics.histogram(prefix + "queue_wait_seconds", "Attente d'un thread du pool " + name, queueWaits);
+    }
+
+    @Override
+    public String toString() {
+        return name + ": running=" + running.get() + (pool != null ? " queued=" + pool.getQueue().size() : "")
+                + (limit != null ? " limit=" + limit.getLimit() : "")
+                + " rejected=" + (rejectedQueueFull.sum() + rejectedLimit.sum()) + " expired=" + expired.sum();
+    }
+}
@@ -0,0 +1,82 @@
+package http;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Délai d'écriture du moteur bloquant : une écriture sur un socket bloquant ne peut pas être
+// interrompue par setSoTimeout. Chaque connexion enregistre un Guard qui marque le début de chaque
+// écriture ; un thread unique ferme le canal des écritures qui n'ont pas progressé depuis plus que
+// le délai, ce qui débloque le thread de travail (AsynchronousCloseException).
+final class WriteWatchdog {
+    // Écriture en cours sur une connexion
+    final class Guard implements AutoCloseable {
+        private final Closeable target;
+        private final String remoteAddress;
+        // Début de l'écriture en cours (System.nanoTime), 0 si aucune
+        private volatile long since;
+
+        private Guard(Closeable target, String remoteAddress) {
+            this.target = target;
+            this.remoteAddress = remoteAddress;
+        }
+
+        // Appelé avant chaque écriture bloquante : le délai repart de zéro
+        void begin() {
+            since = System.nanoTime() | 1;
+        }
+
+        void end() {
+            since = 0;
+        }
+
+        @Override
+        public void close() {
+            guards.remove(this);
+        }
+    }
+
+    private final long timeoutNanos;
+    private final ServerMetrics metrics;
+    private final Set<Guard> guards = ConcurrentHashMap.newKeySet();
+
+    WriteWatchdog(int timeoutMillis, ServerMetrics metrics) {
+        this.timeoutNanos = timeoutMillis * 1_000_000L;
+        this.metrics = metrics;
+        Thread thread = new Thread(() -> checkLoop(Math.max(10, Math.min(1000, timeoutMillis / 4))), "write-watchdog");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    Guard register(Closeable target, String remoteAddress) {
+        Guard guard = new Guard(target, remoteAddress);
+        guards.add(guard);
+        return guard;
+    }
+
+    private void checkLoop(long interval) {
+        while (true) {
+            try {
+                Thread.sleep(interval);
+            } catch (InterruptedException e) {
+                return;
+            }
+            long now = System.nanoTime();
+            for (Guard guard : guards) {
+                long since = guard.since;
+                if (since != 0 && now - since > timeoutNanos) {
+                    guard.since = 0;
+                    metrics.recordTimeout(ServerMetrics.Timeout.WRITE);
+                    ServerLog.warn("Écriture bloquée depuis " + (now - since) / 1_000_000 + " ms, connexion fermée : "
+                            + guard.remoteAddress);
+                    try {
+                        guard.target.close();
+                    } catch (IOException e) {
+                        // Connexion déjà fermée
+                    }
+                }
+            }
+        }
+    }
+}
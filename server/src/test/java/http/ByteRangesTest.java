@@ -0,0 +1,61 @@
+package http;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ByteRangesTest {
+
+    private static void assertRanges(List<long[]> ranges, long... bounds) {
+        assertNotNull(ranges);
+        assertEquals(bounds.length / 2, ranges.size());
+        for (int i = 0; i < ranges.size(); i++) {
+            assertArrayEquals(new long[] {bounds[2 * i], bounds[2 * i + 1]}, ranges.get(i));
+        }
+    }
+
+    @Test
+    void parsesSingleRanges() {
+        assertRanges(ByteRanges.parse("bytes=0-99", 1000), 0, 99);
+        assertRanges(ByteRanges.parse("bytes=900-", 1000), 900, 999);
+        assertRanges(ByteRanges.parse("bytes=-100", 1000), 900, 999);
+        assertRanges(ByteRanges.parse("BYTES= 10 - 19 ", 1000), 10, 19);
+    }
+
+    @Test
+    void clampsRangesToLength() {
+        assertRanges(ByteRanges.parse("bytes=990-2000", 1000), 990, 999);
+        assertRanges(ByteRanges.parse("bytes=-5000", 1000), 0, 999);
+    }
+
+    @Test
+    void coalescesOverlappingAndAdjacentRanges() {
+        assertRanges(ByteRanges.parse("bytes=50-99,0-49,200-299,250-260", 1000), 0, 99, 200, 299);
+        assertRanges(ByteRanges.parse("bytes=0-0,-1", 10), 0, 0, 9, 9);
+    }
+
+    @Test
+    void returnsEmptyListWhenUnsatisfiable() {
+        assertRanges(ByteRanges.parse("bytes=1000-", 1000));
+        assertRanges(ByteRanges.parse("bytes=-0", 1000));
+        assertRanges(ByteRanges.parse("bytes=0-", 0));
+    }
+
+    @Test
+    void ignoresHeaderWithoutSpec() {
+        assertNull(ByteRanges.parse("bytes=,", 1000));
+        assertNull(ByteRanges.parse("bytes= , ,", 1000));
+        assertNull(ByteRanges.parse("bytes=", 1000));
+    }
+
+    @Test
+    void ignoresInvalidOrExcessiveHeaders() {
+        assertNull(ByteRanges.parse("items=0-1", 1000));
+        assertNull(ByteRanges.parse("bytes=5", 1000));
+        assertNull(ByteRanges.parse("bytes=9-5", 1000));
+        assertNull(ByteRanges.parse("bytes=a-b", 1000));
+        assertNull(ByteRanges.parse("bytes=0-1" + ",2-3".repeat(16), 1000));
+    }
+}
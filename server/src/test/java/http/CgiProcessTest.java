@@ -0,0 +1,66 @@
+package http;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static org.junit.jupiter.api.Assertions.*;
+
+// Échanges avec un processus php-cgi : l'« interpréteur » est un script shell qui ignore le
+// fichier PHP reçu en argument
+@DisabledOnOs(OS.WINDOWS)
+class CgiProcessTest {
+    private static final int BODY_BYTES = 300_000;
+
+    @TempDir
+    static Path root;
+
+    private static String interpreter(String name, String script) throws IOException {
+        Path file = Files.writeString(root.resolve(name), "#!/bin/sh\n" + script, ISO_8859_1);
+        assertTrue(file.toFile().setExecutable(true));
+        return file.toString();
+    }
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        Files.writeString(root.resolve("run.php"), "<?php\n");
+        HttpServer.setDocumentRoot(root.toFile());
+    }
+
+    private static MemoryExchange.Response post(String phpInterpreter, InputStream body) throws IOException {
+        String head = "POST /run.php HTTP/1.1\r\nHost: localhost\r\nContent-Type: application/octet-stream\r\n"
+                + "Content-Length: " + BODY_BYTES + "\r\n\r\n";
+        return MemoryExchange.send(head, body, phpInterpreter);
+    }
+
+    @Test
+    void readsOutputWhileSendingBody() throws Exception {
+        // Le script écrit plus qu'un tube n'en contient avant de lire son corps
+        String phpInterpreter = interpreter("echo-count.sh",
+                "printf 'Content-Type: text/plain\\r\\n\\r\\n'\nhead -c 200000 /dev/zero\nwc -c\n");
+        MemoryExchange.Response response = assertTimeoutPreemptively(Duration.ofSeconds(20),
+                () -> post(phpInterpreter, new ByteArrayInputStream(new byte[BODY_BYTES])));
+        assertEquals(200, response.status);
+        assertEquals(200_000 + String.valueOf(BODY_BYTES).length() + 1, response.body.length);
+        assertEquals(String.valueOf(BODY_BYTES), response.text().substring(200_000).trim());
+    }
+
+    @Test
+    void answersWhenScriptIgnoresBody() throws Exception {
+        String phpInterpreter = interpreter("ignore-body.sh", "printf 'Content-Type: text/plain\\r\\n\\r\\ndone'\n");
+        MemoryExchange.Response response = assertTimeoutPreemptively(Duration.ofSeconds(20),
+                () -> post(phpInterpreter, new ByteArrayInputStream(new byte[BODY_BYTES])));
+        assertEquals(200, response.status);
+        assertEquals("done", response.text());
+    }
+}
@@ -0,0 +1,109 @@
+package http;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static org.junit.jupiter.api.Assertions.*;
+
+// Traduction de la sortie d'un script CGI (bloc d'en-têtes puis corps) en réponse HTTP
+class CgiResponseWriterTest {
+
+    // Sortie du script fournie par morceaux de step octets, comme lue sur son tube
+    private static MemoryExchange.Response translate(String version, String output, int step) throws IOException {
+        HttpRequest request = MemoryExchange.request("GET /index.php " + version + "\r\nHost: x\r\n\r\n", null);
+        byte[] data = output.getBytes(ISO_8859_1);
+        return MemoryExchange.respond(response -> {
+            CgiResponseWriter writer = new CgiResponseWriter(request, response);
+            for (int offset = 0; offset < data.length; offset += step) {
+                writer.write(data, offset, Math.min(step, data.length - offset));
+            }
+            writer.finish();
+        });
+    }
+
+    private static MemoryExchange.Response translate(String output) throws IOException {
+        return translate("HTTP/1.1", output, 7);
+    }
+
+    @Test
+    void streamsBodyInChunksWithoutLength() throws Exception {
+        MemoryExchange.Response response = translate("Content-Type: text/plain\r\nX-Powered-By: PHP\r\n\r\nhello world");
+        assertEquals(200, response.status);
+        assertEquals("text/plain", response.header("Content-Type"));
+        assertEquals("PHP", response.header("X-Powered-By"));
+        assertEquals("chunked", response.header("Transfer-Encoding"));
+        assertEquals("hello world", response.text());
+        assertTrue(response.keepAlive);
+    }
+
+    @Test
+    void readsHeadersSplitAcrossWrites() throws Exception {
+        // En-têtes reçus octet par octet, lignes terminées par un simple LF
+        MemoryExchange.Response response = translate("HTTP/1.1", "Status: 201\nContent-Type: text/plain\n\nok", 1);
+        assertEquals(201, response.status);
+        assertEquals("ok", response.text());
+    }
+
+    @Test
+    void appliesStatusAndLocation() throws Exception {
+        MemoryExchange.Response notFound = translate("Status: 404 Not Found\r\n\r\nabsent");
+        assertEquals(404, notFound.status);
+        assertEquals("text/html; charset=UTF-8", notFound.header("Content-Type"));
+        assertEquals("absent", notFound.text());
+
+        MemoryExchange.Response redirect = translate("Location: /ailleurs\r\n\r\n");
+        assertEquals(302, redirect.status);
+        assertEquals("/ailleurs", redirect.header("Location"));
+        assertNull(redirect.header("Content-Type"));
+
+        assertEquals(301, translate("Status: 301\r\nLocation: /ailleurs\r\n\r\n").status);
+    }
+
+    @Test
+    void dropsHopByHopHeaders() throws Exception {
+        MemoryExchange.Response response = translate("Connection: close\r\nTransfer-Encoding: gzip\r\nKeep-Alive: 1\r\n"
+                + "Content-Type: text/plain\r\n\r\nbody");
+        assertEquals("chunked", response.header("Transfer-Encoding"));
+        assertNotEquals("close", response.header("Connection"));
+        assertTrue(response.keepAlive);
+        assertEquals("body", response.text());
+    }
+
+    @Test
+    void honoursDeclaredContentLength() throws Exception {
+        MemoryExchange.Response exact = translate("Content-Length: 5\r\n\r\nhello");
+        assertEquals("5", exact.header("Content-Length"));
+        assertNull(exact.header("Transfer-Encoding"));
+        assertEquals("hello", exact.text());
+        assertTrue(exact.keepAlive);
+
+        // Surplus ignoré ; corps tronqué : connexion fermée ensuite
+        assertEquals("hello", translate("Content-Length: 5\r\n\r\nhello world").text());
+        assertFalse(translate("Content-Length: 50\r\n\r\nhello").keepAlive);
+    }
+
+    @Test
+    void closesConnectionForHttp10WithoutLength() throws Exception {
+        MemoryExchange.Response response = translate("HTTP/1.0", "Content-Type: text/plain\r\n\r\nhello", 64);
+        assertNull(response.header("Transfer-Encoding"));
+        assertEquals("hello", response.text());
+        assertFalse(response.keepAlive);
+    }
+
+    @Test
+    void ignoresBodyOfBodilessStatus() throws Exception {
+        MemoryExchange.Response response = translate("Status: 204 No Content\r\n\r\nignored");
+        assertEquals(204, response.status);
+        assertEquals(0, response.body.length);
+        assertNull(response.header("Transfer-Encoding"));
+    }
+
+    @Test
+    void rejectsInvalidOutput() {
+        assertThrows(IOException.class, () -> translate("Content-Type: text/plain\r\nno end of headers"));
+        assertThrows(IOException.class, () -> translate("Status: abc\r\n\r\n"));
+        assertThrows(IOException.class, () -> translate("X-Long: " + "a".repeat(70 * 1024) + "\r\n\r\n"));
+    }
+}
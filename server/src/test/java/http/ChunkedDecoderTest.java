@@ -0,0 +1,103 @@
+package http;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChunkedDecoderTest {
+
+    private static String decode(String body) throws IOException {
+        ChunkedDecoder decoder = new ChunkedDecoder();
+        ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        byte[] data = body.getBytes(ISO_8859_1);
+        int consumed = decoder.decode(data, 0, data.length, sink);
+        assertTrue(decoder.isFinished());
+        assertEquals(data.length, consumed);
+        return sink.toString(ISO_8859_1);
+    }
+
+    private static void assertRejected(String body) {
+        byte[] data = body.getBytes(ISO_8859_1);
+        assertThrows(HttpRequest.MalformedRequestException.class,
+                () -> new ChunkedDecoder().decode(data, 0, data.length, new ByteArrayOutputStream()), body);
+    }
+
+    @Test
+    void decodesChunksExtensionsAndTrailers() throws Exception {
+        assertEquals("", decode("0\r\n\r\n"));
+        assertEquals("hello world", decode("5\r\nhello\r\n6;name=value\r\n world\r\n0\r\n\r\n"));
+        assertEquals("0123456789", decode("a\r\n0123456789\r\n0\r\nX-Trailer: 1\r\n\r\n"));
+        assertEquals("0123456789", decode("00A\r\n0123456789\r\n0\r\n\r\n"));
+    }
+
+    @Test
+    void stopsAtEndOfBody() throws Exception {
+        ChunkedDecoder decoder = new ChunkedDecoder();
+        ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        byte[] data = "3\r\nabc\r\n0\r\n\r\nGET / HTTP/1.1\r\n\r\n".getBytes(ISO_8859_1);
+        assertEquals(13, decoder.decode(data, 0, data.length, sink));
+        assertTrue(decoder.isFinished());
+        assertEquals("abc", sink.toString(ISO_8859_1));
+    }
+
+    @Test
+    void decodesByteByByte() throws Exception {
+        ChunkedDecoder decoder = new ChunkedDecoder();
+        ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        byte[] data = "4\r\nabcd\r\n2\r\nef\r\n0\r\n\r\n".getBytes(ISO_8859_1);
+        // Chaque CRLF est coupé entre deux appels
+        for (int i = 0; i < data.length; i++) {
+            assertFalse(decoder.isFinished());
+            assertEquals(1, decoder.decode(data, i, 1, sink));
+        }
+        assertTrue(decoder.isFinished());
+        assertEquals("abcdef", sink.toString(ISO_8859_1));
+    }
+
+    @Test
+    void rejectsBareLineFeedOrCarriageReturn() {
+        assertRejected("5\nhello\r\n0\r\n\r\n");
+        assertRejected("5\rhello\r\n0\r\n\r\n");
+        assertRejected("5\r\nhello\n0\r\n\r\n");
+        assertRejected("5\r\nhello\r\n0\r\n\n");
+        assertRejected("5\r\nhello\r\n0\r\nX-Trailer: 1\n\r\n");
+    }
+
+    @Test
+    void rejectsInvalidChunkSize() {
+        for (String size : new String[] {"", "+5", "-1", " 5", "5 ", "0x5", "g", "1000000000000000"}) {
+            assertRejected(size + "\r\n");
+        }
+    }
+
+    @Test
+    void rejectsMissingChunkEnd() {
+        assertRejected("3\r\nabcd\r\n0\r\n\r\n");
+    }
+
+    @Test
+    void limitsTrailerCountAndSize() throws Exception {
+        byte[] three = "0\r\nA: 1\r\nB: 2\r\nC: 3\r\n\r\n".getBytes(ISO_8859_1);
+        ChunkedDecoder decoder = new ChunkedDecoder(1024, 3);
+        assertEquals(three.length, decoder.decode(three, 0, three.length, new ByteArrayOutputStream()));
+        assertTrue(decoder.isFinished());
+
+        byte[] four = "0\r\nA: 1\r\nB: 2\r\nC: 3\r\nD: 4\r\n\r\n".getBytes(ISO_8859_1);
+        assertThrows(HttpRequest.HeaderTooLargeException.class,
+                () -> new ChunkedDecoder(1024, 3).decode(four, 0, four.length, new ByteArrayOutputStream()));
+
+        // Taille totale des lignes, même si chacune reste courte
+        byte[] large = ("0\r\n" + ("X-Trailer: " + "a".repeat(100) + "\r\n").repeat(10) + "\r\n").getBytes(ISO_8859_1);
+        assertThrows(HttpRequest.HeaderTooLargeException.class,
+                () -> new ChunkedDecoder(1024, 100).decode(large, 0, large.length, new ByteArrayOutputStream()));
+    }
+
+    @Test
+    void rejectsLineLongerThanLimit() {
+        assertRejected("1;" + "x".repeat(5000) + "\r\n");
+    }
+}
@@ -0,0 +1,160 @@
+package http;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static org.junit.jupiter.api.Assertions.*;
+
+// Négociation d'Accept-Encoding, cache des variantes et fichiers voisins précompressés (.gz)
+class ContentEncoderTest {
+    private static final String TEXT = "Lorem ipsum dolor sit amet. ".repeat(200);
+
+    @TempDir
+    static Path root;
+
+    private final ContentEncoder encoder = new ContentEncoder(100, 1024 * 1024, 1024, 6);
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        Files.write(root.resolve("page.txt"), TEXT.getBytes(ISO_8859_1));
+        Files.write(root.resolve("static.txt"), TEXT.getBytes(ISO_8859_1));
+        // Le voisin .gz est compressé autrement que la compression à la volée
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(TEXT.getBytes(ISO_8859_1));
+        }
+        Path sibling = Files.write(root.resolve("static.txt.gz"), compressed.toByteArray());
+        sibling.toFile().setLastModified(root.resolve("static.txt").toFile().lastModified() + 5000);
+        HttpServer.setDocumentRoot(root.toFile());
+        HttpServer.setContentEncoder(new ContentEncoder(100, 1024 * 1024, 1024 * 1024, 6));
+    }
+
+    @AfterAll
+    static void tearDown() {
+        HttpServer.setContentEncoder(null);
+    }
+
+    private static HttpRequest request(String... headers) throws IOException {
+        StringBuilder head = new StringBuilder("GET /page.txt HTTP/1.1\r\n");
+        for (String header : headers) {
+            head.append(header).append("\r\n");
+        }
+        byte[] data = head.append("\r\n").toString().getBytes(ISO_8859_1);
+        HttpRequestParser parser = new HttpRequestParser();
+        parser.parse(data, 0, data.length);
+        return new HttpRequest(parser, null);
+    }
+
+    private String negotiate(String acceptEncoding) throws IOException {
+        return encoder.negotiate(request("Accept-Encoding: " + acceptEncoding), "text/html", 1000);
+    }
+
+    private static byte[] decode(byte[] data, String encoding) throws IOException {
+        InputStream in = new ByteArrayInputStream(data);
+        try (InputStream decoded = encoding.equals("gzip") ? new GZIPInputStream(in) : new InflaterInputStream(in)) {
+            return decoded.readAllBytes();
+        }
+    }
+
+    @Test
+    void prefersGzipThenDeflate() throws Exception {
+        assertEquals("gzip", negotiate("gzip, deflate"));
+        assertEquals("gzip", negotiate("deflate, x-gzip"));
+        assertEquals("deflate", negotiate("deflate"));
+        assertEquals("deflate", negotiate("gzip;q=0.5, deflate"));
+        assertEquals("gzip", negotiate("br, *"));
+        assertEquals("deflate", negotiate("gzip;q=0, *;q=0.3"));
+    }
+
+    @Test
+    void refusesExcludedOrUnknownEncodings() throws Exception {
+        assertNull(negotiate("gzip;q=0, deflate;q=0"));
+        assertNull(negotiate("*;q=0"));
+        assertNull(negotiate("br, identity"));
+        assertNull(negotiate("gzip;q=abc"));
+        assertNull(encoder.negotiate(request(), "text/html", 1000));
+    }
+
+    @Test
+    void skipsSmallIncompressibleAndPartialResponses() throws Exception {
+        HttpRequest request = request("Accept-Encoding: gzip");
+        assertNull(encoder.negotiate(request, "text/html", 99));
+        assertNull(encoder.negotiate(request, "image/png", 1000));
+        assertEquals("gzip", encoder.negotiate(request, "application/json; charset=utf-8", 1000));
+        assertNull(encoder.negotiate(request("Accept-Encoding: gzip", "Range: bytes=0-10"), "text/html", 1000));
+    }
+
+    @Test
+    void compressesBothEncodings() throws Exception {
+        byte[] data = TEXT.getBytes(ISO_8859_1);
+        for (String encoding : new String[] {"gzip", "deflate"}) {
+            byte[] compressed = encoder.compress(data, 0, data.length, encoding);
+            assertTrue(compressed.length < data.length / 10, encoding);
+            assertArrayEquals(data, decode(compressed, encoding), encoding);
+        }
+    }
+
+    @Test
+    void derivesVariantEtag() {
+        assertEquals("\"1a-2b-gzip\"", ContentEncoder.variantEtag("\"1a-2b\"", "gzip"));
+    }
+
+    @Test
+    void boundsVariantCache() {
+        encoder.putCached("a", new byte[400]);
+        encoder.putCached("b", new byte[400]);
+        // Un accès à "a" fait de "b" la variante la moins récemment utilisée
+        assertNotNull(encoder.getCached("a"));
+        encoder.putCached("c", new byte[400]);
+        assertTrue(encoder.isCached("a"));
+        assertFalse(encoder.isCached("b"));
+        assertTrue(encoder.isCached("c"));
+        assertEquals(800, encoder.getCacheSize());
+        // Une variante plus grande que le budget n'est pas gardée
+        encoder.putCached("d", new byte[2000]);
+        assertFalse(encoder.isCached("d"));
+        assertEquals(1, encoder.getHits());
+    }
+
+    @Test
+    void servesCompressedVariantWithItsOwnEtag() throws Exception {
+        MemoryExchange.Response identity = MemoryExchange.get("/page.txt");
+        MemoryExchange.Response gzip = MemoryExchange.get("/page.txt", "Accept-Encoding: gzip");
+        assertEquals(200, gzip.status);
+        assertEquals("gzip", gzip.header("Content-Encoding"));
+        assertEquals("Accept-Encoding", gzip.header("Vary"));
+        assertEquals(ContentEncoder.variantEtag(identity.header("ETag"), "gzip"), gzip.header("ETag"));
+        assertEquals(TEXT, new String(decode(gzip.body, "gzip"), ISO_8859_1));
+
+        MemoryExchange.Response notModified = MemoryExchange.get("/page.txt", "Accept-Encoding: gzip",
+                "If-None-Match: " + gzip.header("ETag"));
+        assertEquals(304, notModified.status);
+    }
+
+    @Test
+    void servesPrecompressedSiblingWithEtagOfSibling() throws Exception {
+        Path sibling = root.resolve("static.txt.gz");
+        MemoryExchange.Response identity = MemoryExchange.get("/static.txt");
+        MemoryExchange.Response gzip = MemoryExchange.get("/static.txt", "Accept-Encoding: gzip");
+        assertEquals("gzip", gzip.header("Content-Encoding"));
+        assertArrayEquals(Files.readAllBytes(sibling), gzip.body);
+
+        String siblingEtag = HttpValidators.etag(Files.size(sibling), sibling.toFile().lastModified());
+        assertEquals(ContentEncoder.variantEtag(siblingEtag, "gzip"), gzip.header("ETag"));
+        assertNotEquals(ContentEncoder.variantEtag(identity.header("ETag"), "gzip"), gzip.header("ETag"));
+        assertEquals(HttpValidators.formatDate(sibling.toFile().lastModified()), gzip.header("Last-Modified"));
+    }
+}
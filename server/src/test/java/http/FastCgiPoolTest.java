@@ -0,0 +1,218 @@
+package http;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.*;
+
+// Pool relié à un faux serveur FastCGI externe (comme php-fpm), qui renvoie le corps reçu ;
+// le paramètre MODE choisit un comportement : "hang" (pas de réponse), "slow" (réponse après
+// 600 ms), "close" (connexion fermée sans réponse)
+class FastCgiPoolTest {
+    private ServerSocket listener;
+    private final AtomicInteger connections = new AtomicInteger();
+    // Paramètres de la dernière requête reçue
+    private final Map<String, String> lastParams = new ConcurrentHashMap<>();
+    private FastCgiPool pool;
+
+    @BeforeEach
+    void startFakeServer() throws IOException {
+        listener = new ServerSocket(0);
+        Thread acceptor = new Thread(() -> {
+            while (true) {
+                try {
+                    Socket socket = listener.accept();
+                    connections.incrementAndGet();
+                    Thread connection = new Thread(() -> serve(socket), "fake-fastcgi");
+                    connection.setDaemon(true);
+                    connection.start();
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        }, "fake-fastcgi-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        pool = new FastCgiPool("php-cgi", "127.0.0.1:" + listener.getLocalPort(), 1, 0, 1000, 5000);
+    }
+
+    @AfterEach
+    void stopFakeServer() throws IOException {
+        pool.shutdown();
+        listener.close();
+    }
+
+    // Requêtes successives d'une même connexion, jusqu'à sa fermeture
+    private void serve(Socket socket) {
+        try (socket) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            OutputStream out = new BufferedOutputStream(socket.getOutputStream());
+            while (true) {
+                ByteArrayOutputStream params = new ByteArrayOutputStream();
+                ByteArrayOutputStream stdin = new ByteArrayOutputStream();
+                boolean stdinDone = false;
+                while (!stdinDone) {
+                    int version = in.readUnsignedByte();
+                    int type = in.readUnsignedByte();
+                    in.readUnsignedShort();
+                    int length = in.readUnsignedShort();
+                    int padding = in.readUnsignedByte();
+                    in.readUnsignedByte();
+                    assertEquals(1, version);
+                    byte[] content = in.readNBytes(length);
+                    in.skipNBytes(padding);
+                    // Longueur d'enregistrement toujours alignée sur 8 octets
+                    assertEquals(0, (length + padding) % 8);
+                    if (type == 4) {
+                        params.write(content);
+                    } else if (type == 5) {
+                        stdin.write(content);
+                        stdinDone = length == 0;
+                    }
+                }
+                lastParams.clear();
+                lastParams.putAll(decodeParams(params.toByteArray()));
+                String mode = lastParams.getOrDefault("MODE", "");
+                if (mode.equals("hang")) {
+                    in.read();
+                    return;
+                }
+                if (mode.equals("close")) {
+                    return;
+                }
+                if (mode.equals("slow")) {
+                    Thread.sleep(600);
+                }
+                byte[] head = "Content-Type: text/plain\r\n\r\n".getBytes(ISO_8859_1);
+                writeRecord(out, 6, head, 0, head.length);
+                byte[] body = stdin.toByteArray();
+                for (int offset = 0; offset < body.length; offset += 65535) {
+                    writeRecord(out, 6, body, offset, Math.min(65535, body.length - offset));
+                }
+                writeRecord(out, 6, body, 0, 0);
+                writeRecord(out, 7, "avertissement".getBytes(UTF_8), 0, 13);
+                writeRecord(out, 3, new byte[] {0, 0, 0, 3, 0, 0, 0, 0}, 0, 8);
+                out.flush();
+            }
+        } catch (IOException | InterruptedException e) {
+            // Connexion fermée par le pool
+        }
+    }
+
+    private static Map<String, String> decodeParams(byte[] data) {
+        Map<String, String> params = new LinkedHashMap<>();
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        try {
+            while (in.available() > 0) {
+                int nameLength = readLength(in);
+                int valueLength = readLength(in);
+                params.put(new String(in.readNBytes(nameLength), UTF_8), new String(in.readNBytes(valueLength), UTF_8));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return params;
+    }
+
+    private static int readLength(DataInputStream in) throws IOException {
+        int first = in.readUnsignedByte();
+        if (first < 128) {
+            return first;
+        }
+        return (first & 0x7f) << 24 | in.readUnsignedByte() << 16 | in.readUnsignedByte() << 8 | in.readUnsignedByte();
+    }
+
+    private static void writeRecord(OutputStream out, int type, byte[] data, int offset, int length) throws IOException {
+        int padding = (8 - length % 8) % 8;
+        out.write(new byte[] {1, (byte) type, 0, 1, (byte) (length >> 8), (byte) length, (byte) padding, 0});
+        out.write(data, offset, length);
+        out.write(new byte[padding]);
+    }
+
+    private int execute(String mode, byte[] body, ByteArrayOutputStream stdout, int timeoutMillis) throws IOException {
+        Map<String, String> params = new LinkedHashMap<>();
+        params.put("MODE", mode);
+        params.put("SCRIPT_FILENAME", "/var/www/index.php");
+        return pool.execute(params, new ByteArrayInputStream(body), stdout, timeoutMillis);
+    }
+
+    @Test
+    void exchangesParamsBodyAndOutput() throws Exception {
+        byte[] body = new byte[150_000];
+        for (int i = 0; i < body.length; i++) {
+            body[i] = (byte) i;
+        }
+        Map<String, String> params = new LinkedHashMap<>();
+        params.put("SCRIPT_FILENAME", "/var/www/index.php");
+        // Valeur de plus de 127 octets : longueur codée sur 4 octets
+        params.put("QUERY_STRING", "q=" + "é".repeat(200));
+        ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+
+        assertEquals(3, pool.execute(params, new ByteArrayInputStream(body), stdout, 0));
+        assertEquals(params, lastParams);
+        byte[] output = stdout.toByteArray();
+        String head = "Content-Type: text/plain\r\n\r\n";
+        assertEquals(head, new String(output, 0, head.length(), ISO_8859_1));
+        assertArrayEquals(body, Arrays.copyOfRange(output, head.length(), output.length));
+        assertEquals(1, pool.getRequests());
+        assertEquals(0, pool.getFailures());
+    }
+
+    @Test
+    void keepsConnectionBetweenRequests() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            assertEquals(3, execute("", new byte[10], new ByteArrayOutputStream(), 1000));
+        }
+        assertEquals(1, connections.get());
+        assertEquals(1, pool.getHealthyWorkers());
+    }
+
+    @Test
+    void clearsReadTimeoutOfPreviousRequest() throws Exception {
+        assertEquals(3, execute("", new byte[0], new ByteArrayOutputStream(), 300));
+        // Sans durée maximale, une réponse plus lente que le délai précédent est attendue
+        assertEquals(3, execute("slow", new byte[0], new ByteArrayOutputStream(), 0));
+        assertEquals(0, pool.getTimeouts());
+    }
+
+    @Test
+    void restartsWorkerOffRequestThreadAfterTimeout() throws Exception {
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> assertThrows(FastCgiPool.ScriptTimeoutException.class,
+                () -> execute("hang", new byte[0], new ByteArrayOutputStream(), 200)));
+        assertEquals(1, pool.getTimeouts());
+        // La requête suivante attend que le worker soit relancé sur une nouvelle connexion
+        assertEquals(3, execute("", new byte[5], new ByteArrayOutputStream(), 1000));
+        assertEquals(2, connections.get());
+    }
+
+    @Test
+    void reconnectsAfterWorkerCrash() throws Exception {
+        assertEquals(3, execute("", new byte[0], new ByteArrayOutputStream(), 1000));
+        assertThrows(IOException.class, () -> execute("close", new byte[0], new ByteArrayOutputStream(), 1000));
+        assertEquals(1, pool.getCrashes());
+        assertEquals(3, execute("", new byte[0], new ByteArrayOutputStream(), 1000));
+        assertEquals(2, connections.get());
+    }
+
+    @Test
+    void rejectsInvalidAddress() {
+        assertNull(FastCgiPool.parseAddress(""));
+        assertEquals(9000, FastCgiPool.parseAddress("127.0.0.1:9000").getPort());
+        for (String address : new String[] {"localhost", ":9000", "localhost:", "localhost:php", "localhost:70000"}) {
+            assertThrows(IllegalArgumentException.class, () -> FastCgiPool.parseAddress(address), address);
+        }
+    }
+}
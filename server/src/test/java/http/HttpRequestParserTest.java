@@ -0,0 +1,146 @@
+package http;
+
+import org.junit.jupiter.api.Test;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static org.junit.jupiter.api.Assertions.*;
+
+class HttpRequestParserTest {
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(ISO_8859_1);
+    }
+
+    // Analyse un en-tête complet et vérifie qu'il est consommé en entier
+    private static HttpRequestParser parse(HttpRequestParser parser, String head) throws HttpRequest.MalformedRequestException {
+        byte[] data = bytes(head);
+        assertEquals(data.length, parser.parse(data, 0, data.length));
+        return parser;
+    }
+
+    private static HttpRequestParser parse(String head) throws HttpRequest.MalformedRequestException {
+        return parse(new HttpRequestParser(), head);
+    }
+
+    @Test
+    void parsesRequestLineAndHeaders() throws Exception {
+        HttpRequestParser parser = parse("GET /index.html?a=1 HTTP/1.1\r\nHost: example\r\nX-Empty:\r\n\r\n");
+        assertEquals("GET", parser.method());
+        assertEquals("/index.html?a=1", parser.target());
+        assertEquals("HTTP/1.1", parser.version());
+        assertEquals(2, parser.headerCount());
+        assertEquals("example", parser.headerValue(parser.findHeader("host", 0)));
+        assertEquals("", parser.headerValue(parser.findHeader("X-Empty", 0)));
+        assertEquals(-1, parser.contentLength());
+    }
+
+    @Test
+    void resumesIncompleteHead() throws Exception {
+        HttpRequestParser parser = new HttpRequestParser();
+        byte[] data = bytes("GET / HTTP/1.1\r\nHost: example\r\n\r\n");
+        // Les mêmes octets sont fournis à chaque appel, complétés par ceux reçus depuis
+        for (int length = 1; length < data.length; length++) {
+            assertEquals(-1, parser.parse(data, 0, length));
+        }
+        assertEquals(data.length, parser.parse(data, 0, data.length));
+        assertEquals("example", parser.headerValue(parser.findHeader("Host", 0)));
+    }
+
+    @Test
+    void stopsAtEndOfHeadWithPipelinedRequests() throws Exception {
+        byte[] data = bytes("GET /a HTTP/1.1\r\n\r\nGET /b HTTP/1.1\r\nHost: b\r\n\r\n");
+        HttpRequestParser parser = new HttpRequestParser();
+        int first = parser.parse(data, 0, data.length);
+        assertEquals(19, first);
+        assertEquals("/a", parser.target());
+        int second = parser.parse(data, first, data.length - first);
+        assertEquals(data.length - first, second);
+        assertEquals("/b", parser.target());
+        assertEquals(1, parser.headerCount());
+    }
+
+    @Test
+    void rejectsHeadLargerThanLimit() {
+        HttpRequestParser parser = new HttpRequestParser(256, 100);
+        byte[] data = bytes("GET / HTTP/1.1\r\nX-Long: " + "a".repeat(300) + "\r\n\r\n");
+        assertThrows(HttpRequest.HeaderTooLargeException.class, () -> parser.parse(data, 0, data.length));
+    }
+
+    @Test
+    void rejectsTooManyHeaders() throws Exception {
+        parse(new HttpRequestParser(1024, 3), "GET / HTTP/1.1\r\nA: 1\r\nB: 2\r\nC: 3\r\n\r\n");
+        HttpRequestParser parser = new HttpRequestParser(1024, 3);
+        byte[] data = bytes("GET / HTTP/1.1\r\nA: 1\r\nB: 2\r\nC: 3\r\nD: 4\r\n\r\n");
+        assertThrows(HttpRequest.HeaderTooLargeException.class, () -> parser.parse(data, 0, data.length));
+    }
+
+    @Test
+    void rejectsInvalidRequestLine() {
+        for (String head : new String[] {"GET\r\n\r\n", " / HTTP/1.1\r\n\r\n", "GET  HTTP/1.1\r\n\r\n",
+                "GET /" + "a".repeat(9000) + " HTTP/1.1\r\n\r\n", "GET / HTTP/1.1\r\nNoColon\r\n\r\n"}) {
+            byte[] data = bytes(head);
+            assertThrows(HttpRequest.MalformedRequestException.class,
+                    () -> new HttpRequestParser().parse(data, 0, data.length), head);
+        }
+    }
+
+    @Test
+    void rejectsMalformedHeaderLines() {
+        for (String line : new String[] {"Transfer-Encoding : chunked", "Host:\tx\r\n folded", "Host: x\r\n\tfolded",
+                " Host: x", "X Y: 1", "X\"Y: 1", "[X]: 1", "X/Y: 1", "X-\u00e9: 1"}) {
+            byte[] data = bytes("GET / HTTP/1.1\r\n" + line + "\r\n\r\n");
+            assertThrows(HttpRequest.MalformedRequestException.class,
+                    () -> new HttpRequestParser().parse(data, 0, data.length), line);
+        }
+    }
+
+    @Test
+    void acceptsTokenHeaderNames() throws Exception {
+        HttpRequestParser parser = parse("GET / HTTP/1.1\r\nX-a_b.c!#$%&'*+^`|~9:  spaced value\t\r\n\r\n");
+        assertEquals("X-a_b.c!#$%&'*+^`|~9", parser.headerName(0));
+        assertEquals("spaced value", parser.headerValue(0));
+    }
+
+    @Test
+    void acceptsContentLength() throws Exception {
+        assertEquals(0, parse("POST / HTTP/1.1\r\nContent-Length: 0\r\n\r\n").contentLength());
+        assertEquals(123456789012345678L,
+                parse("POST / HTTP/1.1\r\nContent-Length: 123456789012345678\r\n\r\n").contentLength());
+        // Répétition d'une même valeur (RFC 7230, section 3.3.2)
+        assertEquals(5, parse("POST / HTTP/1.1\r\nContent-Length: 5\r\ncontent-length: 5\r\n\r\n").contentLength());
+    }
+
+    @Test
+    void rejectsMalformedContentLength() {
+        for (String value : new String[] {"", "abc", "-1", "+5", " 5 5", "0x10", "1234567890123456789"}) {
+            byte[] data = bytes("POST / HTTP/1.1\r\nContent-Length: " + value + "\r\n\r\n");
+            assertThrows(HttpRequest.MalformedRequestException.class,
+                    () -> new HttpRequestParser().parse(data, 0, data.length), value);
+        }
+    }
+
+    @Test
+    void acceptsTransferEncodingEndingInChunked() throws Exception {
+        assertFalse(parse("POST / HTTP/1.1\r\n\r\n").chunked());
+        for (String value : new String[] {"chunked", "Chunked", "gzip, chunked", "gzip,\tchunked ", "gzip,,chunked",
+                "gzip\r\nTransfer-Encoding: chunked"}) {
+            assertTrue(parse("POST / HTTP/1.1\r\nTransfer-Encoding: " + value + "\r\n\r\n").chunked(), value);
+        }
+    }
+
+    @Test
+    void rejectsTransferEncodingNotEndingInChunked() {
+        for (String value : new String[] {"", "xchunked", "chunkedx", "chunked, gzip", "chunked, chunked", "gzip",
+                "identity", "chunked\r\nTransfer-Encoding: gzip"}) {
+            byte[] data = bytes("POST / HTTP/1.1\r\nTransfer-Encoding: " + value + "\r\n\r\n");
+            assertThrows(HttpRequest.MalformedRequestException.class,
+                    () -> new HttpRequestParser().parse(data, 0, data.length), value);
+        }
+    }
+
+    @Test
+    void rejectsConflictingContentLength() {
+        byte[] data = bytes("POST / HTTP/1.1\r\nContent-Length: 5\r\nContent-Length: 6\r\n\r\n");
+        assertThrows(HttpRequest.MalformedRequestException.class, () -> new HttpRequestParser().parse(data, 0, data.length));
+    }
+}
@@ -0,0 +1,133 @@
+package http;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static org.junit.jupiter.api.Assertions.*;
+
+// Lecture des requêtes sur un flux de connexion bloquante, sans socket
+class HttpRequestTest {
+
+    // Flux qui ne rend que quelques octets par lecture, comme un client lent
+    private static final class TrickleInputStream extends ByteArrayInputStream {
+        private final int step;
+
+        TrickleInputStream(byte[] data, int step) {
+            super(data);
+            this.step = step;
+        }
+
+        @Override
+        public synchronized int read(byte[] buffer, int offset, int length) {
+            return super.read(buffer, offset, Math.min(length, step));
+        }
+    }
+
+    private static RequestInputStream stream(String text) {
+        return new RequestInputStream(new ByteArrayInputStream(text.getBytes(ISO_8859_1)), 1024);
+    }
+
+    private static String readBody(HttpRequest request) throws IOException {
+        try (InputStream in = request.getBody(1024 * 1024, 64 * 1024).open()) {
+            return new String(in.readAllBytes(), ISO_8859_1);
+        }
+    }
+
+    @Test
+    void readsPipelinedRequests() throws Exception {
+        RequestInputStream in = stream("GET /a HTTP/1.1\r\nHost: x\r\n\r\n"
+                + "POST /b HTTP/1.1\r\nContent-Length: 5\r\n\r\nhello"
+                + "GET /c?q=1 HTTP/1.1\r\n\r\n");
+        HttpRequestParser parser = new HttpRequestParser();
+
+        HttpRequest first = HttpRequest.read(in, parser);
+        assertEquals("/a", first.getPath());
+        assertTrue(first.discardBody());
+
+        HttpRequest second = HttpRequest.read(in, parser);
+        assertEquals("POST", second.getMethod());
+        assertEquals(5, second.getContentLength());
+        assertEquals("hello", readBody(second));
+        assertTrue(second.discardBody());
+
+        HttpRequest third = HttpRequest.read(in, parser);
+        assertEquals("/c", third.getPath());
+        assertEquals("q=1", third.getQueryString());
+        assertNull(HttpRequest.read(in, parser));
+    }
+
+    @Test
+    void skipsUnreadBodyBeforeNextRequest() throws Exception {
+        RequestInputStream in = stream("POST /a HTTP/1.1\r\nContent-Length: 11\r\n\r\nGET /x HTTP"
+                + "GET /b HTTP/1.1\r\n\r\n");
+        HttpRequestParser parser = new HttpRequestParser();
+        assertTrue(HttpRequest.read(in, parser).discardBody());
+        assertEquals("/b", HttpRequest.read(in, parser).getPath());
+    }
+
+    @Test
+    void readsChunkedBodyThenNextRequest() throws Exception {
+        RequestInputStream in = stream("POST /a HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n"
+                + "5\r\nhello\r\n6;ext=1\r\n world\r\n0\r\nX-Trailer: 1\r\n\r\n"
+                + "GET /b HTTP/1.1\r\n\r\n");
+        HttpRequestParser parser = new HttpRequestParser();
+        HttpRequest request = HttpRequest.read(in, parser);
+        assertTrue(request.isChunked());
+        assertEquals("hello world", readBody(request));
+        assertTrue(request.discardBody());
+        assertEquals("/b", HttpRequest.read(in, parser).getPath());
+    }
+
+    @Test
+    void readsHeadsArrivingInSmallPieces() throws Exception {
+        byte[] data = ("GET /a HTTP/1.1\r\nHost: " + "h".repeat(2000) + "\r\n\r\n"
+                + "POST /b HTTP/1.1\r\nContent-Length: 3\r\n\r\nabc").getBytes(ISO_8859_1);
+        // Tampon plus petit que l'en-tête : il est agrandi au fil de la lecture
+        RequestInputStream in = new RequestInputStream(new TrickleInputStream(data, 7), 16);
+        HttpRequestParser parser = new HttpRequestParser();
+        assertEquals(2000, HttpRequest.read(in, parser).getHeader("Host").length());
+        HttpRequest second = HttpRequest.read(in, parser);
+        assertEquals("abc", readBody(second));
+        assertNull(HttpRequest.read(in, parser));
+    }
+
+    @Test
+    void rejectsHeadOverLimitOnStream() {
+        RequestInputStream in = stream("GET / HTTP/1.1\r\nX-Long: " + "a".repeat(600) + "\r\n\r\n");
+        assertThrows(HttpRequest.HeaderTooLargeException.class, () -> HttpRequest.read(in, new HttpRequestParser(512, 100)));
+    }
+
+    @Test
+    void rejectsTrailersOverHeaderLimits() throws Exception {
+        HttpRequest request = HttpRequest.read(stream("POST / HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n"
+                + "1\r\na\r\n0\r\nA: 1\r\nB: 2\r\nC: 3\r\n\r\n"), new HttpRequestParser(512, 2));
+        assertThrows(HttpRequest.HeaderTooLargeException.class, () -> readBody(request));
+    }
+
+    @Test
+    void rejectsDuplicateContentLengthOnStream() {
+        RequestInputStream in = stream("POST / HTTP/1.1\r\nContent-Length: 3\r\nContent-Length: 30\r\n\r\nabc");
+        assertThrows(HttpRequest.MalformedRequestException.class, () -> HttpRequest.read(in, new HttpRequestParser()));
+    }
+
+    @Test
+    void closesConnectionWhenChunkedAndContentLength() throws Exception {
+        HttpRequest request = HttpRequest.read(stream("POST / HTTP/1.1\r\nTransfer-Encoding: chunked\r\n"
+                + "Content-Length: 5\r\n\r\n0\r\n\r\n"), new HttpRequestParser());
+        assertTrue(request.isChunked());
+        assertFalse(request.isKeepAlive());
+    }
+
+    @Test
+    void keepAliveDependsOnVersion() throws Exception {
+        HttpRequestParser parser = new HttpRequestParser();
+        assertTrue(HttpRequest.read(stream("GET / HTTP/1.1\r\n\r\n"), parser).isKeepAlive());
+        assertFalse(HttpRequest.read(stream("GET / HTTP/1.1\r\nConnection: close\r\n\r\n"), parser).isKeepAlive());
+        assertFalse(HttpRequest.read(stream("GET / HTTP/1.0\r\n\r\n"), parser).isKeepAlive());
+        assertTrue(HttpRequest.read(stream("GET / HTTP/1.0\r\nConnection: keep-alive\r\n\r\n"), parser).isKeepAlive());
+    }
+}
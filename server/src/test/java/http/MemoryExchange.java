@@ -0,0 +1,162 @@
+package http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+
+// Requête traitée par HttpServer.handleRequest sur une connexion en mémoire (même assemblage que
+// la connexion bloquante : ResponseBuffer sur le canal, fichiers envoyés par transferTo), dont la
+// réponse est gardée puis découpée en ligne d'état, en-têtes et corps
+final class MemoryExchange {
+    // Réponse reçue ; les noms d'en-têtes sont comparés sans tenir compte de la casse
+    static final class Response {
+        final int status;
+        final Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        final byte[] body;
+        // La connexion resterait ouverte après cette réponse
+        final boolean keepAlive;
+
+        private Response(byte[] raw, boolean keepAlive) {
+            this.keepAlive = keepAlive;
+            String text = new String(raw, ISO_8859_1);
+            int headEnd = text.indexOf("\r\n\r\n");
+            String[] lines = text.substring(0, headEnd).split("\r\n");
+            status = Integer.parseInt(lines[0].split(" ")[1]);
+            for (int i = 1; i < lines.length; i++) {
+                int colon = lines[i].indexOf(':');
+                headers.put(lines[i].substring(0, colon), lines[i].substring(colon + 1).trim());
+            }
+            int bodyStart = headEnd + 4;
+            if ("chunked".equals(headers.get("Transfer-Encoding"))) {
+                body = dechunk(raw, bodyStart);
+            } else {
+                byte[] rest = new byte[raw.length - bodyStart];
+                System.arraycopy(raw, bodyStart, rest, 0, rest.length);
+                body = rest;
+            }
+        }
+
+        String header(String name) {
+            return headers.get(name);
+        }
+
+        String text() {
+            return new String(body, ISO_8859_1);
+        }
+
+        private static byte[] dechunk(byte[] raw, int position) {
+            ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+            while (true) {
+                int lineEnd = position;
+                while (raw[lineEnd] != '\r') {
+                    lineEnd++;
+                }
+                int size = Integer.parseInt(new String(raw, position, lineEnd - position, ISO_8859_1), 16);
+                if (size == 0) {
+                    return decoded.toByteArray();
+                }
+                decoded.write(raw, lineEnd + 2, size);
+                position = lineEnd + 2 + size + 2;
+            }
+        }
+    }
+
+    private MemoryExchange() {
+    }
+
+    static Response get(String path, String... headers) throws IOException {
+        StringBuilder head = new StringBuilder("GET ").append(path).append(" HTTP/1.1\r\nHost: localhost\r\n");
+        for (String header : headers) {
+            head.append(header).append("\r\n");
+        }
+        return send(head.append("\r\n").toString(), null);
+    }
+
+    // Traite une requête dont l'en-tête est complet ; body fournit le corps éventuel
+    static Response send(String head, InputStream body) throws IOException {
+        return send(head, body, null);
+    }
+
+    // Idem, avec PHP exécuté par phpInterpreter (null = PHP désactivé)
+    static Response send(String head, InputStream body, String phpInterpreter) throws IOException {
+        HttpRequest request = request(head, body);
+        return respond(response -> HttpServer.handleRequest(request, response, phpInterpreter, phpInterpreter != null));
+    }
+
+    // Requête dont l'en-tête est complet ; body fournit le corps éventuel
+    static HttpRequest request(String head, InputStream body) throws IOException {
+        HttpRequestParser parser = new HttpRequestParser();
+        byte[] data = head.getBytes(ISO_8859_1);
+        parser.parse(data, 0, data.length);
+        return new HttpRequest(parser, body);
+    }
+
+    // Production d'une réponse sur la connexion en mémoire
+    interface Handler {
+        void handle(HttpResponse response) throws IOException;
+    }
+
+    static Response respond(Handler handler) throws IOException {
+        MemoryChannel channel = new MemoryChannel();
+        ResponseBuffer out = new ResponseBuffer(ResponseBuffer.POOL, channel);
+        HttpResponse.ChannelSender sender = new HttpResponse.ChannelSender() {
+            @Override
+            public void sendFile(File file, long position, long count) throws IOException {
+                out.flush();
+                HttpResponse.transferFile(file, position, count, channel);
+            }
+
+            @Override
+            public void sendBuffer(ByteBuffer buffer) throws IOException {
+                out.writeWith(buffer);
+            }
+        };
+        HttpResponse response = new HttpResponse(out, sender, true, 5, 100);
+        handler.handle(response);
+        out.flush();
+        return new Response(channel.bytes.toByteArray(), response.isKeepAlive());
+    }
+
+    private static final class MemoryChannel implements GatheringByteChannel {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        @Override
+        public int write(ByteBuffer source) {
+            int count = source.remaining();
+            byte[] copy = new byte[count];
+            source.get(copy);
+            bytes.write(copy, 0, count);
+            return count;
+        }
+
+        @Override
+        public long write(ByteBuffer[] sources, int offset, int length) {
+            long count = 0;
+            for (int i = offset; i < offset + length; i++) {
+                count += write(sources[i]);
+            }
+            return count;
+        }
+
+        @Override
+        public long write(ByteBuffer[] sources) {
+            return write(sources, 0, sources.length);
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package http;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static org.junit.jupiter.api.Assertions.*;
+
+// Moteur NIO sur un vrai socket : requêtes en pipeline, corps mis de côté en mémoire ou sur
+// disque, refus des corps trop grands, contre-pression de la sortie CGI. PHP est exécuté par un
+// script shell qui renvoie son entrée (echo.php), ou écrit une longue sortie puis un fichier
+// témoin (large.php).
+@DisabledOnOs(OS.WINDOWS)
+class NioServerTest {
+    private static final int MAX_BODY_BYTES = 2 * 1024 * 1024;
+    private static final int SPOOL_BYTES = 64 * 1024;
+    // Bien plus que ce que peuvent contenir les tampons des sockets et le seuil haut de la boucle
+    private static final int LARGE_OUTPUT_BYTES = 32 * 1024 * 1024;
+
+    @TempDir
+    static Path root;
+    private static int port;
+
+    @BeforeAll
+    static void startServer() throws Exception {
+        Files.writeString(root.resolve("a.txt"), "premier");
+        Files.writeString(root.resolve("b.txt"), "second");
+        Files.writeString(root.resolve("echo.php"), "<?php\n");
+        Files.writeString(root.resolve("large.php"), "<?php\n");
+        Path interpreter = Files.writeString(root.resolve("php.sh"), "#!/bin/sh\n"
+                + "printf 'Content-Type: application/octet-stream\\r\\n\\r\\n'\n"
+                + "case \"$1\" in\n"
+                + "*large.php) head -c " + LARGE_OUTPUT_BYTES + " /dev/zero; touch '" + root.resolve("large.done") + "' ;;\n"
+                + "*) cat ;;\n"
+                + "esac\n", ISO_8859_1);
+        assertTrue(interpreter.toFile().setExecutable(true));
+        HttpServer.setDocumentRoot(root.toFile());
+
+        try (ServerSocket probe = new ServerSocket(0)) {
+            port = probe.getLocalPort();
+        }
+        NioServer server = new NioServer(port, interpreter.toString(), true,
+                new WorkerPool("test", 4, 64, 10000, null), null, 1, 5000, 100,
+                MAX_BODY_BYTES, SPOOL_BYTES, 5000, 5000, 5000);
+        Thread acceptor = new Thread(() -> {
+            try {
+                server.start();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, "nio-test-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        for (int attempt = 0; ; attempt++) {
+            try (Socket socket = new Socket("127.0.0.1", port)) {
+                return;
+            } catch (IOException e) {
+                if (attempt == 100) {
+                    throw e;
+                }
+                Thread.sleep(50);
+            }
+        }
+    }
+
+    // Réponse lue sur la connexion : corps délimité par Content-Length ou par blocs
+    static final class Response {
+        int status;
+        final Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        byte[] body;
+
+        String text() {
+            return new String(body, ISO_8859_1);
+        }
+    }
+
+    static Response readResponse(InputStream in) throws IOException {
+        Response response = new Response();
+        String statusLine = readLine(in);
+        assertNotNull(statusLine, "connexion fermée avant la réponse");
+        response.status = Integer.parseInt(statusLine.split(" ")[1]);
+        String line;
+        while (!(line = readLine(in)).isEmpty()) {
+            int colon = line.indexOf(':');
+            response.headers.put(line.substring(0, colon), line.substring(colon + 1).trim());
+        }
+        if ("chunked".equalsIgnoreCase(response.headers.get("Transfer-Encoding"))) {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            int size;
+            while ((size = Integer.parseInt(readLine(in), 16)) > 0) {
+                body.write(in.readNBytes(size));
+                readLine(in);
+            }
+            readLine(in);
+            response.body = body.toByteArray();
+        } else {
+            response.body = in.readNBytes(Integer.parseInt(response.headers.getOrDefault("Content-Length", "0")));
+        }
+        return response;
+    }
+
+    // Ligne terminée par CRLF, sans celui-ci ; null en fin de flux
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b < 0) {
+                return line.length() == 0 ? null : line.toString();
+            }
+            if (b != '\r') {
+                line.append((char) b);
+            }
+        }
+        return line.toString();
+    }
+
+    private static Socket connect() throws IOException {
+        Socket socket = new Socket("127.0.0.1", port);
+        socket.setSoTimeout(10000);
+        return socket;
+    }
+
+    // Client qui ne lit pas : petit tampon de réception, fixé avant la connexion
+    private static Socket connectSlowReader() throws IOException {
+        Socket socket = new Socket();
+        socket.setReceiveBufferSize(64 * 1024);
+        socket.setSoTimeout(10000);
+        socket.connect(new InetSocketAddress("127.0.0.1", port));
+        return socket;
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] data = new byte[length];
+        new Random(length).nextBytes(data);
+        return data;
+    }
+
+    private static byte[] chunked(byte[] data, int chunkSize) {
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        for (int offset = 0; offset < data.length; offset += chunkSize) {
+            int count = Math.min(chunkSize, data.length - offset);
+            encoded.writeBytes((Integer.toHexString(count) + "\r\n").getBytes(ISO_8859_1));
+            encoded.write(data, offset, count);
+            encoded.writeBytes("\r\n".getBytes(ISO_8859_1));
+        }
+        encoded.writeBytes("0\r\n\r\n".getBytes(ISO_8859_1));
+        return encoded.toByteArray();
+    }
+
+    @Test
+    void answersPipelinedRequestsInOrder() throws Exception {
+        try (Socket socket = connect()) {
+            socket.getOutputStream().write(("GET /a.txt HTTP/1.1\r\nHost: x\r\n\r\n"
+                    + "GET /missing.txt HTTP/1.1\r\nHost: x\r\n\r\n"
+                    + "GET /b.txt HTTP/1.1\r\nHost: x\r\n\r\n").getBytes(ISO_8859_1));
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            Response first = readResponse(in);
+            assertEquals(200, first.status);
+            assertEquals("premier", first.text());
+            assertEquals(404, readResponse(in).status);
+            Response third = readResponse(in);
+            assertEquals(200, third.status);
+            assertEquals("second", third.text());
+        }
+    }
+
+    @Test
+    void rejectsBodyOverLimit() throws Exception {
+        try (Socket socket = connect()) {
+            socket.getOutputStream().write(("POST /echo.php HTTP/1.1\r\nHost: x\r\nContent-Length: "
+                    + (MAX_BODY_BYTES + 1) + "\r\n\r\n").getBytes(ISO_8859_1));
+            InputStream in = socket.getInputStream();
+            assertEquals(413, readResponse(in).status);
+            assertEquals(-1, in.read());
+        }
+        // Corps en blocs : refusé dès que la limite est dépassée
+        try (Socket socket = connect()) {
+            OutputStream out = socket.getOutputStream();
+            out.write("POST /echo.php HTTP/1.1\r\nHost: x\r\nTransfer-Encoding: chunked\r\n\r\n".getBytes(ISO_8859_1));
+            byte[] chunk = chunked(new byte[256 * 1024], 256 * 1024);
+            try {
+                for (int i = 0; i < 10; i++) {
+                    out.write(chunk, 0, chunk.length - 5);
+                }
+            } catch (IOException e) {
+                // Connexion fermée par le serveur après sa réponse
+            }
+            assertEquals(413, readResponse(socket.getInputStream()).status);
+        }
+    }
+
+    @Test
+    void keepsSmallBodyInMemoryAndSpoolsLargeOne() throws Exception {
+        byte[] small = randomBytes(1000);
+        byte[] large = randomBytes(1024 * 1024 + 123);
+        try (Socket socket = connect()) {
+            OutputStream out = socket.getOutputStream();
+            out.write(("POST /echo.php HTTP/1.1\r\nHost: x\r\nContent-Length: " + small.length + "\r\n\r\n")
+                    .getBytes(ISO_8859_1));
+            out.write(small);
+            out.write(("POST /echo.php HTTP/1.1\r\nHost: x\r\nContent-Length: " + large.length + "\r\n\r\n")
+                    .getBytes(ISO_8859_1));
+            out.write(large);
+            // Requête en pipeline derrière le corps écrit sur disque
+            out.write("GET /a.txt HTTP/1.1\r\nHost: x\r\n\r\n".getBytes(ISO_8859_1));
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            assertArrayEquals(small, readResponse(in).body);
+            Response echoed = readResponse(in);
+            assertEquals(200, echoed.status);
+            assertArrayEquals(large, echoed.body);
+            assertEquals("premier", readResponse(in).text());
+        }
+    }
+
+    @Test
+    void spoolsChunkedBody() throws Exception {
+        byte[] data = randomBytes(300_000);
+        try (Socket socket = connect()) {
+            OutputStream out = socket.getOutputStream();
+            out.write("POST /echo.php HTTP/1.1\r\nHost: x\r\nTransfer-Encoding: chunked\r\n\r\n".getBytes(ISO_8859_1));
+            out.write(chunked(data, 1000));
+            Response response = readResponse(new BufferedInputStream(socket.getInputStream()));
+            assertEquals(200, response.status);
+            assertArrayEquals(data, response.body);
+        }
+    }
+
+    @Test
+    void pausesScriptWhileClientDoesNotRead() throws Exception {
+        Path done = root.resolve("large.done");
+        try (Socket socket = connectSlowReader()) {
+            socket.getOutputStream().write("GET /large.php HTTP/1.1\r\nHost: x\r\n\r\n".getBytes(ISO_8859_1));
+            // La boucle n'accumule pas toute la sortie : le script reste bloqué sur son tube
+            Thread.sleep(1500);
+            assertFalse(Files.exists(done));
+
+            Response response = readResponse(new BufferedInputStream(socket.getInputStream()));
+            assertEquals(200, response.status);
+            assertEquals(LARGE_OUTPUT_BYTES, response.body.length);
+        }
+        for (int i = 0; i < 100 && !Files.exists(done); i++) {
+            Thread.sleep(50);
+        }
+        assertTrue(Files.exists(done));
+    }
+}
@@ -0,0 +1,89 @@
+package http;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static org.junit.jupiter.api.Assertions.*;
+
+// Réponses 206 et 416 pour un fichier statique servi par transferTo
+class RangeRequestTest {
+    private static final String CONTENT = "0123456789abcdefghijklmnopqrstuvwxyz";
+
+    @TempDir
+    static Path root;
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        Files.write(root.resolve("data.bin"), CONTENT.getBytes(ISO_8859_1));
+        HttpServer.setDocumentRoot(root.toFile());
+    }
+
+    @Test
+    void servesSingleRange() throws Exception {
+        MemoryExchange.Response response = MemoryExchange.get("/data.bin", "Range: bytes=10-15");
+        assertEquals(206, response.status);
+        assertEquals("bytes 10-15/36", response.header("Content-Range"));
+        assertEquals("6", response.header("Content-Length"));
+        assertEquals("abcdef", response.text());
+    }
+
+    @Test
+    void servesSuffixAndOpenRanges() throws Exception {
+        assertEquals("wxyz", MemoryExchange.get("/data.bin", "Range: bytes=-4").text());
+        assertEquals("yz", MemoryExchange.get("/data.bin", "Range: bytes=34-").text());
+    }
+
+    @Test
+    void servesSeveralRangesAsMultipart() throws Exception {
+        MemoryExchange.Response response = MemoryExchange.get("/data.bin", "Range: bytes=0-1,30-31");
+        assertEquals(206, response.status);
+        String type = response.header("Content-Type");
+        assertTrue(type.startsWith("multipart/byteranges; boundary="), type);
+        String boundary = type.substring(type.indexOf('=') + 1);
+        String body = response.text();
+        assertEquals(Integer.parseInt(response.header("Content-Length")), response.body.length);
+        assertTrue(body.contains("Content-Range: bytes 0-1/36\r\n\r\n01\r\n--" + boundary), body);
+        assertTrue(body.contains("Content-Range: bytes 30-31/36\r\n\r\nuv\r\n--" + boundary + "--"), body);
+    }
+
+    @Test
+    void answers416WhenNoRangeIsSatisfiable() throws Exception {
+        MemoryExchange.Response response = MemoryExchange.get("/data.bin", "Range: bytes=100-200");
+        assertEquals(416, response.status);
+        assertEquals("bytes */36", response.header("Content-Range"));
+    }
+
+    @Test
+    void ignoresRangeWithoutSpec() throws Exception {
+        MemoryExchange.Response response = MemoryExchange.get("/data.bin", "Range: bytes=,");
+        assertEquals(200, response.status);
+        assertEquals(CONTENT, response.text());
+    }
+
+    @Test
+    void servesWholeFileWhenIfRangeDoesNotMatch() throws Exception {
+        MemoryExchange.Response response = MemoryExchange.get("/data.bin", "Range: bytes=0-1", "If-Range: \"other\"");
+        assertEquals(200, response.status);
+        assertEquals(CONTENT, response.text());
+
+        String etag = MemoryExchange.get("/data.bin").header("ETag");
+        response = MemoryExchange.get("/data.bin", "Range: bytes=0-1", "If-Range: " + etag);
+        assertEquals(206, response.status);
+        assertEquals("01", response.text());
+    }
+
+    @Test
+    void advertisesRangeSupport() throws Exception {
+        File file = root.resolve("data.bin").toFile();
+        MemoryExchange.Response response = MemoryExchange.get("/data.bin");
+        assertEquals("bytes", response.header("Accept-Ranges"));
+        assertEquals(String.valueOf(file.length()), response.header("Content-Length"));
+    }
+}
@@ -0,0 +1,133 @@
+package http;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static org.junit.jupiter.api.Assertions.*;
+
+// Cache des fichiers statiques : alias, éviction LRU bornée en octets, invalidation par date
+// de modification ou par WatchService
+class StaticFileCacheTest {
+    @TempDir
+    Path root;
+
+    private File file(String name, String content) throws IOException {
+        return Files.writeString(root.resolve(name), content, ISO_8859_1).toFile().getCanonicalFile();
+    }
+
+    private static String body(StaticFileCache.Entry entry) {
+        ByteBuffer body = entry.getBody().duplicate();
+        byte[] data = new byte[body.remaining()];
+        body.get(data);
+        return new String(data, ISO_8859_1);
+    }
+
+    @Test
+    void servesLoadedFileUnderEachAlias() throws Exception {
+        StaticFileCache cache = new StaticFileCache(1024 * 1024, 64 * 1024, false, false);
+        File index = file("index.html", "<p>accueil</p>");
+        assertNull(cache.lookup("/"));
+
+        StaticFileCache.Entry entry = cache.load("/", index, "text/html", true);
+        assertSame(entry, cache.lookup("/"));
+        assertSame(entry, cache.load("/index.html", index, "text/html", true));
+        assertSame(entry, cache.lookup("/index.html"));
+        assertEquals(1, cache.getEntryCount());
+        assertEquals(2, cache.getHits());
+        assertEquals(2, cache.getMisses());
+
+        assertEquals("<p>accueil</p>", body(entry));
+        String headers = new String(entry.getHeaders(), ISO_8859_1);
+        assertTrue(headers.startsWith("Content-Type: text/html\r\n"), headers);
+        assertTrue(headers.contains("Vary: Accept-Encoding\r\n"), headers);
+        assertTrue(headers.contains("ETag: " + HttpValidators.etag(14, index.lastModified()) + "\r\n"), headers);
+        assertTrue(headers.endsWith("Content-Length: 14\r\n"), headers);
+    }
+
+    @Test
+    void keepsDirectBodies() throws Exception {
+        StaticFileCache cache = new StaticFileCache(1024 * 1024, 64 * 1024, true, false);
+        StaticFileCache.Entry entry = cache.load("/a.txt", file("a.txt", "direct"), "text/plain", false);
+        assertTrue(entry.getBody().isDirect());
+        assertTrue(entry.getBody().isReadOnly());
+        assertEquals("direct", body(entry));
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedEntries() throws Exception {
+        String content = "x".repeat(1000);
+        StaticFileCache probe = new StaticFileCache(1024 * 1024, 64 * 1024, false, false);
+        int entrySize = probe.load("/probe", file("probe.txt", content), "text/plain", false).getHeaders().length + 1000;
+        // Place pour deux entrées seulement
+        StaticFileCache cache = new StaticFileCache(2 * entrySize + 10, 64 * 1024, false, false);
+        cache.load("/a", file("a.txt", content), "text/plain", false);
+        cache.load("/b", file("b.txt", content), "text/plain", false);
+        // Un accès à /a fait de /b l'entrée la moins récemment utilisée
+        assertNotNull(cache.lookup("/a"));
+        cache.load("/c", file("c.txt", content), "text/plain", false);
+
+        assertNotNull(cache.lookup("/a"));
+        assertNull(cache.lookup("/b"));
+        assertNotNull(cache.lookup("/c"));
+        assertEquals(1, cache.getEvictions());
+        assertEquals(2, cache.getEntryCount());
+        assertTrue(cache.getSize() <= 2 * entrySize + 10);
+    }
+
+    @Test
+    void skipsFilesOverEntryLimit() throws Exception {
+        StaticFileCache cache = new StaticFileCache(1024 * 1024, 100, false, false);
+        assertNull(cache.load("/large", file("large.txt", "y".repeat(101)), "text/plain", false));
+        assertNull(cache.lookup("/large"));
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    void invalidatesOnModificationTime() throws Exception {
+        StaticFileCache cache = new StaticFileCache(1024 * 1024, 64 * 1024, false, false);
+        File page = file("page.txt", "avant");
+        cache.load("/page.txt", page, "text/plain", false);
+        assertNotNull(cache.lookup("/page.txt"));
+
+        Files.writeString(page.toPath(), "après", ISO_8859_1);
+        assertTrue(page.setLastModified(page.lastModified() + 2000));
+        assertNull(cache.lookup("/page.txt"));
+        assertEquals(0, cache.getEntryCount());
+        assertEquals("après", body(cache.load("/page.txt", page, "text/plain", false)));
+    }
+
+    @Test
+    void invalidatesDirectoryOnChange() throws Exception {
+        StaticFileCache cache = new StaticFileCache(1024 * 1024, 64 * 1024, false, true);
+        File page = file("page.txt", "avant");
+        cache.load("/page.txt", page, "text/plain", false);
+        cache.load("/other.txt", file("other.txt", "autre"), "text/plain", false);
+
+        // Un nouveau fichier du répertoire (ex. index.php) suffit à invalider ses entrées
+        file("index.php", "<?php\n");
+        for (int i = 0; i < 200 && cache.getEntryCount() > 0; i++) {
+            Thread.sleep(50);
+        }
+        assertNull(cache.lookup("/page.txt"));
+        assertNull(cache.lookup("/other.txt"));
+    }
+
+    @Test
+    void invalidatesExplicitly() throws Exception {
+        StaticFileCache cache = new StaticFileCache(1024 * 1024, 64 * 1024, false, false);
+        File page = file("page.txt", "contenu");
+        cache.load("/page.txt", page, "text/plain", false);
+        cache.load("/alias", page, "text/plain", false);
+        cache.invalidate(page.getPath());
+        assertNull(cache.lookup("/page.txt"));
+        assertNull(cache.lookup("/alias"));
+        assertEquals(0, cache.getSize());
+    }
+}
@@ -0,0 +1,132 @@
+package http;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static org.junit.jupiter.api.Assertions.*;
+
+// Délais du moteur bloquant : attente d'une requête, réception de l'en-tête (durée totale, même
+// si le client envoie régulièrement), inactivité pendant le corps, écriture sans progression
+class TimeoutTest {
+    private Socket client;
+    private Socket server;
+    private RequestInputStream in;
+
+    @BeforeEach
+    void connect() throws IOException {
+        try (ServerSocket listener = new ServerSocket(0)) {
+            client = new Socket("127.0.0.1", listener.getLocalPort());
+            server = listener.accept();
+        }
+        in = new RequestInputStream(server.getInputStream(), 1024);
+        in.setTimeouts(server, 200, 500, 200);
+    }
+
+    @AfterEach
+    void close() throws IOException {
+        client.close();
+        server.close();
+    }
+
+    // Envoie data octet par octet, un octet toutes les intervalMillis ms, jusqu'à la fermeture
+    private Thread trickle(String data, long intervalMillis) {
+        Thread sender = new Thread(() -> {
+            try {
+                OutputStream out = client.getOutputStream();
+                for (byte b : data.getBytes(ISO_8859_1)) {
+                    out.write(b);
+                    out.flush();
+                    Thread.sleep(intervalMillis);
+                }
+            } catch (IOException | InterruptedException e) {
+                // Connexion fermée par le test
+            }
+        }, "trickle");
+        sender.setDaemon(true);
+        sender.start();
+        return sender;
+    }
+
+    @Test
+    void readsCompleteHeaderWithinTimeout() throws Exception {
+        client.getOutputStream().write("GET / HTTP/1.1\r\nHost: x\r\n\r\n".getBytes(ISO_8859_1));
+        HttpRequestParser parser = new HttpRequestParser();
+        assertTrue(in.readHead(parser));
+        assertEquals(200, server.getSoTimeout());
+    }
+
+    @Test
+    void idleConnectionTimesOutWithoutRequest() {
+        SocketTimeoutException e = assertThrows(SocketTimeoutException.class, () -> in.readHead(new HttpRequestParser()));
+        // Pas de requête commencée : simple fin de connexion inactive, sans 408
+        assertFalse(e instanceof HttpRequest.RequestTimeoutException);
+    }
+
+    @Test
+    void slowHeaderTimesOutAfterTotalDelay() {
+        // Un octet toutes les 50 ms : jamais 200 ms sans données, mais l'en-tête dépasse 500 ms
+        trickle("GET / HTTP/1.1\r\nHost: x\r\nX-Slow: " + "a".repeat(100) + "\r\n\r\n", 50);
+        long start = System.nanoTime();
+        assertThrows(HttpRequest.RequestTimeoutException.class, () -> in.readHead(new HttpRequestParser()));
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(elapsed >= 450 && elapsed < 2000, elapsed + " ms");
+    }
+
+    @Test
+    void bodyTimesOutAfterInactivity() throws Exception {
+        client.getOutputStream().write("POST / HTTP/1.1\r\nHost: x\r\nContent-Length: 10\r\n\r\nabc".getBytes(ISO_8859_1));
+        assertTrue(in.readHead(new HttpRequestParser()));
+        byte[] body = new byte[10];
+        assertEquals(3, in.read(body, 0, body.length));
+        assertThrows(SocketTimeoutException.class, () -> in.read(body, 3, 7));
+    }
+
+    @Test
+    void watchdogClosesStalledWrite() throws Exception {
+        ServerMetrics metrics = new ServerMetrics();
+        WriteWatchdog watchdog = new WriteWatchdog(100, metrics);
+        CountDownLatch stalledClosed = new CountDownLatch(1);
+        CountDownLatch idleClosed = new CountDownLatch(1);
+        Closeable stalledTarget = stalledClosed::countDown;
+        Closeable idleTarget = idleClosed::countDown;
+
+        try (WriteWatchdog.Guard stalled = watchdog.register(stalledTarget, "stalled");
+             WriteWatchdog.Guard idle = watchdog.register(idleTarget, "idle")) {
+            stalled.begin();
+            // Écriture terminée à temps : la connexion reste ouverte
+            idle.begin();
+            idle.end();
+            assertTrue(stalledClosed.await(5, TimeUnit.SECONDS));
+            Thread.sleep(300);
+            assertEquals(1, idleClosed.getCount());
+            assertTrue(metrics.toText().contains("write=1"), metrics.toText());
+        }
+    }
+
+    @Test
+    void watchdogRestartsDelayOnEachWrite() throws Exception {
+        WriteWatchdog watchdog = new WriteWatchdog(300, new ServerMetrics());
+        CountDownLatch closed = new CountDownLatch(1);
+        Closeable target = closed::countDown;
+        try (WriteWatchdog.Guard guard = watchdog.register(target, "progressing")) {
+            // Écritures successives qui progressent : plus de 300 ms au total, jamais 300 ms chacune
+            for (int i = 0; i < 10; i++) {
+                guard.begin();
+                Thread.sleep(60);
+            }
+            guard.end();
+            assertEquals(1, closed.getCount());
+        }
+    }
+}
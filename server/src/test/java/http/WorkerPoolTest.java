@@ -0,0 +1,158 @@
+package http;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Contrôle d'admission : refus quand la file ou la limite adaptative est pleine, expiration des
+// tâches restées trop longtemps en file, réponse 503 avec Retry-After
+class WorkerPoolTest {
+
+    // Occupe un thread du pool jusqu'à l'ouverture de release
+    private static void occupy(WorkerPool pool, CountDownLatch release) throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        assertTrue(pool.execute(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, () -> fail("tâche expirée")));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void rejectsWhenQueueIsFull() throws Exception {
+        WorkerPool pool = new WorkerPool("test", 1, 1, 0, null);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            occupy(pool, release);
+            CountDownLatch queuedRan = new CountDownLatch(1);
+            assertTrue(pool.execute(queuedRan::countDown, () -> fail("tâche expirée")));
+            assertFalse(pool.execute(() -> fail("tâche refusée exécutée"), () -> fail("tâche refusée expirée")));
+            assertTrue(pool.toString().contains("rejected=1"), pool.toString());
+
+            release.countDown();
+            assertTrue(queuedRan.await(5, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void rejectsWithoutQueueWhenAllThreadsAreBusy() throws Exception {
+        WorkerPool pool = new WorkerPool("test", 1, 0, 0, null);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            occupy(pool, release);
+            assertFalse(pool.execute(() -> fail("tâche refusée exécutée"), () -> fail("tâche refusée expirée")));
+        } finally {
+            release.countDown();
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void runsExpiryInsteadOfTaskAfterQueueTimeout() throws Exception {
+        AdaptiveLimit limit = new AdaptiveLimit(1, 10, TimeUnit.MILLISECONDS.toNanos(10));
+        WorkerPool pool = new WorkerPool("test", 1, 4, 50, limit);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            occupy(pool, release);
+            AtomicBoolean ran = new AtomicBoolean();
+            CountDownLatch expired = new CountDownLatch(1);
+            assertTrue(pool.execute(() -> ran.set(true), expired::countDown));
+            Thread.sleep(200);
+            release.countDown();
+
+            assertTrue(expired.await(5, TimeUnit.SECONDS));
+            assertFalse(ran.get());
+            assertTrue(pool.toString().contains("expired=1"), pool.toString());
+            // L'expiration réduit la limite et libère la place de la tâche
+            assertTrue(limit.getLimit() < 10);
+            for (int i = 0; i < 100 && limit.getInFlight() > 0; i++) {
+                Thread.sleep(10);
+            }
+            assertEquals(0, limit.getInFlight());
+        } finally {
+            release.countDown();
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void rejectsOverAdaptiveLimit() throws Exception {
+        AdaptiveLimit limit = new AdaptiveLimit(1, 1, TimeUnit.SECONDS.toNanos(1));
+        WorkerPool pool = new WorkerPool("test", 2, 4, 0, limit);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            occupy(pool, release);
+            // Un thread et la file sont libres, mais la seule place de la limite est prise
+            assertFalse(pool.execute(() -> fail("tâche refusée exécutée"), () -> fail("tâche refusée expirée")));
+            assertEquals(1, limit.getInFlight());
+
+            release.countDown();
+            for (int i = 0; i < 100 && limit.getInFlight() > 0; i++) {
+                Thread.sleep(10);
+            }
+            CountDownLatch ran = new CountDownLatch(1);
+            assertTrue(pool.execute(ran::countDown, () -> fail("tâche expirée")));
+            assertTrue(ran.await(5, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void adaptiveLimitShrinksOnQueueingAndGrowsBack() {
+        long target = TimeUnit.MILLISECONDS.toNanos(10);
+        AdaptiveLimit limit = new AdaptiveLimit(2, 20, target);
+        assertEquals(20, limit.getLimit());
+
+        // Décroissance multiplicative bornée par le minimum
+        limit.onStart(2 * target);
+        assertEquals(18, limit.getLimit());
+        for (int i = 0; i < 100; i++) {
+            limit.onExpired();
+        }
+        assertEquals(2, limit.getLimit());
+
+        // Croissance additive : environ une place par limite requêtes rapides
+        for (int i = 0; i < 3; i++) {
+            limit.onStart(0);
+        }
+        assertEquals(3, limit.getLimit());
+        for (int i = 0; i < 1000; i++) {
+            limit.onStart(0);
+        }
+        assertEquals(20, limit.getLimit());
+    }
+
+    @Test
+    void adaptiveLimitCountsPlaces() {
+        AdaptiveLimit limit = new AdaptiveLimit(2, 2, TimeUnit.SECONDS.toNanos(1));
+        assertTrue(limit.tryAcquire());
+        assertTrue(limit.tryAcquire());
+        assertFalse(limit.tryAcquire());
+        assertEquals(2, limit.getInFlight());
+        limit.release();
+        assertTrue(limit.tryAcquire());
+    }
+
+    @Test
+    void answersRejectedRequestWith503AndRetryAfter() throws Exception {
+        HttpRequest request = MemoryExchange.request("GET /index.php HTTP/1.1\r\nHost: x\r\n\r\n", null);
+        MemoryExchange.Response response = MemoryExchange.respond(out -> HttpServer.rejectRequest(request, out));
+        assertEquals(503, response.status);
+        assertEquals("1", response.header("Retry-After"));
+        assertTrue(response.text().contains("503 Service Unavailable"));
+        assertFalse(response.keepAlive);
+    }
+}